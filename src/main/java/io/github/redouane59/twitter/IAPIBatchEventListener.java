@@ -0,0 +1,31 @@
+package io.github.redouane59.twitter;
+
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import java.util.List;
+
+/**
+ * Listener receiving the tweets of a stream by batches, given to the streams wrapped in a {@link io.github.redouane59.twitter.helpers.TweetBatcher}
+ */
+public interface IAPIBatchEventListener {
+
+  /**
+   * Triggered when a problem from the API occurs on the stream, after the tweets received before it
+   */
+  void onStreamError(int httpCode, String error);
+
+  /**
+   * Triggered when a batch of tweets is received. The list is reused for the next batch once this method returns, it must be copied to be kept.
+   */
+  void onTweetsStreamed(List<Tweet> tweets);
+
+  /**
+   * This event happens if we receive something different from a Tweet.class, after the tweets received before it
+   */
+  void onUnknownDataStreamed(String json);
+
+  /**
+   * Triggered on a network issue, after the tweets received before it
+   */
+  void onStreamEnded(Exception e);
+
+}
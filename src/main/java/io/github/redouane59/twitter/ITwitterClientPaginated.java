@@ -0,0 +1,185 @@
+package io.github.redouane59.twitter;
+
+import io.github.redouane59.twitter.dto.dm.deprecatedV1.DirectMessage;
+import io.github.redouane59.twitter.dto.dm.deprecatedV1.DmListAnswer;
+import io.github.redouane59.twitter.dto.endpoints.AdditionalParameters;
+import io.github.redouane59.twitter.dto.getrelationship.IdList;
+import io.github.redouane59.twitter.dto.tweet.TweetList;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.TweetData;
+import io.github.redouane59.twitter.dto.user.UserList;
+import io.github.redouane59.twitter.dto.user.UserV2.UserData;
+import io.github.redouane59.twitter.helpers.CrawlSession;
+import io.github.redouane59.twitter.helpers.PageIterator;
+import java.nio.file.Path;
+
+/**
+ * Lazy version of the paginated endpoints. Instead of collecting all the pages before returning like the recursive calls do, each method returns a
+ * {@link PageIterator} requesting the next page only when the previous one has been consumed. It can be used as an Iterator of pages, a Stream of
+ * pages or items, or with a page callback, and the iteration can be stopped at any time without calling the remaining pages. Nothing is requested
+ * before the first page is asked for. When no maxResults is given, the pages are requested with 100 results.
+ * <p>
+ * The crawl methods save the progress of the iteration in a checkpoint file, to resume a long crawl after a restart without requesting again the
+ * pages already processed (see {@link CrawlSession}).
+ */
+public interface ITwitterClientPaginated {
+
+  /**
+   * Search tweets from last 7 days calling https://api.twitter.com/2/tweets/search/recent
+   *
+   * @param query the search query
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, maxResults, nextToken
+   * @return an iterator over the pages of tweets
+   */
+  PageIterator<TweetList, TweetData> searchTweetsPages(String query, AdditionalParameters additionalParameters);
+
+  /**
+   * Search archived tweets calling https://api.twitter.com/2/tweets/search/all
+   *
+   * @param query the search query
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, maxResults, nextToken
+   * @return an iterator over the pages of tweets
+   */
+  PageIterator<TweetList, TweetData> searchAllTweetsPages(String query, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the most recent Tweets posted by the user calling https://api.twitter.com/2/users/:id/tweets
+   *
+   * @param userId identifier of the Twitter account (user ID) for whom to return results.
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, maxResults, paginationToken
+   * @return an iterator over the pages of tweets
+   */
+  PageIterator<TweetList, TweetData> getUserTimelinePages(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the most recent mentions received posted by the user calling https://api.twitter.com/2/users/:id/mentions
+   *
+   * @param userId identifier of the Twitter account (user ID) for whom to return results.
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, maxResults, paginationToken
+   * @return an iterator over the pages of tweets
+   */
+  PageIterator<TweetList, TweetData> getUserMentionsPages(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the tweets liked by a user calling https://api.twitter.com/2/users/:id/liked_tweets
+   *
+   * @param userId ID of the user to request liked Tweets for.
+   * @param additionalParameters accepted parameters are maxResults, paginationToken
+   * @return an iterator over the pages of tweets
+   */
+  PageIterator<TweetList, TweetData> getLikedTweetsPages(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the tweets of a list calling https://api.twitter.com/2/lists/:id/tweets
+   *
+   * @param listId the id of the list
+   * @param additionalParameters accepted parameters are maxResults, paginationToken
+   * @return an iterator over the pages of tweets
+   */
+  PageIterator<TweetList, TweetData> getListTweetsPages(String listId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the followers of a user calling https://api.twitter.com/2/users/:id/followers
+   *
+   * @param userId the id of the targeted user
+   * @param additionalParameters accepted parameters are maxResults, paginationToken
+   * @return an iterator over the pages of users
+   */
+  PageIterator<UserList, UserData> getFollowersPages(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the users followed by a user calling https://api.twitter.com/2/users/:id/following
+   *
+   * @param userId the id of the targeted user
+   * @param additionalParameters accepted parameters are maxResults, paginationToken
+   * @return an iterator over the pages of users
+   */
+  PageIterator<UserList, UserData> getFollowingPages(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the users who liked a tweet calling https://api.twitter.com/2/tweets/:id/liking_users
+   *
+   * @param tweetId the id of the tweet
+   * @return an iterator over the pages of users
+   */
+  PageIterator<UserList, UserData> getLikingUsersPages(String tweetId);
+
+  /**
+   * Get the users who retweeted a tweet calling https://api.twitter.com/2/tweets/:id/retweeted_by
+   *
+   * @param tweetId the id of the tweet
+   * @return an iterator over the pages of users
+   */
+  PageIterator<UserList, UserData> getRetweetingUsersPages(String tweetId);
+
+  /**
+   * Get the members of a list calling https://api.twitter.com/2/lists/:id/members
+   *
+   * @param listId the id of the list
+   * @return an iterator over the pages of users
+   */
+  PageIterator<UserList, UserData> getListMembersPages(String listId);
+
+  /**
+   * Get the ids of the followers of a user, by pages of 5000, calling https://api.twitter.com/1.1/followers/ids.json
+   *
+   * @param userId the id of the targeted user
+   * @return an iterator over the pages of ids
+   */
+  PageIterator<IdList, String> getFollowersIdsPages(String userId);
+
+  /**
+   * Get the ids of the users followed by a user, by pages of 5000, calling https://api.twitter.com/1.1/friends/ids.json
+   *
+   * @param userId the id of the targeted user
+   * @return an iterator over the pages of ids
+   */
+  PageIterator<IdList, String> getFollowingIdsPages(String userId);
+
+  /**
+   * Get the Direct Message events of the last 30 days, in reverse-chronological order, calling
+   * https://api.twitter.com/1.1/direct_messages/events/list.json
+   *
+   * @return an iterator over the pages of direct messages
+   */
+  PageIterator<DmListAnswer, DirectMessage> getDmListPages();
+
+  /**
+   * Search tweets from the full archive calling https://api.twitter.com/2/tweets/search/all, resuming from the checkpoint file if it exists
+   *
+   * @param query the search query
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, maxResults, nextToken
+   * @param checkpointFile the file where the progress of the crawl is saved after each page
+   * @return an iterator over the pages of tweets following the checkpoint
+   */
+  CrawlSession<TweetList, TweetData> searchAllTweetsCrawl(String query, AdditionalParameters additionalParameters, Path checkpointFile);
+
+  /**
+   * Get the most recent Tweets posted by the user calling https://api.twitter.com/2/users/:id/tweets, resuming from the checkpoint file if it
+   * exists
+   *
+   * @param userId identifier of the Twitter user
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, maxResults, paginationToken
+   * @param checkpointFile the file where the progress of the crawl is saved after each page
+   * @return an iterator over the pages of tweets following the checkpoint
+   */
+  CrawlSession<TweetList, TweetData> getUserTimelineCrawl(String userId, AdditionalParameters additionalParameters, Path checkpointFile);
+
+  /**
+   * Get the ids of the followers of a user calling https://api.twitter.com/1.1/followers/ids.json, resuming from the checkpoint file if it exists
+   *
+   * @param userId the id of the targeted user
+   * @param checkpointFile the file where the progress of the crawl is saved after each page
+   * @return an iterator over the pages of ids following the checkpoint
+   */
+  CrawlSession<IdList, String> getFollowersIdsCrawl(String userId, Path checkpointFile);
+
+  /**
+   * Get the ids of the users followed by a user calling https://api.twitter.com/1.1/friends/ids.json, resuming from the checkpoint file if it exists
+   *
+   * @param userId the id of the targeted user
+   * @param checkpointFile the file where the progress of the crawl is saved after each page
+   * @return an iterator over the pages of ids following the checkpoint
+   */
+  CrawlSession<IdList, String> getFollowingIdsCrawl(String userId, Path checkpointFile);
+
+}
@@ -6,13 +6,17 @@ import io.github.redouane59.twitter.dto.collections.CollectionsResponse.Response
 import io.github.redouane59.twitter.dto.collections.TimeLineOrder;
 import io.github.redouane59.twitter.dto.dm.deprecatedV1.DirectMessage;
 import io.github.redouane59.twitter.dto.dm.deprecatedV1.DmEvent;
+import io.github.redouane59.twitter.dto.getrelationship.FollowerDelta;
 import io.github.redouane59.twitter.dto.others.RateLimitStatus;
 import io.github.redouane59.twitter.dto.others.RequestToken;
 import io.github.redouane59.twitter.dto.tweet.MediaCategory;
 import io.github.redouane59.twitter.dto.tweet.Tweet;
 import io.github.redouane59.twitter.dto.tweet.TweetParameters;
 import io.github.redouane59.twitter.dto.tweet.UploadMediaResponse;
+import io.github.redouane59.twitter.helpers.FollowerSnapshotStore;
+import io.github.redouane59.twitter.helpers.LongIdSet;
 import java.io.File;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -35,6 +39,53 @@ public interface ITwitterClientV1 {
   @Deprecated
   List<String> getFollowingIds(String userId);
 
+  /**
+   * Get the ids of the followers of a user calling https://api.twitter.com/1.1/followers/ids.json with stringify_ids=false, the ids being collected
+   * into a sorted primitive set instead of a list of String
+   *
+   * @param userId the id of the targeted user
+   * @return the ids of the followers
+   */
+  LongIdSet getFollowersIdSet(String userId);
+
+  /**
+   * Get the ids of the followers of a user, spilling them to a memory mapped file when they are more than maxHeapIds
+   *
+   * @param userId the id of the targeted user
+   * @param spillFile the file of the set if the ids are more than maxHeapIds
+   * @param maxHeapIds the maximum number of ids kept in memory while they are requested
+   * @return the ids of the followers
+   */
+  LongIdSet getFollowersIdSet(String userId, Path spillFile, int maxHeapIds);
+
+  /**
+   * Get the ids of the users followed by a user calling https://api.twitter.com/1.1/friends/ids.json with stringify_ids=false, the ids being
+   * collected into a sorted primitive set instead of a list of String
+   *
+   * @param userId the id of the targeted user
+   * @return the ids of the followed users
+   */
+  LongIdSet getFollowingIdSet(String userId);
+
+  /**
+   * Get the ids of the users followed by a user, spilling them to a memory mapped file when they are more than maxHeapIds
+   *
+   * @param userId the id of the targeted user
+   * @param spillFile the file of the set if the ids are more than maxHeapIds
+   * @param maxHeapIds the maximum number of ids kept in memory while they are requested
+   * @return the ids of the followed users
+   */
+  LongIdSet getFollowingIdSet(String userId, Path spillFile, int maxHeapIds);
+
+  /**
+   * Get the ids of the followers of a user, save them as the snapshot of the day in the store, and compare them to the previous snapshot
+   *
+   * @param userId the id of the targeted user
+   * @param snapshotStore the store of the follower snapshots
+   * @return the followers gained and lost since the previous snapshot, all the followers being gained if there is none
+   */
+  FollowerDelta takeFollowersSnapshot(String userId, FollowerSnapshotStore snapshotStore);
+
   /**
    * Get the relation between two users calling https://api.twitter.com/1.1/friendships/
    *
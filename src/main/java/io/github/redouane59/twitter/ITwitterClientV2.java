@@ -25,10 +25,12 @@ import io.github.redouane59.twitter.dto.tweet.TweetParameters;
 import io.github.redouane59.twitter.dto.user.User;
 import io.github.redouane59.twitter.dto.user.UserActionResponse;
 import io.github.redouane59.twitter.dto.user.UserList;
+import io.github.redouane59.twitter.helpers.StreamSession;
 import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import org.reactivestreams.Publisher;
 
 public interface ITwitterClientV2 {
 
@@ -49,7 +51,8 @@ public interface ITwitterClientV2 {
   User getUserFromUserId(String userId);
 
   /**
-   * Retreive a list of users from their usernames calling https://api.twitter.com/2/users/
+   * Retreive a list of users from their usernames calling https://api.twitter.com/2/users/ Lists of more than 100 names are looked up by chunks
+   * of 100, in parallel.
    *
    * @param userNames the names of the targeted user
    * @return an list of user objects related to the targeted users
@@ -57,7 +60,8 @@ public interface ITwitterClientV2 {
   List<User> getUsersFromUserNames(List<String> userNames);
 
   /**
-   * Retreive a list of users from their ids calling https://api.twitter.com/2/users/
+   * Retreive a list of users from their ids calling https://api.twitter.com/2/users/ Lists of more than 100 ids are looked up by chunks of 100,
+   * in parallel.
    *
    * @param userIds the id of the user
    * @return an list of user object related to the targeted users
@@ -108,7 +112,8 @@ public interface ITwitterClientV2 {
   Tweet getTweet(String tweetId);
 
   /**
-   * Get a tweet list from their id calling https://api.twitter.com/2/tweets
+   * Get a tweet list from their id calling https://api.twitter.com/2/tweets Lists of more than 100 ids are looked up by chunks of 100, in
+   * parallel, and merged keeping the order of the ids and each include only once.
    *
    * @param tweetIds the ids of the tweets
    * @return a tweet object list
@@ -158,6 +163,19 @@ public interface ITwitterClientV2 {
    */
   TweetList searchAllTweets(String query, AdditionalParameters additionalParameters);
 
+  /**
+   * Search archived tweets calling https://api.twitter.com/2/tweets/search/all with several concurrent paginations. The time range is split in
+   * shards of about the same volume according to https://api.twitter.com/2/tweets/counts/all, then the pages of each shard are requested in
+   * parallel, spreading the calls on the credentials when the client has several ones.
+   *
+   * @param query the search query
+   * @param additionalParameters accepted parameters are startTime (the first tweet by default), endTime (now by default), sinceId, untilId,
+   * maxResults (500 by default)
+   * @param shardCount the number of concurrent paginations
+   * @return a TweetList object containing all the tweets, newest first
+   */
+  TweetList searchAllTweetsSharded(String query, AdditionalParameters additionalParameters, int shardCount);
+
   /**
    * Stream using previous set up filters calling https://api.twitter.com/2/tweets/search/stream
    */
@@ -177,6 +195,18 @@ public interface ITwitterClientV2 {
    */
   Future<Response> startFilteredStream(IAPIEventListener listener, int backfillMinutes);
 
+  /**
+   * Create a session streaming the tweets matching the previous set up filters from https://api.twitter.com/2/tweets/search/stream, reconnecting
+   * when the stream ends or stalls, with backfill and without duplicates. The session has to be started once configured.
+   */
+  StreamSession createFilteredStreamSession(IAPIEventListener listener);
+
+  /**
+   * Reactive Streams publisher of the tweets matching the previous set up filters from https://api.twitter.com/2/tweets/search/stream. Each
+   * subscriber opens a connection, read as fast as the subscriber requests tweets, and closes it by cancelling its subscription.
+   */
+  Publisher<Tweet> getFilteredStreamPublisher();
+
   /**
    * Stops the filtered stream with the result of the startFilteredStream. It'll wait a maximum of timeout before giving up and returning false.  If
    * timeout isn't hit, it'll close the socket opened.
@@ -287,6 +317,18 @@ public interface ITwitterClientV2 {
    */
   Future<Response> startSampledStream(IAPIEventListener listener, int backfillMinutes);
 
+  /**
+   * Create a session streaming the tweets of https://api.twitter.com/2/tweets/sample/stream, reconnecting when the stream ends or stalls, with
+   * backfill and without duplicates. The session has to be started once configured.
+   */
+  StreamSession createSampledStreamSession(IAPIEventListener listener);
+
+  /**
+   * Reactive Streams publisher of the tweets of https://api.twitter.com/2/tweets/sample/stream. Each subscriber opens a connection, read as fast as
+   * the subscriber requests tweets, and closes it by cancelling its subscription.
+   */
+  Publisher<Tweet> getSampledStreamPublisher();
+
   /**
    * Get the most recent Tweets posted by the user calling https://api.twitter.com/2/users/:id/tweets
    *
@@ -736,7 +778,8 @@ public interface ITwitterClientV2 {
   Tweet getTweetNON(String tweetId);
 
   /**
-   * Get a tweet list from their id calling https://api.twitter.com/2/tweets
+   * Get a tweet list from their id calling https://api.twitter.com/2/tweets Lists of more than 100 ids are looked up by chunks of 100, in
+   * parallel, and merged keeping the order of the ids and each include only once.
    *
    * @param tweetIds the ids of the tweets
    * @return a tweet object list
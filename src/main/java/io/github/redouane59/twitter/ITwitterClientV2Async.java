@@ -0,0 +1,265 @@
+package io.github.redouane59.twitter;
+
+import io.github.redouane59.twitter.dto.endpoints.AdditionalParameters;
+import io.github.redouane59.twitter.dto.list.TwitterList;
+import io.github.redouane59.twitter.dto.space.Space;
+import io.github.redouane59.twitter.dto.space.SpaceList;
+import io.github.redouane59.twitter.dto.tweet.LikeResponse;
+import io.github.redouane59.twitter.dto.tweet.RetweetResponse;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetCountsList;
+import io.github.redouane59.twitter.dto.tweet.TweetList;
+import io.github.redouane59.twitter.dto.tweet.TweetParameters;
+import io.github.redouane59.twitter.dto.user.User;
+import io.github.redouane59.twitter.dto.user.UserActionResponse;
+import io.github.redouane59.twitter.dto.user.UserList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking version of the v2 endpoints. Each call is sent through the asynchronous execute path of the scribejava HttpClient used by the client
+ * and returns a CompletableFuture completed with the same object as the blocking version in {@link ITwitterClientV2}. The future is completed
+ * exceptionally with a NoSuchElementException when the response had no content, or with the error raised while sending or reading the request.
+ * <p>
+ * The calls are only non-blocking if the HttpClient of the client has an asynchronous transport, e.g. the {@code ApacheHttpClient} picked by giving
+ * an {@code ApacheHttpClientConfig} to the TwitterClient. With the {@code JDKHttpClient} used by default, scribejava sends the request in the
+ * calling thread and the returned future is already completed.
+ */
+public interface ITwitterClientV2Async {
+
+  /**
+   * Retreive a user from his screen name calling https://api.twitter.com/2/users/
+   *
+   * @param userName the name of the targeted user
+   * @return a future of an user object related to the targeted user
+   */
+  CompletableFuture<User> getUserFromUserNameAsync(String userName);
+
+  /**
+   * Retreive a user from his id calling https://api.twitter.com/2/users/
+   *
+   * @param userId the id of the user
+   * @return a future of an user object related to the targeted user
+   */
+  CompletableFuture<User> getUserFromUserIdAsync(String userId);
+
+  /**
+   * Retreive a list of users from their usernames calling https://api.twitter.com/2/users/
+   *
+   * @param userNames the names of the targeted user
+   * @return a future of the list of user objects related to the targeted users
+   */
+  CompletableFuture<List<User>> getUsersFromUserNamesAsync(List<String> userNames);
+
+  /**
+   * Retreive a list of users from their ids calling https://api.twitter.com/2/users/
+   *
+   * @param userIds the id of the user
+   * @return a future of the list of user objects related to the targeted users
+   */
+  CompletableFuture<List<User>> getUsersFromUserIdsAsync(List<String> userIds);
+
+  /**
+   * Get a list of the user followers calling https://api.twitter.com/2/users/:id/followers
+   *
+   * @param userId the id of the targeted user
+   * @param additionalParameters accepted parameters are recursiveCall, maxResults, pagination_token
+   * @return a future of the users who are following the targeted user
+   */
+  CompletableFuture<UserList> getFollowersAsync(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get a list of the user following calling https://api.twitter.com/2/users/:id/following
+   *
+   * @param userId the id of the targeted user
+   * @param additionalParameters accepted parameters are recursiveCall, maxResults, pagination_token
+   * @return a future of the users that the targeted user is following
+   */
+  CompletableFuture<UserList> getFollowingAsync(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get a tweet from its id calling https://api.twitter.com/2/tweets
+   *
+   * @param tweetId id of the tweet
+   * @return a future of the tweet object
+   */
+  CompletableFuture<Tweet> getTweetAsync(String tweetId);
+
+  /**
+   * Get a tweet list from their id calling https://api.twitter.com/2/tweets
+   *
+   * @param tweetIds the ids of the tweets
+   * @return a future of the tweet object list
+   */
+  CompletableFuture<TweetList> getTweetsAsync(List<String> tweetIds);
+
+  /**
+   * Search tweets from last 7 days calling https://api.twitter.com/2/tweets/search
+   *
+   * @param query the search query
+   * @param additionalParameters accepted parameters are recursiveCall, startTime, endTime, sinceId, untilId, maxResults
+   * @return a future of the TweetList object containing a list of tweets and the next token if recursiveCall is set to false
+   */
+  CompletableFuture<TweetList> searchTweetsAsync(String query, AdditionalParameters additionalParameters);
+
+  /**
+   * Search archived tweets calling https://api.twitter.com/2/tweets/search/all
+   *
+   * @param query the search query
+   * @param additionalParameters accepted parameters are recursiveCall, startTime, endTime, sinceId, untilId, maxResults, nextToken
+   * @return a future of the TweetList object containing a list of tweets and the next token if recursiveCall is set to false
+   */
+  CompletableFuture<TweetList> searchAllTweetsAsync(String query, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the most recent Tweets posted by the user calling https://api.twitter.com/2/users/:id/tweets
+   *
+   * @param userId identifier of the Twitter account (user ID) for whom to return results.
+   * @param additionalParameters accepted parameters recursiveCall, startTime, endTime, sinceId, untilId, maxResults
+   * @return a future of the TweetList object containing a list of tweets and the next token if recursiveCall is set to false
+   */
+  CompletableFuture<TweetList> getUserTimelineAsync(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the most recent mentions received by the user calling https://api.twitter.com/2/users/:id/mentions
+   *
+   * @param userId identifier of the Twitter account (user ID) for whom to return results.
+   * @param additionalParameters accepted parameters recursiveCall, startTime, endTime, sinceId, untilId, maxResults
+   * @return a future of the TweetList object containing a list of tweets and the next token if recursiveCall is set to false
+   */
+  CompletableFuture<TweetList> getUserMentionsAsync(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Allows you to get information about a Tweet’s liking users calling https://api.twitter.com/2/tweets/:id/liking_users
+   *
+   * @param tweetId ID of the Tweet to request liking users of.
+   * @param maxResults the maximum results to be returned.
+   */
+  CompletableFuture<UserList> getLikingUsersAsync(String tweetId, int maxResults);
+
+  /**
+   * Allows you to get information about who has Retweeted a Tweet calling https://api.twitter.com/2/tweets/:id/retweeted_by
+   *
+   * @param tweetId ID of the Tweet to request Retweeting users of.
+   * @param maxResults the maximum results to be returned.
+   */
+  CompletableFuture<UserList> getRetweetingUsersAsync(String tweetId, int maxResults);
+
+  /**
+   * Allows you to get information about a user’s liked Tweets calling https://api.twitter.com/2/users/:id/liked_tweets
+   *
+   * @param userId ID of the user to request liked Tweets for.
+   * @param additionalParameters accepted parameters are recursiveCall, maxResults, paginationToken
+   */
+  CompletableFuture<TweetList> getLikedTweetsAsync(String userId, AdditionalParameters additionalParameters);
+
+  /**
+   * Returns the count of Tweets from the last seven days that match a search query calling https://api.twitter.com/2/tweets/counts/recent
+   *
+   * @param query One rule for matching Tweets
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, granularity
+   */
+  CompletableFuture<TweetCountsList> getTweetCountsAsync(String query, AdditionalParameters additionalParameters);
+
+  /**
+   * Returns the count of Tweets from the full archive that match a search query calling https://api.twitter.com/2/tweets/counts/all
+   *
+   * @param query One rule for matching Tweets
+   * @param additionalParameters accepted parameters are startTime, endTime, sinceId, untilId, granularity, nextToken
+   */
+  CompletableFuture<TweetCountsList> getAllTweetCountsAsync(String query, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the Tweets of a list calling https://api.twitter.com/2/lists/:id/tweets
+   *
+   * @param listId the id of the list
+   * @param additionalParameters accepted parameters are recursiveCall, maxResults, paginationToken
+   */
+  CompletableFuture<TweetList> getListTweetsAsync(String listId, AdditionalParameters additionalParameters);
+
+  /**
+   * Get the members of a list calling https://api.twitter.com/2/lists/:id/members
+   *
+   * @param listId the id of the list
+   */
+  CompletableFuture<UserList> getListMembersAsync(String listId);
+
+  /**
+   * Get a list calling https://api.twitter.com/2/lists/:id
+   *
+   * @param listId the id of the list
+   */
+  CompletableFuture<TwitterList> getListAsync(String listId);
+
+  /**
+   * Get a space calling https://api.twitter.com/2/spaces/:id
+   *
+   * @param spaceId the id of the space
+   */
+  CompletableFuture<Space> getSpaceAsync(String spaceId);
+
+  /**
+   * Get spaces calling https://api.twitter.com/2/spaces
+   *
+   * @param spaceIds the ids of the spaces
+   */
+  CompletableFuture<SpaceList> getSpacesAsync(List<String> spaceIds);
+
+  /**
+   * Post a tweet calling https://api.twitter.com/2/tweets
+   *
+   * @param tweetParameters the tweet parameters
+   */
+  CompletableFuture<Tweet> postTweetAsync(TweetParameters tweetParameters);
+
+  /**
+   * Delete a tweet calling https://api.twitter.com/2/tweets/:id
+   *
+   * @param tweetId the id of the tweet
+   * @return a future of true if the tweet was deleted
+   */
+  CompletableFuture<Boolean> deleteTweetAsync(String tweetId);
+
+  /**
+   * Like a tweet calling https://api.twitter.com/2/users/:id/likes
+   *
+   * @param tweetId The ID of the Tweet that you would like the user id to Like.
+   */
+  CompletableFuture<LikeResponse> likeTweetAsync(String tweetId);
+
+  /**
+   * Unlike a tweet calling https://api.twitter.com/2/users/:id/likes/:tweet_id
+   *
+   * @param tweetId The ID of the Tweet that you would like the user id to unlike.
+   */
+  CompletableFuture<LikeResponse> unlikeTweetAsync(String tweetId);
+
+  /**
+   * Retweet a tweet calling https://api.twitter.com/2/users/:id/retweets
+   *
+   * @param tweetId The ID of the Tweet that you would like the user id to Retweet.
+   */
+  CompletableFuture<RetweetResponse> retweetTweetAsync(String tweetId);
+
+  /**
+   * Unretweet a tweet calling https://api.twitter.com/2/users/:id/retweets/:source_tweet_id
+   *
+   * @param tweetId The ID of the Tweet that you would like the user id to unretweet.
+   */
+  CompletableFuture<RetweetResponse> unretweetTweetAsync(String tweetId);
+
+  /**
+   * Follow a user calling https://api.twitter.com/2/users/:source_user_id/following
+   *
+   * @param targetUserId The user ID of the user that you would like the authenticated user to follow.
+   */
+  CompletableFuture<UserActionResponse> followAsync(String targetUserId);
+
+  /**
+   * Unfollow a user calling https://api.twitter.com/2/users/:source_user_id/following/:target_user_id
+   *
+   * @param targetUserId The user ID of the user that you would like the authenticated user to unfollow.
+   */
+  CompletableFuture<UserActionResponse> unfollowAsync(String targetUserId);
+
+}
@@ -22,7 +22,9 @@ import io.github.redouane59.twitter.dto.dm.DmParameters.DmMessage;
 import io.github.redouane59.twitter.dto.dm.PostDmResponse;
 import io.github.redouane59.twitter.dto.dm.deprecatedV1.DmListAnswer;
 import io.github.redouane59.twitter.dto.endpoints.AdditionalParameters;
+import io.github.redouane59.twitter.dto.getrelationship.FollowerDelta;
 import io.github.redouane59.twitter.dto.getrelationship.IdList;
+import io.github.redouane59.twitter.dto.getrelationship.LongIdList;
 import io.github.redouane59.twitter.dto.getrelationship.RelationshipObjectResponse;
 import io.github.redouane59.twitter.dto.list.TwitterList;
 import io.github.redouane59.twitter.dto.list.TwitterList.TwitterListData;
@@ -31,6 +33,7 @@ import io.github.redouane59.twitter.dto.list.TwitterListMember.TwitterListMember
 import io.github.redouane59.twitter.dto.others.BearerToken;
 import io.github.redouane59.twitter.dto.others.BlockResponse;
 import io.github.redouane59.twitter.dto.others.RateLimitStatus;
+import io.github.redouane59.twitter.dto.others.ResourceError;
 import io.github.redouane59.twitter.dto.others.RequestToken;
 import io.github.redouane59.twitter.dto.rules.FilteredStreamRulePredicate;
 import io.github.redouane59.twitter.dto.space.Space;
@@ -46,6 +49,7 @@ import io.github.redouane59.twitter.dto.tweet.MediaCategory;
 import io.github.redouane59.twitter.dto.tweet.RetweetResponse;
 import io.github.redouane59.twitter.dto.tweet.Tweet;
 import io.github.redouane59.twitter.dto.tweet.TweetCountsList;
+import io.github.redouane59.twitter.dto.tweet.TweetCountsList.TweetCountData;
 import io.github.redouane59.twitter.dto.tweet.TweetList;
 import io.github.redouane59.twitter.dto.tweet.TweetList.TweetMeta;
 import io.github.redouane59.twitter.dto.tweet.TweetParameters;
@@ -53,6 +57,7 @@ import io.github.redouane59.twitter.dto.tweet.TweetSearchResponseV1;
 import io.github.redouane59.twitter.dto.tweet.TweetV1;
 import io.github.redouane59.twitter.dto.tweet.TweetV1Deserializer;
 import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.TweetData;
 import io.github.redouane59.twitter.dto.tweet.UploadMediaResponse;
 import io.github.redouane59.twitter.dto.user.FollowBody;
 import io.github.redouane59.twitter.dto.user.User;
@@ -63,10 +68,28 @@ import io.github.redouane59.twitter.dto.user.UserV2;
 import io.github.redouane59.twitter.dto.user.UserV2.UserData;
 import io.github.redouane59.twitter.helpers.AbstractRequestHelper;
 import io.github.redouane59.twitter.helpers.ConverterHelper;
+import io.github.redouane59.twitter.helpers.CrawlSession;
+import io.github.redouane59.twitter.helpers.FollowerSnapshotStore;
+import io.github.redouane59.twitter.helpers.HydrationPipeline;
+import io.github.redouane59.twitter.helpers.IncludesIndex;
+import io.github.redouane59.twitter.helpers.CredentialPool;
+import io.github.redouane59.twitter.helpers.CredentialPool.Member;
 import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.LongIdSet;
+import io.github.redouane59.twitter.helpers.LookupBatcher;
+import io.github.redouane59.twitter.helpers.LookupBatcher.BatchResult;
+import io.github.redouane59.twitter.helpers.PageIterator;
+import io.github.redouane59.twitter.helpers.PooledRequestHelper;
+import io.github.redouane59.twitter.helpers.PooledRequestHelperV2;
 import io.github.redouane59.twitter.helpers.RequestHelper;
 import io.github.redouane59.twitter.helpers.RequestHelperV2;
+import io.github.redouane59.twitter.helpers.RetryEngine;
+import io.github.redouane59.twitter.helpers.SearchShards;
+import io.github.redouane59.twitter.helpers.SearchShards.Shard;
+import io.github.redouane59.twitter.helpers.StreamPublisher;
+import io.github.redouane59.twitter.helpers.StreamSession;
 import io.github.redouane59.twitter.helpers.URLHelper;
+import io.github.redouane59.twitter.metrics.TwitterClientMetrics;
 import io.github.redouane59.twitter.signature.TwitterCredentials;
 
 import java.io.ByteArrayInputStream;
@@ -76,36 +99,49 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import io.github.redouane59.twitter.utils.GlobalAuthUtils;
+import io.github.redouane59.twitter.utils.OAuth1Signer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.reactivestreams.Publisher;
 
 @Getter
 @Setter
 @Slf4j
-public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitterClientArchive {
+public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitterClientV2Async, ITwitterClientPaginated, ITwitterClientArchive {
 
     public static final String TWEET_FIELDS = "tweet.fields";
     public static final String
@@ -142,6 +178,10 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
             ALL_DM_EXPANSIONS =
             "attachments.media_keys,referenced_tweets.id,sender_id,participant_ids";
     private static final String QUERY = "query";
+    /**
+     * Start of the full-archive search when no start time is given
+     */
+    private static final LocalDateTime FIRST_TWEET_TIME = LocalDateTime.of(2006, 3, 21, 0, 0);
     private static final String CURSOR = "cursor";
     private static final String NEXT = "next";
     private static final String PAGINATION_TOKEN = "pagination_token";
@@ -158,11 +198,23 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     private RequestHelper requestHelperV1;
     private RequestHelperV2 requestHelperV2;
     private TwitterCredentials twitterCredentials;
+    /**
+     * Maximum number of concurrent calls used to look up lists of more than URLHelper.MAX_LOOKUP ids
+     */
+    private int lookupParallelism = 4;
+    /**
+     * The credentials the calls are shared between, null if the client uses a single one
+     */
+    private CredentialPool credentialPool;
 
     public TwitterClient() {
         this(getAuthentication());
     }
 
+    /**
+     * Create a client sending its requests with the JDKHttpClient of scribejava, whose asynchronous calls run in the calling thread. Use the
+     * constructors taking an HttpClient or an ApacheHttpClientConfig to make the *Async methods non-blocking.
+     */
     public TwitterClient(TwitterCredentials credentials) {
         this(credentials, new ServiceBuilder(credentials.getApiKey()).apiSecret(credentials.getApiSecretKey()));
     }
@@ -172,6 +224,11 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
                 new ServiceBuilder(credentials.getApiKey()).apiSecret(credentials.getApiSecretKey()).httpClient(httpClient));
     }
 
+    /**
+     * @param httpClient client sending the requests, null to let scribejava pick one from the config
+     * @param config config of the HttpClient, e.g. an ApacheHttpClientConfig to send the requests on a pool of connections and run the *Async methods
+     * on the threads of this pool
+     */
     public TwitterClient(TwitterCredentials credentials, HttpClient httpClient, HttpClientConfig config) {
         this(credentials, new ServiceBuilder(credentials.getApiKey()).apiSecret(credentials.getApiSecretKey())
                 .httpClient(httpClient).httpClientConfig(config));
@@ -188,6 +245,21 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         requestHelperV2 = new RequestHelperV2(credentials, service);
     }
 
+    /**
+     * Create a client sharing its calls between several credentials, each GET request being sent with the credentials having the most calls left on
+     * the endpoint. The first credentials are the ones of the user context (e.g. getUserIdFromAccessToken, posting) and of the streams.
+     */
+    public TwitterClient(List<TwitterCredentials> credentials) {
+        this(new CredentialPool(credentials));
+    }
+
+    public TwitterClient(CredentialPool credentialPool) {
+        this.credentialPool = credentialPool;
+        twitterCredentials = credentialPool.getPrimary().getCredentials();
+        requestHelperV1 = new PooledRequestHelper(credentialPool);
+        requestHelperV2 = new PooledRequestHelperV2(credentialPool);
+    }
+
     public static TwitterCredentials getAuthentication() {
         String credentialPath = System.getProperty("twitter.credentials.file.path");
         if (credentialPath != null) {
@@ -240,28 +312,36 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     /**
      * Define the default behavior when Twitter API limits are reached (default value is true)
      *
-     * @param automaticRetry false will raise a LimitExceededException, true will wait and call the endpoint again once the limit is over
+     * @param automaticRetry false will raise a LimitExceededException, true will wait and call the endpoint again once the limit is over, a
+     * LimitExceededException being raised once the retries are exhausted
      */
     public void setAutomaticRetry(boolean automaticRetry) {
         requestHelperV1.setAutomaticRetry(automaticRetry);
         requestHelperV2.setAutomaticRetry(automaticRetry);
     }
 
+    /**
+     * Define how the requests failing with a transient error (429, 5xx, connection errors) are sent again, and when the calls to an endpoint
+     * answering 503 are stopped
+     */
+    public void setRetryEngine(RetryEngine retryEngine) {
+        requestHelperV1.setRetryEngine(retryEngine);
+        requestHelperV2.setRetryEngine(retryEngine);
+    }
+
+    /**
+     * Define where the measures of the requests (latencies, status codes, bytes, rate limit budgets) are sent, e.g. an
+     * InMemoryTwitterClientMetrics. Nothing is measured by default.
+     */
+    public void setMetrics(TwitterClientMetrics metrics) {
+        requestHelperV1.setMetrics(metrics);
+        requestHelperV2.setMetrics(metrics);
+    }
+
     // can manage up to 5000 results / call . Max 15 calls / 15min ==> 75.000
     // results max. / 15min
     private List<String> getUserIdsByRelation(String url) {
-        String cursor = "-1";
-        List<String> result = new ArrayList<>();
-        do {
-            String urlWithCursor = url + "&" + CURSOR + "=" + cursor;
-            Optional<IdList> idListResponse = getRequestHelper().getRequest(urlWithCursor, IdList.class);
-            if (!idListResponse.isPresent()) {
-                break;
-            }
-            result.addAll(idListResponse.get().getIds());
-            cursor = idListResponse.get().getNextCursor();
-        } while (!cursor.equals("0"));
-        return result;
+        return iterateIds(url).stream().collect(Collectors.toList());
     }
 
     @Override
@@ -283,6 +363,20 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getUsersRecursively(url, parameters, getRequestHelper());
     }
 
+    @Override
+    public CompletableFuture<UserList> getFollowersAsync(final String userId, final AdditionalParameters additionalParameters) {
+        String url = urlHelper.getFollowersUrl(userId);
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelper().getRequestWithParametersAsync(url, parameters, UserList.class);
+        }
+        if (additionalParameters.getMaxResults() <= 0) {
+            parameters.put(MAX_RESULTS, String.valueOf(1000));
+        }
+        return getUsersRecursivelyAsync(url, parameters, getRequestHelper());
+    }
+
     @Override
     public UserList getFollowing(String userId) {
         return getFollowing(userId, AdditionalParameters.builder().maxResults(1000).build());
@@ -302,6 +396,20 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getUsersRecursively(url, parameters, getRequestHelper());
     }
 
+    @Override
+    public CompletableFuture<UserList> getFollowingAsync(final String userId, final AdditionalParameters additionalParameters) {
+        String url = urlHelper.getFollowingUrl(userId);
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelper().getRequestWithParametersAsync(url, parameters, UserList.class);
+        }
+        if (additionalParameters.getMaxResults() <= 0) {
+            parameters.put(MAX_RESULTS, String.valueOf(1000));
+        }
+        return getUsersRecursivelyAsync(url, parameters, getRequestHelper());
+    }
+
     @Override
     public RelationType getRelationType(String userId1, String userId2) {
         String url = urlHelper.getFriendshipUrl(userId1, userId2);
@@ -332,6 +440,48 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getUserIdsByRelation(url);
     }
 
+    @Override
+    public LongIdSet getFollowersIdSet(String userId) {
+        return getUserIdSetByRelation(urlHelper.getFollowersIdsUrl(userId), LongIdSet.builder());
+    }
+
+    @Override
+    public LongIdSet getFollowersIdSet(String userId, Path spillFile, int maxHeapIds) {
+        return getUserIdSetByRelation(urlHelper.getFollowersIdsUrl(userId), LongIdSet.builder(spillFile, maxHeapIds));
+    }
+
+    @Override
+    public LongIdSet getFollowingIdSet(String userId) {
+        return getUserIdSetByRelation(urlHelper.getFollowingIdsUrl(userId), LongIdSet.builder());
+    }
+
+    @Override
+    public LongIdSet getFollowingIdSet(String userId, Path spillFile, int maxHeapIds) {
+        return getUserIdSetByRelation(urlHelper.getFollowingIdsUrl(userId), LongIdSet.builder(spillFile, maxHeapIds));
+    }
+
+    @Override
+    public FollowerDelta takeFollowersSnapshot(String userId, FollowerSnapshotStore snapshotStore) {
+        LongIdSet followerIds = getFollowersIdSet(userId);
+        return snapshotStore.update(userId, LocalDate.now(ZoneOffset.UTC), followerIds);
+    }
+
+    /**
+     * Request the ids as numbers so that each page is parsed into a long[], without a String per id
+     */
+    private LongIdSet getUserIdSetByRelation(String url, LongIdSet.Builder builder) {
+        new PageIterator<LongIdList, Long>(
+                cursor -> getRequestHelper().getRequest(url + "&stringify_ids=false&" + CURSOR + "=" + (cursor == null ? "-1" : cursor), LongIdList.class),
+                page -> "0".equals(page.getNextCursor()) ? null : page.getNextCursor(),
+                page -> null).forEachPage(page -> {
+            if (page.getIds() != null) {
+                builder.addAll(page.getIds());
+            }
+            return true;
+        });
+        return builder.build();
+    }
+
     @SneakyThrows
     @Override
     public UserActionResponse follow(String targetUserId) {
@@ -349,6 +499,23 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
 
     }
 
+    @Override
+    public CompletableFuture<UserActionResponse> followAsync(String targetUserId) {
+        String url = urlHelper.getFollowUrl(getUserIdFromAccessToken());
+        try {
+            String body = JsonHelper.toJson(new FollowBody(targetUserId));
+            return requestHelperV1.makeRequestAsync(Verb.POST, url, null, new HashMap<>(), body, true, UserActionResponse.class);
+        } catch (JsonProcessingException e) {
+            return failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<UserActionResponse> unfollowAsync(String targetUserId) {
+        String url = urlHelper.getUnfollowUrl(getUserIdFromAccessToken(), targetUserId);
+        return getRequestHelper().makeRequestAsync(Verb.DELETE, url, null, new HashMap<>(), null, true, UserActionResponse.class);
+    }
+
     @SneakyThrows
     @Override
     public BlockResponse blockUser(final String targetUserId) {
@@ -381,61 +548,231 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     @Override
     public User getUserFromUserId(String userId) {
         String url = getUrlHelper().getUserUrl(userId);
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put(EXPANSION, PINNED_TWEET_ID);
-        return getRequestHelper().getRequestWithParameters(url, parameters, UserV2.class).orElseThrow(NoSuchElementException::new);
+        return getRequestHelper().getRequestWithParameters(url, getUserLookupParameters(), UserV2.class).orElseThrow(NoSuchElementException::new);
     }
 
     @Override
     public UserV2 getUserFromUserName(String userName) {
         String url = getUrlHelper().getUserUrlFromName(userName);
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put(EXPANSION, PINNED_TWEET_ID);
-        return getRequestHelper().getRequestWithParameters(url, parameters, UserV2.class).orElseThrow(NoSuchElementException::new);
+        return getRequestHelper().getRequestWithParameters(url, getUserLookupParameters(), UserV2.class).orElseThrow(NoSuchElementException::new);
     }
 
     @Override
     public List<User> getUsersFromUserNames(List<String> userNames) {
         String url = getUrlHelper().getUsersByUrl();
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put(EXPANSION, PINNED_TWEET_ID);
-        StringBuilder names = new StringBuilder();
-        int i = 0;
-        while (i < userNames.size() && i < URLHelper.MAX_LOOKUP) {
-            String name = userNames.get(i);
-            names.append(name);
-            names.append(",");
-            i++;
-        }
-        names.delete(names.length() - 1, names.length());
-        parameters.put("usernames", names.toString());
-        List<UserData> result = getRequestHelper().getRequestWithParameters(url, parameters, UserList.class)
-                .orElseThrow(NoSuchElementException::new).getData();
-        return result.stream().map(userData -> UserV2.builder().data(userData).build()).collect(Collectors.toList());
+        return getUsersByChunks(userNames, chunk -> {
+            Map<String, String> parameters = getUserLookupParameters();
+            parameters.put("usernames", joinLookupIds(chunk));
+            return getRequestHelper().getRequestWithParameters(url, parameters, UserList.class).orElseThrow(NoSuchElementException::new);
+        });
     }
 
     @Override
     public List<User> getUsersFromUserIds(List<String> userIds) {
         String url = getUrlHelper().getUsersUrl();
+        return getUsersByChunks(userIds, chunk -> {
+            Map<String, String> parameters = getUserLookupParameters();
+            parameters.put("ids", joinLookupIds(chunk));
+            return getRequestHelper().getRequestWithParameters(url, parameters, UserList.class).orElseThrow(NoSuchElementException::new);
+        });
+    }
+
+    private List<User> getUsersByChunks(List<String> ids, Function<List<String>, UserList> chunkLoader) {
+        List<User> result = new ArrayList<>();
+        for (UserList userList : getChunksInParallel(ids, chunkLoader)) {
+            result.addAll(toUsers(userList.getData()));
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<User> getUserFromUserIdAsync(String userId) {
+        String url = getUrlHelper().getUserUrl(userId);
+        return getRequestHelper().getRequestWithParametersAsync(url, getUserLookupParameters(), UserV2.class).thenApply(User.class::cast);
+    }
+
+    @Override
+    public CompletableFuture<User> getUserFromUserNameAsync(String userName) {
+        String url = getUrlHelper().getUserUrlFromName(userName);
+        return getRequestHelper().getRequestWithParametersAsync(url, getUserLookupParameters(), UserV2.class).thenApply(User.class::cast);
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getUsersFromUserNamesAsync(List<String> userNames) {
+        String url = getUrlHelper().getUsersByUrl();
+        return getUsersByChunksAsync(userNames, chunk -> {
+            Map<String, String> parameters = getUserLookupParameters();
+            parameters.put("usernames", joinLookupIds(chunk));
+            return getRequestHelper().getRequestWithParametersAsync(url, parameters, UserList.class);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getUsersFromUserIdsAsync(List<String> userIds) {
+        String url = getUrlHelper().getUsersUrl();
+        return getUsersByChunksAsync(userIds, chunk -> {
+            Map<String, String> parameters = getUserLookupParameters();
+            parameters.put("ids", joinLookupIds(chunk));
+            return getRequestHelper().getRequestWithParametersAsync(url, parameters, UserList.class);
+        });
+    }
+
+    private CompletableFuture<List<User>> getUsersByChunksAsync(List<String> ids, Function<List<String>, CompletableFuture<UserList>> chunkLoader) {
+        return getChunksAsync(ids, chunkLoader).thenApply(userLists -> {
+            List<User> result = new ArrayList<>();
+            for (UserList userList : userLists) {
+                result.addAll(toUsers(userList.getData()));
+            }
+            return result;
+        });
+    }
+
+    private Map<String, String> getUserLookupParameters() {
         Map<String, String> parameters = new HashMap<>();
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
         parameters.put(EXPANSION, PINNED_TWEET_ID);
-        StringBuilder names = new StringBuilder();
-        int i = 0;
-        while (i < userIds.size() && i < URLHelper.MAX_LOOKUP) {
-            String name = userIds.get(i);
-            names.append(name);
-            names.append(",");
-            i++;
+        return parameters;
+    }
+
+    private List<User> toUsers(List<UserData> userDataList) {
+        if (userDataList == null) {
+            return new ArrayList<>();
+        }
+        return userDataList.stream().map(userData -> UserV2.builder().data(userData).build()).collect(Collectors.toList());
+    }
+
+    /**
+     * Join the ids (or names) to be given to a lookup endpoint, limited to the URLHelper.MAX_LOOKUP first ones
+     */
+    private String joinLookupIds(List<String> ids) {
+        return String.join(",", ids.subList(0, Math.min(ids.size(), URLHelper.MAX_LOOKUP)));
+    }
+
+    private static List<List<String>> splitInLookupChunks(List<String> ids) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += URLHelper.MAX_LOOKUP) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + URLHelper.MAX_LOOKUP)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Split the ids in chunks of URLHelper.MAX_LOOKUP ids and load them with at most lookupParallelism concurrent calls, the rate limit
+     * governor of the request helpers pacing them if needed.
+     *
+     * @return the results of the chunks, in the order of the ids
+     */
+    private <R> List<R> getChunksInParallel(List<String> ids, Function<List<String>, R> chunkLoader) {
+        return runInParallel(splitInLookupChunks(ids), chunkLoader, lookupParallelism);
+    }
+
+    /**
+     * Run the loader on each task with at most parallelism concurrent calls, the first error being thrown
+     *
+     * @return the results of the tasks, in their order
+     */
+    @SneakyThrows
+    private static <C, R> List<R> runInParallel(List<C> tasks, Function<C, R> loader, int parallelism) {
+        if (tasks.size() <= 1 || parallelism <= 1) {
+            return tasks.stream().map(loader).collect(Collectors.toList());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+        try {
+            List<Future<R>> futures = new ArrayList<>();
+            for (C task : tasks) {
+                futures.add(executor.submit(() -> loader.apply(task)));
+            }
+            List<R> result = new ArrayList<>();
+            for (Future<R> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Split the ids in chunks of URLHelper.MAX_LOOKUP ids and load them with at most lookupParallelism calls in flight, the next chunk being
+     * requested when one completes. The first error completes the result and no other chunk is requested.
+     *
+     * @return the results of the chunks, in the order of the ids
+     */
+    private <R> CompletableFuture<List<R>> getChunksAsync(List<String> ids, Function<List<String>, CompletableFuture<R>> chunkLoader) {
+        List<List<String>> chunks = splitInLookupChunks(ids);
+        CompletableFuture<List<R>> result = new CompletableFuture<>();
+        if (chunks.isEmpty()) {
+            result.complete(new ArrayList<>());
+            return result;
         }
-        names.delete(names.length() - 1, names.length());
-        parameters.put("ids", names.toString());
-        List<UserData> result = getRequestHelper().getRequestWithParameters(url, parameters, UserList.class)
-                .orElseThrow(NoSuchElementException::new).getData();
-        return result.stream().map(userData -> UserV2.builder().data(userData).build()).collect(Collectors.toList());
+        AtomicReferenceArray<R> results = new AtomicReferenceArray<>(chunks.size());
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicInteger remainingChunks = new AtomicInteger(chunks.size());
+        for (int i = 0; i < Math.min(Math.max(1, lookupParallelism), chunks.size()); i++) {
+            loadNextChunk(chunks, chunkLoader, results, nextChunk, remainingChunks, result);
+        }
+        return result;
+    }
+
+    private static <R> void loadNextChunk(List<List<String>> chunks, Function<List<String>, CompletableFuture<R>> chunkLoader,
+                                          AtomicReferenceArray<R> results, AtomicInteger nextChunk, AtomicInteger remainingChunks,
+                                          CompletableFuture<List<R>> result) {
+        int index = nextChunk.getAndIncrement();
+        if (index >= chunks.size() || result.isDone()) {
+            return;
+        }
+        CompletableFuture<R> chunkFuture;
+        try {
+            chunkFuture = chunkLoader.apply(chunks.get(index));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        chunkFuture.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+                return;
+            }
+            results.set(index, value);
+            if (remainingChunks.decrementAndGet() == 0) {
+                List<R> values = new ArrayList<>(results.length());
+                for (int i = 0; i < results.length(); i++) {
+                    values.add(results.get(i));
+                }
+                result.complete(values);
+            } else {
+                loadNextChunk(chunks, chunkLoader, results, nextChunk, remainingChunks, result);
+            }
+        });
+    }
+
+    /**
+     * Merge the results of several lookups, keeping the order of the tweets and each include only once
+     */
+    private static TweetList mergeTweetLists(List<TweetList> tweetLists) {
+        if (tweetLists.size() == 1) {
+            return tweetLists.get(0);
+        }
+        List<TweetData> data = new ArrayList<>();
+        List<ResourceError> errors = new ArrayList<>();
+        IncludesIndex includesIndex = new IncludesIndex();
+        for (TweetList tweetList : tweetLists) {
+            if (tweetList.getData() != null) {
+                data.addAll(tweetList.getData());
+            }
+            if (tweetList.getErrors() != null) {
+                errors.addAll(tweetList.getErrors());
+            }
+            includesIndex.add(tweetList);
+        }
+        return TweetList.builder()
+                .data(data)
+                .meta(TweetMeta.builder().resultCount(data.size()).build())
+                .includes(includesIndex.hasIncludes() ? includesIndex.getIncludes() : null)
+                .errors(errors.isEmpty() ? null : errors)
+                .build();
     }
 
     @Override
@@ -444,6 +781,21 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getRequestHelper().getRequest(url, RateLimitStatus.class).orElseThrow(NoSuchElementException::new);
     }
 
+    /**
+     * Initialize the rate limit budgets of the v1.1 endpoints with the current rate limit status, so that the calls are paced from the start
+     * instead of after the first response of each endpoint.
+     */
+    public void warmUpRateLimits() {
+        if (credentialPool == null) {
+            getRequestHelper().getRateLimitGovernor().warmUp(getRateLimitStatus());
+            return;
+        }
+        for (Member member : credentialPool.getMembers()) {
+            AbstractRequestHelper requestHelper = getRequestHelper() == requestHelperV1 ? member.getRequestHelperV1() : member.getRequestHelperV2();
+            requestHelper.getRequest(URLHelper.RATE_LIMIT_URL, RateLimitStatus.class).ifPresent(requestHelper.getRateLimitGovernor()::warmUp);
+        }
+    }
+
     @Override
     public LikeResponse likeTweet(String tweetId) {
         String url = getUrlHelper().getLikeUrl(getUserIdFromAccessToken());
@@ -459,13 +811,28 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
                 .orElseThrow(NoSuchElementException::new);
     }
 
+    @Override
+    public CompletableFuture<LikeResponse> likeTweetAsync(String tweetId) {
+        String url = getUrlHelper().getLikeUrl(getUserIdFromAccessToken());
+        return getRequestHelperV1().makeRequestAsync(Verb.POST, url, null, new HashMap<>(), "{\"tweet_id\":\"" + tweetId + "\"}", true, LikeResponse.class);
+    }
+
+    @Override
+    public CompletableFuture<LikeResponse> unlikeTweetAsync(String tweetId) {
+        String url = getUrlHelper().getUnlikeUrl(getUserIdFromAccessToken(), tweetId);
+        return getRequestHelper().makeRequestAsync(Verb.DELETE, url, null, new HashMap<>(), null, true, LikeResponse.class);
+    }
+
     @Override
     public UserList getRetweetingUsers(String tweetId, int maxResults) {
         String url = urlHelper.getRetweetersUrl(tweetId);
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put(EXPANSION, PINNED_TWEET_ID);
-        return getUsersRecursively(maxResults, url, parameters);
+        return getUsersRecursively(maxResults, url, getUserLookupParameters());
+    }
+
+    @Override
+    public CompletableFuture<UserList> getRetweetingUsersAsync(String tweetId, int maxResults) {
+        String url = urlHelper.getRetweetersUrl(tweetId);
+        return getUsersRecursivelyAsync(maxResults, url, getUserLookupParameters());
     }
 
     // @todo see if it cannot be mixed with other similar function
@@ -475,29 +842,25 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
      */
     private UserList getUsersRecursively(int maxResults, String url, Map<String, String> parameters) {
         UserList result = UserList.builder().meta(new UserMeta()).build();
-        String next;
-
+        boolean hasNext;
         do {
             parameters.put(MAX_RESULTS, String.valueOf(Math.min(100, maxResults - result.getData().size())));
             Optional<UserList> userList = getRequestHelper().getRequestWithParameters(url, parameters, UserList.class);
-            if (!userList.isPresent() || userList.get().getData() == null) {
-                result.getMeta().setNextToken(null);
-                break;
-            }
-            result.getData().addAll(userList.get().getData());
-
-            UserMeta meta = UserMeta.builder()
-                    .resultCount(result.getData().size())
-                    .nextToken(userList.get().getMeta().getNextToken())
-                    .build();
-            result.setMeta(meta);
-            next = userList.get().getMeta().getNextToken();
-            parameters.put(AdditionalParameters.PAGINATION_TOKEN, next);
-        } while (next != null && result.getData().size() < maxResults);
-
+            hasNext = appendUserPage(result, userList.orElse(null), parameters) && result.getData().size() < maxResults;
+        } while (hasNext);
         return result;
     }
 
+    private CompletableFuture<UserList> getUsersRecursivelyAsync(int maxResults, String url, Map<String, String> parameters) {
+        UserList result = UserList.builder().meta(new UserMeta()).build();
+        return paginateAsync(() -> {
+                    parameters.put(MAX_RESULTS, String.valueOf(Math.min(100, maxResults - result.getData().size())));
+                    return getRequestHelper().getRequestWithParametersAsync(url, parameters, UserList.class);
+                },
+                page -> appendUserPage(result, page, parameters) && result.getData().size() < maxResults,
+                result);
+    }
+
 
     @Override
     public UserList getRetweetingUsers(String tweetId) {
@@ -507,10 +870,13 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     @Override
     public UserList getLikingUsers(final String tweetId, int maxResults) {
         String url = getUrlHelper().getLikingUsersUrl(tweetId);
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put(EXPANSION, PINNED_TWEET_ID);
-        return getUsersRecursively(maxResults, url, parameters);
+        return getUsersRecursively(maxResults, url, getUserLookupParameters());
+    }
+
+    @Override
+    public CompletableFuture<UserList> getLikingUsersAsync(final String tweetId, int maxResults) {
+        String url = getUrlHelper().getLikingUsersUrl(tweetId);
+        return getUsersRecursivelyAsync(maxResults, url, getUserLookupParameters());
     }
 
     @Override
@@ -537,6 +903,20 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getTweetsRecursively(url, parameters, getRequestHelper());
     }
 
+    @Override
+    public CompletableFuture<TweetList> getLikedTweetsAsync(final String userId, AdditionalParameters additionalParameters) {
+        String url = getUrlHelper().getLikedTweetsUrl(userId);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelper().getRequestWithParametersAsync(url, parameters, TweetList.class);
+        }
+        if (additionalParameters.getMaxResults() <= 0) {
+            parameters.put(MAX_RESULTS, String.valueOf(100));
+        }
+        return getTweetsRecursivelyAsync(url, parameters, getRequestHelper());
+    }
+
     @Override
     public TweetCountsList getTweetCounts(final String query) {
         return getTweetCounts(query, AdditionalParameters.builder().build());
@@ -565,6 +945,22 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getRequestHelperV2().getRequestWithParameters(url, parameters, TweetCountsList.class).orElseThrow(NoSuchElementException::new);
     }
 
+    @Override
+    public CompletableFuture<TweetCountsList> getTweetCountsAsync(final String query, AdditionalParameters additionalParameters) {
+        return getTweetCountsAsync(getUrlHelper().getTweetsCountUrl(), query, additionalParameters);
+    }
+
+    @Override
+    public CompletableFuture<TweetCountsList> getAllTweetCountsAsync(final String query, AdditionalParameters additionalParameters) {
+        return getTweetCountsAsync(urlHelper.getTweetsCountAllUrl(), query, additionalParameters);
+    }
+
+    private CompletableFuture<TweetCountsList> getTweetCountsAsync(String url, final String query, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.put(QUERY, query);
+        return getRequestHelperV2().getRequestWithParametersAsync(url, parameters, TweetCountsList.class);
+    }
+
     @SneakyThrows
     @Override
     public UserActionResponse muteUser(final String userId) {
@@ -606,25 +1002,53 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
                 .orElseThrow(NoSuchElementException::new);
     }
 
+    @Override
+    public CompletableFuture<RetweetResponse> retweetTweetAsync(String tweetId) {
+        String url = getUrlHelper().getRetweetTweetUrl(getUserIdFromAccessToken());
+        String body = "{\"tweet_id\": \"" + tweetId + "\"}";
+        return requestHelperV1.makeRequestAsync(Verb.POST, url, null, new HashMap<>(), body, true, RetweetResponse.class);
+    }
+
+    @Override
+    public CompletableFuture<RetweetResponse> unretweetTweetAsync(final String tweetId) {
+        String url = getUrlHelper().getUnretweetTweetUrl(getUserIdFromAccessToken(), tweetId);
+        return requestHelperV1.makeRequestAsync(Verb.DELETE, url, null, new HashMap<>(), null, true, RetweetResponse.class);
+    }
+
     @Override
     public Space getSpace(final String spaceId) {
         String url = getUrlHelper().getSpaceUrl(spaceId);
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(EXPANSION, "invited_user_ids,speaker_ids,creator_id,host_ids");
-        parameters.put(SPACE_FIELDS, ALL_SPACE_FIELDS);
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        return getRequestHelperV2().getRequestWithParameters(url, parameters, Space.class).orElseThrow(NoSuchElementException::new);
+        return getRequestHelperV2().getRequestWithParameters(url, getSpaceParameters(), Space.class).orElseThrow(NoSuchElementException::new);
+    }
+
+    @Override
+    public CompletableFuture<Space> getSpaceAsync(final String spaceId) {
+        String url = getUrlHelper().getSpaceUrl(spaceId);
+        return getRequestHelperV2().getRequestWithParametersAsync(url, getSpaceParameters(), Space.class);
     }
 
     @Override
     public SpaceList getSpaces(final List<String> spaceIds) {
         String url = getUrlHelper().getSpacesUrl();
+        Map<String, String> parameters = getSpaceParameters();
+        parameters.put("ids", String.join(", ", spaceIds));
+        return getRequestHelperV2().getRequestWithParameters(url, parameters, SpaceList.class).orElseThrow(NoSuchElementException::new);
+    }
+
+    @Override
+    public CompletableFuture<SpaceList> getSpacesAsync(final List<String> spaceIds) {
+        String url = getUrlHelper().getSpacesUrl();
+        Map<String, String> parameters = getSpaceParameters();
+        parameters.put("ids", String.join(", ", spaceIds));
+        return getRequestHelperV2().getRequestWithParametersAsync(url, parameters, SpaceList.class);
+    }
+
+    private Map<String, String> getSpaceParameters() {
         Map<String, String> parameters = new HashMap<>();
         parameters.put(EXPANSION, ALL_SPACE_EXPANSIONS);
         parameters.put(SPACE_FIELDS, ALL_SPACE_FIELDS);
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put("ids", String.join(", ", spaceIds));
-        return getRequestHelperV2().getRequestWithParameters(url, parameters, SpaceList.class).orElseThrow(NoSuchElementException::new);
+        return parameters;
     }
 
     @Override
@@ -750,21 +1174,41 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     @Override
     public TwitterList getList(final String listId) {
         String url = getUrlHelper().getListUrlV2() + "/" + listId;
+        return getRequestHelperV1().getRequestWithParameters(url, getListParameters(), TwitterList.class).orElseThrow(NoSuchElementException::new);
+    }
+
+    @Override
+    public CompletableFuture<TwitterList> getListAsync(final String listId) {
+        String url = getUrlHelper().getListUrlV2() + "/" + listId;
+        return getRequestHelperV1().getRequestWithParametersAsync(url, getListParameters(), TwitterList.class);
+    }
+
+    private Map<String, String> getListParameters() {
         Map<String, String> parameters = new HashMap<>();
         parameters.put(EXPANSION, "owner_id");
         parameters.put(LIST_FIELDS, ALL_LIST_FIELDS);
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        return getRequestHelperV1().getRequestWithParameters(url, parameters, TwitterList.class).orElseThrow(NoSuchElementException::new);
+        return parameters;
     }
 
     @Override
     public UserList getListMembers(final String listId) {
         String url = getUrlHelper().getAddListMemberUrl(listId);
+        return getUsersRecursively(Integer.MAX_VALUE, url, getListMembersParameters());
+    }
+
+    @Override
+    public CompletableFuture<UserList> getListMembersAsync(final String listId) {
+        String url = getUrlHelper().getAddListMemberUrl(listId);
+        return getUsersRecursivelyAsync(Integer.MAX_VALUE, url, getListMembersParameters());
+    }
+
+    private Map<String, String> getListMembersParameters() {
         Map<String, String> parameters = new HashMap<>();
         parameters.put(EXPANSION, PINNED_TWEET_ID);
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
         parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
-        return getUsersRecursively(Integer.MAX_VALUE, url, parameters);
+        return parameters;
     }
 
     @Override
@@ -781,10 +1225,7 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     public TweetList getListTweets(String listId, AdditionalParameters additionalParameters) {
         String url = getUrlHelper().getListTweetsUrl(listId);
         Map<String, String> parameters = additionalParameters.getMapFromParameters();
-        parameters.put(EXPANSION, ALL_EXPANSIONS);
-        parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS);
+        parameters.putAll(getTweetLookupParameters());
 
         if (!additionalParameters.isRecursiveCall()) {
             return getRequestHelperV2().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
@@ -797,6 +1238,20 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getTweetsRecursively(url, parameters, getRequestHelper());
     }
 
+    @Override
+    public CompletableFuture<TweetList> getListTweetsAsync(String listId, AdditionalParameters additionalParameters) {
+        String url = getUrlHelper().getListTweetsUrl(listId);
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.putAll(getTweetLookupParameters());
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelperV2().getRequestWithParametersAsync(url, parameters, TweetList.class);
+        }
+        if (additionalParameters.getMaxResults() <= 0) {
+            parameters.put(MAX_RESULTS, String.valueOf(100));
+        }
+        return getTweetsRecursivelyAsync(url, parameters, getRequestHelper());
+    }
+
     @Override
     public Tweet postTweet(final String text) {
         return postTweet(TweetParameters.builder().text(text).build());
@@ -810,6 +1265,17 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return getRequestHelperV1().postRequestWithBodyJson(url, new HashMap<>(), body, TweetV2.class).orElseThrow(NoSuchElementException::new);
     }
 
+    @Override
+    public CompletableFuture<Tweet> postTweetAsync(final TweetParameters tweetParameters) {
+        String url = getUrlHelper().getPostTweetUrl();
+        try {
+            String body = JsonHelper.toJson(tweetParameters);
+            return getRequestHelperV1().makeRequestAsync(Verb.POST, url, null, new HashMap<>(), body, true, TweetV2.class).thenApply(Tweet.class::cast);
+        } catch (JsonProcessingException e) {
+            return failedFuture(e);
+        }
+    }
+
     @Override
     public boolean deleteTweet(final String tweetId) {
         String url = getUrlHelper().getPostTweetUrl() + "/" + tweetId;
@@ -818,6 +1284,13 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return jsonNode.get(DATA).get(DELETED).asBoolean();
     }
 
+    @Override
+    public CompletableFuture<Boolean> deleteTweetAsync(final String tweetId) {
+        String url = getUrlHelper().getPostTweetUrl() + "/" + tweetId;
+        return getRequestHelperV1().makeRequestAsync(Verb.DELETE, url, null, new HashMap<>(), null, true, JsonNode.class)
+                .thenApply(jsonNode -> jsonNode.get(DATA).get(DELETED).asBoolean());
+    }
+
     @Override
     public DirectMessage getDirectMessageEvents() {
         return getDirectMessageEvents(AdditionalParameters.builder().maxResults(100).build());
@@ -920,40 +1393,135 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
             LOGGER.error(e.getMessage(), e);
             throw new IllegalArgumentException();
         }
-        return getRequestHelperV1().postRequestWithBodyJson(url, null, body, PostDmResponse.class).orElseThrow(NoSuchElementException::new);
+        return getRequestHelperV1().postRequestWithBodyJson(url, null, body, PostDmResponse.class).orElseThrow(NoSuchElementException::new);
+    }
+
+
+    @Override
+    public Tweet getTweet(String tweetId) {
+        String url = getUrlHelper().getTweetUrl(tweetId);
+        return getRequestHelper().getRequestWithParameters(url, getTweetLookupParameters(), TweetV2.class).orElseThrow(NoSuchElementException::new);
+    }
+
+    @Override
+    public CompletableFuture<Tweet> getTweetAsync(String tweetId) {
+        String url = getUrlHelper().getTweetUrl(tweetId);
+        return getRequestHelper().getRequestWithParametersAsync(url, getTweetLookupParameters(), TweetV2.class).thenApply(Tweet.class::cast);
+    }
+
+    @Override
+    public TweetList getTweets(List<String> tweetIds) {
+        String url = getUrlHelper().getTweetsUrl();
+        return mergeTweetLists(getChunksInParallel(tweetIds, chunk -> {
+            Map<String, String> parameters = getTweetLookupParameters();
+            parameters.put("ids", joinLookupIds(chunk));
+            return getRequestHelper().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        }));
+    }
+
+    @Override
+    public CompletableFuture<TweetList> getTweetsAsync(List<String> tweetIds) {
+        String url = getUrlHelper().getTweetsUrl();
+        return getChunksAsync(tweetIds, chunk -> {
+            Map<String, String> parameters = getTweetLookupParameters();
+            parameters.put("ids", joinLookupIds(chunk));
+            return getRequestHelper().getRequestWithParametersAsync(url, parameters, TweetList.class);
+        }).thenApply(TwitterClient::mergeTweetLists);
+    }
+
+    /**
+     * Create a batcher grouping the concurrent lookups of single tweets into calls of up to URLHelper.MAX_LOOKUP ids to
+     * https://api.twitter.com/2/tweets, with at most lookupParallelism calls in flight. The includes of a batched tweet are the ones of its whole
+     * batch.
+     *
+     * @param maxDelayMs the maximum time a lookup waits for other ones before the batch is sent
+     */
+    public LookupBatcher<Tweet> createTweetLookupBatcher(long maxDelayMs) {
+        return new LookupBatcher<>(ids -> {
+            TweetList tweetList = getTweets(ids);
+            Map<String, Tweet> tweets = new HashMap<>();
+            if (tweetList.getData() != null) {
+                for (TweetData tweetData : tweetList.getData()) {
+                    tweets.put(tweetData.getId(), TweetV2.builder().data(tweetData).includes(tweetList.getIncludes()).build());
+                }
+            }
+            return new BatchResult<>(tweets, getErrorsById(tweetList.getErrors()));
+        }, URLHelper.MAX_LOOKUP, maxDelayMs, lookupParallelism);
+    }
+
+    /**
+     * Create a batcher grouping the concurrent lookups of single users into calls of up to URLHelper.MAX_LOOKUP ids to
+     * https://api.twitter.com/2/users, with at most lookupParallelism calls in flight
+     *
+     * @param maxDelayMs the maximum time a lookup waits for other ones before the batch is sent
+     */
+    public LookupBatcher<User> createUserLookupBatcher(long maxDelayMs) {
+        return new LookupBatcher<>(ids -> {
+            BatchResult<UserData> result = lookupUserBatch(ids);
+            Map<String, User> users = new HashMap<>();
+            result.getValues().forEach((id, userData) -> users.put(id, UserV2.builder().data(userData).build()));
+            return new BatchResult<>(users, result.getErrors());
+        }, URLHelper.MAX_LOOKUP, maxDelayMs, lookupParallelism);
+    }
+
+    /**
+     * Create a pipeline hydrating tweet ids by calls of up to URLHelper.MAX_LOOKUP ids to https://api.twitter.com/2/tweets, with at most
+     * lookupParallelism calls in flight
+     */
+    public HydrationPipeline<TweetData> createTweetHydrationPipeline() {
+        return new HydrationPipeline<>(this::lookupTweetBatch, URLHelper.MAX_LOOKUP, lookupParallelism);
+    }
+
+    /**
+     * Create a pipeline hydrating user ids by calls of up to URLHelper.MAX_LOOKUP ids to https://api.twitter.com/2/users, with at most
+     * lookupParallelism calls in flight
+     */
+    public HydrationPipeline<UserData> createUserHydrationPipeline() {
+        return new HydrationPipeline<>(this::lookupUserBatch, URLHelper.MAX_LOOKUP, lookupParallelism);
+    }
+
+    private BatchResult<TweetData> lookupTweetBatch(List<String> ids) {
+        TweetList tweetList = getTweets(ids);
+        Map<String, TweetData> tweets = new HashMap<>();
+        if (tweetList.getData() != null) {
+            for (TweetData tweetData : tweetList.getData()) {
+                tweets.put(tweetData.getId(), tweetData);
+            }
+        }
+        return new BatchResult<>(tweets, getErrorsById(tweetList.getErrors()));
+    }
+
+    private BatchResult<UserData> lookupUserBatch(List<String> ids) {
+        Map<String, String> parameters = getUserLookupParameters();
+        parameters.put("ids", joinLookupIds(ids));
+        UserList userList = getRequestHelper().getRequestWithParameters(getUrlHelper().getUsersUrl(), parameters, UserList.class)
+                .orElseThrow(NoSuchElementException::new);
+        Map<String, UserData> users = new HashMap<>();
+        if (userList.getData() != null) {
+            for (UserData userData : userList.getData()) {
+                users.put(userData.getId(), userData);
+            }
+        }
+        return new BatchResult<>(users, getErrorsById(userList.getErrors()));
     }
 
-
-    @Override
-    public Tweet getTweet(String tweetId) {
-        String url = getUrlHelper().getTweetUrl(tweetId);
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(EXPANSION, ALL_EXPANSIONS);
-        parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
-        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
-        parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS);
-        return getRequestHelper().getRequestWithParameters(url, parameters, TweetV2.class).orElseThrow(NoSuchElementException::new);
+    private static Map<String, ResourceError> getErrorsById(List<ResourceError> errors) {
+        Map<String, ResourceError> result = new HashMap<>();
+        if (errors != null) {
+            for (ResourceError error : errors) {
+                result.put(error.getResourceId() != null ? error.getResourceId() : error.getValue(), error);
+            }
+        }
+        return result;
     }
 
-    @Override
-    public TweetList getTweets(List<String> tweetIds) {
-        String url = getUrlHelper().getTweetsUrl();
+    private Map<String, String> getTweetLookupParameters() {
         Map<String, String> parameters = new HashMap<>();
         parameters.put(EXPANSION, ALL_EXPANSIONS);
         parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
         parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS);
-        StringBuilder result = new StringBuilder();
-        int i = 0;
-        while (i < tweetIds.size() && i < URLHelper.MAX_LOOKUP) {
-            String id = tweetIds.get(i);
-            result.append(id);
-            result.append(",");
-            i++;
-        }
-        result.delete(result.length() - 1, result.length());
-        parameters.put("ids", result.toString());
-        return getRequestHelper().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        return parameters;
     }
 
     @Override
@@ -977,20 +1545,35 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
 
     @Override
     public TweetList searchTweets(String query, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getSearchRecentParameters(query, additionalParameters);
+        String url = urlHelper.getSearchRecentTweetsUrl();
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelper().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        }
+        return getTweetsRecursively(url, parameters, getRequestHelper());
+    }
+
+    @Override
+    public CompletableFuture<TweetList> searchTweetsAsync(String query, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getSearchRecentParameters(query, additionalParameters);
+        String url = urlHelper.getSearchRecentTweetsUrl();
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelper().getRequestWithParametersAsync(url, parameters, TweetList.class);
+        }
+        return getTweetsRecursivelyAsync(url, parameters, getRequestHelper());
+    }
+
+    private Map<String, String> getSearchRecentParameters(String query, AdditionalParameters additionalParameters) {
         Map<String, String> parameters = additionalParameters.getMapFromParameters();
         parameters.put(QUERY, query);
         parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
         parameters.put(EXPANSION, ALL_EXPANSIONS);
         parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS);
-        String url = urlHelper.getSearchRecentTweetsUrl();
-        if (!additionalParameters.isRecursiveCall()) {
-            return getRequestHelper().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
-        }
-        if (additionalParameters.getMaxResults() <= 0) {
+        if (additionalParameters.isRecursiveCall() && additionalParameters.getMaxResults() <= 0) {
             parameters.put(MAX_RESULTS, String.valueOf(100));
         }
-        return getTweetsRecursively(url, parameters, getRequestHelper());
+        return parameters;
     }
 
     @Override
@@ -1000,6 +1583,82 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
 
     @Override
     public TweetList searchAllTweets(final String query, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getSearchAllParameters(query, additionalParameters);
+        String url = urlHelper.getSearchAllTweetsUrl();
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelperV2().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        }
+        return getTweetsRecursively(url, parameters, getRequestHelperV2());
+    }
+
+    @Override
+    public CompletableFuture<TweetList> searchAllTweetsAsync(final String query, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getSearchAllParameters(query, additionalParameters);
+        String url = urlHelper.getSearchAllTweetsUrl();
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelperV2().getRequestWithParametersAsync(url, parameters, TweetList.class);
+        }
+        return getTweetsRecursivelyAsync(url, parameters, getRequestHelperV2());
+    }
+
+    @Override
+    public TweetList searchAllTweetsSharded(final String query, AdditionalParameters additionalParameters, int shardCount) {
+        LocalDateTime start = additionalParameters.getStartTime() != null ? additionalParameters.getStartTime() : FIRST_TWEET_TIME;
+        // the end time must be at least 10 seconds before the request
+        LocalDateTime end = additionalParameters.getEndTime() != null ? additionalParameters.getEndTime() : LocalDateTime.now(ZoneOffset.UTC).minusSeconds(30);
+        List<Shard> shards = SearchShards.split(getAllTweetCountsHistogram(query, additionalParameters, start, end), start, end, shardCount);
+        LOGGER.debug("Searching {} in {} shards", query, shards.size());
+        Map<String, String> parameters = getSearchAllPagesParameters(query, additionalParameters);
+        parameters.remove(AdditionalParameters.NEXT_TOKEN);
+        List<List<TweetList>> shardPages = runInParallel(shards, shard -> {
+            Map<String, String> shardParameters = new HashMap<>(parameters);
+            shardParameters.put(AdditionalParameters.START_TIME, ConverterHelper.getStringFromDateV2(shard.getStart()));
+            shardParameters.put(AdditionalParameters.END_TIME, ConverterHelper.getStringFromDateV2(shard.getEnd()));
+            List<TweetList> pages = new ArrayList<>();
+            iterateTweets(urlHelper.getSearchAllTweetsUrl(), shardParameters, 500, getRequestHelperV2()).forEachRemaining(pages::add);
+            return pages;
+        }, shards.size());
+        List<TweetList> pages = shardPages.stream().flatMap(List::stream).collect(Collectors.toList());
+        TweetList result = pages.size() == 1 ? pages.get(0) : mergeTweetLists(pages);
+        if (result.getData() == null) {
+            result.setData(new ArrayList<>());
+        }
+        // newest first, as returned by the API
+        result.getData().sort(Comparator.comparing((TweetData tweet) -> tweet.getId().length()).thenComparing(TweetData::getId).reversed());
+        List<TweetData> data = result.getData();
+        result.setMeta(TweetMeta.builder()
+                .resultCount(data.size())
+                .newestId(data.isEmpty() ? null : data.get(0).getId())
+                .oldestId(data.isEmpty() ? null : data.get(data.size() - 1).getId())
+                .build());
+        return result;
+    }
+
+    /**
+     * Get all the pages of the tweet counts of a time range, with a granularity depending on its length
+     */
+    private List<TweetCountData> getAllTweetCountsHistogram(String query, AdditionalParameters additionalParameters, LocalDateTime start,
+                                                            LocalDateTime end) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(QUERY, query);
+        parameters.put(AdditionalParameters.START_TIME, ConverterHelper.getStringFromDateV2(start));
+        parameters.put(AdditionalParameters.END_TIME, ConverterHelper.getStringFromDateV2(end));
+        parameters.put(AdditionalParameters.GRANULARITY_COUNT, SearchShards.getGranularity(start, end));
+        if (additionalParameters.getSinceId() != null) {
+            parameters.put(AdditionalParameters.SINCE_ID, additionalParameters.getSinceId());
+        }
+        if (additionalParameters.getUntilId() != null) {
+            parameters.put(AdditionalParameters.UNTIL_ID, additionalParameters.getUntilId());
+        }
+        return new PageIterator<TweetCountsList, TweetCountData>(token -> {
+            if (token != null) {
+                parameters.put(AdditionalParameters.NEXT_TOKEN, token);
+            }
+            return getRequestHelperV2().getRequestWithParameters(urlHelper.getTweetsCountAllUrl(), parameters, TweetCountsList.class);
+        }, page -> page.getMeta() == null ? null : page.getMeta().getNextToken(), TweetCountsList::getData).stream().collect(Collectors.toList());
+    }
+
+    private Map<String, String> getSearchAllParameters(String query, AdditionalParameters additionalParameters) {
         Map<String, String> parameters = additionalParameters.getMapFromParameters();
         parameters.put(QUERY, query);
         if (additionalParameters.getMaxResults() <= 100) {
@@ -1011,75 +1670,311 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
         parameters.put(EXPANSION, ALL_EXPANSIONS);
         parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS);
-        String url = urlHelper.getSearchAllTweetsUrl();
-        if (!additionalParameters.isRecursiveCall()) {
-            return getRequestHelperV2().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        if (additionalParameters.isRecursiveCall() && additionalParameters.getMaxResults() <= 0) {
+            parameters.put(MAX_RESULTS, String.valueOf(100));
         }
+        return parameters;
+    }
+
+    /**
+     * The parameters of search/all iterated page by page: without max_results, the pages are the largest allowed, context_annotations limiting them
+     * to 100 results
+     */
+    private Map<String, String> getSearchAllPagesParameters(String query, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getSearchAllParameters(query, additionalParameters);
         if (additionalParameters.getMaxResults() <= 0) {
-            parameters.put(MAX_RESULTS, String.valueOf(100));
+            parameters.put(MAX_RESULTS, String.valueOf(500));
+            parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS.replace(",context_annotations", ""));
         }
-        return getTweetsRecursively(url, parameters, getRequestHelperV2());
+        return parameters;
     }
 
     /**
      * Call an endpoint related to tweets recursively until next_token is null to provide a full result
      */
     private TweetList getTweetsRecursively(String url, Map<String, String> parameters, AbstractRequestHelper requestHelper) {
-        String next;
         TweetList result = TweetList.builder().data(new ArrayList<>()).meta(new TweetMeta()).build();
-        String newestId = null;
+        IncludesIndex includesIndex = new IncludesIndex();
+        boolean hasNext;
         do {
             Optional<TweetList> tweetList = requestHelper.getRequestWithParameters(url, parameters, TweetList.class);
-            if (!tweetList.isPresent() || tweetList.get().getData() == null) {
-                result.getMeta().setNextToken(null);
-                break;
-            }
-            result.getData().addAll(tweetList.get().getData());
-            if (newestId == null) {
-                newestId = tweetList.get().getMeta().getNewestId();
-            }
-            TweetMeta meta = TweetMeta.builder()
-                    .resultCount(result.getData().size())
-                    .oldestId(tweetList.get().getMeta().getOldestId())
-                    .newestId(newestId)
-                    .nextToken(tweetList.get().getMeta().getNextToken())
-                    .build();
-            result.setMeta(meta);
-            result.setIncludes(tweetList.get().getIncludes());
-            next = tweetList.get().getMeta().getNextToken();
-            if (url.contains("/search")) { // dirty
-                parameters.put(AdditionalParameters.NEXT_TOKEN, next);
-            } else {
-                parameters.put(AdditionalParameters.PAGINATION_TOKEN, next);
-            }
-        } while (next != null);
+            hasNext = appendTweetPage(result, includesIndex, tweetList.orElse(null), url, parameters);
+        } while (hasNext);
         return result;
     }
 
+    private CompletableFuture<TweetList> getTweetsRecursivelyAsync(String url, Map<String, String> parameters, AbstractRequestHelper requestHelper) {
+        TweetList result = TweetList.builder().data(new ArrayList<>()).meta(new TweetMeta()).build();
+        IncludesIndex includesIndex = new IncludesIndex();
+        return paginateAsync(() -> requestHelper.getRequestWithParametersAsync(url, parameters, TweetList.class),
+                page -> appendTweetPage(result, includesIndex, page, url, parameters),
+                result);
+    }
+
+    /**
+     * Add the page to the result and set the token of the next page in the parameters. The includes of all the pages are accumulated in the
+     * index, the tweets of an author sharing the same user instance.
+     *
+     * @return true if there is a next page to call
+     */
+    private boolean appendTweetPage(TweetList result, IncludesIndex includesIndex, TweetList tweetList, String url, Map<String, String> parameters) {
+        if (tweetList == null || tweetList.getData() == null) {
+            result.getMeta().setNextToken(null);
+            return false;
+        }
+        result.getData().addAll(tweetList.getData());
+        String newestId = result.getMeta().getNewestId();
+        if (newestId == null) {
+            newestId = tweetList.getMeta().getNewestId();
+        }
+        TweetMeta meta = TweetMeta.builder()
+                .resultCount(result.getData().size())
+                .oldestId(tweetList.getMeta().getOldestId())
+                .newestId(newestId)
+                .nextToken(tweetList.getMeta().getNextToken())
+                .build();
+        result.setMeta(meta);
+        includesIndex.add(tweetList);
+        if (includesIndex.hasIncludes()) {
+            result.setIncludes(includesIndex.getIncludes());
+        }
+        String next = tweetList.getMeta().getNextToken();
+        if (url.contains("/search")) { // dirty
+            parameters.put(AdditionalParameters.NEXT_TOKEN, next);
+        } else {
+            parameters.put(AdditionalParameters.PAGINATION_TOKEN, next);
+        }
+        return next != null;
+    }
+
     /**
      * Call an endpoint related to users recursively until next_token is null to provide a full result
      */
     private UserList getUsersRecursively(String url, Map<String, String> parameters, AbstractRequestHelper requestHelper) {
-        String next;
         UserList result = UserList.builder().data(new ArrayList<>()).meta(new UserMeta()).build();
+        boolean hasNext;
         do {
             Optional<UserList> userList = requestHelper.getRequestWithParameters(url, parameters, UserList.class);
-            if (!userList.isPresent() || userList.get().getData() == null) {
-                result.getMeta().setNextToken(null);
-                break;
-            }
-            result.getData().addAll(userList.get().getData());
-            UserMeta meta = UserMeta.builder()
-                    .resultCount(result.getData().size())
-                    .nextToken(userList.get().getMeta().getNextToken())
-                    .build();
-            result.setMeta(meta);
-            next = userList.get().getMeta().getNextToken();
-            parameters.put(AdditionalParameters.PAGINATION_TOKEN, next);
-        } while (next != null);
+            hasNext = appendUserPage(result, userList.orElse(null), parameters);
+        } while (hasNext);
         return result;
     }
 
+    private CompletableFuture<UserList> getUsersRecursivelyAsync(String url, Map<String, String> parameters, AbstractRequestHelper requestHelper) {
+        UserList result = UserList.builder().data(new ArrayList<>()).meta(new UserMeta()).build();
+        return paginateAsync(() -> requestHelper.getRequestWithParametersAsync(url, parameters, UserList.class),
+                page -> appendUserPage(result, page, parameters),
+                result);
+    }
+
+    /**
+     * Add the page to the result and set the token of the next page in the parameters
+     *
+     * @return true if there is a next page to call
+     */
+    private boolean appendUserPage(UserList result, UserList userList, Map<String, String> parameters) {
+        if (userList == null || userList.getData() == null) {
+            result.getMeta().setNextToken(null);
+            return false;
+        }
+        result.getData().addAll(userList.getData());
+        UserMeta meta = UserMeta.builder()
+                .resultCount(result.getData().size())
+                .nextToken(userList.getMeta().getNextToken())
+                .build();
+        result.setMeta(meta);
+        String next = userList.getMeta().getNextToken();
+        parameters.put(AdditionalParameters.PAGINATION_TOKEN, next);
+        return next != null;
+    }
+
+    /**
+     * Chain the calls of a paginated endpoint without blocking. Pages which are already available when their future is returned (e.g. with an
+     * HttpClient executing inline) are consumed in a loop instead of being nested, to keep the stack flat whatever the number of pages.
+     *
+     * @param pageSupplier call the next page
+     * @param pageConsumer add the page to the result and return true if another page has to be called
+     * @param result the object completed once the last page has been consumed
+     */
+    private <P, R> CompletableFuture<R> paginateAsync(Supplier<CompletableFuture<P>> pageSupplier, Predicate<P> pageConsumer, R result) {
+        CompletableFuture<P> page = pageSupplier.get();
+        while (page.isDone() && !page.isCompletedExceptionally()) {
+            if (!pageConsumer.test(page.join())) {
+                return CompletableFuture.completedFuture(result);
+            }
+            page = pageSupplier.get();
+        }
+        return page.thenCompose(p -> pageConsumer.test(p)
+                                     ? paginateAsync(pageSupplier, pageConsumer, result)
+                                     : CompletableFuture.completedFuture(result));
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    @Override
+    public PageIterator<TweetList, TweetData> searchTweetsPages(String query, AdditionalParameters additionalParameters) {
+        return iterateTweets(urlHelper.getSearchRecentTweetsUrl(), getSearchRecentParameters(query, additionalParameters), 100, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<TweetList, TweetData> searchAllTweetsPages(String query, AdditionalParameters additionalParameters) {
+        return iterateTweets(urlHelper.getSearchAllTweetsUrl(), getSearchAllPagesParameters(query, additionalParameters), 500, getRequestHelperV2());
+    }
+
+    @Override
+    public PageIterator<TweetList, TweetData> getUserTimelinePages(String userId, AdditionalParameters additionalParameters) {
+        return iterateTweets(urlHelper.getUserTimelineUrl(userId), getUserTimelineParameters(additionalParameters), 100, getRequestHelperV2());
+    }
+
+    @Override
+    public PageIterator<TweetList, TweetData> getUserMentionsPages(String userId, AdditionalParameters additionalParameters) {
+        return iterateTweets(urlHelper.getUserMentionsUrl(userId), getUserMentionsParameters(additionalParameters), 100, getRequestHelperV2());
+    }
+
+    @Override
+    public PageIterator<TweetList, TweetData> getLikedTweetsPages(String userId, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
+        return iterateTweets(getUrlHelper().getLikedTweetsUrl(userId), parameters, 100, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<TweetList, TweetData> getListTweetsPages(String listId, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.putAll(getTweetLookupParameters());
+        return iterateTweets(getUrlHelper().getListTweetsUrl(listId), parameters, 100, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<UserList, UserData> getFollowersPages(String userId, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
+        return iterateUsers(urlHelper.getFollowersUrl(userId), parameters, 1000, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<UserList, UserData> getFollowingPages(String userId, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.put(USER_FIELDS, ALL_USER_FIELDS);
+        return iterateUsers(urlHelper.getFollowingUrl(userId), parameters, 1000, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<UserList, UserData> getLikingUsersPages(String tweetId) {
+        return iterateUsers(getUrlHelper().getLikingUsersUrl(tweetId), getUserLookupParameters(), 100, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<UserList, UserData> getRetweetingUsersPages(String tweetId) {
+        return iterateUsers(urlHelper.getRetweetersUrl(tweetId), getUserLookupParameters(), 100, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<UserList, UserData> getListMembersPages(String listId) {
+        return iterateUsers(getUrlHelper().getAddListMemberUrl(listId), getListMembersParameters(), 100, getRequestHelper());
+    }
+
+    @Override
+    public PageIterator<IdList, String> getFollowersIdsPages(String userId) {
+        return iterateIds(urlHelper.getFollowersIdsUrl(userId));
+    }
+
+    @Override
+    public PageIterator<IdList, String> getFollowingIdsPages(String userId) {
+        return iterateIds(urlHelper.getFollowingIdsUrl(userId));
+    }
+
+    @Override
+    public PageIterator<DmListAnswer, io.github.redouane59.twitter.dto.dm.deprecatedV1.DirectMessage> getDmListPages() {
+        int maxCount = 50;
+        return new PageIterator<>(cursor -> requestHelperV1.getRequest(getUrlHelper().getDMListUrl(maxCount) + (cursor == null ? "" : "&" + CURSOR + "=" + cursor),
+                DmListAnswer.class),
+                DmListAnswer::getNextCursor,
+                DmListAnswer::getDirectMessages);
+    }
+
+    @Override
+    public CrawlSession<TweetList, TweetData> searchAllTweetsCrawl(String query, AdditionalParameters additionalParameters, Path checkpointFile) {
+        String              url        = urlHelper.getSearchAllTweetsUrl();
+        Map<String, String> parameters = getSearchAllPagesParameters(query, additionalParameters);
+        return iterateTweets(url, parameters, 500, getRequestHelperV2()).checkpoint(checkpointFile, url, getCrawlParameters(parameters), TweetData::getId);
+    }
+
+    @Override
+    public CrawlSession<TweetList, TweetData> getUserTimelineCrawl(String userId, AdditionalParameters additionalParameters, Path checkpointFile) {
+        String              url        = urlHelper.getUserTimelineUrl(userId);
+        Map<String, String> parameters = getUserTimelineParameters(additionalParameters);
+        return iterateTweets(url, parameters, 100, getRequestHelperV2()).checkpoint(checkpointFile, url, getCrawlParameters(parameters), TweetData::getId);
+    }
+
+    @Override
+    public CrawlSession<IdList, String> getFollowersIdsCrawl(String userId, Path checkpointFile) {
+        String url = urlHelper.getFollowersIdsUrl(userId);
+        return iterateIds(url).checkpoint(checkpointFile, url, new HashMap<>(), null);
+    }
+
+    @Override
+    public CrawlSession<IdList, String> getFollowingIdsCrawl(String userId, Path checkpointFile) {
+        String url = urlHelper.getFollowingIdsUrl(userId);
+        return iterateIds(url).checkpoint(checkpointFile, url, new HashMap<>(), null);
+    }
+
+    /**
+     * The parameters identifying a crawl in its checkpoint, the token given to start the crawl being replaced by the cursor of the checkpoint
+     */
+    private Map<String, String> getCrawlParameters(Map<String, String> parameters) {
+        Map<String, String> crawlParameters = new HashMap<>(parameters);
+        crawlParameters.remove(AdditionalParameters.NEXT_TOKEN);
+        crawlParameters.remove(AdditionalParameters.PAGINATION_TOKEN);
+        return crawlParameters;
+    }
+
+    /**
+     * Iterate over the pages of an endpoint related to tweets, the token of the next page being set in the parameters before each call
+     *
+     * @param maxPageSize the max_results allowed by the endpoint, requested when no max_results is given
+     */
+    private PageIterator<TweetList, TweetData> iterateTweets(String url, Map<String, String> parameters, int maxPageSize,
+                                                             AbstractRequestHelper requestHelper) {
+        String tokenName = url.contains("/search") ? AdditionalParameters.NEXT_TOKEN : AdditionalParameters.PAGINATION_TOKEN;
+        parameters.putIfAbsent(MAX_RESULTS, String.valueOf(maxPageSize));
+        return new PageIterator<>(token -> {
+            if (token != null) {
+                parameters.put(tokenName, token);
+            }
+            return requestHelper.getRequestWithParameters(url, parameters, TweetList.class);
+        }, page -> page.getMeta() == null ? null : page.getMeta().getNextToken(), TweetList::getData);
+    }
+
+    /**
+     * Iterate over the pages of an endpoint related to users, the token of the next page being set in the parameters before each call
+     *
+     * @param maxPageSize the max_results allowed by the endpoint, requested when no max_results is given
+     */
+    private PageIterator<UserList, UserData> iterateUsers(String url, Map<String, String> parameters, int maxPageSize,
+                                                          AbstractRequestHelper requestHelper) {
+        parameters.putIfAbsent(MAX_RESULTS, String.valueOf(maxPageSize));
+        return new PageIterator<>(token -> {
+            if (token != null) {
+                parameters.put(AdditionalParameters.PAGINATION_TOKEN, token);
+            }
+            return requestHelper.getRequestWithParameters(url, parameters, UserList.class);
+        }, page -> page.getMeta() == null ? null : page.getMeta().getNextToken(), UserList::getData);
+    }
+
+    /**
+     * Iterate over the pages of a v1.1 cursored ids endpoint, the cursor "0" meaning that there is no next page
+     */
+    private PageIterator<IdList, String> iterateIds(String url) {
+        return new PageIterator<>(cursor -> getRequestHelper().getRequest(url + "&" + CURSOR + "=" + (cursor == null ? "-1" : cursor), IdList.class),
+                page -> "0".equals(page.getNextCursor()) ? null : page.getNextCursor(),
+                IdList::getIds);
+    }
+
     @Deprecated
     @Override
     /**
@@ -1167,6 +2062,16 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return requestHelperV2.getAsyncRequest(url, parameters, listener);
     }
 
+    @Override
+    public StreamSession createFilteredStreamSession(IAPIEventListener listener) {
+        return new StreamSession(this::startFilteredStream, listener, requestHelperV2.getTweetStreamConsumer());
+    }
+
+    @Override
+    public Publisher<Tweet> getFilteredStreamPublisher() {
+        return new StreamPublisher(this::startFilteredStream);
+    }
+
     @Override
     public boolean stopFilteredStream(Future<Response> responseFuture, long timeout, TimeUnit unit) {
         try {
@@ -1275,6 +2180,16 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         return requestHelperV2.getAsyncRequest(url, parameters, listener);
     }
 
+    @Override
+    public StreamSession createSampledStreamSession(IAPIEventListener listener) {
+        return new StreamSession(this::startSampledStream, listener, requestHelperV2.getTweetStreamConsumer());
+    }
+
+    @Override
+    public Publisher<Tweet> getSampledStreamPublisher() {
+        return new StreamPublisher(this::startSampledStream);
+    }
+
     @Override
     public TweetList getUserTimeline(final String userId) {
         return getUserTimeline(userId, AdditionalParameters.builder().maxResults(100).build());
@@ -1282,6 +2197,25 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
 
     @Override
     public TweetList getUserTimeline(String userId, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getUserTimelineParameters(additionalParameters);
+        String url = urlHelper.getUserTimelineUrl(userId);
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelperV2().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        }
+        return getTweetsRecursively(url, parameters, getRequestHelperV2());
+    }
+
+    @Override
+    public CompletableFuture<TweetList> getUserTimelineAsync(String userId, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getUserTimelineParameters(additionalParameters);
+        String url = urlHelper.getUserTimelineUrl(userId);
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelperV2().getRequestWithParametersAsync(url, parameters, TweetList.class);
+        }
+        return getTweetsRecursivelyAsync(url, parameters, getRequestHelperV2());
+    }
+
+    private Map<String, String> getUserTimelineParameters(AdditionalParameters additionalParameters) {
         Map<String, String> parameters = additionalParameters.getMapFromParameters();
         parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
         parameters.put(USER_FIELDS, ALL_USER_FIELDS);
@@ -1289,14 +2223,10 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         parameters.put(POLL_FIELDS, ALL_POLL_FIELDS);
         parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS);
         parameters.put(EXPANSION, ALL_EXPANSIONS);
-        String url = urlHelper.getUserTimelineUrl(userId);
-        if (!additionalParameters.isRecursiveCall()) {
-            return getRequestHelperV2().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
-        }
-        if (additionalParameters.getMaxResults() <= 0) {
+        if (additionalParameters.isRecursiveCall() && additionalParameters.getMaxResults() <= 0) {
             parameters.put(MAX_RESULTS, String.valueOf(100));
         }
-        return getTweetsRecursively(url, parameters, getRequestHelperV2());
+        return parameters;
     }
 
     public TweetList getUserTimelineWithAllMetrics(String userId, AdditionalParameters additionalParameters) {
@@ -1324,16 +2254,31 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
 
     @Override
     public TweetList getUserMentions(final String userId, AdditionalParameters additionalParameters) {
-        Map<String, String> parameters = additionalParameters.getMapFromParameters();
-        parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
+        Map<String, String> parameters = getUserMentionsParameters(additionalParameters);
         String url = urlHelper.getUserMentionsUrl(userId);
         if (!additionalParameters.isRecursiveCall()) {
             return getRequestHelperV2().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
         }
-        if (additionalParameters.getMaxResults() <= 0) {
+        return getTweetsRecursively(url, parameters, getRequestHelperV2());
+    }
+
+    @Override
+    public CompletableFuture<TweetList> getUserMentionsAsync(final String userId, AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = getUserMentionsParameters(additionalParameters);
+        String url = urlHelper.getUserMentionsUrl(userId);
+        if (!additionalParameters.isRecursiveCall()) {
+            return getRequestHelperV2().getRequestWithParametersAsync(url, parameters, TweetList.class);
+        }
+        return getTweetsRecursivelyAsync(url, parameters, getRequestHelperV2());
+    }
+
+    private Map<String, String> getUserMentionsParameters(AdditionalParameters additionalParameters) {
+        Map<String, String> parameters = additionalParameters.getMapFromParameters();
+        parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS);
+        if (additionalParameters.isRecursiveCall() && additionalParameters.getMaxResults() <= 0) {
             parameters.put(MAX_RESULTS, String.valueOf(100));
         }
-        return getTweetsRecursively(url, parameters, getRequestHelperV2());
+        return parameters;
     }
 
     @Override
@@ -1505,17 +2450,8 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
 
     @Override
     public List<io.github.redouane59.twitter.dto.dm.deprecatedV1.DirectMessage> getDmList(int count) {
-        List<io.github.redouane59.twitter.dto.dm.deprecatedV1.DirectMessage> result = new ArrayList<>();
-        int maxCount = 50;
-        String url = getUrlHelper().getDMListUrl(maxCount);
-        DmListAnswer dmListAnswer;
-        do {
-            dmListAnswer = requestHelperV1.getRequest(url, DmListAnswer.class).orElseThrow(NoSuchElementException::new);
-            result.addAll(dmListAnswer.getDirectMessages());
-            url = getUrlHelper().getDMListUrl(maxCount) + "&" + CURSOR + "=" + dmListAnswer.getNextCursor();
-        }
-        while (dmListAnswer.getNextCursor() != null && result.size() < count);
-        return result.subList(0, Math.min(count, result.size())); // to fix the API bug which is not giving the right count
+        // the API is not giving the right count, the pages are only requested until enough messages are received
+        return getDmListPages().stream().limit(count).collect(Collectors.toList());
     }
 
     @Override
@@ -1607,12 +2543,12 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     private Map<String, String> buildOauthParams(String url) {
         Map<String, String> params = new HashMap<>(12);
         params.put("oauth_consumer_key", twitterCredentials.getApiKey());
-        params.put("oauth_nonce", GlobalAuthUtils.generateNonce(32));
+        params.put("oauth_nonce", OAuth1Signer.generateNonce(32));
         params.put("oauth_signature_method", "HMAC-SHA1");
         params.put("oauth_timestamp", GlobalAuthUtils.getTimestamp());
         params.put("oauth_token", twitterCredentials.getAccessToken());
         params.put("oauth_version", "1.0");
-        params.put("oauth_signature", GlobalAuthUtils.generateTwitterSignature(params, "POST", url, twitterCredentials.getApiSecretKey(), twitterCredentials.getAccessTokenSecret()));
+        params.put("oauth_signature", getRequestHelperV1().getOAuth1Signer().sign(params, "POST", url));
         return params;
     }
 
@@ -1620,7 +2556,7 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
         final StringBuilder sb = new StringBuilder("OAuth" + " ");
 
         for (Map.Entry<String, String> param : oauthParams.entrySet()) {
-            sb.append(param.getKey()).append("=\"").append(GlobalAuthUtils.urlEncode(param.getValue())).append('"').append(", ");
+            sb.append(param.getKey()).append("=\"").append(OAuth1Signer.percentEncode(param.getValue())).append('"').append(", ");
         }
 
         return sb.deleteCharAt(sb.length() - 2).toString();
@@ -1650,20 +2586,13 @@ public class TwitterClient implements ITwitterClientV1, ITwitterClientV2, ITwitt
     @Override
     public TweetList getTweetsNON(List<String> tweetIds) {
         String url = getUrlHelper().getTweetsUrl();
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(EXPANSION, ALL_EXPANSIONS_NON);
-        parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS_NON);
-        parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS_NON);
-        StringBuilder result = new StringBuilder();
-        int i = 0;
-        while (i < tweetIds.size() && i < URLHelper.MAX_LOOKUP) {
-            String id = tweetIds.get(i);
-            result.append(id);
-            result.append(",");
-            i++;
-        }
-        result.delete(result.length() - 1, result.length());
-        parameters.put("ids", result.toString());
-        return getRequestHelper().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        return mergeTweetLists(getChunksInParallel(tweetIds, chunk -> {
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put(EXPANSION, ALL_EXPANSIONS_NON);
+            parameters.put(TWEET_FIELDS, ALL_TWEET_FIELDS_NON);
+            parameters.put(MEDIA_FIELD, ALL_MEDIA_FIELDS_NON);
+            parameters.put("ids", joinLookupIds(chunk));
+            return getRequestHelper().getRequestWithParameters(url, parameters, TweetList.class).orElseThrow(NoSuchElementException::new);
+        }));
     }
 }
@@ -0,0 +1,22 @@
+package io.github.redouane59.twitter.dto.getrelationship;
+
+import io.github.redouane59.twitter.helpers.LongIdSet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Followers gained and lost by a user between two snapshots
+ */
+@Getter
+@AllArgsConstructor
+public class FollowerDelta {
+
+  /**
+   * Ids of the followers of the new snapshot which were not in the previous one
+   */
+  private final LongIdSet added;
+  /**
+   * Ids of the followers of the previous snapshot which are not in the new one
+   */
+  private final LongIdSet removed;
+}
@@ -0,0 +1,19 @@
+package io.github.redouane59.twitter.dto.getrelationship;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Page of ids requested with stringify_ids=false, the ids being parsed directly into a primitive array
+ */
+@Getter
+@Setter
+public class LongIdList {
+
+  private long[] ids;
+  @JsonProperty("next_cursor_str")
+  private String nextCursor;
+  @JsonProperty("previous_cursor_str")
+  private String previousCursorStr;
+}
@@ -0,0 +1,31 @@
+package io.github.redouane59.twitter.dto.others;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Error returned by the v2 endpoints for one of the requested resources, e.g. a tweet id which could not be found in a lookup.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Jacksonized
+public class ResourceError {
+
+  private String value;
+  private String detail;
+  private String title;
+  @JsonProperty("resource_type")
+  private String resourceType;
+  private String parameter;
+  @JsonProperty("resource_id")
+  private String resourceId;
+  private String type;
+}
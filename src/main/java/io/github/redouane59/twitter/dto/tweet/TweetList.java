@@ -2,6 +2,7 @@ package io.github.redouane59.twitter.dto.tweet;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.github.redouane59.twitter.dto.others.ResourceError;
 import io.github.redouane59.twitter.dto.tweet.TweetV2.Includes;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -22,6 +23,7 @@ public class TweetList {
   private List<TweetV2.TweetData> data;
   private TweetMeta               meta;
   private Includes                includes;
+  private List<ResourceError>     errors;
 
   @Getter
   @Setter
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import io.github.redouane59.twitter.dto.others.ResourceError;
 import io.github.redouane59.twitter.dto.tweet.TweetList.TweetMeta;
 import io.github.redouane59.twitter.dto.tweet.TweetV2.Includes;
 import io.github.redouane59.twitter.dto.tweet.TweetV2.TweetData;
@@ -47,6 +48,10 @@ public class TweetListDeserializer extends StdDeserializer<TweetList> {
       }
       result.setData(list);
     }
+    if (node.has("errors")) {
+      result.setErrors(JsonHelper.fromJson(node.get("errors"),
+                                           JsonHelper.OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, ResourceError.class)));
+    }
     return result;
   }
 }
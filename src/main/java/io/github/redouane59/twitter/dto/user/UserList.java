@@ -1,6 +1,7 @@
 package io.github.redouane59.twitter.dto.user;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.github.redouane59.twitter.dto.others.ResourceError;
 import io.github.redouane59.twitter.dto.user.UserV2.UserData;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,8 +21,9 @@ import lombok.extern.jackson.Jacksonized;
 public class UserList {
 
   @Builder.Default
-  private List<UserData> data = new ArrayList<>();
-  private UserMeta       meta;
+  private List<UserData>      data = new ArrayList<>();
+  private UserMeta            meta;
+  private List<ResourceError> errors;
 
   @Getter
   @Setter
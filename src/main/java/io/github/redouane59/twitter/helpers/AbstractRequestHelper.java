@@ -3,36 +3,52 @@ package io.github.redouane59.twitter.helpers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.scribejava.apis.TwitterApi;
 import com.github.scribejava.core.builder.ServiceBuilder;
+import com.github.scribejava.core.model.OAuthAsyncRequestCallback;
+import com.github.scribejava.core.model.OAuthConstants;
 import com.github.scribejava.core.model.OAuthRequest;
+import com.github.scribejava.core.model.Parameter;
 import com.github.scribejava.core.model.Response;
 import com.github.scribejava.core.model.Verb;
 import com.github.scribejava.core.oauth.OAuth10aService;
 import io.github.redouane59.twitter.TwitterClient;
+import io.github.redouane59.twitter.metrics.TwitterClientMetrics;
 import io.github.redouane59.twitter.signature.TwitterCredentials;
+import io.github.redouane59.twitter.utils.OAuth1Signer;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.time.format.DateTimeFormatter;
-import java.util.Date;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import javax.naming.LimitExceededException;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 
 @Slf4j
 @Getter
 public abstract class AbstractRequestHelper {
 
-  public static final int                 DEFAULT_RETRY_AFTER_SEC = 300;
-  protected final     TweetStreamConsumer tweetStreamConsumer     = new TweetStreamConsumer();
-  private final       TwitterCredentials  twitterCredentials;
-  private final       OAuth10aService     service;
+  public static final int                  DEFAULT_RETRY_AFTER_SEC = 300;
+  protected final     TweetStreamConsumer  tweetStreamConsumer     = new TweetStreamConsumer();
+  private final       TwitterCredentials   twitterCredentials;
+  private final       OAuth10aService      service;
   @Setter
-  private             boolean             automaticRetry          = true;
-  
-  private long lastCallTs;
+  private             boolean              automaticRetry          = true;
+  @Setter
+  private             RateLimitGovernor    rateLimitGovernor       = RateLimitGovernor.withDefaultPolicies();
+  @Setter
+  private             RetryEngine          retryEngine             = new RetryEngine();
+  @Setter
+  private             TwitterClientMetrics metrics                 = TwitterClientMetrics.NOOP;
+  @Getter(AccessLevel.NONE)
+  private volatile    OAuth1Signer         oauth1Signer;
 
   protected AbstractRequestHelper(TwitterCredentials twitterCredentials) {
     this(twitterCredentials, new ServiceBuilder(twitterCredentials.getApiKey())
@@ -45,6 +61,18 @@ public abstract class AbstractRequestHelper {
     this.service            = service;
   }
 
+  /**
+   * @return the OAuth 1.0a signer of the credentials of this helper, created again if their secrets have changed
+   */
+  public OAuth1Signer getOAuth1Signer() {
+    OAuth1Signer signer = oauth1Signer;
+    if (signer == null || !signer.isFor(twitterCredentials.getApiSecretKey(), twitterCredentials.getAccessTokenSecret())) {
+      signer       = new OAuth1Signer(twitterCredentials.getApiSecretKey(), twitterCredentials.getAccessTokenSecret());
+      oauth1Signer = signer;
+    }
+    return signer;
+  }
+
   public static void logApiError(String method, String url, String stringResponse, int code) {
     LOGGER.error("({}) Error calling {} {} - {}", method, url, stringResponse, code);
   }
@@ -58,6 +86,15 @@ public abstract class AbstractRequestHelper {
 
   public <T> Optional<T> makeRequest(Verb verb, String url, Map<String, String> headers,
                                      Map<String, String> parameters, String body, boolean signRequired, Class<T> classType) {
+    return makeRequest(buildRequest(verb, url, headers, parameters, body), signRequired, classType);
+  }
+
+  public <T> CompletableFuture<T> makeRequestAsync(Verb verb, String url, Map<String, String> headers,
+                                                   Map<String, String> parameters, String body, boolean signRequired, Class<T> classType) {
+    return makeRequestAsync(buildRequest(verb, url, headers, parameters, body), signRequired, classType);
+  }
+
+  protected OAuthRequest buildRequest(Verb verb, String url, Map<String, String> headers, Map<String, String> parameters, String body) {
     OAuthRequest request = new OAuthRequest(verb, url);
     if (headers != null) {
       for (Map.Entry<String, String> header : headers.entrySet()) {
@@ -75,68 +112,226 @@ public abstract class AbstractRequestHelper {
         request.addHeader("Content-Type", "application/json");
       }
     }
-    return makeRequest(request, signRequired, classType);
+    return request;
   }
 
   @SneakyThrows
   public <T> Optional<T> makeRequest(OAuthRequest request, boolean signRequired, Class<T> classType) {
     T result = null;
-    if (signRequired) {
-      signRequest(request);
+    try (Response response = executeRequest(request, signRequired)) {
+      result = handleResponse(request, response, classType);
+    } catch (IOException ex) {
+      LOGGER.error("Error occupied on executing request", ex);
+    }
+    return Optional.ofNullable(result);
+  }
+
+  /**
+   * Executes the request through the asynchronous path of the underlying scribejava HttpClient. The returned future is completed with the converted
+   * response, exceptionally with a NoSuchElementException if the response body was empty, or with the error raised while sending or converting. Whether the calling thread is released while
+   * the request is in flight depends on the HttpClient given to the service: the default JDKHttpClient executes the call inline.
+   */
+  public <T> CompletableFuture<T> makeRequestAsync(OAuthRequest request, boolean signRequired, Class<T> classType) {
+    return executeRequestAsync(request, signRequired).thenApply(response -> {
+      T result = handleAndClose(request, response, classType);
+      if (result == null) {
+        throw new NoSuchElementException("Empty response calling " + request.getUrl());
+      }
+      return result;
+    });
+  }
+
+  @SneakyThrows
+  private <T> T handleAndClose(OAuthRequest request, Response response, Class<T> classType) {
+    try (Response closeable = response) {
+      return handleResponse(request, closeable, classType);
     }
-    // endpoint /2/tweets/search/all has a one request per second rate limit, see https://developer.twitter.com/en/docs/twitter-api/tweets/search/api-reference/get-tweets-search-all
-    if(request.getUrl().contains("/2/tweets/search/all")) {
-    	long now = System.currentTimeMillis();
-    	if(now < (lastCallTs+1000)) {
-    		int sleepTime= 1000-Math.toIntExact(now-lastCallTs);
-    		LOGGER.trace("sleep {}ms between two calls on /search/all", sleepTime);
-    		Thread.sleep(sleepTime);
-    		lastCallTs = now+sleepTime;
-    	} else {
-    		lastCallTs = now;
-    	}
-    	
-    }
-    try (Response response = getService().execute(request)) {
-      String stringResponse = response.getBody();
-      LOGGER.debug("Response code: {} to url: '{}' headers: x-rate-limit-reset: {} x-rate-limit-remaining: {}", response.getCode(), request.getUrl(), response.getHeader("x-rate-limit-reset"), response.getHeader("x-rate-limit-remaining"));
-
-      if (response.getCode() == 429) {
-        if (!automaticRetry) {
-          throw new LimitExceededException(response.getHeader("x-rate-limit-reset"));
+  }
+
+  /**
+   * Sends the request, and sends it again following the retry engine if it fails with a transient error. The caller has to close the response.
+   */
+  protected Response executeRequest(OAuthRequest request, boolean signRequired) throws InterruptedException, ExecutionException, IOException {
+    return executeRequest(request, signRequired, false);
+  }
+
+  /**
+   * @param retryNonIdempotent true to retry the server and connection errors whatever the verb, for the requests known to be safe to send twice
+   */
+  protected Response executeRequest(OAuthRequest request, boolean signRequired, boolean retryNonIdempotent)
+  throws InterruptedException, ExecutionException, IOException {
+    return retryEngine.execute(request, automaticRetry, retryNonIdempotent, attemptRequest -> sendRequest(attemptRequest, signRequired));
+  }
+
+  /**
+   * Asynchronous version of executeRequest
+   */
+  protected CompletableFuture<Response> executeRequestAsync(OAuthRequest request, boolean signRequired) {
+    return retryEngine.executeAsync(request, automaticRetry, attemptRequest -> sendRequestAsync(attemptRequest, signRequired));
+  }
+
+  /**
+   * Sends the request once the rate limit budget of its endpoint allows it, and records the rate limit headers of the response
+   */
+  protected Response sendRequest(OAuthRequest request, boolean signRequired) throws InterruptedException, ExecutionException, IOException {
+    prepareRequest(request, signRequired);
+    long     start = System.nanoTime();
+    Response response;
+    try {
+      response = getService().execute(request);
+    } catch (IOException | ExecutionException e) {
+      metrics.onError(RateLimitGovernor.getEndpointTemplate(request.getUrl()), e);
+      throw e;
+    }
+    onResponse(request, response, System.nanoTime() - start);
+    return response;
+  }
+
+  private void onResponse(OAuthRequest request, Response response, long networkNanos) {
+    rateLimitGovernor.update(request.getUrl(), response);
+    String template = RateLimitGovernor.getEndpointTemplate(request.getUrl());
+    metrics.onResponse(template, response.getCode(), networkNanos, rateLimitGovernor.getRemaining(template));
+  }
+
+  /**
+   * Asynchronous version of sendRequest. The request is signed and sent from the retry scheduler once the rate limit budget of its endpoint allows
+   * it, so that no thread waits for the budget.
+   */
+  protected CompletableFuture<Response> sendRequestAsync(OAuthRequest request, boolean signRequired) {
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    long                        waitMs;
+    try {
+      waitMs = rateLimitGovernor.reserve(request.getUrl(), automaticRetry);
+    } catch (LimitExceededException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+    if (waitMs > 0) {
+      LOGGER.debug("Sending {} in {}ms", RateLimitGovernor.getEndpointTemplate(request.getUrl()), waitMs);
+      RetryEngine.schedule(() -> signAndExecuteAsync(request, signRequired, future), waitMs);
+    } else {
+      signAndExecuteAsync(request, signRequired, future);
+    }
+    return future;
+  }
+
+  private void signAndExecuteAsync(OAuthRequest request, boolean signRequired, CompletableFuture<Response> future) {
+    try {
+      if (signRequired) {
+        signRequest(request);
+      }
+      long start = System.nanoTime();
+      getService().execute(request, new OAuthAsyncRequestCallback<Response>() {
+        @Override
+        public void onCompleted(Response response) {
+          onResponse(request, response, System.nanoTime() - start);
+          future.complete(response);
         }
-        int    retryAfter    = DEFAULT_RETRY_AFTER_SEC;
-        String retryAfterStr = response.getHeader("x-rate-limit-reset");
-        String rateRemainingStr = response.getHeader("x-rate-limit-remaining");
-        LOGGER.info("Rate limit exceeded, x-rate-limit-reset: {} x-rate-limit-remaining: {}, x-rate-limit-limit:  {}", retryAfterStr, response.getHeader("x-rate-limit-remaining"), response.getHeader("x-rate-limit-limit"));
-        if (retryAfterStr != null && rateRemainingStr != null) {
-          try {
-       		int remaining  = Integer.parseInt(rateRemainingStr);
-       		if(remaining>0) { //if we have remaining requests in this slot, the rate limit has been raised due to more calls than one per second. e.g. /search/all endpoint
-       			retryAfter=1; //wait one second
-       		} else {
-            	long resetTime   = Long.parseLong(retryAfterStr);
-                long currentTime = (new Date().getTime()) / 1000;
-                retryAfter = Math.toIntExact(resetTime - currentTime);
-                if(retryAfter<0) retryAfter=1; //issue #440 ( negative sleep time)
-       		}
-          } catch (NumberFormatException e) {
-            LOGGER.error("Using default retry after because header format is invalid: {}", retryAfterStr, e);
-          }
+
+        @Override
+        public void onThrowable(Throwable t) {
+          LOGGER.error("Error occupied on executing request", t);
+          metrics.onError(RateLimitGovernor.getEndpointTemplate(request.getUrl()), t);
+          future.completeExceptionally(t);
         }
-//        LOGGER.info("Rate limit exceeded, new retry in {} at {}", ConverterHelper.getSecondsAsText(retryAfter), ConverterHelper.minutesBeforeNow(
-//            -retryAfter / 60).format(DateTimeFormatter.ofPattern("HH:mm")));
-//        Thread.sleep(1000L * retryAfter);
-//        return makeRequest(request, false, classType); // We have already signed if it was requested
-      } else if (response.getCode() < 200 || response.getCode() > 299) {
-        logApiError(request.getVerb().name(), request.getUrl(), stringResponse, response.getCode());
+      });
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Copy a request without its signature, so that it can be signed again, e.g. with other credentials
+   */
+  static OAuthRequest copyRequest(OAuthRequest request) {
+    OAuthRequest copy = new OAuthRequest(request.getVerb(), request.getUrl());
+    for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+      if (!OAuthConstants.HEADER.equals(header.getKey())) {
+        copy.addHeader(header.getKey(), header.getValue());
       }
-      LOGGER.info("stringResponse : {}", stringResponse);
-      result = convert(stringResponse, classType);
-    } catch (IOException ex) {
-      LOGGER.error("Error occupied on executing request", ex);
     }
-    return Optional.ofNullable(result);
+    for (Parameter parameter : request.getQueryStringParams().getParams()) {
+      copy.addQuerystringParameter(parameter.getKey(), parameter.getValue());
+    }
+    for (Parameter parameter : request.getBodyParams().getParams()) {
+      copy.addBodyParameter(parameter.getKey(), parameter.getValue());
+    }
+    copy.setCharset(request.getCharset());
+    if (request.getFilePayload() != null) {
+      copy.setPayload(request.getFilePayload());
+    } else if (request.getStringPayload() != null) {
+      copy.setPayload(request.getStringPayload());
+    } else if (request.getMultipartPayload() != null) {
+      copy.setMultipartPayload(request.getMultipartPayload());
+    } else if (request.getBodyParams().size() == 0 && request.getByteArrayPayload().length > 0) {
+      copy.setPayload(request.getByteArrayPayload());
+    }
+    return copy;
+  }
+
+  /**
+   * Waits until the rate limit budget of the targeted endpoint allows the call, then signs the request if needed. The request is signed after the
+   * wait so that its timestamp stays valid. Used by the synchronous calls only.
+   */
+  @SneakyThrows
+  protected void prepareRequest(OAuthRequest request, boolean signRequired) {
+    rateLimitGovernor.acquire(request.getUrl(), automaticRetry);
+    if (signRequired) {
+      signRequest(request);
+    }
+  }
+
+  /**
+   * Reads the response received for the request and converts its body to the expected class. Successful responses are parsed directly from the
+   * stream of the body, only error responses and the ones whose payload is captured by the metrics are read as text.
+   */
+  @SneakyThrows
+  protected <T> T handleResponse(OAuthRequest request, Response response, Class<T> classType) {
+    LOGGER.debug("Response code: {} to url: '{}' headers: x-rate-limit-reset: {} x-rate-limit-remaining: {}", response.getCode(), request.getUrl(), response.getHeader("x-rate-limit-reset"), response.getHeader("x-rate-limit-remaining"));
+
+    String  template = RateLimitGovernor.getEndpointTemplate(request.getUrl());
+    boolean success  = response.getCode() >= 200 && response.getCode() <= 299;
+    boolean captured = metrics.isPayloadCaptured(template);
+    long    start    = System.nanoTime();
+    if (success && !captured) {
+      CountingInputStream stream = new CountingInputStream(response.getStream());
+      T                   result = convert(stream, classType);
+      metrics.onBodyRead(template, stream.getByteCount(), System.nanoTime() - start);
+      return result;
+    }
+    String stringResponse = readBody(template, response, captured);
+    if (response.getCode() == 429) {
+      if (automaticRetry) {
+        // the retries are exhausted, the budget has been updated from the headers so the next calls to this endpoint will wait for the reset
+        LOGGER.info("Rate limit exceeded, x-rate-limit-reset: {} x-rate-limit-remaining: {}, x-rate-limit-limit:  {}", response.getHeader("x-rate-limit-reset"), response.getHeader("x-rate-limit-remaining"), response.getHeader("x-rate-limit-limit"));
+      }
+      throw new LimitExceededException(response.getHeader("x-rate-limit-reset"));
+    } else if (!success) {
+      logApiError(request.getVerb().name(), request.getUrl(), stringResponse, response.getCode());
+    }
+    T result = convert(stringResponse, classType);
+    metrics.onBodyRead(template, getByteCount(stringResponse), System.nanoTime() - start);
+    return result;
+  }
+
+  private String readBody(String template, Response response, boolean captured) throws IOException {
+    String body = response.getBody();
+    if (captured) {
+      metrics.onPayload(template, response.getCode(), body);
+    }
+    return body;
+  }
+
+  private static long getByteCount(String body) {
+    return body == null ? 0 : body.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  protected <T> T convert(InputStream stream, Class<? extends T> targetClass) throws IOException {
+    if (targetClass == String.class) {
+      return (T) IOUtils.toString(stream, StandardCharsets.UTF_8);
+    } else {
+      return JsonHelper.fromJson(stream, targetClass);
+    }
   }
 
   protected <T> T convert(String json, Class<? extends T> targetClass) throws JsonProcessingException {
@@ -151,35 +346,34 @@ public abstract class AbstractRequestHelper {
 
   public abstract <T> Optional<T> getRequestWithParameters(String url, Map<String, String> parameters, Class<T> classType);
 
+  public <T> CompletableFuture<T> getRequestWithParametersAsync(String url, Map<String, String> parameters, Class<T> classType) {
+    return makeRequestAsync(Verb.GET, url, null, parameters, null, true, classType);
+  }
+
 
-  @SneakyThrows
   public String makeRequest(OAuthRequest request, boolean signRequired) {
-    if (signRequired) {
-      signRequest(request);
+    return makeRequest(request, signRequired, false);
+  }
+
+  /**
+   * @param retryNonIdempotent true to retry the server and connection errors whatever the verb, for the requests known to be safe to send twice
+   */
+  @SneakyThrows
+  public String makeRequest(OAuthRequest request, boolean signRequired, boolean retryNonIdempotent) {
+    String stringResponse;
+    int    code;
+    try (Response response = executeRequest(request, signRequired, retryNonIdempotent)) {
+      String template = RateLimitGovernor.getEndpointTemplate(request.getUrl());
+      long   start    = System.nanoTime();
+      stringResponse = readBody(template, response, metrics.isPayloadCaptured(template));
+      code           = response.getCode();
+      metrics.onBodyRead(template, getByteCount(stringResponse), System.nanoTime() - start);
     }
-    Response response       = getService().execute(request);
-    String   stringResponse = response.getBody();
-    if (response.getCode() == 429) {
-      if (!automaticRetry) {
-        throw new LimitExceededException();
-      }
-      int    retryAfter    = DEFAULT_RETRY_AFTER_SEC;
-      String retryAfterStr = response.getHeader("Retry-After");
-      if (retryAfterStr != null) {
-        try {
-          retryAfter = Integer.parseInt(retryAfterStr);
-        } catch (NumberFormatException e) {
-          LOGGER.error("Using default retry after because header format is invalid: " + retryAfterStr, e);
-        }
-      }
-      LOGGER.info("Rate limit exceeded, new retry in " + ConverterHelper.getSecondsAsText(retryAfter) + " at " + ConverterHelper.minutesBeforeNow(
-              -retryAfter / 60).format(DateTimeFormatter.ofPattern("HH:mm")));
-      Thread.sleep(1000L * retryAfter);
-      return makeRequest(request, false);
-    } else if (response.getCode() < 200 || response.getCode() > 299) {
-      logApiError(request.getVerb().name(), request.getUrl(), stringResponse, response.getCode());
+    if (code == 429) {
+      throw new LimitExceededException();
+    } else if (code < 200 || code > 299) {
+      logApiError(request.getVerb().name(), request.getUrl(), stringResponse, code);
     }
-    LOGGER.info("stringResponse : {}", stringResponse);
     return stringResponse;
   }
 }
@@ -0,0 +1,230 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * PageIterator saving its progress in a checkpoint file, so that a long crawl interrupted by a restart of the JVM resumes from the last page
+ * processed instead of requesting all the pages again. A page is considered processed, and the checkpoint written, when the consumer asks for the
+ * following one: a page whose processing was interrupted is requested again on resume (see {@link #commit()} to checkpoint it earlier).
+ * <p>
+ * The checkpoint is forced to the disk every syncInterval pages, at the end of the crawl and on close, through a temporary file renamed over the
+ * previous one, so the file always holds a complete checkpoint. The checkpoints of the pages in between are written, without forcing them, to a
+ * pending file beside it (file name + .pending) which is read instead of the checkpoint when it is more recent: a crash of the JVM loses nothing,
+ * a crash of the system can resume a few pages earlier.
+ * <p>
+ * Created by {@link PageIterator#checkpoint(Path, String, Map, Function)}. Opening a checkpoint file written for another endpoint or other parameters
+ * throws an IllegalStateException.
+ */
+@Slf4j
+public class CrawlSession<P, T> extends PageIterator<P, T> implements AutoCloseable {
+
+  public static final int                 DEFAULT_SYNC_INTERVAL = 10;
+  private final       Path                file;
+  private final       Function<T, String> idGetter;
+  private final       int                 syncInterval;
+  /**
+   * State of the crawl after the last processed page
+   */
+  @Getter
+  private final       Checkpoint          checkpoint;
+  private             P                   pendingPage;
+  private             String              pendingCursor;
+  private             boolean             pendingFinished;
+  private             int                 unsyncedPages;
+
+  CrawlSession(Function<String, Optional<P>> pageLoader, Function<P, String> cursorGetter, Function<P, List<T>> itemsGetter, Path file,
+               Checkpoint checkpoint, Function<T, String> idGetter, int syncInterval) {
+    super(pageLoader, cursorGetter, itemsGetter, checkpoint.getCursor());
+    this.file         = file;
+    this.checkpoint   = checkpoint;
+    this.idGetter     = idGetter;
+    this.syncInterval = syncInterval;
+  }
+
+  /**
+   * Read the checkpoint of the crawl from the file, or from its pending file if it is more recent, or create a new one if none exists
+   */
+  @SneakyThrows
+  static Checkpoint readCheckpoint(Path file, String endpoint, Map<String, String> parameters) {
+    Checkpoint checkpoint = Files.exists(file) ? JsonHelper.OBJECT_MAPPER.readValue(file.toFile(), Checkpoint.class) : null;
+    Checkpoint pending    = readPendingCheckpoint(getPendingFile(file));
+    if (pending != null && (checkpoint == null || pending.getPageCount() > checkpoint.getPageCount())) {
+      checkpoint = pending;
+    }
+    if (checkpoint == null) {
+      checkpoint = new Checkpoint();
+      checkpoint.setEndpoint(endpoint);
+      checkpoint.setParameters(new HashMap<>(parameters));
+      return checkpoint;
+    }
+    if (!endpoint.equals(checkpoint.getEndpoint()) || !parameters.equals(checkpoint.getParameters())) {
+      throw new IllegalStateException("the checkpoint " + file + " was written by another crawl: " + checkpoint.getEndpoint()
+                                      + " " + checkpoint.getParameters());
+    }
+    return checkpoint;
+  }
+
+  /**
+   * @return the checkpoint of the pending file, null if there is none or if it was lost by a crash of the system
+   */
+  private static Checkpoint readPendingCheckpoint(Path pendingFile) {
+    if (!Files.exists(pendingFile)) {
+      return null;
+    }
+    try {
+      return JsonHelper.OBJECT_MAPPER.readValue(pendingFile.toFile(), Checkpoint.class);
+    } catch (IOException e) {
+      LOGGER.warn("Ignoring the unreadable checkpoint {}: {}", pendingFile, e.getMessage());
+      return null;
+    }
+  }
+
+  private static Path getPendingFile(Path file) {
+    return file.resolveSibling(file.getFileName() + ".pending");
+  }
+
+  @Override
+  public boolean hasNext() {
+    // asking for the next page means that the previous one has been processed
+    commit();
+    return !checkpoint.isFinished() && super.hasNext();
+  }
+
+  @Override
+  public P next() {
+    P page = super.next();
+    pendingPage     = page;
+    pendingCursor   = getCursor();
+    pendingFinished = isFinished();
+    return page;
+  }
+
+  /**
+   * Checkpoint the last page returned by the iterator as processed, without waiting for the following one to be asked for
+   */
+  public void commit() {
+    if (pendingPage == null) {
+      return;
+    }
+    List<T> items = getItems(pendingPage);
+    if (idGetter != null) {
+      for (T item : items) {
+        String id = idGetter.apply(item);
+        if (checkpoint.getNewestId() == null || compareIds(id, checkpoint.getNewestId()) > 0) {
+          checkpoint.setNewestId(id);
+        }
+        if (checkpoint.getOldestId() == null || compareIds(id, checkpoint.getOldestId()) < 0) {
+          checkpoint.setOldestId(id);
+        }
+      }
+    }
+    checkpoint.setCursor(pendingCursor);
+    checkpoint.setFinished(pendingFinished);
+    checkpoint.setPageCount(checkpoint.getPageCount() + 1);
+    checkpoint.setItemCount(checkpoint.getItemCount() + items.size());
+    pendingPage = null;
+    unsyncedPages++;
+    write(pendingFinished || unsyncedPages >= syncInterval);
+  }
+
+  /**
+   * Numeric ids compared without parsing them, a longer id being a greater one
+   */
+  private static int compareIds(String id1, String id2) {
+    return id1.length() != id2.length() ? Integer.compare(id1.length(), id2.length()) : id1.compareTo(id2);
+  }
+
+  /**
+   * @param sync true to replace the checkpoint file, forced to the disk, false to write the pending file without forcing it
+   */
+  @SneakyThrows
+  private void write(boolean sync) {
+    byte[] bytes       = JsonHelper.OBJECT_MAPPER.writeValueAsBytes(checkpoint);
+    Path   pendingFile = getPendingFile(file);
+    Path   target      = sync ? file : pendingFile;
+    Path   temporary   = target.resolveSibling(target.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (sync) {
+        channel.force(true);
+      }
+    }
+    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    if (sync) {
+      forceDirectory(file);
+      // the checkpoint is now at least as recent as the pending one
+      Files.deleteIfExists(pendingFile);
+      unsyncedPages = 0;
+    }
+  }
+
+  /**
+   * Force the rename of the file to the disk, on the systems allowing to open a directory
+   */
+  private static void forceDirectory(Path file) {
+    Path directory = file.toAbsolutePath().getParent();
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      LOGGER.debug("Could not force the directory {} to the disk: {}", directory, e.getMessage());
+    }
+  }
+
+  /**
+   * Force the last checkpoint to the disk. The page returned last is not checkpointed if {@link #commit()} was not called.
+   */
+  @Override
+  public void close() {
+    if (unsyncedPages > 0) {
+      write(true);
+    }
+  }
+
+  /**
+   * Persisted state of a crawl
+   */
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  public static class Checkpoint {
+
+    /**
+     * Url of the paginated endpoint
+     */
+    private String              endpoint;
+    /**
+     * Parameters of the requests, without the pagination token
+     */
+    private Map<String, String> parameters;
+    /**
+     * Cursor of the next page to request, null when nothing has been processed yet or once the crawl is finished
+     */
+    private String              cursor;
+    private String              newestId;
+    private String              oldestId;
+    private int                 pageCount;
+    private long                itemCount;
+    private boolean             finished;
+  }
+
+}
@@ -0,0 +1,228 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.scribejava.apis.TwitterApi;
+import com.github.scribejava.core.builder.ServiceBuilder;
+import com.github.scribejava.core.model.OAuthRequest;
+import com.github.scribejava.core.model.Response;
+import com.github.scribejava.core.model.Verb;
+import com.github.scribejava.core.oauth.OAuth10aService;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shares the calls of a TwitterClient between several credentials (e.g. the tokens of several apps). Each credential has its own RequestHelper and
+ * RequestHelperV2, so its own rate limit budgets, and each GET request is sent with the credential having the most calls left on the targeted
+ * endpoint. A request answered with 429 (rate limit exceeded) or 401 (unauthorized) is sent again with another credential. A 401 can be specific to
+ * the request (e.g. the timeline of a protected user), so a credential is only not used anymore when Twitter tells its token is invalid (error codes
+ * 89 and 32) or when it is answered with 401 on several different endpoints without any successful call in between.
+ * <p>
+ * The other requests (POST, PUT, DELETE) act on behalf of a user, so they are always sent with the first credentials of the pool.
+ */
+@Slf4j
+public class CredentialPool {
+
+  /**
+   * Twitter error codes meaning that the token itself is invalid: 89 (invalid or expired token) and 32 (could not authenticate you)
+   */
+  private static final List<Integer> INVALID_CREDENTIALS_CODES     = Arrays.asList(89, 32);
+  /**
+   * Number of different endpoints answering 401 in a row after which the credentials are considered invalid
+   */
+  static final         int           UNAUTHORIZED_ENDPOINTS_LIMIT = 3;
+  @Getter
+  private final List<Member>  members;
+  private final AtomicInteger nextStart = new AtomicInteger();
+
+  public CredentialPool(List<TwitterCredentials> credentials) {
+    this(credentials, c -> new ServiceBuilder(c.getApiKey()).apiSecret(c.getApiSecretKey()).build(TwitterApi.instance()));
+  }
+
+  /**
+   * @param serviceFactory creates the scribejava service of each credential, e.g. to give them a pooled HttpClient
+   */
+  public CredentialPool(List<TwitterCredentials> credentials, Function<TwitterCredentials, OAuth10aService> serviceFactory) {
+    if (credentials == null || credentials.isEmpty()) {
+      throw new IllegalArgumentException("At least one credential is needed");
+    }
+    List<Member> result = new ArrayList<>();
+    for (TwitterCredentials credential : credentials) {
+      result.add(new Member(credential, serviceFactory.apply(credential)));
+    }
+    members = Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return the member of the first credentials, used for the user context and the streams
+   */
+  public Member getPrimary() {
+    return members.get(0);
+  }
+
+  /**
+   * Choose the member to send a request with
+   *
+   * @param helperGetter gives the request helper of a member used to send the request
+   * @param excluded the members already tried for this request
+   * @return the member with the most calls left on the endpoint of the url, null if there is none left
+   */
+  Member select(OAuthRequest request, Function<Member, AbstractRequestHelper> helperGetter, Set<Member> excluded) {
+    if (request.getVerb() != Verb.GET) {
+      return excluded.contains(getPrimary()) ? null : getPrimary();
+    }
+    String template      = RateLimitGovernor.getEndpointTemplate(request.getUrl());
+    // members with the same budget are used in turn
+    int    start         = Math.floorMod(nextStart.getAndIncrement(), members.size());
+    Member best          = null;
+    int    bestRemaining = 0;
+    for (int i = 0; i < members.size(); i++) {
+      Member member = members.get((start + i) % members.size());
+      if (member.isDisabled() || excluded.contains(member)) {
+        continue;
+      }
+      int remaining = helperGetter.apply(member).getRateLimitGovernor().getRemaining(template);
+      if (remaining == RateLimitGovernor.UNKNOWN) {
+        // nothing called yet on this endpoint, the whole budget is available
+        remaining = Integer.MAX_VALUE;
+      }
+      if (best == null || remaining > bestRemaining) {
+        best          = member;
+        bestRemaining = remaining;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Send the request with the member having the most calls left, then with the other ones as long as it is answered with 429 or 401
+   */
+  Response execute(OAuthRequest request, boolean signRequired, Function<Member, AbstractRequestHelper> helperGetter)
+  throws InterruptedException, ExecutionException, IOException {
+    Set<Member> tried = ConcurrentHashMap.newKeySet();
+    while (true) {
+      Member member = select(request, helperGetter, tried);
+      if (member == null) {
+        throw new IllegalStateException("All the credentials of the pool have been rejected");
+      }
+      Response response = helperGetter.apply(member).sendRequest(AbstractRequestHelper.copyRequest(request), signRequired);
+      if (!failOver(request, response, member, helperGetter, tried)) {
+        return response;
+      }
+    }
+  }
+
+  /**
+   * Asynchronous version of execute
+   */
+  CompletableFuture<Response> executeAsync(OAuthRequest request, boolean signRequired, Function<Member, AbstractRequestHelper> helperGetter) {
+    return executeAsync(request, signRequired, helperGetter, ConcurrentHashMap.newKeySet());
+  }
+
+  private CompletableFuture<Response> executeAsync(OAuthRequest request, boolean signRequired, Function<Member, AbstractRequestHelper> helperGetter,
+                                                   Set<Member> tried) {
+    Member member = select(request, helperGetter, tried);
+    if (member == null) {
+      CompletableFuture<Response> result = new CompletableFuture<>();
+      result.completeExceptionally(new IllegalStateException("All the credentials of the pool have been rejected"));
+      return result;
+    }
+    return helperGetter.apply(member).sendRequestAsync(AbstractRequestHelper.copyRequest(request), signRequired).thenCompose(response -> {
+      if (failOver(request, response, member, helperGetter, tried)) {
+        return executeAsync(request, signRequired, helperGetter, tried);
+      }
+      return CompletableFuture.completedFuture(response);
+    });
+  }
+
+  /**
+   * @return true if the response has been closed and the request has to be sent with another member, false if the response is the one to handle
+   */
+  private boolean failOver(OAuthRequest request, Response response, Member member, Function<Member, AbstractRequestHelper> helperGetter,
+                           Set<Member> tried) {
+    if (response.getCode() != 429 && response.getCode() != 401) {
+      if (response.getCode() < 400 && !member.unauthorizedEndpoints.isEmpty()) {
+        member.unauthorizedEndpoints.clear();
+      }
+      return false;
+    }
+    tried.add(member);
+    String template = RateLimitGovernor.getEndpointTemplate(request.getUrl());
+    if (response.getCode() == 401) {
+      member.unauthorizedEndpoints.add(template);
+      if (hasInvalidCredentialsCode(response) || member.unauthorizedEndpoints.size() >= UNAUTHORIZED_ENDPOINTS_LIMIT) {
+        LOGGER.error("Credentials {} of the pool rejected calling {}, they won't be used anymore", members.indexOf(member), request.getUrl());
+        member.disabled = true;
+      }
+    } else if (RateLimitGovernor.getHeader(response, RateLimitGovernor.REMAINING_HEADER) == null) {
+      // without the rate limit headers, the budget is considered exhausted for the default retry delay
+      helperGetter.apply(member).getRateLimitGovernor().update(template, RateLimitGovernor.UNKNOWN, 0,
+                                                               System.currentTimeMillis() / 1000 + AbstractRequestHelper.DEFAULT_RETRY_AFTER_SEC);
+    }
+    if (select(request, helperGetter, tried) == null) {
+      // no other credential to try, the response is handled as without pool
+      return false;
+    }
+    LOGGER.info("Response {} calling {} with credentials {} of the pool, trying other credentials", response.getCode(), request.getUrl(),
+                members.indexOf(member));
+    try {
+      response.close();
+    } catch (IOException e) {
+      LOGGER.error(e.getMessage(), e);
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the body of the 401 response contains one of the error codes of an invalid token
+   */
+  private static boolean hasInvalidCredentialsCode(Response response) {
+    try {
+      JsonNode errors = JsonHelper.OBJECT_MAPPER.readTree(response.getBody()).path("errors");
+      for (JsonNode error : errors) {
+        if (INVALID_CREDENTIALS_CODES.contains(error.path("code").asInt())) {
+          return true;
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Unreadable body of the 401 response: {}", e.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * A credential of the pool with its own request helpers
+   */
+  @Getter
+  public static class Member {
+
+    private final    TwitterCredentials credentials;
+    private final    RequestHelper      requestHelperV1;
+    private final    RequestHelperV2    requestHelperV2;
+    private volatile boolean            disabled;
+    /**
+     * Endpoints answered with 401 since the last successful call
+     */
+    @Getter(AccessLevel.NONE)
+    private final    Set<String>        unauthorizedEndpoints = ConcurrentHashMap.newKeySet();
+
+    Member(TwitterCredentials credentials, OAuth10aService service) {
+      this.credentials = credentials;
+      requestHelperV1  = new RequestHelper(credentials, service);
+      requestHelperV2  = new RequestHelperV2(credentials, service);
+    }
+  }
+
+}
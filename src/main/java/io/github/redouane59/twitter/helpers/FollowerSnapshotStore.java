@@ -0,0 +1,111 @@
+package io.github.redouane59.twitter.helpers;
+
+import io.github.redouane59.twitter.dto.getrelationship.FollowerDelta;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+/**
+ * Stores a daily snapshot of the follower ids of users as compressed {@link IdBitmap} files, one directory per user and one file per day, e.g.
+ * directory/12345/2021-06-30.bitmap. The followers gained and lost between two snapshots are computed from the bitmaps, without loading the ids as
+ * Strings.
+ */
+public class FollowerSnapshotStore {
+
+  private static final String EXTENSION = ".bitmap";
+  @Getter
+  private final        Path   directory;
+
+  public FollowerSnapshotStore(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Save the snapshot of the day, replacing the one already saved for this day if any
+   */
+  @SneakyThrows
+  public void save(String userId, LocalDate date, LongIdSet followerIds) {
+    Path file      = getFile(userId, date);
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.createDirectories(file.getParent());
+    try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+      IdBitmap.of(followerIds).writeTo(outputStream);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Save the snapshot of the day and compare it to the latest previous snapshot
+   *
+   * @return the followers gained and lost since the previous snapshot, all the followers being gained if there is none
+   */
+  public FollowerDelta update(String userId, LocalDate date, LongIdSet followerIds) {
+    Optional<LocalDate> previousDate = getSnapshotDates(userId).stream().filter(date::isAfter).reduce((first, second) -> second);
+    save(userId, date, followerIds);
+    if (!previousDate.isPresent()) {
+      return new FollowerDelta(followerIds, LongIdSet.of());
+    }
+    return diff(getSnapshot(userId, previousDate.get()), IdBitmap.of(followerIds));
+  }
+
+  @SneakyThrows
+  public Optional<IdBitmap> load(String userId, LocalDate date) {
+    Path file = getFile(userId, date);
+    if (!Files.exists(file)) {
+      return Optional.empty();
+    }
+    try (InputStream inputStream = Files.newInputStream(file)) {
+      return Optional.of(IdBitmap.readFrom(inputStream));
+    }
+  }
+
+  /**
+   * @return the days of the snapshots of the user, from the oldest
+   */
+  @SneakyThrows
+  public List<LocalDate> getSnapshotDates(String userId) {
+    Path userDirectory = directory.resolve(userId);
+    if (!Files.isDirectory(userDirectory)) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> files = Files.list(userDirectory)) {
+      return files.map(file -> file.getFileName().toString())
+                  .filter(name -> name.endsWith(EXTENSION))
+                  .map(name -> LocalDate.parse(name.substring(0, name.length() - EXTENSION.length())))
+                  .sorted()
+                  .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * @return the followers gained and lost between the two snapshots
+   * @throws NoSuchElementException if one of the snapshots does not exist
+   */
+  public FollowerDelta diff(String userId, LocalDate from, LocalDate to) {
+    return diff(getSnapshot(userId, from), getSnapshot(userId, to));
+  }
+
+  private static FollowerDelta diff(IdBitmap from, IdBitmap to) {
+    return new FollowerDelta(to.difference(from), from.difference(to));
+  }
+
+  private IdBitmap getSnapshot(String userId, LocalDate date) {
+    return load(userId, date).orElseThrow(() -> new NoSuchElementException("no snapshot of the followers of " + userId + " on " + date));
+  }
+
+  private Path getFile(String userId, LocalDate date) {
+    return directory.resolve(userId).resolve(date + EXTENSION);
+  }
+
+}
@@ -0,0 +1,212 @@
+package io.github.redouane59.twitter.helpers;
+
+import io.github.redouane59.twitter.helpers.LookupBatcher.BatchResult;
+import io.github.redouane59.twitter.helpers.LookupBatcher.LookupException;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hydrates a large number of ids into entities: the ids read from the source are grouped in batches of up to batchSize ids, each batch is looked up
+ * with one call, up to parallelism calls being in flight, and the results are given to a {@link HydrationSink}, each id being either hydrated or
+ * failed. The source is read lazily, one batch ahead of the calls, so a file of millions of ids is never held in memory.
+ * <p>
+ * The calls go through the request helper, so the rate limit governor paces them within the budget of the endpoint: the pipeline stays saturated
+ * by always having calls waiting for the budget, without exceeding it. The progress can be read from another thread while the pipeline runs.
+ *
+ * @param <V> the type of the hydrated entities
+ */
+@Slf4j
+public class HydrationPipeline<V> {
+
+  private static final AtomicInteger                          THREAD_COUNT = new AtomicInteger();
+  private final        Function<List<String>, BatchResult<V>> batchLoader;
+  private final        int                                    batchSize;
+  private final        int                                    parallelism;
+  /**
+   * Progress of the current or last run
+   */
+  @Getter
+  private volatile     Progress                               progress     = new Progress();
+
+  /**
+   * @param batchLoader calls the lookup endpoint with a list of ids
+   * @param batchSize the maximum number of ids of a call, e.g. URLHelper.MAX_LOOKUP
+   * @param parallelism the maximum number of calls in flight
+   */
+  public HydrationPipeline(Function<List<String>, BatchResult<V>> batchLoader, int batchSize, int parallelism) {
+    if (batchSize < 1 || parallelism < 1) {
+      throw new IllegalArgumentException("batchSize and parallelism must be at least 1");
+    }
+    this.batchLoader = batchLoader;
+    this.batchSize   = batchSize;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Hydrate the ids of a file holding one id per line, the blank lines being ignored
+   */
+  @SneakyThrows
+  public Progress run(Path idFile, HydrationSink<V> sink) {
+    try (BufferedReader reader = Files.newBufferedReader(idFile, StandardCharsets.UTF_8)) {
+      Iterator<String> ids = reader.lines().map(String::trim).filter(line -> !line.isEmpty()).iterator();
+      return run(ids, sink);
+    }
+  }
+
+  /**
+   * Hydrate the ids and wait for the end of the last call. If the sink throws an exception, no more batch is sent and the exception is thrown once
+   * the calls in flight are done.
+   *
+   * @return the final progress
+   */
+  @SneakyThrows
+  public Progress run(Iterator<String> ids, HydrationSink<V> sink) {
+    Progress                          current     = new Progress();
+    Semaphore                         inFlight    = new Semaphore(parallelism);
+    AtomicReference<Exception>        sinkFailure = new AtomicReference<>();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "twittered-hydration-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    progress = current;
+    try {
+      while (ids.hasNext() && sinkFailure.get() == null) {
+        // the duplicated ids of a batch are sent once
+        Set<String> batch = new LinkedHashSet<>();
+        while (batch.size() < batchSize && ids.hasNext()) {
+          batch.add(ids.next());
+          current.readIds.incrementAndGet();
+        }
+        inFlight.acquire();
+        current.sentBatches.incrementAndGet();
+        executor.execute(() -> {
+          try {
+            hydrate(new ArrayList<>(batch), sink, current);
+          } catch (Exception e) {
+            sinkFailure.compareAndSet(null, e);
+          } finally {
+            current.completedBatches.incrementAndGet();
+            inFlight.release();
+          }
+        });
+      }
+      inFlight.acquire(parallelism);
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+      current.endTime = System.currentTimeMillis();
+    }
+    if (sinkFailure.get() != null) {
+      throw sinkFailure.get();
+    }
+    return current;
+  }
+
+  private void hydrate(List<String> batch, HydrationSink<V> sink, Progress current) {
+    BatchResult<V> result;
+    try {
+      result = batchLoader.apply(batch);
+    } catch (Exception e) {
+      LOGGER.error("Hydration of {} ids failed", batch.size(), e);
+      synchronized (sink) {
+        for (String id : batch) {
+          current.failedIds.incrementAndGet();
+          sink.onFailed(id, e);
+        }
+      }
+      return;
+    }
+    synchronized (sink) {
+      for (String id : batch) {
+        V value = result.getValues().get(id);
+        if (value != null) {
+          current.hydratedIds.incrementAndGet();
+          sink.onHydrated(id, value);
+        } else {
+          current.failedIds.incrementAndGet();
+          sink.onFailed(id, new LookupException(id, result.getErrors().get(id)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Counters of a run, updated while it runs
+   */
+  public static class Progress {
+
+    private final    AtomicLong readIds          = new AtomicLong();
+    private final    AtomicLong sentBatches      = new AtomicLong();
+    private final    AtomicLong completedBatches = new AtomicLong();
+    private final    AtomicLong hydratedIds      = new AtomicLong();
+    private final    AtomicLong failedIds        = new AtomicLong();
+    @Getter
+    private final    long       startTime        = System.currentTimeMillis();
+    /**
+     * End of the run, 0 while it runs
+     */
+    @Getter
+    private volatile long       endTime;
+
+    /**
+     * @return the number of ids read from the source, the duplicated ones included
+     */
+    public long getReadIds() {
+      return readIds.get();
+    }
+
+    public long getSentBatches() {
+      return sentBatches.get();
+    }
+
+    public long getCompletedBatches() {
+      return completedBatches.get();
+    }
+
+    public long getInFlightBatches() {
+      return sentBatches.get() - completedBatches.get();
+    }
+
+    public long getHydratedIds() {
+      return hydratedIds.get();
+    }
+
+    public long getFailedIds() {
+      return failedIds.get();
+    }
+
+    /**
+     * @return the number of ids hydrated or failed per second since the start of the run
+     */
+    public double getIdsPerSecond() {
+      long elapsedMs = (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+      return elapsedMs == 0 ? 0 : (hydratedIds.get() + failedIds.get()) * 1000.0 / elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d ids read, %d hydrated, %d failed, %d batches in flight, %.1f ids/s", getReadIds(), getHydratedIds(),
+                           getFailedIds(), getInFlightBatches(), getIdsPerSecond());
+    }
+  }
+
+}
@@ -0,0 +1,39 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Receives the results of a {@link HydrationPipeline}. The calls are never concurrent, so an implementation does not have to be thread safe.
+ *
+ * @param <V> the type of the hydrated entities
+ */
+public interface HydrationSink<V> {
+
+  /**
+   * Called with each entity found
+   */
+  void onHydrated(String id, V value);
+
+  /**
+   * Called with each id which could not be hydrated
+   *
+   * @param cause a {@link LookupBatcher.LookupException} holding the error returned by Twitter for a deleted, suspended or protected entity, or the
+   * exception of the failed request of the whole batch
+   */
+  void onFailed(String id, Exception cause);
+
+  static <V> HydrationSink<V> of(BiConsumer<String, V> onHydrated, BiConsumer<String, Exception> onFailed) {
+    return new HydrationSink<V>() {
+      @Override
+      public void onHydrated(String id, V value) {
+        onHydrated.accept(id, value);
+      }
+
+      @Override
+      public void onFailed(String id, Exception cause) {
+        onFailed.accept(id, cause);
+      }
+    };
+  }
+
+}
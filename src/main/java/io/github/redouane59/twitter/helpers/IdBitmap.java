@@ -0,0 +1,234 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Immutable compressed set of numeric ids, organized like a Roaring bitmap: the high 32 bits of an id select a 32-bit bitmap, in which the next 16
+ * bits select a container holding the low 16 bits. The two levels are flattened, the high 48 bits of the ids being the sorted keys of the containers.
+ * A container holding at most 4096 values is a sorted array of 16-bit values, a denser one is a bitmap of 65536 bits (8 kB). Dense ranges of ids,
+ * like the ids of old accounts, then cost at most 2 bytes per id, and the difference of two bitmaps is computed container by container, word by
+ * word when both containers are bitmaps.
+ * <p>
+ * The serialized form delta encodes the keys as variable length integers.
+ */
+public class IdBitmap {
+
+  public static final  int      ARRAY_CONTAINER_MAX_SIZE = 4096;
+  private static final int      MAGIC                    = 0x49444231;
+  private static final int      BITMAP_WORDS             = 1024;
+  private final        long[]   keys;
+  /**
+   * Low 16 bits of the ids of each array container, null for a bitmap container
+   */
+  private final        char[][] arrays;
+  /**
+   * Words of each bitmap container, null for an array container
+   */
+  private final        long[][] bitmaps;
+  /**
+   * Number of ids in the bitmap
+   */
+  @Getter
+  private final        int      size;
+
+  private IdBitmap(long[] keys, char[][] arrays, long[][] bitmaps, int size) {
+    this.keys    = keys;
+    this.arrays  = arrays;
+    this.bitmaps = bitmaps;
+    this.size    = size;
+  }
+
+  public static IdBitmap of(LongIdSet ids) {
+    int containerCount = 0;
+    for (int i = 0; i < ids.size(); i++) {
+      if (i == 0 || ids.get(i) >> 16 != ids.get(i - 1) >> 16) {
+        containerCount++;
+      }
+    }
+    long[]   keys    = new long[containerCount];
+    char[][] arrays  = new char[containerCount][];
+    long[][] bitmaps = new long[containerCount][];
+    int      start   = 0;
+    for (int container = 0; container < containerCount; container++) {
+      long key = ids.get(start) >> 16;
+      int  end = start;
+      while (end < ids.size() && ids.get(end) >> 16 == key) {
+        end++;
+      }
+      keys[container] = key;
+      if (end - start <= ARRAY_CONTAINER_MAX_SIZE) {
+        char[] array = new char[end - start];
+        for (int i = start; i < end; i++) {
+          array[i - start] = (char) ids.get(i);
+        }
+        arrays[container] = array;
+      } else {
+        long[] bitmap = new long[BITMAP_WORDS];
+        for (int i = start; i < end; i++) {
+          int low = (char) ids.get(i);
+          bitmap[low >>> 6] |= 1L << low;
+        }
+        bitmaps[container] = bitmap;
+      }
+      start = end;
+    }
+    return new IdBitmap(keys, arrays, bitmaps, ids.size());
+  }
+
+  public boolean contains(long id) {
+    int container = Arrays.binarySearch(keys, id >> 16);
+    return container >= 0 && containsLow(container, (char) id);
+  }
+
+  private boolean containsLow(int container, int low) {
+    if (arrays[container] != null) {
+      return Arrays.binarySearch(arrays[container], (char) low) >= 0;
+    }
+    return (bitmaps[container][low >>> 6] & (1L << low)) != 0;
+  }
+
+  /**
+   * @return the number of containers, to estimate the compression
+   */
+  public int getContainerCount() {
+    return keys.length;
+  }
+
+  /**
+   * @return the ids of this bitmap which are not in the other one
+   */
+  public LongIdSet difference(IdBitmap other) {
+    LongIdSet.Builder result = LongIdSet.builder();
+    int               j      = 0;
+    for (int i = 0; i < keys.length; i++) {
+      while (j < other.keys.length && other.keys[j] < keys[i]) {
+        j++;
+      }
+      int  otherContainer = j < other.keys.length && other.keys[j] == keys[i] ? j : -1;
+      long high           = keys[i] << 16;
+      if (bitmaps[i] != null && otherContainer >= 0 && other.bitmaps[otherContainer] != null) {
+        long[] bitmap      = bitmaps[i];
+        long[] otherBitmap = other.bitmaps[otherContainer];
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+          addBits(result, high | (word << 6), bitmap[word] & ~otherBitmap[word]);
+        }
+      } else if (bitmaps[i] != null) {
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+          long bits = bitmaps[i][word];
+          for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+            int low = word << 6 | Long.numberOfTrailingZeros(remaining);
+            if (otherContainer >= 0 && other.containsLow(otherContainer, low)) {
+              bits &= ~(1L << low);
+            }
+          }
+          addBits(result, high | (word << 6), bits);
+        }
+      } else {
+        for (char low : arrays[i]) {
+          if (otherContainer < 0 || !other.containsLow(otherContainer, low)) {
+            result.add(high | low);
+          }
+        }
+      }
+    }
+    return result.build();
+  }
+
+  private static void addBits(LongIdSet.Builder result, long base, long bits) {
+    for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+      result.add(base | Long.numberOfTrailingZeros(remaining));
+    }
+  }
+
+  public LongIdSet toLongIdSet() {
+    return difference(new IdBitmap(new long[0], new char[0][], new long[0][], 0));
+  }
+
+  /**
+   * Write the bitmap to the stream, which is not closed
+   */
+  public void writeTo(OutputStream outputStream) throws IOException {
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+    output.writeInt(MAGIC);
+    writeVarLong(output, keys.length);
+    long previousKey = 0;
+    for (int i = 0; i < keys.length; i++) {
+      writeVarLong(output, keys[i] - previousKey);
+      previousKey = keys[i];
+      if (arrays[i] != null) {
+        writeVarLong(output, arrays[i].length - 1);
+        for (char low : arrays[i]) {
+          output.writeChar(low);
+        }
+      } else {
+        writeVarLong(output, Arrays.stream(bitmaps[i]).map(Long::bitCount).sum() - 1);
+        for (long word : bitmaps[i]) {
+          output.writeLong(word);
+        }
+      }
+    }
+    output.flush();
+  }
+
+  /**
+   * Read a bitmap written by {@link #writeTo(OutputStream)}. The stream is buffered, so it must not be read after the bitmap, and is not closed
+   */
+  public static IdBitmap readFrom(InputStream inputStream) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+    if (input.readInt() != MAGIC) {
+      throw new IOException("not an id bitmap");
+    }
+    int      containerCount = (int) readVarLong(input);
+    long[]   keys           = new long[containerCount];
+    char[][] arrays         = new char[containerCount][];
+    long[][] bitmaps        = new long[containerCount][];
+    int      size           = 0;
+    long     previousKey    = 0;
+    for (int i = 0; i < containerCount; i++) {
+      keys[i]     = previousKey + readVarLong(input);
+      previousKey = keys[i];
+      int cardinality = (int) readVarLong(input) + 1;
+      size += cardinality;
+      if (cardinality <= ARRAY_CONTAINER_MAX_SIZE) {
+        arrays[i] = new char[cardinality];
+        for (int j = 0; j < cardinality; j++) {
+          arrays[i][j] = input.readChar();
+        }
+      } else {
+        bitmaps[i] = new long[BITMAP_WORDS];
+        for (int j = 0; j < BITMAP_WORDS; j++) {
+          bitmaps[i][j] = input.readLong();
+        }
+      }
+    }
+    return new IdBitmap(keys, arrays, bitmaps, size);
+  }
+
+  private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      output.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream input) throws IOException {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = input.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+package io.github.redouane59.twitter.helpers;
+
+import io.github.redouane59.twitter.dto.tweet.TweetList;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.Includes;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.MediaEntityV2;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.Place;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.TweetData;
+import io.github.redouane59.twitter.dto.user.UserV2.UserData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import lombok.Getter;
+
+/**
+ * Accumulates the includes of the pages of a paginated result, each user, tweet, media and place being kept once whatever the number of pages
+ * referencing it. The user of the tweets of the added pages is replaced by the instance of the index, so that all the tweets of an author share a
+ * single UserData and the copies deserialized with each page can be garbage collected.
+ * <p>
+ * The index is not thread safe.
+ */
+public class IncludesIndex {
+
+  private final Map<String, UserData>      users  = new HashMap<>();
+  private final Map<String, TweetData>     tweets = new HashMap<>();
+  private final Map<String, MediaEntityV2> media  = new HashMap<>();
+  private final Map<String, Place>         places = new HashMap<>();
+  /**
+   * Includes of all the pages added so far, in the order they were received
+   */
+  @Getter
+  private final Includes                   includes;
+  private       boolean                    hasIncludes;
+
+  public IncludesIndex() {
+    this.includes = Includes.builder().users(new ArrayList<>()).tweets(new ArrayList<>()).media(new ArrayList<>()).places(new ArrayList<>()).build();
+  }
+
+  /**
+   * Add the includes of the page to the index and point the tweets of the page to the users of the index
+   */
+  public void add(TweetList page) {
+    Includes pageIncludes = page.getIncludes();
+    if (pageIncludes != null) {
+      hasIncludes = true;
+      addAll(users, includes.getUsers(), pageIncludes.getUsers(), UserData::getId);
+      addAll(media, includes.getMedia(), pageIncludes.getMedia(), MediaEntityV2::getKey);
+      addAll(places, includes.getPlaces(), pageIncludes.getPlaces(), Place::getId);
+      if (pageIncludes.getTweets() != null) {
+        for (TweetData tweet : pageIncludes.getTweets()) {
+          if (tweets.putIfAbsent(tweet.getId(), tweet) == null) {
+            internUser(tweet);
+            includes.getTweets().add(tweet);
+          }
+        }
+      }
+    }
+    if (page.getData() != null) {
+      for (TweetData tweet : page.getData()) {
+        internUser(tweet);
+      }
+    }
+  }
+
+  private static <T> void addAll(Map<String, T> index, List<T> target, List<T> values, Function<T, String> idGetter) {
+    if (values != null) {
+      for (T value : values) {
+        if (index.putIfAbsent(idGetter.apply(value), value) == null) {
+          target.add(value);
+        }
+      }
+    }
+  }
+
+  private void internUser(TweetData tweet) {
+    if (tweet.getAuthorId() != null) {
+      UserData user = users.get(tweet.getAuthorId());
+      if (user != null) {
+        tweet.setUser(user);
+      }
+    }
+  }
+
+  /**
+   * @return true if at least one of the added pages had includes
+   */
+  public boolean hasIncludes() {
+    return hasIncludes;
+  }
+
+  public Optional<UserData> getUser(String userId) {
+    return Optional.ofNullable(users.get(userId));
+  }
+
+  public Optional<TweetData> getTweet(String tweetId) {
+    return Optional.ofNullable(tweets.get(tweetId));
+  }
+
+  public Optional<MediaEntityV2> getMedia(String mediaKey) {
+    return Optional.ofNullable(media.get(mediaKey));
+  }
+
+  public Optional<Place> getPlace(String placeId) {
+    return Optional.ofNullable(places.get(placeId));
+  }
+
+}
@@ -0,0 +1,156 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Reactive Streams publisher of the items of an iterator, the iterator being only advanced for the items requested by the subscriber: with the
+ * item iterator of a {@link PageIterator}, the demand of the subscriber drives the requests of the pages. The items are emitted on the executor,
+ * where the iterator blocks while a page is requested. The completion is signaled once an item is requested after the last one.
+ * <p>
+ * As the iterator can only be consumed once, the publisher accepts a single subscriber.
+ *
+ * @param <T> the type of the items
+ */
+public class IteratorPublisher<T> implements Publisher<T> {
+
+  private static final AtomicInteger   THREAD_COUNT     = new AtomicInteger();
+  /**
+   * Shared by the publishers created without executor, its threads are created on demand and stopped after a minute without work
+   */
+  private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "twittered-publisher-" + THREAD_COUNT.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final        Iterator<T>     iterator;
+  private final        Executor        executor;
+  private final        AtomicBoolean   subscribed       = new AtomicBoolean();
+
+  public IteratorPublisher(Iterator<T> iterator) {
+    this(iterator, DEFAULT_EXECUTOR);
+  }
+
+  public IteratorPublisher(Iterator<T> iterator, Executor executor) {
+    this.iterator = iterator;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("The subscriber can't be null");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("The publisher of an iterator only accepts one subscriber"));
+      return;
+    }
+    new IteratorSubscription(subscriber).start();
+  }
+
+  /**
+   * Emits the items while there is demand. The work-in-progress counter ensures that a single drain loop runs at a time, the requests made during
+   * a loop being handled by it.
+   */
+  private class IteratorSubscription implements Subscription {
+
+    private final    Subscriber<? super T> subscriber;
+    private final    AtomicLong            demand = new AtomicLong();
+    private final    AtomicInteger         wip    = new AtomicInteger();
+    private volatile boolean               cancelled;
+    private volatile Throwable             invalidRequest;
+    private          boolean               done;
+
+    private IteratorSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    private void start() {
+      subscriber.onSubscribe(this);
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("The number of items requested must be positive (rule 3.9), got " + n);
+      } else {
+        demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    private void schedule() {
+      if (wip.getAndIncrement() == 0) {
+        try {
+          executor.execute(this::drain);
+        } catch (RuntimeException e) {
+          done = true;
+          subscriber.onError(e);
+        }
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      do {
+        if (!done && !cancelled) {
+          emit();
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void emit() {
+      try {
+        if (invalidRequest != null) {
+          terminate(invalidRequest);
+          return;
+        }
+        // the iterator is only asked for an item once it has been requested, so that a page is not requested in advance
+        while (!cancelled && demand.get() > 0) {
+          if (!iterator.hasNext()) {
+            terminate(null);
+            return;
+          }
+          T item = iterator.next();
+          demand.decrementAndGet();
+          subscriber.onNext(item);
+        }
+      } catch (RuntimeException e) {
+        terminate(e);
+      }
+    }
+
+    private void terminate(Throwable error) {
+      done = true;
+      if (error == null) {
+        subscriber.onComplete();
+      } else {
+        subscriber.onError(error);
+      }
+    }
+  }
+
+}
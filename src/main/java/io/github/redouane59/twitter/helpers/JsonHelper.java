@@ -1,12 +1,14 @@
 package io.github.redouane59.twitter.helpers;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
 import lombok.experimental.UtilityClass;
 
 @UtilityClass
@@ -25,6 +27,22 @@ public class JsonHelper {
     return OBJECT_MAPPER.readValue(value, clazz);
   }
 
+  /**
+   * Parse the json directly from the bytes of the stream, without building an intermediate String. The stream is closed once read.
+   */
+  public static <T> T fromJson(InputStream value, Class<T> clazz) throws IOException {
+    try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(value)) {
+      return OBJECT_MAPPER.readValue(parser, clazz);
+    }
+  }
+
+  /**
+   * Parse the json from a slice of a byte array holding UTF-8
+   */
+  public static <T> T fromJson(byte[] value, int offset, int length, Class<T> clazz) throws IOException {
+    return OBJECT_MAPPER.readValue(value, offset, length, clazz);
+  }
+
   public static <T> T fromJson(TreeNode node, Class<T> clazz) throws JsonProcessingException {
     return OBJECT_MAPPER.treeToValue(node, clazz);
   }
@@ -0,0 +1,357 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import lombok.SneakyThrows;
+
+/**
+ * Immutable sorted set of numeric ids stored in a primitive array, 8 bytes per id instead of a String object per id. contains is a binary search and
+ * the union, intersection and difference of two sets are linear merges of the sorted arrays.
+ * <p>
+ * The ids are collected with a {@link Builder}. A builder created with a spill file keeps at most maxHeapIds ids in memory: each time the limit is
+ * reached, the ids are sorted and written to the disk, and the set is built by merging the sorted runs into the file, which is then memory mapped.
+ * The set then only uses the page cache of the operating system, and its file must not be modified while it is used. A mapped set holds at most
+ * {@link #MAX_MAPPED_SIZE} ids.
+ */
+public class LongIdSet {
+
+  public static final  int        MAX_MAPPED_SIZE = Integer.MAX_VALUE / Long.BYTES;
+  private static final LongIdSet  EMPTY           = new LongIdSet(LongBuffer.allocate(0), false);
+  private final        LongBuffer ids;
+  private final        boolean    memoryMapped;
+
+  private LongIdSet(LongBuffer ids, boolean memoryMapped) {
+    this.ids          = ids;
+    this.memoryMapped = memoryMapped;
+  }
+
+  public static Builder builder() {
+    return new Builder(null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param spillFile the file of the set if it has more than maxHeapIds ids, replaced if it exists
+   * @param maxHeapIds the maximum number of ids kept in memory while collecting them
+   */
+  public static Builder builder(Path spillFile, int maxHeapIds) {
+    if (spillFile == null || maxHeapIds < 1) {
+      throw new IllegalArgumentException("a spill file and at least 1 maxHeapIds are needed");
+    }
+    return new Builder(spillFile, maxHeapIds);
+  }
+
+  public static LongIdSet of(long... ids) {
+    return builder().addAll(ids).build();
+  }
+
+  public int size() {
+    return ids.limit();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @return true if the ids are read from a memory mapped file
+   */
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  /**
+   * @return the id at the given index, the ids being sorted in ascending order
+   */
+  public long get(int index) {
+    return ids.get(index);
+  }
+
+  public boolean contains(long id) {
+    int low  = 0;
+    int high = size() - 1;
+    while (low <= high) {
+      int  middle = (low + high) >>> 1;
+      long value  = ids.get(middle);
+      if (value < id) {
+        low = middle + 1;
+      } else if (value > id) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the ids of this set or of the other one
+   */
+  public LongIdSet union(LongIdSet other) {
+    long[] result = new long[size() + other.size()];
+    int    i      = 0;
+    int    j      = 0;
+    int    count  = 0;
+    while (i < size() && j < other.size()) {
+      long a = get(i);
+      long b = other.get(j);
+      if (a <= b) {
+        result[count++] = a;
+        i++;
+        if (a == b) {
+          j++;
+        }
+      } else {
+        result[count++] = b;
+        j++;
+      }
+    }
+    while (i < size()) {
+      result[count++] = get(i++);
+    }
+    while (j < other.size()) {
+      result[count++] = other.get(j++);
+    }
+    return wrap(result, count);
+  }
+
+  /**
+   * @return the ids of this set which are also in the other one
+   */
+  public LongIdSet intersection(LongIdSet other) {
+    long[] result = new long[Math.min(size(), other.size())];
+    int    i      = 0;
+    int    j      = 0;
+    int    count  = 0;
+    while (i < size() && j < other.size()) {
+      long a = get(i);
+      long b = other.get(j);
+      if (a < b) {
+        i++;
+      } else if (a > b) {
+        j++;
+      } else {
+        result[count++] = a;
+        i++;
+        j++;
+      }
+    }
+    return wrap(result, count);
+  }
+
+  /**
+   * @return the ids of this set which are not in the other one, e.g. the lost followers between two snapshots
+   */
+  public LongIdSet difference(LongIdSet other) {
+    long[] result = new long[size()];
+    int    i      = 0;
+    int    j      = 0;
+    int    count  = 0;
+    while (i < size()) {
+      long a = get(i);
+      while (j < other.size() && other.get(j) < a) {
+        j++;
+      }
+      if (j == other.size() || other.get(j) != a) {
+        result[count++] = a;
+      }
+      i++;
+    }
+    return wrap(result, count);
+  }
+
+  /**
+   * @return the ids in ascending order
+   */
+  public LongStream stream() {
+    return IntStream.range(0, size()).mapToLong(ids::get);
+  }
+
+  public long[] toArray() {
+    long[] result = new long[size()];
+    ids.duplicate().get(result);
+    return result;
+  }
+
+  /**
+   * @param sortedIds ids sorted in ascending order without duplicates, not copied
+   */
+  static LongIdSet wrap(long[] sortedIds, int size) {
+    return size == 0 ? EMPTY : new LongIdSet(LongBuffer.wrap(sortedIds, 0, size).slice(), false);
+  }
+
+  /**
+   * Sort the ids and remove the duplicates in place
+   *
+   * @return the number of distinct ids
+   */
+  private static int sortDistinct(long[] ids, int size) {
+    Arrays.sort(ids, 0, size);
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (count == 0 || ids[i] != ids[count - 1]) {
+        ids[count++] = ids[i];
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Collects ids in any order and with duplicates, e.g. the pages of a follower ids crawl. A builder can only build one set and is not thread safe.
+   */
+  public static class Builder {
+
+    private static final int         OUTPUT_BUFFER_SIZE = 1 << 16;
+    private final        Path        spillFile;
+    private final        int         maxHeapIds;
+    private final        List<Long>  runSizes           = new ArrayList<>();
+    private              long[]      buffer             = new long[16];
+    private              int         size;
+    private              Path        runsFile;
+    private              FileChannel runs;
+
+    private Builder(Path spillFile, int maxHeapIds) {
+      this.spillFile  = spillFile;
+      this.maxHeapIds = maxHeapIds;
+    }
+
+    public Builder add(long id) {
+      ensureCapacity(size + 1);
+      buffer[size++] = id;
+      if (size == maxHeapIds && spillFile != null) {
+        spillRun();
+      }
+      return this;
+    }
+
+    public Builder addAll(long[] ids) {
+      int offset = 0;
+      while (offset < ids.length) {
+        int count = Math.min(ids.length - offset, maxHeapIds - size);
+        ensureCapacity(size + count);
+        System.arraycopy(ids, offset, buffer, size, count);
+        size += count;
+        offset += count;
+        if (size == maxHeapIds && spillFile != null) {
+          spillRun();
+        }
+      }
+      return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > buffer.length) {
+        buffer = Arrays.copyOf(buffer, (int) Math.min(maxHeapIds, Math.max((long) buffer.length * 2, capacity)));
+      }
+    }
+
+    /**
+     * Write the buffer to the runs file as a sorted run without duplicates
+     */
+    @SneakyThrows
+    private void spillRun() {
+      if (runs == null) {
+        runsFile = spillFile.resolveSibling(spillFile.getFileName() + ".runs");
+        runs     = FileChannel.open(runsFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+      }
+      int        count  = sortDistinct(buffer, size);
+      ByteBuffer output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+      for (int i = 0; i < count; i++) {
+        if (!output.hasRemaining()) {
+          flush(output, runs);
+        }
+        output.putLong(buffer[i]);
+      }
+      flush(output, runs);
+      runSizes.add((long) count);
+      size = 0;
+    }
+
+    public LongIdSet build() {
+      if (runs == null) {
+        return wrap(buffer, sortDistinct(buffer, size));
+      }
+      if (size > 0) {
+        spillRun();
+      }
+      buffer = null;
+      return mergeRuns();
+    }
+
+    /**
+     * Merge the sorted runs into the spill file, then map it
+     */
+    @SneakyThrows
+    private LongIdSet mergeRuns() {
+      try {
+        long total = runSizes.stream().mapToLong(Long::longValue).sum();
+        if (total > MAX_MAPPED_SIZE) {
+          throw new IllegalStateException(total + " ids cannot be memory mapped, the maximum is " + MAX_MAPPED_SIZE);
+        }
+        LongBuffer input     = runs.map(MapMode.READ_ONLY, 0, total * Long.BYTES).asLongBuffer();
+        int[]      positions = new int[runSizes.size()];
+        int[]      ends      = new int[runSizes.size()];
+        int        start     = 0;
+        for (int run = 0; run < positions.length; run++) {
+          positions[run] = start;
+          start += runSizes.get(run);
+          ends[run] = start;
+        }
+        long count = 0;
+        try (FileChannel output = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING)) {
+          ByteBuffer outputBuffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+          boolean    first        = true;
+          long       last         = 0;
+          while (true) {
+            // the runs are few, a linear search of the smallest head is enough
+            int minRun = -1;
+            for (int run = 0; run < positions.length; run++) {
+              if (positions[run] < ends[run] && (minRun < 0 || input.get(positions[run]) < input.get(positions[minRun]))) {
+                minRun = run;
+              }
+            }
+            if (minRun < 0) {
+              break;
+            }
+            long id = input.get(positions[minRun]++);
+            if (first || id != last) {
+              if (!outputBuffer.hasRemaining()) {
+                flush(outputBuffer, output);
+              }
+              outputBuffer.putLong(id);
+              count++;
+              first = false;
+              last  = id;
+            }
+          }
+          flush(outputBuffer, output);
+          return count == 0 ? EMPTY : new LongIdSet(output.map(MapMode.READ_ONLY, 0, count * Long.BYTES).asLongBuffer(), true);
+        }
+      } finally {
+        runs.close();
+        Files.deleteIfExists(runsFile);
+      }
+    }
+
+    @SneakyThrows
+    private static void flush(ByteBuffer buffer, FileChannel channel) {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+}
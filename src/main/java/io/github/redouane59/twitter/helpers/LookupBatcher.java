@@ -0,0 +1,183 @@
+package io.github.redouane59.twitter.helpers;
+
+import io.github.redouane59.twitter.dto.others.ResourceError;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects the single id lookups made concurrently during a short window and sends them as one lookup request of up to maxBatchSize ids
+ * (DataLoader pattern). Each caller gets a future completed with its own entity, or with a {@link LookupException} holding the error returned by
+ * Twitter for its id. The same id requested several times in a window is only sent once.
+ *
+ * @param <V> the type of the looked up entities
+ */
+@Slf4j
+public class LookupBatcher<V> implements Closeable {
+
+  public static final int DEFAULT_LOADER_THREADS = 4;
+  private final Function<List<String>, BatchResult<V>>   batchLoader;
+  private final int                                      maxBatchSize;
+  private final long                                     maxDelayMs;
+  private final ScheduledExecutorService                 scheduler;
+  private final ExecutorService                          loaderExecutor;
+  private       Map<String, CompletableFuture<V>>        pending = new LinkedHashMap<>();
+  private       ScheduledFuture<?>                       scheduledFlush;
+
+  /**
+   * @param batchLoader calls the lookup endpoint with a list of ids
+   * @param maxBatchSize the maximum number of ids of a batch, e.g. URLHelper.MAX_LOOKUP
+   * @param maxDelayMs the maximum time a lookup waits for other ones before the batch is sent
+   */
+  public LookupBatcher(Function<List<String>, BatchResult<V>> batchLoader, int maxBatchSize, long maxDelayMs) {
+    this(batchLoader, maxBatchSize, maxDelayMs, DEFAULT_LOADER_THREADS);
+  }
+
+  /**
+   * @param loaderThreads the maximum number of batches loaded at the same time, the other ones waiting for a thread
+   */
+  public LookupBatcher(Function<List<String>, BatchResult<V>> batchLoader, int maxBatchSize, long maxDelayMs, int loaderThreads) {
+    this.batchLoader  = batchLoader;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayMs   = maxDelayMs;
+    scheduler         = Executors.newSingleThreadScheduledExecutor(runnable -> daemonThread(runnable, "twittered-batcher-timer"));
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(loaderThreads, loaderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                         runnable -> daemonThread(runnable, "twittered-batcher-loader"));
+    executor.allowCoreThreadTimeOut(true);
+    loaderExecutor = executor;
+  }
+
+  private static Thread daemonThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Add the id to the current batch
+   *
+   * @return a future completed with the entity once the batch has been loaded
+   */
+  public CompletableFuture<V> load(String id) {
+    Map<String, CompletableFuture<V>> batchToSend = null;
+    CompletableFuture<V>              result;
+    synchronized (this) {
+      result = pending.computeIfAbsent(id, k -> new CompletableFuture<>());
+      if (pending.size() >= maxBatchSize) {
+        batchToSend = takePending();
+      } else if (scheduledFlush == null) {
+        scheduledFlush = scheduler.schedule(this::flush, maxDelayMs, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (batchToSend != null) {
+      dispatch(batchToSend);
+    }
+    return result;
+  }
+
+  /**
+   * Send the current batch without waiting for the end of the window
+   */
+  public void flush() {
+    Map<String, CompletableFuture<V>> batchToSend;
+    synchronized (this) {
+      batchToSend = takePending();
+    }
+    if (!batchToSend.isEmpty()) {
+      dispatch(batchToSend);
+    }
+  }
+
+  private Map<String, CompletableFuture<V>> takePending() {
+    Map<String, CompletableFuture<V>> result = pending;
+    pending = new LinkedHashMap<>();
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    return result;
+  }
+
+  private void dispatch(Map<String, CompletableFuture<V>> batch) {
+    loaderExecutor.execute(() -> load(batch));
+  }
+
+  private void load(Map<String, CompletableFuture<V>> batch) {
+    BatchResult<V> result;
+    try {
+      result = batchLoader.apply(new ArrayList<>(batch.keySet()));
+    } catch (Exception e) {
+      LOGGER.error("Batch lookup of {} ids failed", batch.size(), e);
+      batch.values().forEach(future -> future.completeExceptionally(e));
+      return;
+    }
+    for (Map.Entry<String, CompletableFuture<V>> entry : batch.entrySet()) {
+      V value = result.getValues().get(entry.getKey());
+      if (value != null) {
+        entry.getValue().complete(value);
+      } else {
+        entry.getValue().completeExceptionally(new LookupException(entry.getKey(), result.getErrors().get(entry.getKey())));
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+    scheduler.shutdown();
+    loaderExecutor.shutdown();
+  }
+
+  /**
+   * Result of a batch lookup: the entities found and the errors returned for the other ids, both by id
+   */
+  @Getter
+  public static class BatchResult<V> {
+
+    private final Map<String, V>             values;
+    private final Map<String, ResourceError> errors;
+
+    public BatchResult(Map<String, V> values, Map<String, ResourceError> errors) {
+      this.values = values;
+      this.errors = errors == null ? Collections.emptyMap() : errors;
+    }
+  }
+
+  /**
+   * Thrown when the entity of an id was not part of the batch response
+   */
+  @Getter
+  public static class LookupException extends NoSuchElementException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final           String        id;
+    /**
+     * The error returned by Twitter for this id, null if the id was just missing from the response (or once deserialized, its details being in
+     * the message)
+     */
+    private final transient ResourceError error;
+
+    public LookupException(String id, ResourceError error) {
+      super(error == null ? "No result for id " + id : error.getTitle() + " for id " + id + ": " + error.getDetail());
+      this.id    = id;
+      this.error = error;
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.github.redouane59.twitter.dto.others.ResourceError;
+import io.github.redouane59.twitter.helpers.LookupBatcher.LookupException;
+import java.io.Closeable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.SneakyThrows;
+
+/**
+ * Writes the hydrated entities to a file as newline delimited JSON, one entity per line, and optionally the failed ids to another one as
+ * {"id":"...","title":"...","detail":"..."} lines. The files are replaced if they exist.
+ */
+public class NdjsonHydrationSink<V> implements HydrationSink<V>, Closeable {
+
+  /**
+   * Writes the annotated fields of the dtos, as returned by the API, and not their derived getters
+   */
+  private static final ObjectWriter WRITER = JsonHelper.OBJECT_MAPPER.copy()
+                                                                     .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+                                                                     .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+                                                                     .writer();
+  private final        Writer       output;
+  private final        Writer       errorOutput;
+
+  /**
+   * @param output the file of the entities
+   * @param errorOutput the file of the failed ids, null not to write them
+   */
+  @SneakyThrows
+  public NdjsonHydrationSink(Path output, Path errorOutput) {
+    this.output      = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+    this.errorOutput = errorOutput == null ? null : Files.newBufferedWriter(errorOutput, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  @SneakyThrows
+  public void onHydrated(String id, V value) {
+    output.write(WRITER.writeValueAsString(value));
+    output.write('\n');
+  }
+
+  @Override
+  @SneakyThrows
+  public void onFailed(String id, Exception cause) {
+    if (errorOutput == null) {
+      return;
+    }
+    Map<String, String> line  = new LinkedHashMap<>();
+    ResourceError       error = cause instanceof LookupException ? ((LookupException) cause).getError() : null;
+    line.put("id", id);
+    line.put("title", error != null ? error.getTitle() : cause.getClass().getSimpleName());
+    line.put("detail", error != null ? error.getDetail() : cause.getMessage());
+    errorOutput.write(JsonHelper.toJson(line));
+    errorOutput.write('\n');
+  }
+
+  @Override
+  @SneakyThrows
+  public void close() {
+    try {
+      output.close();
+    } finally {
+      if (errorOutput != null) {
+        errorOutput.close();
+      }
+    }
+  }
+
+}
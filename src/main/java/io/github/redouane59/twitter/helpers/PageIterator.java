@@ -0,0 +1,219 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.Getter;
+import org.reactivestreams.Publisher;
+
+/**
+ * Iterates lazily over the pages of a paginated endpoint: a page is only requested when the consumer asks for it, so only the current page is held
+ * in memory whatever the size of the result, and stopping the iteration (e.g. with Stream.limit or by returning false from a page callback) saves
+ * the calls of the remaining pages. The pages can be consumed one by one, as a Stream, or flattened into their items.
+ * <p>
+ * An iterator can only be consumed once and is not thread safe.
+ *
+ * @param <P> the type of the pages, e.g. TweetList
+ * @param <T> the type of the items of a page, e.g. TweetData
+ */
+public class PageIterator<P, T> implements Iterator<P> {
+
+  private final Function<String, Optional<P>> pageLoader;
+  private final Function<P, String>           cursorGetter;
+  private final Function<P, List<T>>          itemsGetter;
+  /**
+   * Cursor of the next page to request, null to request the first page or once the last one has been received
+   */
+  @Getter
+  private       String                        cursor;
+  /**
+   * Number of pages received so far
+   */
+  @Getter
+  private       int                           pageCount;
+  private       P                             nextPage;
+  private       boolean                       finished;
+
+  /**
+   * @param pageLoader request the page of a cursor, null for the first page. An empty result ends the iteration.
+   * @param cursorGetter get the cursor of the page following the given one, null if it is the last one
+   * @param itemsGetter get the items of a page, can return null for a page without items
+   */
+  public PageIterator(Function<String, Optional<P>> pageLoader, Function<P, String> cursorGetter, Function<P, List<T>> itemsGetter) {
+    this(pageLoader, cursorGetter, itemsGetter, null);
+  }
+
+  /**
+   * @param cursor the cursor of the first page to request, to resume a previous iteration
+   */
+  public PageIterator(Function<String, Optional<P>> pageLoader, Function<P, String> cursorGetter, Function<P, List<T>> itemsGetter, String cursor) {
+    this.pageLoader   = pageLoader;
+    this.cursorGetter = cursorGetter;
+    this.itemsGetter  = itemsGetter;
+    this.cursor       = cursor;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextPage == null && !finished) {
+      Optional<P> page = pageLoader.apply(cursor);
+      if (!page.isPresent()) {
+        finished = true;
+        cursor   = null;
+        return false;
+      }
+      nextPage = page.get();
+      pageCount++;
+      String nextCursor = cursorGetter.apply(nextPage);
+      // a cursor identical to the one just used would request the same page again
+      finished = nextCursor == null || nextCursor.equals(cursor);
+      cursor   = finished ? null : nextCursor;
+    }
+    return nextPage != null;
+  }
+
+  @Override
+  public P next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    P page = nextPage;
+    nextPage = null;
+    return page;
+  }
+
+  /**
+   * @return true once the last page has been received
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * @return the items of the given page, never null
+   */
+  public List<T> getItems(P page) {
+    List<T> items = itemsGetter.apply(page);
+    return items == null ? Collections.emptyList() : items;
+  }
+
+  /**
+   * Give the pages to the consumer until it returns false or until the last page
+   *
+   * @param pageConsumer process a page and return true to get the next one
+   */
+  public void forEachPage(Predicate<P> pageConsumer) {
+    while (hasNext()) {
+      if (!pageConsumer.test(next())) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return a sequential Stream of the remaining pages
+   */
+  public Stream<P> pages() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * @return an iterator over the items of the remaining pages, requesting a page when the items of the previous one have been consumed
+   */
+  public Iterator<T> itemIterator() {
+    return new Iterator<T>() {
+      private Iterator<T> current = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && PageIterator.this.hasNext()) {
+          current = getItems(PageIterator.this.next()).iterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+
+  /**
+   * @return a sequential Stream of the items of the remaining pages
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(itemIterator(), Spliterator.ORDERED), false);
+  }
+
+  /**
+   * @return a Reactive Streams publisher of the items of the remaining pages, requesting a page when the subscriber requests an item after the items
+   * of the previous one. The items are emitted on a shared pool of threads. This iterator must not be used anymore.
+   */
+  public Publisher<T> publisher() {
+    return new IteratorPublisher<>(itemIterator());
+  }
+
+  /**
+   * @param executor the executor requesting the pages and emitting the items
+   */
+  public Publisher<T> publisher(Executor executor) {
+    return new IteratorPublisher<>(itemIterator(), executor);
+  }
+
+  /**
+   * Request the remaining pages in the background, up to prefetchDepth pages ahead of the consumer. This iterator must not be used anymore.
+   *
+   * @param prefetchDepth the maximum number of pages requested or received and waiting to be consumed, at least 1
+   * @return an iterator over the same pages, to close (e.g. with try-with-resources) if the iteration is stopped before the last page
+   */
+  public PrefetchingPageIterator<P, T> prefetch(int prefetchDepth) {
+    if (prefetchDepth < 1) {
+      throw new IllegalArgumentException("prefetchDepth must be at least 1");
+    }
+    return new PrefetchingPageIterator<>(this, cursorGetter, itemsGetter, prefetchDepth);
+  }
+
+  /**
+   * Save the progress of the iteration in a checkpoint file after each page, resuming from the checkpoint if the file already exists. This iterator
+   * must not have been used and must not be used anymore.
+   *
+   * @param file the checkpoint file, created if it does not exist
+   * @param endpoint the url of the endpoint, to check that the checkpoint belongs to this crawl
+   * @param parameters the parameters of the requests without the pagination token, to check that the checkpoint belongs to this crawl
+   * @param idGetter get the id of an item to save the newest and oldest ids, null not to save them
+   * @return an iterator over the pages following the checkpoint, to close once the crawl is stopped
+   */
+  public CrawlSession<P, T> checkpoint(Path file, String endpoint, Map<String, String> parameters, Function<T, String> idGetter) {
+    return checkpoint(file, endpoint, parameters, idGetter, CrawlSession.DEFAULT_SYNC_INTERVAL);
+  }
+
+  /**
+   * @param syncInterval the number of pages after which the checkpoint is forced to the disk, at least 1
+   */
+  public CrawlSession<P, T> checkpoint(Path file, String endpoint, Map<String, String> parameters, Function<T, String> idGetter, int syncInterval) {
+    if (syncInterval < 1) {
+      throw new IllegalArgumentException("syncInterval must be at least 1");
+    }
+    if (pageCount > 0 || cursor != null) {
+      throw new IllegalStateException("the iteration has already started");
+    }
+    return new CrawlSession<>(pageLoader, cursorGetter, itemsGetter, file, CrawlSession.readCheckpoint(file, endpoint, parameters), idGetter,
+                              syncInterval);
+  }
+
+}
@@ -0,0 +1,178 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Delivers the lines of a {@link StreamQueue} by decoding them on a pool of workers instead of the delivery thread, the thread taking the lines only
+ * numbering them and handing them to the workers. At most window lines are being decoded or waiting to be delivered, so a slow listener still makes
+ * the lines wait in the queue, where the overflow policy applies.
+ * <p>
+ * The {@link DeliveryOrder} decides how the decoded lines are given to the listener:
+ * <ul>
+ *   <li>UNORDERED: by the worker which decoded the line, as soon as it is decoded</li>
+ *   <li>ORDERED: in the order of the stream, one at a time, the decoded lines being put back in order by their number</li>
+ *   <li>PER_KEY: in the order of the stream for the lines of a same key (e.g. the author of the tweet), the lines of different keys being delivered
+ *   concurrently by parallelism lanes</li>
+ * </ul>
+ * Except with ORDERED, the listener is called concurrently and has to be thread safe.
+ */
+@Slf4j
+public class ParallelStreamDecoder {
+
+  private static final AtomicInteger             THREAD_COUNT = new AtomicInteger();
+  private final        Executor                  workers;
+  private final        int                       parallelism;
+  private final        int                       window;
+  private final        DeliveryOrder             deliveryOrder;
+  private final        Function<byte[], Decoded> decoder;
+  private final        Semaphore                 inFlight;
+  private final        Map<Long, Decoded>        decodedLines = new HashMap<>();
+  private              long                      nextToDeliver;
+  private              boolean                   delivering;
+  private              ExecutorService[]         lanes;
+
+  /**
+   * @param workers the executor decoding the lines, which should have parallelism threads
+   * @param window the maximum number of lines being decoded or waiting to be delivered
+   * @param decoder decodes a line into the call of the listener, run by a worker
+   */
+  public ParallelStreamDecoder(Executor workers, int parallelism, int window, DeliveryOrder deliveryOrder, Function<byte[], Decoded> decoder) {
+    if (parallelism < 1 || window < 1) {
+      throw new IllegalArgumentException("parallelism and window must be at least 1");
+    }
+    this.workers       = workers;
+    this.parallelism   = parallelism;
+    this.window        = window;
+    this.deliveryOrder = deliveryOrder;
+    this.decoder       = decoder;
+    this.inFlight      = new Semaphore(window);
+  }
+
+  /**
+   * Deliver the lines of the queue until it is closed and all its lines are delivered
+   */
+  public void run(StreamQueue queue) throws InterruptedException {
+    if (deliveryOrder == DeliveryOrder.PER_KEY) {
+      lanes = new ExecutorService[parallelism];
+      for (int i = 0; i < parallelism; i++) {
+        lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "twittered-stream-lane-" + THREAD_COUNT.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+    try {
+      byte[] line;
+      long   sequence = 0;
+      while ((line = queue.take()) != null) {
+        inFlight.acquire();
+        byte[] taken  = line;
+        long   number = sequence++;
+        workers.execute(() -> decode(number, taken));
+      }
+      inFlight.acquire(window);
+      inFlight.release(window);
+    } finally {
+      if (lanes != null) {
+        for (ExecutorService lane : lanes) {
+          lane.shutdown();
+        }
+      }
+    }
+  }
+
+  private void decode(long number, byte[] line) {
+    Decoded decoded;
+    try {
+      decoded = decoder.apply(line);
+    } catch (RuntimeException e) {
+      LOGGER.error("Could not decode a line of the stream", e);
+      decoded = new Decoded(null, () -> {
+      });
+    }
+    if (deliveryOrder == DeliveryOrder.UNORDERED) {
+      deliver(decoded);
+    } else {
+      resequence(number, decoded);
+    }
+  }
+
+  /**
+   * The decoded lines are stored until the previous ones are decoded too. The thread completing the next line to deliver delivers it with the
+   * following ones already decoded, while the other workers go on decoding.
+   */
+  private void resequence(long number, Decoded decoded) {
+    synchronized (decodedLines) {
+      decodedLines.put(number, decoded);
+      if (delivering) {
+        return;
+      }
+      delivering = true;
+    }
+    while (true) {
+      Decoded next;
+      synchronized (decodedLines) {
+        next = decodedLines.remove(nextToDeliver);
+        if (next == null) {
+          delivering = false;
+          return;
+        }
+        nextToDeliver++;
+      }
+      if (deliveryOrder == DeliveryOrder.PER_KEY) {
+        String key = next.getKey();
+        lanes[key == null ? 0 : Math.floorMod(key.hashCode(), parallelism)].execute(() -> deliver(next));
+      } else {
+        deliver(next);
+      }
+    }
+  }
+
+  private void deliver(Decoded decoded) {
+    try {
+      decoded.getDelivery().run();
+    } catch (RuntimeException e) {
+      LOGGER.error("The listener failed to handle a line of the stream", e);
+    } finally {
+      inFlight.release();
+    }
+  }
+
+  /**
+   * How the lines decoded in parallel are given to the listener
+   */
+  public enum DeliveryOrder {
+    UNORDERED,
+    ORDERED,
+    PER_KEY
+  }
+
+  /**
+   * A decoded line
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class Decoded {
+
+    /**
+     * The ordering key of the line for the PER_KEY order, null to use the same lane for all the lines without key
+     */
+    private final String   key;
+    /**
+     * Calls the listener with the decoded line
+     */
+    private final Runnable delivery;
+  }
+
+}
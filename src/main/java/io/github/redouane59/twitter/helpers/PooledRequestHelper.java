@@ -0,0 +1,47 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.github.scribejava.core.model.OAuthRequest;
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.helpers.CredentialPool.Member;
+import io.github.redouane59.twitter.metrics.TwitterClientMetrics;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import lombok.Getter;
+
+/**
+ * RequestHelper sending each request with one of the credentials of a CredentialPool. The streams are opened with the first credentials.
+ */
+public class PooledRequestHelper extends RequestHelper {
+
+  @Getter
+  private final CredentialPool credentialPool;
+
+  public PooledRequestHelper(CredentialPool credentialPool) {
+    super(credentialPool.getPrimary().getCredentials(), credentialPool.getPrimary().getRequestHelperV1().getService());
+    this.credentialPool = credentialPool;
+  }
+
+  @Override
+  protected Response sendRequest(OAuthRequest request, boolean signRequired) throws InterruptedException, ExecutionException, IOException {
+    return credentialPool.execute(request, signRequired, Member::getRequestHelperV1);
+  }
+
+  @Override
+  protected CompletableFuture<Response> sendRequestAsync(OAuthRequest request, boolean signRequired) {
+    return credentialPool.executeAsync(request, signRequired, Member::getRequestHelperV1);
+  }
+
+  @Override
+  public void setAutomaticRetry(boolean automaticRetry) {
+    super.setAutomaticRetry(automaticRetry);
+    credentialPool.getMembers().forEach(member -> member.getRequestHelperV1().setAutomaticRetry(automaticRetry));
+  }
+
+  @Override
+  public void setMetrics(TwitterClientMetrics metrics) {
+    super.setMetrics(metrics);
+    credentialPool.getMembers().forEach(member -> member.getRequestHelperV1().setMetrics(metrics));
+  }
+
+}
@@ -0,0 +1,172 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+/**
+ * PageIterator requesting the next pages in the background while the consumer processes the current one: a page is requested as soon as fewer than
+ * prefetchDepth pages are received or being received and not consumed yet, so the network time and the processing time overlap instead of adding
+ * up. The requests still go through the request helper, so the rate limit pacing of the endpoints is respected, the prefetching only waits for the
+ * pacing earlier.
+ * <p>
+ * Created by {@link PageIterator#prefetch(int)}. The background task stops after the last page, on error (the exception is thrown to the consumer
+ * when it reaches the failed page), or when the iterator is closed, which has to be done when the iteration is stopped before the end. Closing a
+ * Stream returned by pages() or stream() closes the iterator. An iterator which is neither closed nor read to the end stops its background task
+ * once it has been garbage collected.
+ * <p>
+ * The background tasks of all the iterators share a pool of MAX_PRODUCERS threads, the iterators created beyond it waiting for a thread to start
+ * prefetching.
+ */
+public class PrefetchingPageIterator<P, T> extends PageIterator<P, T> implements AutoCloseable {
+
+  public static final  int                                  MAX_PRODUCERS = 8;
+  /**
+   * Delay after which a producer waiting for room checks whether its iterator has been garbage collected
+   */
+  private static final long                                 OWNER_CHECK_MS = 1000;
+  private static final AtomicInteger                        THREAD_COUNT   = new AtomicInteger();
+  private static final ExecutorService                      EXECUTOR       = createExecutor();
+  @Getter
+  private final        int                                  prefetchDepth;
+  private final        BlockingQueue<Supplier<Optional<P>>> queue;
+  private final        Producer<P>                          producer;
+  private final        Future<?>                            producerTask;
+
+  PrefetchingPageIterator(PageIterator<P, T> source, Function<P, String> cursorGetter, Function<P, List<T>> itemsGetter, int prefetchDepth) {
+    this(source, cursorGetter, itemsGetter, prefetchDepth, new ArrayBlockingQueue<>(prefetchDepth + 1), new Semaphore(prefetchDepth));
+  }
+
+  private PrefetchingPageIterator(PageIterator<P, T> source, Function<P, String> cursorGetter, Function<P, List<T>> itemsGetter,
+                                  int prefetchDepth, BlockingQueue<Supplier<Optional<P>>> queue, Semaphore slots) {
+    super(cursor -> take(queue, slots), cursorGetter, itemsGetter, source.getCursor());
+    this.prefetchDepth = prefetchDepth;
+    this.queue         = queue;
+    // the producer only references the iterator weakly, so that an abandoned iterator can be garbage collected
+    this.producer      = new Producer<>(source, queue, slots, new WeakReference<>(this));
+    this.producerTask  = EXECUTOR.submit(producer::fetchAll);
+  }
+
+  private static ExecutorService createExecutor() {
+    ThreadPoolExecutor result = new ThreadPoolExecutor(MAX_PRODUCERS, MAX_PRODUCERS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "twittered-prefetch-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    result.allowCoreThreadTimeOut(true);
+    return result;
+  }
+
+  @SneakyThrows
+  private static <P> Optional<P> take(BlockingQueue<Supplier<Optional<P>>> queue, Semaphore slots) {
+    Supplier<Optional<P>> page = queue.take();
+    // room for the request of another page
+    slots.release();
+    return page.get();
+  }
+
+  @Override
+  public boolean hasNext() {
+    // a page put by the producer while closing must not be taken
+    boolean hasNext = !producer.closed && super.hasNext();
+    if (!hasNext) {
+      // the end marker is not taken when the last page has no next cursor
+      close();
+    }
+    return hasNext;
+  }
+
+  /**
+   * @return the number of pages received and not consumed yet
+   */
+  public int getPrefetchedPageCount() {
+    return queue.size();
+  }
+
+  /**
+   * Stop the background requests. The pages which were not consumed yet are dropped and the iteration ends.
+   */
+  @Override
+  public void close() {
+    producer.closed = true;
+    producerTask.cancel(true);
+    queue.clear();
+    queue.offer(Optional::empty);
+  }
+
+  @Override
+  public Stream<P> pages() {
+    return super.pages().onClose(this::close);
+  }
+
+  @Override
+  public Stream<T> stream() {
+    return super.stream().onClose(this::close);
+  }
+
+  /**
+   * Background task requesting the pages of the source, one slot being taken before each request and given back when the page is consumed
+   */
+  private static class Producer<P> {
+
+    private final    PageIterator<P, ?>                   source;
+    private final    BlockingQueue<Supplier<Optional<P>>> queue;
+    private final    Semaphore                            slots;
+    private final    WeakReference<?>                     owner;
+    private volatile boolean                              closed;
+
+    private Producer(PageIterator<P, ?> source, BlockingQueue<Supplier<Optional<P>>> queue, Semaphore slots, WeakReference<?> owner) {
+      this.source = source;
+      this.queue  = queue;
+      this.slots  = slots;
+      this.owner  = owner;
+    }
+
+    private void fetchAll() {
+      try {
+        try {
+          // no more requests once closed, even when the interruption was cleared by a request
+          while (waitForSlot() && source.hasNext()) {
+            P page = source.next();
+            queue.put(() -> Optional.of(page));
+          }
+          queue.put(Optional::empty);
+        } catch (RuntimeException e) {
+          queue.put(() -> {
+            throw e;
+          });
+        }
+      } catch (InterruptedException e) {
+        // closed by the consumer
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * @return true once there is room for another page, false if the iterator was closed or garbage collected in the meantime
+     */
+    private boolean waitForSlot() throws InterruptedException {
+      while (!closed && !Thread.currentThread().isInterrupted() && owner.get() != null) {
+        if (slots.tryAcquire(OWNER_CHECK_MS, TimeUnit.MILLISECONDS)) {
+          return !closed;
+        }
+      }
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,291 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.dto.others.RateLimitStatus;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.naming.LimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps track of the rate limit budget of each endpoint, learnt from the x-rate-limit-* headers of every response, and paces the calls so that the
+ * budget is not exceeded. Endpoints are identified by their template (e.g. /2/users/:id/tweets), so all the calls to the same endpoint share the
+ * same budget whatever their ids.
+ * <p>
+ * Calls can also be spaced by a minimum interval configured per endpoint, as required by /2/tweets/search/all (one request per second).
+ */
+@Slf4j
+public class RateLimitGovernor {
+
+  public static final  String                   LIMIT_HEADER     = "x-rate-limit-limit";
+  public static final  String                   REMAINING_HEADER = "x-rate-limit-remaining";
+  public static final  String                   RESET_HEADER     = "x-rate-limit-reset";
+  public static final  int                      UNKNOWN          = -1;
+  /**
+   * Margin added to the reset time given by Twitter to absorb the clock difference between Twitter and the local host
+   */
+  private static final long                     RESET_MARGIN_MS  = 1000;
+  /**
+   * Length of the rate limit windows of Twitter, used to guess the end of a window until a response tells it
+   */
+  private static final long                     WINDOW_MS        = 15 * 60_000;
+  /**
+   * Resources whose ids are not numeric (e.g. the space 1DXxyRYNejbKM or the conversation 123-456), with their sub-routes which are not ids
+   */
+  private static final Map<String, Set<String>> ALPHANUMERIC_IDS = new HashMap<>();
+  private final        Map<String, Budget>      budgets          = new ConcurrentHashMap<>();
+  private final        Map<String, Long>        minIntervals     = new ConcurrentHashMap<>();
+
+  static {
+    ALPHANUMERIC_IDS.put("spaces", new HashSet<>(Arrays.asList("by", "search")));
+    ALPHANUMERIC_IDS.put("dm_conversations", new HashSet<>(Arrays.asList("with")));
+  }
+
+  /**
+   * @return a governor with the pacing required by the Twitter API documentation, i.e. one request per second on /2/tweets/search/all
+   */
+  public static RateLimitGovernor withDefaultPolicies() {
+    return new RateLimitGovernor().setMinInterval("/2/tweets/search/all", 1000);
+  }
+
+  /**
+   * Space the calls to an endpoint by a minimum interval
+   *
+   * @param endpointTemplate the template of the endpoint, e.g. /2/tweets/search/all
+   * @param intervalMs the minimum interval between the start of two calls
+   */
+  public RateLimitGovernor setMinInterval(String endpointTemplate, long intervalMs) {
+    minIntervals.put(endpointTemplate, intervalMs);
+    return this;
+  }
+
+  /**
+   * Compute the template of the endpoint called by an url, removing the host, the query and the .json extension, and replacing the ids by :id and
+   * the user names by :username. e.g. https://api.twitter.com/2/users/123/tweets?max_results=100 gives /2/users/:id/tweets, and
+   * https://api.twitter.com/2/spaces/1DXxyRYNejbKM gives /2/spaces/:id
+   */
+  public static String getEndpointTemplate(String url) {
+    String path        = url;
+    int    schemeIndex = path.indexOf("://");
+    if (schemeIndex >= 0) {
+      int pathIndex = path.indexOf('/', schemeIndex + 3);
+      path = pathIndex < 0 ? "/" : path.substring(pathIndex);
+    }
+    int queryIndex = path.indexOf('?');
+    if (queryIndex >= 0) {
+      path = path.substring(0, queryIndex);
+    }
+    if (path.endsWith(".json")) {
+      path = path.substring(0, path.length() - ".json".length());
+    }
+    String[]      segments = path.split("/");
+    StringBuilder result   = new StringBuilder();
+    // segments[0] is empty and segments[1] is the version of the api
+    for (int i = 1; i < segments.length; i++) {
+      result.append('/');
+      if (i > 1 && (isNumeric(segments[i]) || isAlphanumericId(segments, i))) {
+        result.append(":id");
+      } else if (i > 1 && "username".equals(segments[i - 1])) {
+        result.append(":username");
+      } else {
+        result.append(segments[i]);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * @return true if the segment is the id of a resource whose ids are not numeric, e.g. 1DXxyRYNejbKM in /2/spaces/1DXxyRYNejbKM/buyers
+   */
+  private static boolean isAlphanumericId(String[] segments, int index) {
+    Set<String> subRoutes = index == 3 ? ALPHANUMERIC_IDS.get(segments[2]) : null;
+    return subRoutes != null && !subRoutes.contains(segments[index]);
+  }
+
+  private static boolean isNumeric(String segment) {
+    if (segment.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < segment.length(); i++) {
+      if (!Character.isDigit(segment.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reserve a call to the endpoint of the url, waiting for the minimum interval of the endpoint and, if the budget of the current window is
+   * exhausted, for the reset of the window. Used by the synchronous calls, the asynchronous ones use reserve so that no thread waits.
+   *
+   * @param waitOnExhaustedBudget if false, a LimitExceededException is thrown instead of waiting for the reset of an exhausted budget
+   * @throws LimitExceededException if the budget is exhausted and waitOnExhaustedBudget is false. The message is the reset epoch second.
+   */
+  public void acquire(String url, boolean waitOnExhaustedBudget) throws InterruptedException, LimitExceededException {
+    long waitMs = reserve(url, waitOnExhaustedBudget);
+    if (waitMs > 0) {
+      LOGGER.debug("Waiting {}ms before calling {}", waitMs, getEndpointTemplate(url));
+      Thread.sleep(waitMs);
+    }
+  }
+
+  /**
+   * Reserve a call to the endpoint of the url without waiting: the call has to be made once the returned delay has elapsed, the following calls
+   * being reserved after it.
+   *
+   * @param waitOnExhaustedBudget if false, a LimitExceededException is thrown instead of reserving a call after the reset of an exhausted budget
+   * @return the delay in milliseconds before making the call, 0 to make it now
+   * @throws LimitExceededException if the budget is exhausted and waitOnExhaustedBudget is false. The message is the reset epoch second.
+   */
+  public long reserve(String url, boolean waitOnExhaustedBudget) throws LimitExceededException {
+    String template = getEndpointTemplate(url);
+    Budget budget   = budgets.computeIfAbsent(template, t -> new Budget());
+    return budget.reserve(System.currentTimeMillis(), minIntervals.getOrDefault(template, 0L), waitOnExhaustedBudget);
+  }
+
+  /**
+   * Update the budget of the endpoint called by the url from the x-rate-limit-* headers of the response, if present
+   */
+  public void update(String url, Response response) {
+    String limit     = getHeader(response, LIMIT_HEADER);
+    String remaining = getHeader(response, REMAINING_HEADER);
+    String reset     = getHeader(response, RESET_HEADER);
+    if (limit == null || remaining == null || reset == null) {
+      return;
+    }
+    try {
+      update(getEndpointTemplate(url), Integer.parseInt(limit), Integer.parseInt(remaining), Long.parseLong(reset));
+    } catch (NumberFormatException e) {
+      LOGGER.error("Invalid rate limit headers limit={} remaining={} reset={}", limit, remaining, reset, e);
+    }
+  }
+
+  /**
+   * @return the value of the header whatever the case of its name, which depends on the server and the HttpClient
+   */
+  public static String getHeader(Response response, String name) {
+    String value = response.getHeader(name);
+    if (value != null || response.getHeaders() == null) {
+      return value;
+    }
+    for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+      if (name.equalsIgnoreCase(header.getKey())) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Update the budget of an endpoint
+   *
+   * @param endpointTemplate the template of the endpoint as given by getEndpointTemplate
+   * @param limit the number of calls allowed per window
+   * @param remaining the number of calls left in the current window
+   * @param resetEpochSecond the epoch second at which the current window ends
+   */
+  public void update(String endpointTemplate, int limit, int remaining, long resetEpochSecond) {
+    budgets.computeIfAbsent(endpointTemplate, t -> new Budget()).update(limit, remaining, resetEpochSecond * 1000 + RESET_MARGIN_MS);
+  }
+
+  /**
+   * Initialize the budgets of the v1.1 endpoints from the response of https://api.twitter.com/1.1/application/rate_limit_status.json
+   */
+  public void warmUp(RateLimitStatus rateLimitStatus) {
+    if (rateLimitStatus.getResources() == null) {
+      return;
+    }
+    for (JsonNode family : rateLimitStatus.getResources().values()) {
+      Iterator<Map.Entry<String, JsonNode>> endpoints = family.fields();
+      while (endpoints.hasNext()) {
+        Map.Entry<String, JsonNode> endpoint = endpoints.next();
+        JsonNode                    status   = endpoint.getValue();
+        if (status.has("limit") && status.has("remaining") && status.has("reset")) {
+          update("/1.1" + endpoint.getKey(), status.get("limit").asInt(), status.get("remaining").asInt(), status.get("reset").asLong());
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of calls left in the current window of the endpoint, or UNKNOWN if no rate limit information was received for it
+   */
+  public int getRemaining(String endpointTemplate) {
+    Budget budget = budgets.get(endpointTemplate);
+    return budget == null ? UNKNOWN : budget.getRemaining(System.currentTimeMillis());
+  }
+
+  private static class Budget {
+
+    private int     limit      = UNKNOWN;
+    private int     remaining  = UNKNOWN;
+    private long    resetTs;
+    private long    nextCallTs;
+    /**
+     * True when the end of the current window is guessed, no response having been received since the reset
+     */
+    private boolean resetGuessed;
+    private long    lastKnownResetTs;
+
+    /**
+     * @return the time to wait before making the reserved call
+     */
+    synchronized long reserve(long now, long minIntervalMs, boolean waitOnExhaustedBudget) throws LimitExceededException {
+      long slot = Math.max(now, nextCallTs);
+      if (remaining == 0 && slot < resetTs) {
+        if (!waitOnExhaustedBudget) {
+          throw new LimitExceededException(String.valueOf((resetTs - RESET_MARGIN_MS) / 1000));
+        }
+        slot = resetTs;
+      }
+      if (slot >= resetTs) {
+        // the window has been reset, its budget is the last known limit until the next response tells the actual one
+        remaining = limit;
+        if (limit != UNKNOWN) {
+          resetTs      = slot + WINDOW_MS;
+          resetGuessed = true;
+        }
+      }
+      if (remaining > 0) {
+        remaining--;
+      }
+      nextCallTs = slot + minIntervalMs;
+      return slot - now;
+    }
+
+    synchronized void update(int limit, int remaining, long resetTs) {
+      this.limit = limit;
+      if (resetGuessed) {
+        if (resetTs > lastKnownResetTs) {
+          // first response of the new window, the calls reserved since the reset may not be counted by Twitter yet
+          this.remaining = Math.min(this.remaining, remaining);
+          this.resetTs   = resetTs;
+          resetGuessed   = false;
+        }
+      } else if (resetTs == this.resetTs && this.remaining != UNKNOWN) {
+        // calls reserved since the response was sent are not counted by Twitter yet
+        this.remaining = Math.min(this.remaining, remaining);
+      } else if (resetTs >= this.resetTs) {
+        this.remaining = remaining;
+        this.resetTs   = resetTs;
+      }
+      if (!resetGuessed) {
+        lastKnownResetTs = this.resetTs;
+      }
+    }
+
+    synchronized int getRemaining(long now) {
+      if (now >= resetTs) {
+        return limit;
+      }
+      return remaining;
+    }
+  }
+
+}
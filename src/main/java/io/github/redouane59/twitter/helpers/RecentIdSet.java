@@ -0,0 +1,96 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * The last capacity ids added, to detect the ones seen again: a ring of the ids in their order of addition, the oldest one being forgotten when a
+ * new one is added to a full ring, indexed by an open addressing hash table of primitive longs. It takes 24 to 40 bytes per id, without any
+ * allocation once created. Not thread safe.
+ */
+public class RecentIdSet {
+
+  private static final long   EMPTY = Long.MIN_VALUE;
+  @Getter
+  private final        int    capacity;
+  private final        long[] ring;
+  private final        long[] table;
+  private final        int    mask;
+  private              int    next;
+  @Getter
+  private              int    size;
+
+  public RecentIdSet(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+    this.capacity = capacity;
+    this.ring     = new long[capacity];
+    // a load factor of at most 0.5 keeps the probes short
+    this.table = new long[Integer.highestOneBit(capacity) << 2];
+    this.mask  = table.length - 1;
+    Arrays.fill(table, EMPTY);
+  }
+
+  /**
+   * Add an id, forgetting the oldest one if capacity ids are known
+   *
+   * @return false if the id is already known
+   */
+  public boolean add(long id) {
+    if (id == EMPTY) {
+      throw new IllegalArgumentException("Unsupported id " + id);
+    }
+    if (contains(id)) {
+      return false;
+    }
+    if (size == capacity) {
+      remove(ring[next]);
+    } else {
+      size++;
+    }
+    ring[next] = id;
+    next       = (next + 1) % capacity;
+    int slot = slot(id);
+    while (table[slot] != EMPTY) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = id;
+    return true;
+  }
+
+  public boolean contains(long id) {
+    for (int slot = slot(id); table[slot] != EMPTY; slot = (slot + 1) & mask) {
+      if (table[slot] == id) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int slot(long id) {
+    long hash = id * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /**
+   * Remove an id from the table, moving back the following ids of its probe sequence so that no tombstone is needed
+   */
+  private void remove(long id) {
+    int slot = slot(id);
+    while (table[slot] != id) {
+      slot = (slot + 1) & mask;
+    }
+    int hole = slot;
+    for (int i = (hole + 1) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+      int home = slot(table[i]);
+      // the id at i can fill the hole if its home slot is not between the hole and i (cyclically)
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        table[hole] = table[i];
+        hole        = i;
+      }
+    }
+    table[hole] = EMPTY;
+  }
+
+}
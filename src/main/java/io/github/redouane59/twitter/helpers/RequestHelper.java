@@ -216,7 +216,8 @@ public class RequestHelper extends AbstractRequestHelper {
     request.addBodyPartPayloadInMultipartPayload(new FileByteArrayBodyPartPayload("form-data", mediaId.getBytes(StandardCharsets.UTF_8), "media_id"));
     request.addBodyPartPayloadInMultipartPayload(new FileByteArrayBodyPartPayload("form-data", String.valueOf(segmentIndex).getBytes(StandardCharsets.UTF_8), "segment_index"));
     request.addBodyPartPayloadInMultipartPayload(new FileByteArrayBodyPartPayload("form-data", byteArray, "media", fileName));
-    makeRequest(request, true);
+    // sending the same segment index twice replaces the segment, so the failed appends can be retried
+    makeRequest(request, true, true);
   }
 
   /**
@@ -274,7 +275,8 @@ public class RequestHelper extends AbstractRequestHelper {
     OAuthRequest request = new OAuthRequest(Verb.POST, url);
     request.addBodyParameter("command", CHUNKED_FINALIZE);
     request.addBodyParameter("media_id", String.valueOf(mediaId));
-    String chunkedFinalize = makeRequest(request, true);
+    // finalizing an upload again returns its processing state, so a failed finalize can be retried
+    String chunkedFinalize = makeRequest(request, true, true);
     LOGGER.info("Finalize response:" + chunkedFinalize);
     return new UploadedMedia(JSON.parseObject(chunkedFinalize));
   }
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -101,6 +102,8 @@ public class RequestHelperV2 extends AbstractRequestHelper {
       @Override
       public void onThrowable(Throwable t) {
         LOGGER.error(t.getMessage(), t);
+        // the connection could not be opened (DNS, TLS, timeout...), the stream ends before its first line
+        listener.onStreamEnded(t instanceof Exception ? (Exception) t : new ExecutionException(t));
       }
 
       @Override
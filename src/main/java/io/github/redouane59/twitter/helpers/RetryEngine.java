@@ -0,0 +1,306 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.github.scribejava.core.model.OAuthRequest;
+import com.github.scribejava.core.model.Response;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends a request again when it fails with a transient error, following the RetryPolicy of the kind of failure:
+ * <ul>
+ *   <li>RATE_LIMIT: 429 responses, retried after the delay given by the Retry-After or x-rate-limit-reset headers if it is longer than the backoff</li>
+ *   <li>SERVER_ERROR: 5xx responses</li>
+ *   <li>IO_ERROR: connection resets, timeouts and other IOExceptions</li>
+ * </ul>
+ * The 429 responses are retried whatever the verb, the server and connection errors only for the idempotent verbs unless the policy or the call
+ * retries the non-idempotent ones (see {@link RetryPolicy#isRetried}).
+ * The other responses are returned as they are. When all the attempts failed, the last response is returned (or the last IOException thrown).
+ * <p>
+ * Each endpoint also has a circuit breaker: after circuitBreakerThreshold consecutive 503 responses, the calls to the endpoint fail fast with a
+ * CircuitOpenException during circuitBreakerOpenMs, instead of adding load to an unavailable service. The first call after this period is sent
+ * normally and closes the circuit if it does not get a 503.
+ */
+@Slf4j
+public class RetryEngine {
+
+  private static final int                            SERVICE_UNAVAILABLE = 503;
+  private static       ScheduledExecutorService       scheduler;
+  private final        Map<FailureType, RetryPolicy>  policies            = new EnumMap<>(FailureType.class);
+  private final        Map<String, CircuitBreaker>    circuitBreakers     = new ConcurrentHashMap<>();
+  @Getter
+  private              int                            circuitBreakerThreshold = 5;
+  @Getter
+  private              long                           circuitBreakerOpenMs    = 30_000;
+
+  public RetryEngine() {
+    policies.put(FailureType.RATE_LIMIT, RetryPolicy.builder().maxAttempts(3).baseDelayMs(1000).maxDelayMs(15 * 60_000).build());
+    policies.put(FailureType.SERVER_ERROR, RetryPolicy.builder().build());
+    policies.put(FailureType.IO_ERROR, RetryPolicy.builder().build());
+  }
+
+  /**
+   * @return an engine sending each request only once, the circuit breaker being still active
+   */
+  public static RetryEngine noRetry() {
+    RetryEngine result = new RetryEngine();
+    for (FailureType failureType : FailureType.values()) {
+      result.setPolicy(failureType, RetryPolicy.noRetry());
+    }
+    return result;
+  }
+
+  public RetryEngine setPolicy(FailureType failureType, RetryPolicy policy) {
+    policies.put(failureType, policy);
+    return this;
+  }
+
+  public RetryPolicy getPolicy(FailureType failureType) {
+    return policies.get(failureType);
+  }
+
+  /**
+   * @param threshold the number of consecutive 503 responses opening the circuit of an endpoint
+   * @param openMs the time during which the calls to the endpoint fail fast once its circuit is open
+   */
+  public RetryEngine setCircuitBreaker(int threshold, long openMs) {
+    circuitBreakerThreshold = threshold;
+    circuitBreakerOpenMs    = openMs;
+    return this;
+  }
+
+  /**
+   * Send the request until it gets a response which doesn't have to be retried. Each retry sends an unsigned copy of the request, to be signed again.
+   *
+   * @param retryRateLimit false to return the 429 responses instead of retrying them
+   * @param attempt sends the request once
+   * @throws CircuitOpenException if the circuit of the endpoint is open
+   */
+  public Response execute(OAuthRequest request, boolean retryRateLimit, Attempt attempt)
+  throws InterruptedException, ExecutionException, IOException {
+    return execute(request, retryRateLimit, false, attempt);
+  }
+
+  /**
+   * @param retryNonIdempotent true to retry the server and connection errors whatever the verb, for the requests known to be safe to send twice
+   * (e.g. the APPEND of a media segment at a fixed index)
+   */
+  public Response execute(OAuthRequest request, boolean retryRateLimit, boolean retryNonIdempotent, Attempt attempt)
+  throws InterruptedException, ExecutionException, IOException {
+    CircuitBreaker circuitBreaker = getCircuitBreaker(request);
+    for (int attemptNumber = 1; ; attemptNumber++) {
+      circuitBreaker.check(request.getUrl());
+      OAuthRequest attemptRequest = attemptNumber == 1 ? request : AbstractRequestHelper.copyRequest(request);
+      Response     response;
+      try {
+        response = attempt.send(attemptRequest);
+      } catch (IOException | ExecutionException e) {
+        long delay = isIOError(e) ? getDelayMs(FailureType.IO_ERROR, request, retryNonIdempotent, attemptNumber, null) : -1;
+        if (delay < 0) {
+          throw e;
+        }
+        LOGGER.warn("Attempt {} calling {} failed with {}, new attempt in {}ms", attemptNumber, request.getUrl(), e.toString(), delay);
+        Thread.sleep(delay);
+        continue;
+      }
+      long delay = getDelayMs(request, response, retryRateLimit, retryNonIdempotent, attemptNumber, circuitBreaker);
+      if (delay < 0) {
+        return response;
+      }
+      LOGGER.warn("Attempt {} calling {} got {}, new attempt in {}ms", attemptNumber, request.getUrl(), response.getCode(), delay);
+      response.close();
+      Thread.sleep(delay);
+    }
+  }
+
+  /**
+   * Asynchronous version of execute. The delays are waited for without blocking any thread, the retries being sent from the common pool.
+   */
+  public CompletableFuture<Response> executeAsync(OAuthRequest request, boolean retryRateLimit,
+                                                  Function<OAuthRequest, CompletableFuture<Response>> attempt) {
+    CompletableFuture<Response> result = new CompletableFuture<>();
+    executeAsync(request, retryRateLimit, attempt, getCircuitBreaker(request), 1, result);
+    return result;
+  }
+
+  private void executeAsync(OAuthRequest request, boolean retryRateLimit, Function<OAuthRequest, CompletableFuture<Response>> attempt,
+                            CircuitBreaker circuitBreaker, int attemptNumber, CompletableFuture<Response> result) {
+    CompletableFuture<Response> attemptResult;
+    try {
+      circuitBreaker.check(request.getUrl());
+      attemptResult = attempt.apply(attemptNumber == 1 ? request : AbstractRequestHelper.copyRequest(request));
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+      return;
+    }
+    attemptResult.whenComplete((response, throwable) -> {
+      long delay;
+      if (throwable != null) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        delay = isIOError(cause) ? getDelayMs(FailureType.IO_ERROR, request, false, attemptNumber, null) : -1;
+        if (delay < 0) {
+          result.completeExceptionally(cause);
+          return;
+        }
+        LOGGER.warn("Attempt {} calling {} failed with {}, new attempt in {}ms", attemptNumber, request.getUrl(), cause.toString(), delay);
+      } else {
+        delay = getDelayMs(request, response, retryRateLimit, false, attemptNumber, circuitBreaker);
+        if (delay < 0) {
+          result.complete(response);
+          return;
+        }
+        LOGGER.warn("Attempt {} calling {} got {}, new attempt in {}ms", attemptNumber, request.getUrl(), response.getCode(), delay);
+        try {
+          response.close();
+        } catch (IOException e) {
+          LOGGER.error(e.getMessage(), e);
+        }
+      }
+      schedule(() -> executeAsync(request, retryRateLimit, attempt, circuitBreaker, attemptNumber + 1, result), delay);
+    });
+  }
+
+  /**
+   * Run a task from the common pool once the delay has elapsed, without blocking any thread in the meantime
+   */
+  static void schedule(Runnable task, long delayMs) {
+    getScheduler().schedule(() -> CompletableFuture.runAsync(task), delayMs, TimeUnit.MILLISECONDS);
+  }
+
+  private static synchronized ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "twittered-retry-timer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return scheduler;
+  }
+
+  private CircuitBreaker getCircuitBreaker(OAuthRequest request) {
+    return circuitBreakers.computeIfAbsent(RateLimitGovernor.getEndpointTemplate(request.getUrl()), template -> new CircuitBreaker());
+  }
+
+  private static boolean isIOError(Throwable throwable) {
+    return throwable instanceof IOException || (throwable instanceof ExecutionException && throwable.getCause() instanceof IOException);
+  }
+
+  /**
+   * @return the delay before sending the request again, -1 if the response has to be returned
+   */
+  private long getDelayMs(OAuthRequest request, Response response, boolean retryRateLimit, boolean retryNonIdempotent, int attemptNumber,
+                          CircuitBreaker circuitBreaker) {
+    circuitBreaker.record(response.getCode(), circuitBreakerThreshold, circuitBreakerOpenMs);
+    if (response.getCode() == 429) {
+      return retryRateLimit ? getDelayMs(FailureType.RATE_LIMIT, request, retryNonIdempotent, attemptNumber, response) : -1;
+    } else if (response.getCode() >= 500 && response.getCode() <= 599) {
+      return getDelayMs(FailureType.SERVER_ERROR, request, retryNonIdempotent, attemptNumber, response);
+    }
+    return -1;
+  }
+
+  private long getDelayMs(FailureType failureType, OAuthRequest request, boolean retryNonIdempotent, int attemptNumber, Response response) {
+    RetryPolicy policy = policies.get(failureType);
+    if (policy == null || attemptNumber >= policy.getMaxAttempts()) {
+      return -1;
+    }
+    if (failureType != FailureType.RATE_LIMIT && !retryNonIdempotent && !policy.isRetried(request.getVerb())) {
+      // a non-idempotent request may have been processed before the failure
+      return -1;
+    }
+    long delay = policy.getDelayMs(attemptNumber);
+    if (failureType == FailureType.RATE_LIMIT) {
+      delay = Math.max(delay, getRateLimitDelayMs(response));
+    }
+    return delay;
+  }
+
+  /**
+   * @return the delay asked by Twitter before calling the endpoint again
+   */
+  private static long getRateLimitDelayMs(Response response) {
+    try {
+      String retryAfter = RateLimitGovernor.getHeader(response, "Retry-After");
+      if (retryAfter != null) {
+        return 1000 * Long.parseLong(retryAfter.trim());
+      }
+      String reset = RateLimitGovernor.getHeader(response, RateLimitGovernor.RESET_HEADER);
+      if (reset != null) {
+        return Math.max(0, 1000 * Long.parseLong(reset.trim()) - System.currentTimeMillis());
+      }
+    } catch (NumberFormatException e) {
+      LOGGER.error("Using default retry after because header format is invalid", e);
+    }
+    return 1000L * AbstractRequestHelper.DEFAULT_RETRY_AFTER_SEC;
+  }
+
+  public enum FailureType {
+    RATE_LIMIT, SERVER_ERROR, IO_ERROR
+  }
+
+  /**
+   * Sends a request once
+   */
+  @FunctionalInterface
+  public interface Attempt {
+
+    Response send(OAuthRequest request) throws InterruptedException, ExecutionException, IOException;
+  }
+
+  private static class CircuitBreaker {
+
+    private int  consecutiveFailures;
+    private long openUntil;
+
+    synchronized void check(String url) {
+      if (System.currentTimeMillis() < openUntil) {
+        throw new CircuitOpenException(RateLimitGovernor.getEndpointTemplate(url), openUntil);
+      }
+    }
+
+    synchronized void record(int code, int threshold, long openMs) {
+      if (code != SERVICE_UNAVAILABLE) {
+        consecutiveFailures = 0;
+        return;
+      }
+      consecutiveFailures++;
+      // once the threshold has been reached, the circuit is opened again by the first 503 following the open period
+      if (consecutiveFailures >= threshold) {
+        openUntil = System.currentTimeMillis() + openMs;
+      }
+    }
+  }
+
+  /**
+   * Thrown instead of calling an endpoint whose circuit is open
+   */
+  @Getter
+  public static class CircuitOpenException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String endpointTemplate;
+    /**
+     * The epoch millisecond at which the endpoint will be called again
+     */
+    private final long   openUntil;
+
+    public CircuitOpenException(String endpointTemplate, long openUntil) {
+      super("Circuit open for " + endpointTemplate + " after consecutive 503 responses");
+      this.endpointTemplate = endpointTemplate;
+      this.openUntil        = openUntil;
+    }
+  }
+
+}
@@ -0,0 +1,72 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.github.scribejava.core.model.Verb;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * How many times and after which delay a failed request is sent again. The delays follow an exponential backoff with full jitter: before the attempt
+ * n+1, the delay is drawn between 0 and min(maxDelayMs, baseDelayMs * 2^(n-1)), so that clients failing at the same time don't retry at the same
+ * time.
+ * <p>
+ * The server and connection errors are only retried for the idempotent verbs (GET, PUT, DELETE, HEAD, OPTIONS) unless retryNonIdempotent is set:
+ * a POST may have been processed before the error, e.g. posting the same tweet twice. The 429 responses are retried for every verb, as the request
+ * was rejected before being processed.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+  /**
+   * Maximum number of attempts, including the first one
+   */
+  @Builder.Default
+  private final int     maxAttempts        = 4;
+  @Builder.Default
+  private final long    baseDelayMs        = 500;
+  @Builder.Default
+  private final long    maxDelayMs         = 30_000;
+  /**
+   * Retry the POST and PATCH requests too, for the calls known to be safe to send twice
+   */
+  @Builder.Default
+  private final boolean retryNonIdempotent = false;
+
+  /**
+   * @return a policy sending the request only once
+   */
+  public static RetryPolicy noRetry() {
+    return RetryPolicy.builder().maxAttempts(1).build();
+  }
+
+  /**
+   * @return true if a request sent with the verb can be sent again after a server or connection error
+   */
+  public boolean isRetried(Verb verb) {
+    switch (verb) {
+      case GET:
+      case PUT:
+      case DELETE:
+      case HEAD:
+      case OPTIONS:
+        return true;
+      default:
+        return retryNonIdempotent;
+    }
+  }
+
+  /**
+   * @param attempt the number of the attempt which just failed, starting at 1
+   * @return the delay before the next attempt
+   */
+  public long getDelayMs(int attempt) {
+    long cap = baseDelayMs;
+    for (int i = 1; i < attempt && cap < maxDelayMs; i++) {
+      cap *= 2;
+    }
+    cap = Math.min(cap, maxDelayMs);
+    return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+  }
+
+}
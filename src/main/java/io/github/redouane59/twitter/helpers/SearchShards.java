@@ -0,0 +1,77 @@
+package io.github.redouane59.twitter.helpers;
+
+import io.github.redouane59.twitter.dto.tweet.TweetCountsList.TweetCountData;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Splits the time range of a full-archive search into shards holding about the same number of tweets, according to the histogram given by the
+ * counts endpoint, so that the shards can be paginated concurrently. The shards are contiguous and cover the whole range. They are cut at the
+ * bounds of the histogram buckets, so a bucket holding more than a shard share of the tweets stays in one shard.
+ */
+public class SearchShards {
+
+  private SearchShards() {
+  }
+
+  /**
+   * @return the finest granularity of the counts endpoint keeping the histogram of the range within a few pages
+   */
+  public static String getGranularity(LocalDateTime start, LocalDateTime end) {
+    Duration duration = Duration.between(start, end);
+    if (duration.toDays() > 31) {
+      return "day";
+    } else if (duration.toHours() > 24) {
+      return "hour";
+    }
+    return "minute";
+  }
+
+  /**
+   * @param histogram the tweet counts of the range
+   * @param start start of the range, inclusive
+   * @param end end of the range, exclusive
+   * @param shardCount the wanted number of shards, fewer being returned when the histogram is too coarse
+   * @return the shards, ordered from the oldest
+   */
+  public static List<Shard> split(List<TweetCountData> histogram, LocalDateTime start, LocalDateTime end, int shardCount) {
+    List<TweetCountData> buckets = new ArrayList<>(histogram);
+    buckets.sort(Comparator.comparing(TweetCountData::getStart));
+    long          remaining   = buckets.stream().mapToLong(TweetCountData::getTweetCount).sum();
+    List<Shard>   shards      = new ArrayList<>();
+    LocalDateTime shardStart  = start;
+    long          shardTweets = 0;
+    for (TweetCountData bucket : buckets) {
+      shardTweets += bucket.getTweetCount();
+      LocalDateTime bound = bucket.getEnd();
+      // the share is computed again after each cut, so that a large bucket does not leave small shards behind it
+      if (shards.size() < shardCount - 1 && shardTweets > 0 && shardTweets >= (double) remaining / (shardCount - shards.size())
+          && bound.isAfter(shardStart) && bound.isBefore(end)) {
+        shards.add(new Shard(shardStart, bound, shardTweets));
+        remaining -= shardTweets;
+        shardStart  = bound;
+        shardTweets = 0;
+      }
+    }
+    shards.add(new Shard(shardStart, end, shardTweets));
+    return shards;
+  }
+
+  /**
+   * A time range of the search, with the number of tweets the counts endpoint gave for it
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class Shard {
+
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final long          expectedTweetCount;
+  }
+
+}
@@ -0,0 +1,122 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Splits the bytes of a stream into lines without decoding them: the bytes are read into a reusable buffer, scanned for '\n', and each line is
+ * exposed as a slice of the buffer, without its leading and trailing whitespaces (so without its '\r'). The keep-alive signals of Twitter are empty
+ * lines, which are recognized without any allocation. The slice can be given to Jackson as is (e.g. {@code createParser(buffer, offset, length)}),
+ * and is only valid until the next call of {@link #next()}.
+ * <p>
+ * The buffer grows when a line is longer than it. Not thread safe.
+ */
+public class StreamLineFramer {
+
+  public static final int         DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private final       InputStream input;
+  /**
+   * The buffer holding the current line
+   */
+  @Getter
+  private             byte[]      buffer;
+  /**
+   * The offset of the current line in the buffer
+   */
+  @Getter
+  private             int         offset;
+  /**
+   * The length of the current line, 0 for a keep-alive signal
+   */
+  @Getter
+  private             int         length;
+  private             int         position;
+  private             int         limit;
+  private             boolean     ended;
+
+  public StreamLineFramer(InputStream input) {
+    this(input, DEFAULT_BUFFER_SIZE);
+  }
+
+  public StreamLineFramer(InputStream input, int bufferSize) {
+    this.input  = input;
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * Read the next line. If the read times out, the bytes already read are kept and the line is read again by the next call.
+   *
+   * @return false at the end of the stream, a last line without '\n' being returned before
+   */
+  public boolean next() throws IOException {
+    int scanFrom = position;
+    while (true) {
+      for (int i = scanFrom; i < limit; i++) {
+        if (buffer[i] == '\n') {
+          setLine(position, i);
+          position = i + 1;
+          return true;
+        }
+      }
+      scanFrom = limit;
+      if (ended) {
+        if (position == limit) {
+          return false;
+        }
+        setLine(position, limit);
+        position = limit;
+        return true;
+      }
+      scanFrom -= position;
+      fill();
+    }
+  }
+
+  /**
+   * @return true if the current line is a keep-alive signal
+   */
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  /**
+   * @return a copy of the current line
+   */
+  public byte[] copyLine() {
+    return Arrays.copyOfRange(buffer, offset, offset + length);
+  }
+
+  private void setLine(int start, int end) {
+    while (start < end && (buffer[start] & 0xFF) <= ' ') {
+      start++;
+    }
+    while (end > start && (buffer[end - 1] & 0xFF) <= ' ') {
+      end--;
+    }
+    offset = start;
+    length = end - start;
+  }
+
+  /**
+   * Move the partial line to the start of the buffer, grow the buffer if it is full, then read more bytes
+   */
+  private void fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int read = input.read(buffer, limit, buffer.length - limit);
+    if (read < 0) {
+      ended = true;
+    } else {
+      limit += read;
+    }
+  }
+
+}
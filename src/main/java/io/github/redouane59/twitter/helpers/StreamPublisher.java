@@ -0,0 +1,185 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Reactive Streams publisher of the tweets of a stream. Each subscriber opens its own connection when it subscribes, and closes it when it
+ * cancels its subscription.
+ * <p>
+ * The tweets are emitted on the delivery thread of the stream, which waits while the subscriber has not requested more tweets: the lines read
+ * meanwhile wait in the queue of the {@link TweetStreamConsumer}, then with the BLOCK overflow policy the stream is not read anymore until the
+ * subscriber requests more tweets. An error returned by Twitter, a connection which could not be opened and the end of the connection are
+ * signaled as errors, as a stream has no end.
+ * <p>
+ * When the consumer decodes the lines on several workers (decodeParallelism above 1) with the UNORDERED or PER_KEY delivery order, the tweets
+ * reach the publisher from several threads. The signals are serialized (rule 1.3): a worker waits for the previous onNext to return before
+ * emitting its tweet, so the decoding stays parallel and only the delivery to the subscriber is sequential, in the order the workers get there.
+ */
+@Slf4j
+public class StreamPublisher implements Publisher<Tweet> {
+
+  private final Function<IAPIEventListener, Future<Response>> connector;
+
+  /**
+   * @param connector opens a connection delivering to the given listener, e.g. TwitterClient::startFilteredStream
+   */
+  public StreamPublisher(Function<IAPIEventListener, Future<Response>> connector) {
+    this.connector = connector;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super Tweet> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("The subscriber can't be null");
+    }
+    StreamSubscription subscription = new StreamSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    subscription.connect();
+  }
+
+  /**
+   * Error signaled to the subscriber when Twitter answers the stream request with an error
+   */
+  public static class StreamErrorException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private final int httpCode;
+
+    public StreamErrorException(int httpCode, String error) {
+      super("The stream failed with the HTTP code " + httpCode + ": " + error);
+      this.httpCode = httpCode;
+    }
+  }
+
+  /**
+   * Listener of the connection of a subscriber, delivering a tweet once the subscriber has requested it
+   */
+  private class StreamSubscription implements Subscription, IAPIEventListener {
+
+    private final Subscriber<? super Tweet> subscriber;
+    /**
+     * Held while waiting for the demand and signaling the subscriber, so that the workers of the stream emit one at a time
+     */
+    private final Object                    signalLock = new Object();
+    private       long                      demand;
+    private       boolean                   cancelled;
+    private       boolean                   done;
+    private       Future<Response>          connection;
+
+    private StreamSubscription(Subscriber<? super Tweet> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    private void connect() {
+      Future<Response> future;
+      try {
+        future = connector.apply(this);
+      } catch (RuntimeException e) {
+        terminate(e);
+        return;
+      }
+      synchronized (this) {
+        connection = future;
+        if (!cancelled) {
+          return;
+        }
+      }
+      // cancelled before the connection was opened
+      StreamSession.abandon(future);
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        terminate(new IllegalArgumentException("The number of tweets requested must be positive (rule 3.9), got " + n));
+        cancel();
+        return;
+      }
+      synchronized (this) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        notifyAll();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      Future<Response> toClose;
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        cancelled = true;
+        notifyAll();
+        toClose = connection;
+      }
+      if (toClose != null) {
+        StreamSession.abandon(toClose);
+      }
+    }
+
+    @Override
+    public void onTweetStreamed(Tweet tweet) {
+      synchronized (signalLock) {
+        synchronized (this) {
+          // the delivery thread waits for the demand, so that the stream is not read faster than the tweets are requested
+          while (demand == 0 && !cancelled && !done) {
+            try {
+              wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            }
+          }
+          if (cancelled || done) {
+            return;
+          }
+          if (demand != Long.MAX_VALUE) {
+            demand--;
+          }
+        }
+        subscriber.onNext(tweet);
+      }
+    }
+
+    @Override
+    public void onUnknownDataStreamed(String json) {
+      LOGGER.debug("Data of the stream ignored by the publisher: {}", json);
+    }
+
+    @Override
+    public void onStreamError(int httpCode, String error) {
+      terminate(new StreamErrorException(httpCode, error));
+    }
+
+    @Override
+    public void onStreamEnded(Exception e) {
+      terminate(e);
+    }
+
+    private void terminate(Exception error) {
+      synchronized (this) {
+        if (done || cancelled) {
+          return;
+        }
+        done = true;
+        // a worker waiting for the demand gives the signal lock back
+        notifyAll();
+      }
+      synchronized (signalLock) {
+        subscriber.onError(error);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,352 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded FIFO of the lines read from a stream, as UTF-8 bytes, between the thread reading the socket and the thread delivering the tweets to the listener, so that
+ * a slow listener does not stop the reading of the socket (Twitter disconnects the clients falling behind). When capacity lines are waiting, the
+ * {@link OverflowPolicy} decides what happens to the next ones.
+ * <p>
+ * With SPILL_TO_DISK, the lines received while the queue is full are appended to a temporary file and delivered once the lines in memory are, the
+ * following lines going to the file as long as it is not empty so that the order is kept. The file is deleted when the queue is done. The file is
+ * read and written outside the monitor of the queue, so that the disk I/O of one side does not block the other side on the lines in memory.
+ */
+@Slf4j
+public class StreamQueue {
+
+  private final    Deque<byte[]>  lines        = new ArrayDeque<>();
+  @Getter
+  private final    int            capacity;
+  @Getter
+  private final    OverflowPolicy overflowPolicy;
+  private final    Path           spillDirectory;
+  private          SpillFile      spillFile;
+  private          long           droppedLines;
+  private          long           spilledLines;
+  /**
+   * Number of lines written to the spill file and not taken yet
+   */
+  private          long           spillPending;
+  /**
+   * Number of lines being written to the spill file
+   */
+  private          int            spillWriting;
+  private          boolean        closed;
+  private          Exception      endCause;
+  /**
+   * The last time a line, tweet or keep-alive, was read from the stream
+   */
+  @Getter
+  private volatile long           lastActivity = System.currentTimeMillis();
+
+  /**
+   * @param spillDirectory the directory of the spill file, the temporary directory if null
+   */
+  public StreamQueue(int capacity, OverflowPolicy overflowPolicy, Path spillDirectory) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+    this.capacity       = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.spillDirectory = spillDirectory;
+  }
+
+  /**
+   * Add a line read from the stream, blocking while the queue is full with the BLOCK policy. Ignored once the queue is closed.
+   */
+  public void offer(byte[] line) throws InterruptedException {
+    SpillFile file;
+    synchronized (this) {
+      if (overflowPolicy == OverflowPolicy.BLOCK) {
+        while (lines.size() >= capacity && !closed) {
+          wait();
+        }
+      }
+      if (closed) {
+        return;
+      }
+      if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK && (lines.size() >= capacity || spillPending > 0 || spillWriting > 0)) {
+        file = getSpillFile();
+        if (file == null) {
+          droppedLines++;
+          return;
+        }
+        spillWriting++;
+      } else {
+        if (lines.size() < capacity) {
+          lines.addLast(line);
+        } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+          lines.pollFirst();
+          lines.addLast(line);
+          droppedLines++;
+        } else {
+          droppedLines++;
+        }
+        notifyAll();
+        return;
+      }
+    }
+    boolean written = spill(file, line);
+    synchronized (this) {
+      spillWriting--;
+      // the file may have been dropped by the reader while the line was written
+      if (written && file == spillFile) {
+        spillPending++;
+        spilledLines++;
+      } else {
+        droppedLines++;
+      }
+      notifyAll();
+    }
+  }
+
+  /**
+   * Called by the reader for each line read, the keep-alive signals included
+   */
+  public void markActivity() {
+    lastActivity = System.currentTimeMillis();
+  }
+
+  /**
+   * Take the next line, waiting for it
+   *
+   * @return null once the queue is closed and all its lines are taken
+   */
+  public byte[] take() throws InterruptedException {
+    while (true) {
+      SpillFile file;
+      boolean   done;
+      synchronized (this) {
+        while (lines.isEmpty() && spillPending == 0 && (!closed || spillWriting > 0)) {
+          wait();
+        }
+        byte[] line = lines.pollFirst();
+        if (line != null) {
+          notifyAll();
+          return line;
+        }
+        file = spillFile;
+        done = spillPending == 0;
+        if (done) {
+          spillFile = null;
+        } else {
+          spillPending--;
+        }
+      }
+      if (done) {
+        deleteSpillFile(file);
+        return null;
+      }
+      byte[] line = unspill(file);
+      if (line != null) {
+        return line;
+      }
+    }
+  }
+
+  /**
+   * Called by the reader at the end of the stream: the lines already queued are still delivered, then take returns null
+   *
+   * @param endCause the exception which ended the stream, null if it ended normally
+   */
+  public synchronized void close(Exception endCause) {
+    this.closed   = true;
+    this.endCause = endCause;
+    notifyAll();
+  }
+
+  /**
+   * @return the exception given to close
+   */
+  public synchronized Exception getEndCause() {
+    return endCause;
+  }
+
+  /**
+   * @return the number of lines waiting to be delivered, in memory or in the spill file
+   */
+  public synchronized long getDepth() {
+    return lines.size() + spillPending;
+  }
+
+  /**
+   * @return the number of lines dropped by the DROP_OLDEST and DROP_NEWEST policies
+   */
+  public synchronized long getDroppedLines() {
+    return droppedLines;
+  }
+
+  /**
+   * @return the number of lines written to the spill file, delivered or not
+   */
+  public synchronized long getSpilledLines() {
+    return spilledLines;
+  }
+
+  /**
+   * @return the spill file, created if needed, null if it could not be created
+   */
+  private SpillFile getSpillFile() {
+    if (spillFile == null) {
+      try {
+        Path directory = spillDirectory != null ? spillDirectory : Paths.get(System.getProperty("java.io.tmpdir"));
+        spillFile = new SpillFile(Files.createTempFile(directory, "twittered-stream-", ".spill"));
+      } catch (IOException e) {
+        LOGGER.error("Could not create the spill file of the stream, dropping the line", e);
+      }
+    }
+    return spillFile;
+  }
+
+  private static boolean spill(SpillFile file, byte[] line) {
+    try {
+      file.write(line);
+      return true;
+    } catch (IOException e) {
+      LOGGER.error("Could not spill a line of the stream, dropping it", e);
+      return false;
+    }
+  }
+
+  /**
+   * @return the next spilled line, null if the file could not be read, its lines being dropped
+   */
+  private byte[] unspill(SpillFile file) {
+    try {
+      return file.read();
+    } catch (IOException e) {
+      LOGGER.error("Could not read the spilled lines of the stream, dropping them", e);
+      synchronized (this) {
+        droppedLines += spillPending + 1;
+        spillPending = 0;
+        if (spillFile == file) {
+          spillFile = null;
+        }
+        notifyAll();
+      }
+      deleteSpillFile(file);
+      return null;
+    }
+  }
+
+  private static void deleteSpillFile(SpillFile file) {
+    if (file != null) {
+      try {
+        file.close();
+      } catch (IOException e) {
+        LOGGER.warn("Could not delete the spill file of the stream", e);
+      }
+    }
+  }
+
+  /**
+   * What happens to a line received while the queue is full
+   */
+  public enum OverflowPolicy {
+    /**
+     * The reader waits for the listener, so nothing is lost but a slow listener can get the stream disconnected
+     */
+    BLOCK,
+    /**
+     * The oldest line waiting is dropped to make room for the new one
+     */
+    DROP_OLDEST,
+    /**
+     * The new line is dropped
+     */
+    DROP_NEWEST,
+    /**
+     * The new line is written to a file on the local disk, to be delivered later
+     */
+    SPILL_TO_DISK
+  }
+
+  /**
+   * Lines stored as their length followed by their bytes. The writes are buffered, the buffer being flushed when the next line to read is still in
+   * it. The file is truncated each time all its lines are read. The reads and writes are synchronized on the file, not on the queue.
+   */
+  private static class SpillFile implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer  writeBuffer  = ByteBuffer.allocate(64 * 1024);
+    private final ByteBuffer  lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    private       long        writePosition;
+    private       long        readPosition;
+    private       long        pending;
+
+    private SpillFile(Path path) throws IOException {
+      this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    private synchronized void write(byte[] bytes) throws IOException {
+      if (writeBuffer.remaining() < Integer.BYTES + bytes.length) {
+        flush();
+      }
+      if (writeBuffer.remaining() < Integer.BYTES + bytes.length) {
+        ByteBuffer large = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+        large.putInt(bytes.length).put(bytes).flip();
+        writeFully(large);
+      } else {
+        writeBuffer.putInt(bytes.length).put(bytes);
+      }
+      pending++;
+    }
+
+    private synchronized byte[] read() throws IOException {
+      if (readPosition >= writePosition) {
+        // the lines are written whole to the file, so only the buffer can hold the next one
+        flush();
+      }
+      lengthBuffer.clear();
+      readFully(lengthBuffer);
+      ByteBuffer bytes = ByteBuffer.allocate(lengthBuffer.getInt(0));
+      readFully(bytes);
+      pending--;
+      if (pending == 0) {
+        channel.truncate(0);
+        writePosition = 0;
+        readPosition  = 0;
+      }
+      return bytes.array();
+    }
+
+    private void flush() throws IOException {
+      writeBuffer.flip();
+      writeFully(writeBuffer);
+      writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        writePosition += channel.write(buffer, writePosition);
+      }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, readPosition);
+        if (read < 0) {
+          throw new IOException("Truncated spill file");
+        }
+        readPosition += read;
+      }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      channel.close();
+    }
+  }
+
+}
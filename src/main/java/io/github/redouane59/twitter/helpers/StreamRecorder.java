@@ -0,0 +1,215 @@
+package io.github.redouane59.twitter.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records the raw lines of streams with their arrival time into segment files of a directory, to replay them with a {@link StreamReplayer}. Given to
+ * a {@link TweetStreamConsumer}, it records the lines read from the socket before they are decoded, the keep-alive signals excepted.
+ * <p>
+ * A segment is a memory-mapped file of segmentSize bytes, filled with records made of the length of the line (an int), its arrival time in
+ * milliseconds (a long) and its bytes, a length of 0 ending the segment. When a line does not fit, a new segment is started and the previous one is
+ * truncated to its records, then compressed with gzip if compressSegments is set. The segments are named stream-NNNNNNNNNN.log (.log.gz once
+ * compressed), numbered after the segments already in the directory.
+ * <p>
+ * A failure to write is logged once and stops the recording, without stopping the streams recorded.
+ */
+@Slf4j
+public class StreamRecorder implements Closeable {
+
+  public static final  int              DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+  static final         String           SEGMENT_PREFIX       = "stream-";
+  static final         String           SEGMENT_SUFFIX       = ".log";
+  static final         String           COMPRESSED_SUFFIX    = ".gz";
+  static final         int              RECORD_HEADER_SIZE   = Integer.BYTES + Long.BYTES;
+  private static final AtomicInteger    THREAD_COUNT         = new AtomicInteger();
+  private final        Path             directory;
+  private final        int              segmentSize;
+  private final        boolean          compressSegments;
+  private final        ExecutorService  compressor;
+  private              int              segmentNumber;
+  private              Path             segment;
+  private              FileChannel      channel;
+  private              MappedByteBuffer buffer;
+  /**
+   * The number of lines recorded
+   */
+  @Getter
+  private              long             recordCount;
+  /**
+   * The failure which stopped the recording, null while it works
+   */
+  @Getter
+  private              IOException      failure;
+  private              boolean          closed;
+
+  public StreamRecorder(Path directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_SIZE, false);
+  }
+
+  /**
+   * @param segmentSize the size of the segments, a segment being larger when it holds a longer line
+   * @param compressSegments compress the segments once completed
+   */
+  public StreamRecorder(Path directory, int segmentSize, boolean compressSegments) throws IOException {
+    if (segmentSize <= RECORD_HEADER_SIZE) {
+      throw new IllegalArgumentException("The segment size must be larger than " + RECORD_HEADER_SIZE);
+    }
+    this.directory        = Files.createDirectories(directory);
+    this.segmentSize      = segmentSize;
+    this.compressSegments = compressSegments;
+    this.compressor       = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "twittered-stream-recorder-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<Path> segments = listSegments(directory);
+    if (!segments.isEmpty()) {
+      segmentNumber = parseSegmentNumber(segments.get(segments.size() - 1));
+    }
+  }
+
+  /**
+   * Record a line received now
+   */
+  public void record(byte[] line, int offset, int length) {
+    record(System.currentTimeMillis(), line, offset, length);
+  }
+
+  /**
+   * Record a line received at the given time, in milliseconds
+   */
+  public synchronized void record(long timestamp, byte[] line, int offset, int length) {
+    if (closed || failure != null || length == 0) {
+      return;
+    }
+    try {
+      if (buffer == null || buffer.remaining() < RECORD_HEADER_SIZE + length) {
+        roll(RECORD_HEADER_SIZE + length);
+      }
+      buffer.putInt(length).putLong(timestamp).put(line, offset, length);
+      recordCount++;
+    } catch (IOException e) {
+      failure = e;
+      LOGGER.error("The stream recording failed, it is stopped", e);
+    }
+  }
+
+  /**
+   * Complete the current segment, waiting for the compression of the segments
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      completeSegment();
+    } finally {
+      compressor.shutdown();
+      try {
+        compressor.awaitTermination(1, TimeUnit.HOURS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void roll(int recordSize) throws IOException {
+    completeSegment();
+    segmentNumber++;
+    segment = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+    channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    buffer  = channel.map(MapMode.READ_WRITE, 0, Math.max(segmentSize, recordSize + Integer.BYTES));
+  }
+
+  /**
+   * Truncate the current segment to its records and hand it to the compressor
+   */
+  private void completeSegment() throws IOException {
+    if (buffer == null) {
+      return;
+    }
+    MappedByteBuffer completed = buffer;
+    Path             path      = segment;
+    int              size      = completed.position();
+    buffer = null;
+    try {
+      completed.force();
+      // the mapping stays valid up to the truncated size, which is all that is read afterwards
+      channel.truncate(size);
+    } finally {
+      channel.close();
+    }
+    if (compressSegments) {
+      compressor.execute(() -> compress(path, completed, size));
+    }
+  }
+
+  private static void compress(Path path, MappedByteBuffer completed, int size) {
+    Path       compressed = path.resolveSibling(path.getFileName() + COMPRESSED_SUFFIX);
+    ByteBuffer records    = completed.duplicate();
+    records.position(0).limit(size);
+    byte[] chunk = new byte[64 * 1024];
+    try {
+      try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(compressed), chunk.length)) {
+        while (records.hasRemaining()) {
+          int count = Math.min(chunk.length, records.remaining());
+          records.get(chunk, 0, count);
+          output.write(chunk, 0, count);
+        }
+      }
+      Files.delete(path);
+    } catch (IOException e) {
+      LOGGER.error("Could not compress the segment {}, it is kept uncompressed", path, e);
+      try {
+        Files.deleteIfExists(compressed);
+      } catch (IOException deleteError) {
+        LOGGER.debug("Could not delete the partial segment {}", compressed, deleteError);
+      }
+    }
+  }
+
+  /**
+   * @return the segments of the directory, compressed or not, ordered by number. A segment whose compression did not complete is listed uncompressed.
+   */
+  static List<Path> listSegments(Path directory) throws IOException {
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX + "{," + COMPRESSED_SUFFIX + "}")) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(COMPRESSED_SUFFIX) || !Files.exists(file.resolveSibling(name.substring(0, name.length() - COMPRESSED_SUFFIX.length())))) {
+          segments.add(file);
+        }
+      }
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  private static int parseSegmentNumber(Path segment) {
+    String name = segment.getFileName().toString();
+    return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.indexOf(SEGMENT_SUFFIX)));
+  }
+
+}
@@ -0,0 +1,265 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays the lines recorded by a {@link StreamRecorder} as a stream: the lines of the segments are given back as the body of a response, read by a
+ * {@link TweetStreamConsumer} like the body of a live stream, so the listener receives them through the same framing, queue and decoding. The lines
+ * are paced by their arrival times divided by the speed: 1 replays the stream in real time, 10 ten times faster, and MAX_SPEED as fast as the
+ * consumer reads them, measuring the throughput of the consumer and of the listener.
+ * <p>
+ * The uncompressed segments are memory-mapped, the compressed ones are read through gzip. The replay ends the stream once the last segment is read,
+ * which the listener receives as the end of the stream.
+ */
+public class StreamReplayer {
+
+  public static final  double MAX_SPEED = Double.POSITIVE_INFINITY;
+  private static final byte[] LINE_END  = {'\r', '\n'};
+  private final        Path   directory;
+
+  /**
+   * @param directory the directory of the segments
+   */
+  public StreamReplayer(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Replay the recorded stream to the listener, with a new consumer
+   *
+   * @param speed the speed of the replay, MAX_SPEED not to wait between the lines
+   * @return the response being replayed, to close to stop the replay, like the response of TwitterClient.startFilteredStream
+   */
+  public Future<Response> replay(IAPIEventListener listener, double speed) throws IOException {
+    return replay(listener, new TweetStreamConsumer(), speed);
+  }
+
+  /**
+   * @param consumer the consumer reading the replayed stream, configured like the consumer of the live stream
+   */
+  public Future<Response> replay(IAPIEventListener listener, TweetStreamConsumer consumer, double speed) throws IOException {
+    InputStream stream   = openStream(speed);
+    Response    response = new Response(200, "OK", Collections.emptyMap(), stream, stream);
+    consumer.consumeStream(listener, response, TweetV2.class);
+    return CompletableFuture.completedFuture(response);
+  }
+
+  /**
+   * @return the recorded lines, each one ending with \r\n as on the live stream, paced by their arrival times
+   */
+  public InputStream openStream(double speed) throws IOException {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("The speed must be positive");
+    }
+    return new ReplayInputStream(StreamRecorder.listSegments(directory), speed);
+  }
+
+  /**
+   * Reads the records of a segment, the line of the current record being valid until the next one is read
+   */
+  private abstract static class SegmentReader implements AutoCloseable {
+
+    protected long       timestamp;
+    protected ByteBuffer line;
+
+    static SegmentReader open(Path segment) throws IOException {
+      if (segment.getFileName().toString().endsWith(StreamRecorder.COMPRESSED_SUFFIX)) {
+        return new CompressedSegmentReader(segment);
+      }
+      return new MappedSegmentReader(segment);
+    }
+
+    /**
+     * @return false at the end of the segment
+     */
+    abstract boolean next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+  }
+
+  private static class MappedSegmentReader extends SegmentReader {
+
+    private final ByteBuffer records;
+
+    MappedSegmentReader(Path segment) throws IOException {
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+        // the mapping stays valid once the channel is closed
+        records = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      }
+    }
+
+    @Override
+    boolean next() {
+      if (records.remaining() < StreamRecorder.RECORD_HEADER_SIZE) {
+        return false;
+      }
+      int length = records.getInt();
+      if (length <= 0) {
+        // end of a segment which could not be truncated
+        records.position(records.limit());
+        return false;
+      }
+      timestamp = records.getLong();
+      line      = records.slice();
+      line.limit(length);
+      records.position(records.position() + length);
+      return true;
+    }
+  }
+
+  private static class CompressedSegmentReader extends SegmentReader {
+
+    private final DataInputStream input;
+    private       byte[]          bytes = new byte[64 * 1024];
+
+    CompressedSegmentReader(Path segment) throws IOException {
+      input = new DataInputStream(new GZIPInputStream(Files.newInputStream(segment), 64 * 1024));
+    }
+
+    @Override
+    boolean next() throws IOException {
+      int length;
+      try {
+        length = input.readInt();
+      } catch (EOFException e) {
+        return false;
+      }
+      if (length <= 0) {
+        return false;
+      }
+      timestamp = input.readLong();
+      if (length > bytes.length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      input.readFully(bytes, 0, length);
+      line = ByteBuffer.wrap(bytes, 0, length);
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+
+  /**
+   * The lines of the segments followed by \r\n, a line being available once its time has come
+   */
+  private static class ReplayInputStream extends InputStream {
+
+    private final    Iterator<Path> segments;
+    private final    double         speed;
+    private final    ByteBuffer     lineEnd    = ByteBuffer.wrap(LINE_END);
+    private          SegmentReader  reader;
+    private          ByteBuffer     line;
+    private          long           firstTimestamp;
+    private          long           startNanos = -1;
+    private volatile boolean        closed;
+
+    ReplayInputStream(List<Path> segments, double speed) {
+      this.segments = segments.iterator();
+      this.speed    = speed;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!fillLine()) {
+        return -1;
+      }
+      ByteBuffer source = line.hasRemaining() ? line : lineEnd;
+      int        count  = Math.min(length, source.remaining());
+      source.get(buffer, offset, count);
+      return count;
+    }
+
+    /**
+     * Stop the replay, the segment being read is closed by the next read
+     */
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    /**
+     * @return false at the end of the last segment
+     */
+    private boolean fillLine() throws IOException {
+      if (closed) {
+        if (reader != null) {
+          reader.close();
+          reader = null;
+        }
+        throw new IOException("Stream closed");
+      }
+      if (line != null && (line.hasRemaining() || lineEnd.hasRemaining())) {
+        return true;
+      }
+      while (reader == null || !reader.next()) {
+        if (reader != null) {
+          reader.close();
+          reader = null;
+        }
+        if (!segments.hasNext()) {
+          return false;
+        }
+        reader = SegmentReader.open(segments.next());
+      }
+      line = reader.line;
+      lineEnd.rewind();
+      pace(reader.timestamp);
+      return true;
+    }
+
+    private void pace(long timestamp) throws InterruptedIOException {
+      if (speed == MAX_SPEED) {
+        return;
+      }
+      if (startNanos < 0) {
+        startNanos     = System.nanoTime();
+        firstTimestamp = timestamp;
+        return;
+      }
+      long waitNanos = startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(timestamp - firstTimestamp) / speed) - System.nanoTime();
+      if (waitNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("The replay was interrupted");
+        }
+      }
+    }
+  }
+
+}
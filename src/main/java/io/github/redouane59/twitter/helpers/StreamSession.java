@@ -0,0 +1,308 @@
+package io.github.redouane59.twitter.helpers;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A stream kept connected: when the stream ends, fails, or stalls (no tweet nor keep-alive signal for stallTimeoutMs, Twitter sending one every 20
+ * seconds), a new connection is opened after the backoff documented by Twitter:
+ * <ul>
+ *   <li>network errors and stalls: linear backoff of networkBackoffStepMs per attempt, up to networkBackoffMaxMs</li>
+ *   <li>HTTP errors: exponential backoff from httpBackoffMinMs, up to httpBackoffMaxMs</li>
+ *   <li>HTTP 429: exponential backoff from rateLimitBackoffMinMs, up to httpBackoffMaxMs</li>
+ * </ul>
+ * The backoff is reset once a connection receives data. The reconnections request backfill_minutes to recover the tweets of the gap, up to 5
+ * minutes, and the tweets already delivered which are sent again are dropped by remembering the last duplicateWindow tweet ids.
+ * <p>
+ * Created by TwitterClient.createFilteredStreamSession or createSampledStreamSession, configured, then started. The listener receives the tweets,
+ * unknown data and errors of all the connections, the ends of the connections being handled by the session.
+ */
+@Slf4j
+public class StreamSession implements Closeable {
+
+  public static final  long                                                      DEFAULT_STALL_TIMEOUT_MS = 30_000;
+  public static final  int                                                       MAX_BACKFILL_MINUTES     = 5;
+  private static final long                                                      MINUTE_MS                = 60_000;
+  private static final AtomicInteger                                             THREAD_COUNT             = new AtomicInteger();
+  private final        BiFunction<IAPIEventListener, Integer, Future<Response>> connector;
+  private final        IAPIEventListener                                         listener;
+  private final        TweetStreamConsumer                                       consumer;
+  private final        ScheduledExecutorService                                  scheduler;
+  private final        AtomicLong                                                reconnectCount           = new AtomicLong();
+  private final        AtomicLong                                                duplicateCount           = new AtomicLong();
+  @Getter
+  @Setter
+  private              long                                                      stallTimeoutMs           = DEFAULT_STALL_TIMEOUT_MS;
+  /**
+   * Request backfill_minutes on reconnection, which needs an access level allowing it
+   */
+  @Getter
+  @Setter
+  private              boolean                                                   backfillEnabled          = true;
+  /**
+   * The number of tweet ids remembered to drop the duplicates, set before start
+   */
+  @Getter
+  @Setter
+  private              int                                                       duplicateWindow          = 100_000;
+  @Getter
+  @Setter
+  private              long                                                      networkBackoffStepMs     = 250;
+  @Getter
+  @Setter
+  private              long                                                      networkBackoffMaxMs      = 16_000;
+  @Getter
+  @Setter
+  private              long                                                      httpBackoffMinMs         = 5_000;
+  @Getter
+  @Setter
+  private              long                                                      httpBackoffMaxMs         = 320_000;
+  @Getter
+  @Setter
+  private              long                                                      rateLimitBackoffMinMs    = MINUTE_MS;
+  private              RecentIdSet                                               recentIds;
+  private              Future<Response>                                          connection;
+  private              int                                                       generation;
+  private              long                                                      connectTime;
+  private              long                                                      lastActivity;
+  private              int                                                       failures;
+  private              boolean                                                   reconnecting;
+  private              boolean                                                   closed;
+
+  /**
+   * @param connector opens a connection delivering to the given listener, with the given backfill minutes (0 for none)
+   * @param consumer the consumer of the connections, giving their last activity
+   */
+  public StreamSession(BiFunction<IAPIEventListener, Integer, Future<Response>> connector, IAPIEventListener listener,
+                       TweetStreamConsumer consumer) {
+    this.connector = connector;
+    this.listener  = listener;
+    this.consumer  = consumer;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "twittered-stream-session-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Open the first connection and start watching it
+   */
+  public synchronized StreamSession start() {
+    if (recentIds != null) {
+      throw new IllegalStateException("The session is already started");
+    }
+    recentIds    = new RecentIdSet(duplicateWindow);
+    lastActivity = System.currentTimeMillis();
+    connect(0);
+    long period = Math.max(1, Math.min(1000, stallTimeoutMs / 4));
+    scheduler.scheduleWithFixedDelay(this::watch, period, period, TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  /**
+   * @return the number of connections opened after the first one
+   */
+  public long getReconnectCount() {
+    return reconnectCount.get();
+  }
+
+  /**
+   * @return the number of tweets dropped because they were already delivered
+   */
+  public long getDuplicateCount() {
+    return duplicateCount.get();
+  }
+
+  /**
+   * Close the current connection and stop reconnecting
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    scheduler.shutdownNow();
+    if (connection != null) {
+      abandon(connection);
+    }
+  }
+
+  private void connect(int backfillMinutes) {
+    generation++;
+    connectTime = System.currentTimeMillis();
+    connection  = connector.apply(new ConnectionListener(generation), backfillMinutes);
+  }
+
+  private synchronized void watch() {
+    if (closed || reconnecting) {
+      return;
+    }
+    long        now   = System.currentTimeMillis();
+    StreamQueue queue = getQueue(connection);
+    if (queue != null && queue.getLastActivity() > connectTime) {
+      // the connection works
+      failures     = 0;
+      lastActivity = Math.max(lastActivity, queue.getLastActivity());
+    }
+    if (queue == null && connection.isDone() && getResponse(connection) == null) {
+      LOGGER.warn("The stream connection failed");
+      scheduleReconnection(Failure.NETWORK);
+    } else if (now - Math.max(connectTime, queue == null ? 0 : queue.getLastActivity()) > stallTimeoutMs) {
+      LOGGER.warn("The stream stalled, nothing received for {} ms", stallTimeoutMs);
+      scheduleReconnection(Failure.NETWORK);
+    }
+  }
+
+  private synchronized void onConnectionEnded(int connectionGeneration, Exception e) {
+    if (connectionGeneration == generation && !closed && !reconnecting) {
+      LOGGER.warn("The stream ended: {}", e.getMessage());
+      scheduleReconnection(Failure.NETWORK);
+    }
+  }
+
+  private synchronized void onConnectionError(int connectionGeneration, int httpCode) {
+    if (connectionGeneration == generation && !closed && !reconnecting) {
+      scheduleReconnection(httpCode == 429 ? Failure.RATE_LIMIT : Failure.HTTP);
+    }
+  }
+
+  private void scheduleReconnection(Failure failure) {
+    StreamQueue queue = getQueue(connection);
+    if (queue != null) {
+      lastActivity = Math.max(lastActivity, queue.getLastActivity());
+    }
+    abandon(connection);
+    long delay;
+    if (failure == Failure.NETWORK) {
+      delay = Math.min(networkBackoffStepMs * (failures + 1), networkBackoffMaxMs);
+    } else {
+      long min = failure == Failure.RATE_LIMIT ? rateLimitBackoffMinMs : httpBackoffMinMs;
+      delay = Math.min(min << Math.min(failures, 30), Math.max(min, httpBackoffMaxMs));
+    }
+    failures++;
+    reconnecting = true;
+    LOGGER.info("Reconnecting the stream in {} ms", delay);
+    scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void reconnect() {
+    if (closed) {
+      return;
+    }
+    reconnecting = false;
+    int backfillMinutes = 0;
+    if (backfillEnabled) {
+      long gapMs = System.currentTimeMillis() - lastActivity;
+      if (gapMs > MAX_BACKFILL_MINUTES * MINUTE_MS) {
+        LOGGER.warn("The stream was disconnected for {} s, only the last {} minutes are recovered", gapMs / 1000, MAX_BACKFILL_MINUTES);
+      }
+      backfillMinutes = (int) Math.max(1, Math.min(MAX_BACKFILL_MINUTES, (gapMs + MINUTE_MS - 1) / MINUTE_MS));
+    }
+    reconnectCount.incrementAndGet();
+    connect(backfillMinutes);
+  }
+
+  private StreamQueue getQueue(Future<Response> future) {
+    Response response = getResponse(future);
+    return response == null ? null : consumer.getStreamQueue(response);
+  }
+
+  private static Response getResponse(Future<Response> future) {
+    if (!future.isDone() || future.isCancelled()) {
+      return null;
+    }
+    try {
+      return future.get();
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Close the connection without waiting: the stream of a stalled connection can block its closing until the socket times out
+   */
+  static void abandon(Future<Response> future) {
+    Response response = getResponse(future);
+    if (response == null) {
+      future.cancel(true);
+      return;
+    }
+    Thread thread = new Thread(() -> {
+      try {
+        response.close();
+      } catch (IOException e) {
+        LOGGER.debug("Could not close the stream", e);
+      }
+    }, "twittered-stream-close-" + THREAD_COUNT.incrementAndGet());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private boolean isDuplicate(Tweet tweet) {
+    long id;
+    try {
+      id = Long.parseLong(tweet.getId());
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    synchronized (recentIds) {
+      return !recentIds.add(id);
+    }
+  }
+
+  private enum Failure {
+    NETWORK,
+    HTTP,
+    RATE_LIMIT
+  }
+
+  /**
+   * Listener of one connection, the ends and errors of the connections replaced being ignored
+   */
+  private class ConnectionListener implements IAPIEventListener {
+
+    private final int connectionGeneration;
+
+    private ConnectionListener(int connectionGeneration) {
+      this.connectionGeneration = connectionGeneration;
+    }
+
+    @Override
+    public void onStreamError(int httpCode, String error) {
+      listener.onStreamError(httpCode, error);
+      onConnectionError(connectionGeneration, httpCode);
+    }
+
+    @Override
+    public void onTweetStreamed(Tweet tweet) {
+      if (isDuplicate(tweet)) {
+        duplicateCount.incrementAndGet();
+      } else {
+        listener.onTweetStreamed(tweet);
+      }
+    }
+
+    @Override
+    public void onUnknownDataStreamed(String json) {
+      listener.onUnknownDataStreamed(json);
+    }
+
+    @Override
+    public void onStreamEnded(Exception e) {
+      onConnectionEnded(connectionGeneration, e);
+    }
+  }
+
+}
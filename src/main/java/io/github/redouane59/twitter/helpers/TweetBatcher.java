@@ -0,0 +1,132 @@
+package io.github.redouane59.twitter.helpers;
+
+import io.github.redouane59.twitter.IAPIBatchEventListener;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Listener of a stream giving its tweets by batches to an {@link IAPIBatchEventListener}: a batch is delivered once it has maxBatchSize tweets, or
+ * maxLingerMs after its first tweet. As a listener, it works with any source of tweets: filtered and sampled streams, stream sessions or replays.
+ * <p>
+ * The list of a batch is reused by the next one, and the batches, errors, unknown data and ends are given one at a time, in the order they were
+ * received. A batch completed by the stream is delivered on the delivery thread of the stream, a batch completed by its linger time on the thread
+ * of the batcher. Closing the batcher delivers the last batch.
+ */
+@Slf4j
+public class TweetBatcher implements IAPIEventListener, Closeable {
+
+  public static final  int                      DEFAULT_MAX_BATCH_SIZE = 500;
+  public static final  long                     DEFAULT_MAX_LINGER_MS  = 50;
+  private static final AtomicInteger            THREAD_COUNT           = new AtomicInteger();
+  private final        IAPIBatchEventListener   listener;
+  private final        int                      maxBatchSize;
+  private final        long                     maxLingerMs;
+  private final        List<Tweet>              batch;
+  private final        ScheduledExecutorService scheduler;
+  private              ScheduledFuture<?>       scheduledFlush;
+  /**
+   * The number of batches delivered, a linger time expiring after the delivery of its batch being ignored
+   */
+  private              long                     batchCount;
+
+  public TweetBatcher(IAPIBatchEventListener listener) {
+    this(listener, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_LINGER_MS);
+  }
+
+  /**
+   * @param maxBatchSize the number of tweets delivering a batch
+   * @param maxLingerMs the maximum time the first tweet of a batch waits for the next ones
+   */
+  public TweetBatcher(IAPIBatchEventListener listener, int maxBatchSize, long maxLingerMs) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive");
+    }
+    this.listener     = listener;
+    this.maxBatchSize = maxBatchSize;
+    this.maxLingerMs  = maxLingerMs;
+    this.batch        = new ArrayList<>(maxBatchSize);
+    this.scheduler    = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "twittered-stream-batcher-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public synchronized void onTweetStreamed(Tweet tweet) {
+    batch.add(tweet);
+    if (batch.size() >= maxBatchSize) {
+      flush();
+    } else if (scheduledFlush == null) {
+      long batchNumber = batchCount;
+      scheduledFlush = scheduler.schedule(() -> lingerExpired(batchNumber), maxLingerMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public synchronized void onStreamError(int httpCode, String error) {
+    flush();
+    listener.onStreamError(httpCode, error);
+  }
+
+  @Override
+  public synchronized void onUnknownDataStreamed(String json) {
+    flush();
+    listener.onUnknownDataStreamed(json);
+  }
+
+  @Override
+  public synchronized void onStreamEnded(Exception e) {
+    flush();
+    listener.onStreamEnded(e);
+  }
+
+  /**
+   * Deliver the current batch, if any
+   */
+  public synchronized void flush() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    batchCount++;
+    try {
+      listener.onTweetsStreamed(batch);
+    } finally {
+      batch.clear();
+    }
+  }
+
+  /**
+   * Deliver the last batch and stop the linger timer
+   */
+  @Override
+  public synchronized void close() {
+    flush();
+    scheduler.shutdownNow();
+  }
+
+  private synchronized void lingerExpired(long batchNumber) {
+    if (batchNumber != batchCount) {
+      return;
+    }
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      LOGGER.error("The listener failed to handle a batch of tweets", e);
+    }
+  }
+
+}
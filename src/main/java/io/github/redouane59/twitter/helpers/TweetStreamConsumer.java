@@ -1,17 +1,30 @@
 package io.github.redouane59.twitter.helpers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.scribejava.core.model.Response;
 import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
 import io.github.redouane59.twitter.dto.tweet.TweetV2;
-import java.io.BufferedReader;
+import io.github.redouane59.twitter.helpers.ParallelStreamDecoder.Decoded;
+import io.github.redouane59.twitter.helpers.ParallelStreamDecoder.DeliveryOrder;
+import io.github.redouane59.twitter.helpers.StreamQueue.OverflowPolicy;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -20,7 +33,56 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TweetStreamConsumer {
 
-  private StringBuilder buffer = new StringBuilder();
+  public static final  int                        DEFAULT_QUEUE_CAPACITY   = 10_000;
+  private static final int                        DECODE_WINDOW_PER_WORKER = 64;
+  private static final AtomicInteger              THREAD_COUNT             = new AtomicInteger();
+  private final        Map<Response, StreamQueue> queues                   = new ConcurrentHashMap<>();
+  private              StringBuilder              buffer                   = new StringBuilder();
+  private              boolean                    bufferHasLine;
+  /**
+   * The maximum number of lines of a stream waiting for the listener
+   */
+  @Getter
+  @Setter
+  private              int                        queueCapacity            = DEFAULT_QUEUE_CAPACITY;
+  @Getter
+  @Setter
+  private              OverflowPolicy             overflowPolicy           = OverflowPolicy.BLOCK;
+  /**
+   * The directory of the spill files of the SPILL_TO_DISK policy, the temporary directory if null
+   */
+  @Getter
+  @Setter
+  private              Path                       spillDirectory;
+  /**
+   * The executor running the delivery of each stream to its listener, a dedicated thread per stream if null. A delivery task runs until the end of
+   * its stream.
+   */
+  @Getter
+  @Setter
+  private              Executor                   deliveryExecutor;
+  /**
+   * The number of threads decoding the lines of a stream. With 1, the lines are decoded by the delivery thread, otherwise they are decoded in
+   * parallel and delivered according to deliveryOrder.
+   */
+  @Getter
+  @Setter
+  private              int                        decodeParallelism        = 1;
+  @Getter
+  @Setter
+  private              DeliveryOrder              deliveryOrder            = DeliveryOrder.ORDERED;
+  /**
+   * The key of a tweet for the PER_KEY delivery order, e.g. Tweet::getConversationId
+   */
+  @Getter
+  @Setter
+  private              Function<Tweet, String>    orderingKey              = Tweet::getAuthorId;
+  /**
+   * Records the lines read from the streams with their arrival time, to replay them with a StreamReplayer. Not recorded if null.
+   */
+  @Getter
+  @Setter
+  private              StreamRecorder             recorder;
 
   /**
    * Consumes the data from the buffers received from twitter A tweet can be sent in multiple chunks, or having in one chunk multiple tweet.
@@ -35,56 +97,85 @@ public class TweetStreamConsumer {
     }
 
     // Check if the buffer is empty and we receive a valid json data
-    if (buffer.toString().isEmpty() && (!data.trim().startsWith("{"))) {
+    if (buffer.length() == 0 && (!data.trim().startsWith("{"))) {
       LOGGER.warn("Invalid JSON Start Character. Ignoring : {}", data);
       return false;
     }
+    // only the new data and the last character before it can complete a \r\n
+    int scanFrom = Math.max(0, buffer.length() - 1);
     buffer.append(data);
 
     // If we detect a \r\n in the buffer, then at least a tweet is complete
-    return (buffer.indexOf("\r\n") != -1);
+    if (!bufferHasLine) {
+      bufferHasLine = buffer.indexOf("\r\n", scanFrom) != -1;
+    }
+    return bufferHasLine;
   }
 
   /**
    * Consumes a stream. As we read the data based on \r\n , we don't expect having a partial tweet so, we don't use internal StringBuilder to rebuild
    * a tweet.
+   * <p>
+   * The lines are read by a dedicated thread and put in a {@link StreamQueue} of queueCapacity lines, from which they are decoded and given to the
+   * listener on the delivery executor, so that a slow listener does not stall the socket. The delivery of a stream is done by one task, in the
+   * order of the stream.
    */
   public <T> void consumeStream(IAPIEventListener listener, final Response response, final Class<? extends T> clazz) {
     if (listener == null) {
       throw new IllegalAccessError("Missing listener");
     }
+    StreamQueue queue = new StreamQueue(queueCapacity, overflowPolicy, spillDirectory);
+    queues.put(response, queue);
+    Runnable delivery = () -> deliver(listener, response, clazz, queue);
+    if (deliveryExecutor != null) {
+      deliveryExecutor.execute(delivery);
+    } else {
+      Thread thread = new Thread(delivery, "twittered-stream-delivery-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      thread.start();
+    }
 
     // Make Use of a Thread as the reader is blocking
     new Thread(() -> {
-      try (BufferedReader reader = new BufferedReader(
-          new InputStreamReader(response.getStream(), StandardCharsets.UTF_8))) {
-        boolean bValid = true;
+      try (InputStream input = response.getStream()) {
+        StreamLineFramer framer = new StreamLineFramer(input);
+        boolean          bValid = true;
         while (bValid) {
-          bValid = readSocket(listener, response, clazz, reader);
+          bValid = readSocket(response, framer, queue);
         }
+        // stopped after an error
+        queue.close(null);
       } catch (IOException e) {
-        listener.onStreamEnded(e);
+        queue.close(e);
+      } catch (InterruptedException e) {
+        queue.close(e);
+        Thread.currentThread().interrupt();
       }
-    }).start();
+    }, "twittered-stream-reader-" + THREAD_COUNT.incrementAndGet()).start();
 
   }
 
   /**
-   * Reads the data from the socket. If the socket has a readtimeout, it'll be handled and continue to listen to the socket. Other IOException will be
-   * thrown and the read will be stopped.
+   * Reads the next line from the socket, as bytes: the line is copied from the buffer of the framer only to be queued, and is not decoded before
+   * Jackson parses it. If the socket has a readtimeout, it'll be handled and continue to listen to the socket. Other IOException will be
+   * thrown and the read will be stopped, the end of the stream being an EOFException.
    */
-  private <T> boolean readSocket(IAPIEventListener listener, final Response response,
-                                 final Class<? extends T> clazz, BufferedReader reader)
-  throws IOException {
-    String line;
+  private boolean readSocket(final Response response, StreamLineFramer framer, StreamQueue queue)
+  throws IOException, InterruptedException {
     try {
-      line = reader.readLine();
-      if (line == null) {
-        return false;
+      if (!framer.next()) {
+        throw new EOFException("The stream was closed by Twitter");
       }
+      queue.markActivity();
       // Avoid empty line (heartbeat)
-      if (!line.trim().isEmpty() && (!handleData(listener, response, clazz, line))) {
-        return false;
+      if (!framer.isEmpty()) {
+        StreamRecorder streamRecorder = recorder;
+        if (streamRecorder != null) {
+          streamRecorder.record(framer.getBuffer(), framer.getOffset(), framer.getLength());
+        }
+        queue.offer(framer.copyLine());
+        // an error is the last line read
+        return response.getCode() == 200;
       }
     } catch (SocketTimeoutException e) {
       // Nothing to do
@@ -93,23 +184,88 @@ public class TweetStreamConsumer {
   }
 
   /**
-   * Returns true if the data received are not in error depending on the response.code
+   * Gives the queued lines to the listener until the end of the stream, decoding them on the delivery thread or on decodeParallelism workers
    */
-  private <T> boolean handleData(IAPIEventListener listener, final Response response, final Class<? extends T> clazz, String line) {
+  private <T> void deliver(IAPIEventListener listener, final Response response, final Class<? extends T> clazz, StreamQueue queue) {
+    ExecutorService workers = null;
+    try {
+      if (decodeParallelism > 1) {
+        workers = Executors.newFixedThreadPool(decodeParallelism, runnable -> {
+          Thread thread = new Thread(runnable, "twittered-stream-decode-" + THREAD_COUNT.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+        new ParallelStreamDecoder(workers, decodeParallelism, decodeParallelism * DECODE_WINDOW_PER_WORKER, deliveryOrder,
+                                  line -> decode(listener, response, clazz, line)).run(queue);
+      } else {
+        byte[] line;
+        while ((line = queue.take()) != null) {
+          try {
+            decode(listener, response, clazz, line).getDelivery().run();
+          } catch (RuntimeException e) {
+            LOGGER.error("The listener failed to handle a line of the stream", e);
+          }
+        }
+      }
+      if (queue.getEndCause() instanceof IOException) {
+        listener.onStreamEnded(queue.getEndCause());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (workers != null) {
+        workers.shutdown();
+      }
+      queues.remove(response);
+    }
+  }
+
+  /**
+   * @return the queues of the streams being delivered
+   */
+  public List<StreamQueue> getStreamQueues() {
+    return Collections.unmodifiableList(new ArrayList<>(queues.values()));
+  }
+
+  /**
+   * @return the queue of the stream of a response, null if the stream is not being delivered
+   */
+  public StreamQueue getStreamQueue(Response response) {
+    return queues.get(response);
+  }
+
+  /**
+   * @return the number of lines waiting to be delivered, summed over the streams being delivered
+   */
+  public long getQueueDepth() {
+    return queues.values().stream().mapToLong(StreamQueue::getDepth).sum();
+  }
+
+  /**
+   * @return the number of lines dropped by the overflow policy, summed over the streams being delivered
+   */
+  public long getDroppedLines() {
+    return queues.values().stream().mapToLong(StreamQueue::getDroppedLines).sum();
+  }
+
+  /**
+   * Decodes a line into the call of the listener: a tweet, unknown data, or the error if the response is in error
+   */
+  private <T> Decoded decode(IAPIEventListener listener, final Response response, final Class<? extends T> clazz, byte[] line) {
     if (response.getCode() == 200) {
       if (clazz == TweetV2.class) {
         try {
-          listener.onTweetStreamed((TweetV2) JsonHelper.OBJECT_MAPPER.readValue(line, clazz));
-        } catch (JsonProcessingException e) {
-          listener.onUnknownDataStreamed(line);
+          TweetV2 tweet = (TweetV2) JsonHelper.fromJson(line, 0, line.length, clazz);
+          String key = deliveryOrder == DeliveryOrder.PER_KEY ? orderingKey.apply(tweet) : null;
+          return new Decoded(key, () -> listener.onTweetStreamed(tweet));
+        } catch (IOException e) {
+          return new Decoded(null, () -> listener.onUnknownDataStreamed(new String(line, StandardCharsets.UTF_8)));
         }
       } else {
-        listener.onUnknownDataStreamed(line);
+        return new Decoded(null, () -> listener.onUnknownDataStreamed(new String(line, StandardCharsets.UTF_8)));
       }
-      return true;
     } else {
-      listener.onStreamError(response.getCode(), line);
-      return false;
+      return new Decoded(null, () -> listener.onStreamError(response.getCode(), new String(line, StandardCharsets.UTF_8)));
     }
   }
 
@@ -117,8 +273,19 @@ public class TweetStreamConsumer {
    * Returns an array of string containing 0 to n tweets
    */
   public String[] getJsonTweets() {
-    List<String> result = Stream.of(buffer.toString().split("\n")).filter(s -> !s.trim().isEmpty())
-                                .collect(Collectors.toList());
+    List<String> result = new ArrayList<>();
+    int          start  = 0;
+    while (start < buffer.length()) {
+      int end = buffer.indexOf("\n", start);
+      if (end == -1) {
+        end = buffer.length();
+      }
+      String line = buffer.substring(start, end);
+      if (!line.trim().isEmpty()) {
+        result.add(line);
+      }
+      start = end + 1;
+    }
     if (result.isEmpty()) {
       return new String[0];
     }
@@ -127,13 +294,14 @@ public class TweetStreamConsumer {
     String  lastJSON = result.get(result.size() - 1);
     boolean complete = JsonHelper.isValidJSON(lastJSON);
     // Re init the StringBuilder...
-    buffer = new StringBuilder();
+    buffer        = new StringBuilder();
+    bufferHasLine = false;
     // If not complete, reconsume the last buffer
     if (!complete) {
       consumeBuffer(lastJSON);
       result.remove(result.size() - 1);
     }
-    return result.stream().toArray(String[]::new);
+    return result.toArray(new String[0]);
   }
 
 }
@@ -0,0 +1,218 @@
+package io.github.redouane59.twitter.httpclient;
+
+import com.github.scribejava.core.httpclient.HttpClient;
+import com.github.scribejava.core.httpclient.multipart.MultipartPayload;
+import com.github.scribejava.core.httpclient.multipart.MultipartUtils;
+import com.github.scribejava.core.model.OAuthAsyncRequestCallback;
+import com.github.scribejava.core.model.OAuthRequest;
+import com.github.scribejava.core.model.Response;
+import com.github.scribejava.core.model.Verb;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * scribejava HttpClient running the requests on a pool of keep-alive connections managed by the Apache HttpClient. Connections (and their TLS
+ * sessions) are reused between calls instead of being negotiated again, up to the limits given in the {@link ApacheHttpClientConfig}.
+ * <p>
+ * The connection is given back to the pool once the body of the response has been fully read, or when the response is closed.
+ * <p>
+ * The asynchronous calls run on a pool of {@code maxConnections} threads at most, the other calls waiting in a queue for a thread (and so for a
+ * connection) to be available instead of failing once the connection request timeout is reached.
+ */
+@Slf4j
+public class ApacheHttpClient implements HttpClient {
+
+  private static final AtomicInteger                      CLIENT_COUNT = new AtomicInteger();
+  @Getter
+  private final        PoolingHttpClientConnectionManager connectionManager;
+  private final        CloseableHttpClient                client;
+  private final        ExecutorService                    executor;
+  private final        boolean                            ownExecutor;
+
+  public ApacheHttpClient() {
+    this(ApacheHttpClientConfig.defaultConfig());
+  }
+
+  public ApacheHttpClient(ApacheHttpClientConfig config) {
+    connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(config.getMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+    connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivityMs());
+    RequestConfig requestConfig = RequestConfig.custom()
+                                               .setConnectTimeout(config.getConnectTimeoutMs())
+                                               .setSocketTimeout(config.getSocketTimeoutMs())
+                                               .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMs())
+                                               .build();
+    client = HttpClients.custom()
+                        .setConnectionManager(connectionManager)
+                        .setDefaultRequestConfig(requestConfig)
+                        .evictExpiredConnections()
+                        .evictIdleConnections(config.getIdleConnectionTimeoutMs(), TimeUnit.MILLISECONDS)
+                        .build();
+    ownExecutor = config.getExecutor() == null;
+    executor    = ownExecutor ? createExecutor(config.getMaxConnections()) : config.getExecutor();
+  }
+
+  /**
+   * @return a pool with one thread per connection at most, the idle threads being stopped after a while
+   */
+  private static ExecutorService createExecutor(int maxConnections) {
+    ThreadPoolExecutor result = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                       daemonThreadFactory());
+    result.allowCoreThreadTimeOut(true);
+    return result;
+  }
+
+  private static ThreadFactory daemonThreadFactory() {
+    String        prefix      = "twittered-http-" + CLIENT_COUNT.incrementAndGet() + "-";
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (ownExecutor) {
+      executor.shutdown();
+    }
+    client.close();
+  }
+
+  @Override
+  public <T> Future<T> executeAsync(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, byte[] bodyContents,
+                                    OAuthAsyncRequestCallback<T> callback, OAuthRequest.ResponseConverter<T> converter) {
+    return submit(() -> execute(userAgent, headers, httpVerb, completeUrl, bodyContents), callback, converter);
+  }
+
+  @Override
+  public <T> Future<T> executeAsync(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, MultipartPayload bodyContents,
+                                    OAuthAsyncRequestCallback<T> callback, OAuthRequest.ResponseConverter<T> converter) {
+    return submit(() -> execute(userAgent, headers, httpVerb, completeUrl, bodyContents), callback, converter);
+  }
+
+  @Override
+  public <T> Future<T> executeAsync(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, String bodyContents,
+                                    OAuthAsyncRequestCallback<T> callback, OAuthRequest.ResponseConverter<T> converter) {
+    return submit(() -> execute(userAgent, headers, httpVerb, completeUrl, bodyContents), callback, converter);
+  }
+
+  @Override
+  public <T> Future<T> executeAsync(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, File bodyContents,
+                                    OAuthAsyncRequestCallback<T> callback, OAuthRequest.ResponseConverter<T> converter) {
+    return submit(() -> execute(userAgent, headers, httpVerb, completeUrl, bodyContents), callback, converter);
+  }
+
+  @Override
+  public Response execute(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, byte[] bodyContents)
+  throws IOException {
+    HttpEntity entity = bodyContents == null ? null : new ByteArrayEntity(bodyContents, getContentType(headers));
+    return doExecute(userAgent, headers, httpVerb, completeUrl, entity);
+  }
+
+  @Override
+  public Response execute(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, MultipartPayload bodyContents)
+  throws IOException {
+    Map<String, String> allHeaders = new HashMap<>(headers);
+    allHeaders.putAll(bodyContents.getHeaders());
+    HttpEntity entity = new ByteArrayEntity(MultipartUtils.getPayload(bodyContents).toByteArray(), getContentType(allHeaders));
+    return doExecute(userAgent, allHeaders, httpVerb, completeUrl, entity);
+  }
+
+  @Override
+  public Response execute(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, String bodyContents)
+  throws IOException {
+    return execute(userAgent, headers, httpVerb, completeUrl, bodyContents == null ? null : bodyContents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public Response execute(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, File bodyContents)
+  throws IOException {
+    HttpEntity entity = bodyContents == null ? null : new FileEntity(bodyContents, getContentType(headers));
+    return doExecute(userAgent, headers, httpVerb, completeUrl, entity);
+  }
+
+  private Response doExecute(String userAgent, Map<String, String> headers, Verb httpVerb, String completeUrl, HttpEntity entity)
+  throws IOException {
+    RequestBuilder requestBuilder = RequestBuilder.create(httpVerb.name()).setUri(completeUrl);
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      requestBuilder.addHeader(header.getKey(), header.getValue());
+    }
+    if (userAgent != null) {
+      requestBuilder.addHeader("User-Agent", userAgent);
+    }
+    if (httpVerb.isPermitBody()) {
+      if (entity != null) {
+        requestBuilder.setEntity(entity);
+      } else if (httpVerb.isRequiresBody()) {
+        requestBuilder.setEntity(new ByteArrayEntity(new byte[0], getContentType(headers)));
+      }
+    }
+    CloseableHttpResponse response        = client.execute(requestBuilder.build());
+    Map<String, String>   responseHeaders = new HashMap<>();
+    for (Header header : response.getAllHeaders()) {
+      responseHeaders.put(header.getName(), header.getValue());
+    }
+    HttpEntity  responseEntity = response.getEntity();
+    InputStream stream         = responseEntity == null ? new ByteArrayInputStream(new byte[0]) : responseEntity.getContent();
+    return new Response(response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(), responseHeaders, stream, response);
+  }
+
+  private <T> Future<T> submit(Callable<Response> call, OAuthAsyncRequestCallback<T> callback, OAuthRequest.ResponseConverter<T> converter) {
+    return executor.submit(() -> {
+      try {
+        Response response = call.call();
+        @SuppressWarnings("unchecked")
+        T result = converter == null ? (T) response : converter.convert(response);
+        if (callback != null) {
+          callback.onCompleted(result);
+        }
+        return result;
+      } catch (Exception e) {
+        LOGGER.debug("Asynchronous request failed", e);
+        if (callback != null) {
+          callback.onThrowable(e);
+        }
+        throw e;
+      }
+    });
+  }
+
+  private static ContentType getContentType(Map<String, String> headers) {
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      if (CONTENT_TYPE.equalsIgnoreCase(header.getKey())) {
+        return ContentType.parse(header.getValue());
+      }
+    }
+    return ContentType.parse(DEFAULT_CONTENT_TYPE);
+  }
+
+}
@@ -0,0 +1,63 @@
+package io.github.redouane59.twitter.httpclient;
+
+import com.github.scribejava.core.httpclient.HttpClientConfig;
+import java.util.concurrent.ExecutorService;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Configuration of the {@link ApacheHttpClient}. Giving an instance of this class without HttpClient to {@code new TwitterClient(credentials, null,
+ * config)} makes scribejava pick the pooled client through {@link ApacheHttpProvider}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class ApacheHttpClientConfig implements HttpClientConfig {
+
+  /**
+   * Maximum number of open connections, all routes included, and of threads running the asynchronous calls
+   */
+  @Builder.Default
+  private int             maxConnections             = 50;
+  /**
+   * Maximum number of open connections to the same host (e.g. api.twitter.com)
+   */
+  @Builder.Default
+  private int             maxConnectionsPerRoute     = 20;
+  /**
+   * Pooled connections idle for longer than this delay are closed by a background evictor
+   */
+  @Builder.Default
+  private long            idleConnectionTimeoutMs    = 30_000;
+  /**
+   * Pooled connections idle for longer than this delay are checked before being leased again
+   */
+  @Builder.Default
+  private int             validateAfterInactivityMs  = 2_000;
+  @Builder.Default
+  private int             connectTimeoutMs           = 10_000;
+  /**
+   * Maximum delay between two packets. The default value is above the 20 seconds keep-alive interval of the streaming endpoints.
+   */
+  @Builder.Default
+  private int             socketTimeoutMs            = 90_000;
+  /**
+   * Maximum delay to wait for a connection of the pool when all of them are leased
+   */
+  @Builder.Default
+  private int             connectionRequestTimeoutMs = 10_000;
+  /**
+   * Executor running the asynchronous calls. When null, the client creates its own pool of {@code maxConnections} threads and shuts it down when
+   * closed.
+   */
+  private ExecutorService executor;
+
+  public static ApacheHttpClientConfig defaultConfig() {
+    return ApacheHttpClientConfig.builder().build();
+  }
+
+  @Override
+  public ApacheHttpClientConfig createDefaultConfig() {
+    return defaultConfig();
+  }
+
+}
@@ -0,0 +1,20 @@
+package io.github.redouane59.twitter.httpclient;
+
+import com.github.scribejava.core.httpclient.HttpClient;
+import com.github.scribejava.core.httpclient.HttpClientConfig;
+import com.github.scribejava.core.httpclient.HttpClientProvider;
+
+/**
+ * Registered as a scribejava HttpClientProvider so that services built with an {@link ApacheHttpClientConfig} use the {@link ApacheHttpClient}.
+ */
+public class ApacheHttpProvider implements HttpClientProvider {
+
+  @Override
+  public HttpClient createClient(HttpClientConfig config) {
+    if (config instanceof ApacheHttpClientConfig) {
+      return new ApacheHttpClient((ApacheHttpClientConfig) config);
+    }
+    return null;
+  }
+
+}
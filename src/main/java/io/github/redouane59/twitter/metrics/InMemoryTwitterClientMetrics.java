@@ -0,0 +1,145 @@
+package io.github.redouane59.twitter.metrics;
+
+import io.github.redouane59.twitter.helpers.RateLimitGovernor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Keeps the metrics of each endpoint in memory: request, error and 429 counts, status distribution, response bytes, last known rate limit budget,
+ * and the network and parse latencies in histograms. A sample of the response bodies can also be captured, truncated to maxPayloadChars, the last
+ * maxCapturedPayloads ones being kept by endpoint.
+ */
+public class InMemoryTwitterClientMetrics implements TwitterClientMetrics {
+
+  private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+  @Getter
+  private final double                       payloadSampleRate;
+  @Getter
+  private final int                          maxPayloadChars;
+  @Getter
+  private final int                          maxCapturedPayloads;
+
+  /**
+   * Metrics without payload capture
+   */
+  public InMemoryTwitterClientMetrics() {
+    this(0, 0, 0);
+  }
+
+  /**
+   * @param payloadSampleRate the share of the response bodies to capture, between 0 and 1
+   * @param maxPayloadChars the maximum length of a captured body, the rest being cut
+   * @param maxCapturedPayloads the number of captured bodies kept by endpoint
+   */
+  public InMemoryTwitterClientMetrics(double payloadSampleRate, int maxPayloadChars, int maxCapturedPayloads) {
+    this.payloadSampleRate   = payloadSampleRate;
+    this.maxPayloadChars     = maxPayloadChars;
+    this.maxCapturedPayloads = maxCapturedPayloads;
+  }
+
+  /**
+   * @return the metrics of an endpoint, null if it was not called
+   */
+  public EndpointMetrics getEndpointMetrics(String endpointTemplate) {
+    return endpoints.get(endpointTemplate);
+  }
+
+  /**
+   * @return the metrics of all the called endpoints, by template
+   */
+  public Map<String, EndpointMetrics> getAllEndpointMetrics() {
+    return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+  }
+
+  private EndpointMetrics get(String endpointTemplate) {
+    return endpoints.computeIfAbsent(endpointTemplate, t -> new EndpointMetrics());
+  }
+
+  @Override
+  public void onResponse(String endpointTemplate, int statusCode, long networkNanos, int rateLimitRemaining) {
+    EndpointMetrics metrics = get(endpointTemplate);
+    metrics.requestCount.increment();
+    metrics.statusCounts.computeIfAbsent(statusCode, c -> new LongAdder()).increment();
+    if (statusCode == 429) {
+      metrics.rateLimitedCount.increment();
+    }
+    metrics.rateLimitRemaining = rateLimitRemaining;
+    metrics.networkLatency.record(networkNanos);
+  }
+
+  @Override
+  public void onBodyRead(String endpointTemplate, long bytes, long parseNanos) {
+    EndpointMetrics metrics = get(endpointTemplate);
+    metrics.responseBytes.add(bytes);
+    metrics.parseLatency.record(parseNanos);
+  }
+
+  @Override
+  public void onError(String endpointTemplate, Throwable error) {
+    get(endpointTemplate).errorCount.increment();
+  }
+
+  @Override
+  public boolean isPayloadCaptured(String endpointTemplate) {
+    return payloadSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < payloadSampleRate;
+  }
+
+  @Override
+  public void onPayload(String endpointTemplate, int statusCode, String payload) {
+    if (maxCapturedPayloads <= 0 || payload == null) {
+      return;
+    }
+    String        captured = payload.length() > maxPayloadChars ? payload.substring(0, maxPayloadChars) + "..." : payload;
+    Deque<String> payloads = get(endpointTemplate).capturedPayloads;
+    payloads.addLast(statusCode + " " + captured);
+    while (payloads.size() > maxCapturedPayloads) {
+      payloads.pollFirst();
+    }
+  }
+
+  /**
+   * The metrics of an endpoint. The latencies are in nanoseconds.
+   */
+  @Getter
+  public static class EndpointMetrics {
+
+    private final    LongAdder                   requestCount       = new LongAdder();
+    private final    LongAdder                   errorCount         = new LongAdder();
+    private final    LongAdder                   rateLimitedCount   = new LongAdder();
+    private final    LongAdder                   responseBytes      = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final    Map<Integer, LongAdder>     statusCounts       = new ConcurrentHashMap<>();
+    private final    LatencyHistogram            networkLatency     = new LatencyHistogram();
+    private final    LatencyHistogram            parseLatency       = new LatencyHistogram();
+    @Getter(AccessLevel.NONE)
+    private final    Deque<String>               capturedPayloads   = new ConcurrentLinkedDeque<>();
+    private volatile int                         rateLimitRemaining = RateLimitGovernor.UNKNOWN;
+
+    /**
+     * @return the number of responses by status code
+     */
+    public Map<Integer, Long> getStatusDistribution() {
+      Map<Integer, Long> result = new TreeMap<>();
+      statusCounts.forEach((code, count) -> result.put(code, count.sum()));
+      return result;
+    }
+
+    /**
+     * @return the last captured bodies, prefixed by their status code, the oldest first
+     */
+    public List<String> getLastPayloads() {
+      return new ArrayList<>(capturedPayloads);
+    }
+  }
+
+}
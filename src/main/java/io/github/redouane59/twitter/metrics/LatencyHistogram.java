@@ -0,0 +1,82 @@
+package io.github.redouane59.twitter.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations with log-linear buckets, in the way of HdrHistogram: each power of two is split in 16 linear buckets, so the
+ * percentiles are given with a precision of 1/16 (about 6%) whatever the magnitude of the values, in a fixed size array.
+ */
+public class LatencyHistogram {
+
+  private static final int             SUB_BUCKET_BITS  = 4;
+  private static final int             SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int             BUCKET_COUNT     = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+  private final        AtomicLongArray counts           = new AtomicLongArray(BUCKET_COUNT);
+  private final        LongAdder       totalCount       = new LongAdder();
+  private final        LongAdder       sum              = new LongAdder();
+  private final        LongAccumulator max              = new LongAccumulator(Math::max, 0);
+
+  static int getBucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) Math.max(0, value);
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift     = magnitude - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+  }
+
+  /**
+   * @return the highest value counted in the bucket
+   */
+  static long getBucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int  shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long lower = (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  public void record(long nanos) {
+    counts.incrementAndGet(getBucketIndex(nanos));
+    totalCount.increment();
+    sum.add(nanos);
+    max.accumulate(nanos);
+  }
+
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  public long getMaxNanos() {
+    return max.get();
+  }
+
+  public double getMeanNanos() {
+    long count = getCount();
+    return count == 0 ? 0 : (double) sum.sum() / count;
+  }
+
+  /**
+   * @param percentile between 0 and 100, e.g. 99.9
+   * @return the value under which the given percentage of the recorded values are, 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = getCount();
+    if (count == 0) {
+      return 0;
+    }
+    long rank       = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += counts.get(i);
+      if (cumulative >= rank) {
+        return Math.min(getBucketUpperBound(i), getMaxNanos());
+      }
+    }
+    return getMaxNanos();
+  }
+
+}
@@ -0,0 +1,56 @@
+package io.github.redouane59.twitter.metrics;
+
+/**
+ * Receives the measures of the requests sent by a TwitterClient, by endpoint template (e.g. /2/users/:id/tweets, see
+ * RateLimitGovernor.getEndpointTemplate). All the methods do nothing by default and are called from the threads sending the requests, so the
+ * implementations have to be thread safe and fast.
+ */
+public interface TwitterClientMetrics {
+
+  /**
+   * Implementation measuring nothing, used by default
+   */
+  TwitterClientMetrics NOOP = new TwitterClientMetrics() {
+  };
+
+  /**
+   * A response has been received
+   *
+   * @param networkNanos the time between the sending of the request and the reception of the response headers
+   * @param rateLimitRemaining the number of calls left on the endpoint after this response, RateLimitGovernor.UNKNOWN if unknown
+   */
+  default void onResponse(String endpointTemplate, int statusCode, long networkNanos, int rateLimitRemaining) {
+  }
+
+  /**
+   * The body of a response has been read and converted
+   *
+   * @param bytes the size of the body
+   * @param parseNanos the time spent reading and converting the body
+   */
+  default void onBodyRead(String endpointTemplate, long bytes, long parseNanos) {
+  }
+
+  /**
+   * No response has been received, e.g. because of a connection reset or a timeout
+   */
+  default void onError(String endpointTemplate, Throwable error) {
+  }
+
+  /**
+   * Called before reading each response body. Capturing a payload means reading the body as a String before converting it, so it should only be
+   * done for a sample of the responses.
+   *
+   * @return true to receive the body of the response with onPayload
+   */
+  default boolean isPayloadCaptured(String endpointTemplate) {
+    return false;
+  }
+
+  /**
+   * The body of a response for which isPayloadCaptured returned true
+   */
+  default void onPayload(String endpointTemplate, int statusCode, String payload) {
+  }
+
+}
@@ -0,0 +1,196 @@
+package io.github.redouane59.twitter.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Computes the OAuth 1.0a HMAC-SHA1 signatures of a (consumer secret, token secret) pair, as described in
+ * https://developer.twitter.com/en/docs/authentication/oauth-1-0a/creating-a-signature
+ * <p>
+ * Unlike GlobalAuthUtils.generateTwitterSignature, each thread keeps an initialized Mac for the pair, and the signature base string is percent
+ * encoded in a single pass into reusable buffers, so that signing only allocates the resulting String.
+ * <p>
+ * A signer is created once per credentials and kept by its owner, e.g. the request helper of the credentials, so that the Macs of its threads are
+ * reused and released with it.
+ */
+public class OAuth1Signer {
+
+    private static final String               HMAC_SHA1   = "HmacSHA1";
+    private static final char[]               HEX         = "0123456789ABCDEF".toCharArray();
+    private static final char[]               NONCE_CHARS = "0123456789QWERTYUIOPLKJHGFDSAZXCVBNMqwertyuioplkjhgfdsazxcvbnm".toCharArray();
+    private static final ThreadLocal<Buffers> BUFFERS     = ThreadLocal.withInitial(Buffers::new);
+    private final        String               apiSecret;
+    private final        String               tokenSecret;
+    private final        ThreadLocal<Mac>     mac;
+
+    /**
+     * @param apiSecret the api key secret of the app
+     * @param tokenSecret the oauth token secret, null for app-only requests
+     */
+    public OAuth1Signer(String apiSecret, String tokenSecret) {
+        this.apiSecret   = apiSecret;
+        this.tokenSecret = tokenSecret == null ? "" : tokenSecret;
+        String        signingKey = percentEncode(apiSecret) + "&" + percentEncode(this.tokenSecret);
+        SecretKeySpec key        = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), HMAC_SHA1);
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac result = Mac.getInstance(HMAC_SHA1);
+                result.init(key);
+                return result;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialize " + HMAC_SHA1, e);
+            }
+        });
+    }
+
+    /**
+     * @return true if the signer signs with these secrets
+     */
+    public boolean isFor(String apiSecret, String tokenSecret) {
+        return Objects.equals(this.apiSecret, apiSecret) && this.tokenSecret.equals(tokenSecret == null ? "" : tokenSecret);
+    }
+
+    /**
+     * @param params parameters including: oauth parameters, query parameters, body parameters
+     * @param method HTTP method
+     * @param baseUrl the url without query string
+     * @return BASE64 encoded signature string
+     */
+    public String sign(Map<String, String> params, String method, String baseUrl) {
+        Buffers       buffers = BUFFERS.get();
+        StringBuilder base    = buffers.text;
+        base.setLength(0);
+        for (int i = 0; i < method.length(); i++) {
+            base.append(Character.toUpperCase(method.charAt(i)));
+        }
+        base.append('&');
+        appendEncoded(base, baseUrl, false);
+        base.append('&');
+        String[] keys = buffers.keys(params.size());
+        int      size = 0;
+        for (String key : params.keySet()) {
+            keys[size++] = key;
+        }
+        Arrays.sort(keys, 0, size);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                base.append("%26");
+            }
+            appendEncoded(base, keys[i], true);
+            base.append("%3D");
+            appendEncoded(base, params.get(keys[i]), true);
+        }
+        Arrays.fill(keys, 0, size, null);
+        // the base string is only made of ASCII characters once encoded
+        byte[] bytes = buffers.bytes(base.length());
+        for (int i = 0; i < base.length(); i++) {
+            bytes[i] = (byte) base.charAt(i);
+        }
+        try {
+            Mac hmac = mac.get();
+            hmac.update(bytes, 0, base.length());
+            hmac.doFinal(buffers.digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign", e);
+        }
+        int length = Base64.getEncoder().encode(buffers.digest, buffers.signature);
+        return new String(buffers.signature, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Percent encode a value as required by OAuth 1.0a (RFC 3986): only the unreserved characters are kept
+     */
+    public static String percentEncode(String value) {
+        StringBuilder result = BUFFERS.get().encoded;
+        result.setLength(0);
+        appendEncoded(result, value, false);
+        return result.toString();
+    }
+
+    /**
+     * @param twice true to encode the result again, as needed for the parameters in the signature base string
+     */
+    private static void appendEncoded(StringBuilder builder, String value, boolean twice) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                builder.append(c);
+            } else if (c < 0x80) {
+                appendPercent(builder, c, twice);
+            } else if (c < 0x800) {
+                appendPercent(builder, 0xC0 | (c >> 6), twice);
+                appendPercent(builder, 0x80 | (c & 0x3F), twice);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendPercent(builder, 0xF0 | (codePoint >> 18), twice);
+                appendPercent(builder, 0x80 | ((codePoint >> 12) & 0x3F), twice);
+                appendPercent(builder, 0x80 | ((codePoint >> 6) & 0x3F), twice);
+                appendPercent(builder, 0x80 | (codePoint & 0x3F), twice);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced like String.getBytes does
+                appendPercent(builder, '?', twice);
+            } else {
+                appendPercent(builder, 0xE0 | (c >> 12), twice);
+                appendPercent(builder, 0x80 | ((c >> 6) & 0x3F), twice);
+                appendPercent(builder, 0x80 | (c & 0x3F), twice);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static void appendPercent(StringBuilder builder, int b, boolean twice) {
+        builder.append(twice ? "%25" : "%");
+        builder.append(HEX[(b >> 4) & 0xF]);
+        builder.append(HEX[b & 0xF]);
+    }
+
+    /**
+     * Generate nonce with given length, from the random generator of the current thread
+     */
+    public static String generateNonce(int len) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[]            result = new char[len];
+        for (int i = 0; i < len; i++) {
+            result[i] = NONCE_CHARS[random.nextInt(NONCE_CHARS.length)];
+        }
+        return new String(result);
+    }
+
+    private static class Buffers {
+
+        private final StringBuilder text      = new StringBuilder(512);
+        private final StringBuilder encoded   = new StringBuilder(64);
+        private final byte[]        digest    = new byte[20];
+        private final byte[]        signature = new byte[28];
+        private       byte[]        bytes     = new byte[512];
+        private       String[]      keys      = new String[16];
+
+        byte[] bytes(int size) {
+            if (bytes.length < size) {
+                bytes = new byte[Math.max(size, bytes.length * 2)];
+            }
+            return bytes;
+        }
+
+        String[] keys(int size) {
+            if (keys.length < size) {
+                keys = new String[Math.max(size, keys.length * 2)];
+            }
+            return keys;
+        }
+    }
+
+}
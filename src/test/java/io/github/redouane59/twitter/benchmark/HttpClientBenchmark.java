@@ -0,0 +1,102 @@
+package io.github.redouane59.twitter.benchmark;
+
+import com.github.scribejava.core.httpclient.HttpClient;
+import com.github.scribejava.core.httpclient.jdk.JDKHttpClient;
+import com.github.scribejava.core.model.Response;
+import com.github.scribejava.core.model.Verb;
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.httpclient.ApacheHttpClient;
+import io.github.redouane59.twitter.httpclient.ApacheHttpClientConfig;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the scribejava JDKHttpClient with the pooled ApacheHttpClient against a local stub server answering a tweet lookup. With keepAlive set
+ * to false, every request asks the server to close the connection, so each call pays for a new connection: the difference with keepAlive=true is
+ * the setup cost saved by the pool (TCP only here, TLS handshakes against the real API make it larger).
+ * <p>
+ * Run with {@code java -cp target/test-classes:<test classpath> io.github.redouane59.twitter.benchmark.HttpClientBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class HttpClientBenchmark {
+
+  @Param({"jdk", "apache"})
+  private String              clientType;
+  @Param({"true", "false"})
+  private boolean             keepAlive;
+  private HttpServer          server;
+  private ExecutorService     serverExecutor;
+  private HttpClient          httpClient;
+  private String              url;
+  private Map<String, String> headers;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(HttpClientBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    File   file  = new File(HttpClientBenchmark.class.getClassLoader().getResource("tests/tweet_example_v2.json").getFile());
+    byte[] tweet = Files.readAllBytes(file.toPath());
+    // without it, the stub server writes the headers and the body in two segments and keep-alive calls wait for delayed ACKs
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    serverExecutor = Executors.newFixedThreadPool(16);
+    server         = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+    server.setExecutor(serverExecutor);
+    server.createContext("/2/tweets", exchange -> {
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, tweet.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(tweet);
+      }
+    });
+    server.start();
+    url        = "http://localhost:" + server.getAddress().getPort() + "/2/tweets/1224041905333379073";
+    headers    = keepAlive ? Collections.emptyMap() : Collections.singletonMap("Connection", "close");
+    httpClient = "apache".equals(clientType) ? new ApacheHttpClient(ApacheHttpClientConfig.defaultConfig()) : new JDKHttpClient();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    httpClient.close();
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  @Benchmark
+  public int getTweet() throws Exception {
+    try (Response response = httpClient.execute(null, headers, Verb.GET, url, (byte[]) null)) {
+      return response.getBody().length();
+    }
+  }
+
+}
@@ -0,0 +1,72 @@
+package io.github.redouane59.twitter.benchmark;
+
+import io.github.redouane59.twitter.utils.GlobalAuthUtils;
+import io.github.redouane59.twitter.utils.OAuth1Signer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares GlobalAuthUtils.generateTwitterSignature, which gets and initializes a new Mac and encodes the parameters in several passes for each
+ * call, with the OAuth1Signer reusing the Mac and the buffers of the thread, on the parameters of a status update. Add {@code -prof gc} to see the
+ * allocations by call.
+ * <p>
+ * Run with {@code java -cp target/test-classes:<test classpath> io.github.redouane59.twitter.benchmark.OAuthSignatureBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class OAuthSignatureBenchmark {
+
+  private static final String              URL          = "https://api.twitter.com/1.1/statuses/update.json";
+  private static final String              API_SECRET   = "kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw";
+  private static final String              TOKEN_SECRET = "LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE";
+  private              Map<String, String> params;
+  private              OAuth1Signer        oauth1Signer;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(OAuthSignatureBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    params = new HashMap<>();
+    params.put("status", "Hello Ladies + Gentlemen, a signed OAuth request! 🚀 #éàè");
+    params.put("include_entities", "true");
+    params.put("oauth_consumer_key", "xvz1evFS4wEEPTGEFPHBog");
+    params.put("oauth_nonce", "kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg");
+    params.put("oauth_signature_method", "HMAC-SHA1");
+    params.put("oauth_timestamp", "1318622958");
+    params.put("oauth_token", "370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb");
+    params.put("oauth_version", "1.0");
+    oauth1Signer = new OAuth1Signer(API_SECRET, TOKEN_SECRET);
+  }
+
+  @Benchmark
+  public String legacy() {
+    return GlobalAuthUtils.generateTwitterSignature(params, "POST", URL, API_SECRET, TOKEN_SECRET);
+  }
+
+  @Benchmark
+  public String signer() {
+    return oauth1Signer.sign(params, "POST", URL);
+  }
+
+}
@@ -0,0 +1,74 @@
+package io.github.redouane59.twitter.benchmark;
+
+import io.github.redouane59.twitter.helpers.PageIterator;
+import io.github.redouane59.twitter.helpers.PrefetchingPageIterator;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Time to go through 20 pages when getting a page and processing it take the same time (5 ms each), with the serial PageIterator (prefetchDepth
+ * = 0) and with a PrefetchingPageIterator overlapping the two.
+ * <p>
+ * Run with {@code java -cp target/test-classes:<test classpath> io.github.redouane59.twitter.benchmark.PaginationBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+  private static final int PAGE_COUNT    = 20;
+  private static final int NETWORK_MS    = 5;
+  private static final int PROCESSING_MS = 5;
+
+  @Param({"0", "1", "4"})
+  private int prefetchDepth;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(PaginationBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  private static void sleep(int ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Benchmark
+  public int iteratePages() {
+    PageIterator<Integer, Integer> iterator = new PageIterator<>(cursor -> {
+      sleep(NETWORK_MS);
+      return Optional.of(cursor == null ? 0 : Integer.parseInt(cursor));
+    }, page -> page + 1 < PAGE_COUNT ? String.valueOf(page + 1) : null, Collections::singletonList);
+    if (prefetchDepth > 0) {
+      iterator = iterator.prefetch(prefetchDepth);
+    }
+    int sum = 0;
+    while (iterator.hasNext()) {
+      sum += iterator.next();
+      sleep(PROCESSING_MS);
+    }
+    if (iterator instanceof PrefetchingPageIterator) {
+      ((PrefetchingPageIterator<Integer, Integer>) iterator).close();
+    }
+    return sum;
+  }
+
+}
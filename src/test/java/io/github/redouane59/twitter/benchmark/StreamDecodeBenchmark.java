@@ -0,0 +1,100 @@
+package io.github.redouane59.twitter.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.ParallelStreamDecoder.DeliveryOrder;
+import io.github.redouane59.twitter.helpers.TweetStreamConsumer;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Time to decode and deliver a stream of 10000 tweets (the tweet of tests/tweet_stream_example.json with 10000 ids) read from memory, the lines
+ * being decoded by the delivery thread (decodeParallelism = 1) or by a pool of workers, for each delivery order.
+ * <p>
+ * Run with {@code java -cp target/test-classes:<test classpath> io.github.redouane59.twitter.benchmark.StreamDecodeBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamDecodeBenchmark {
+
+  private static final int TWEET_COUNT = 10_000;
+
+  @Param({"1", "2", "4"})
+  private int           decodeParallelism;
+  @Param({"ORDERED", "PER_KEY", "UNORDERED"})
+  private DeliveryOrder deliveryOrder;
+  private byte[]        stream;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(StreamDecodeBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    StringBuilder builder = new StringBuilder();
+    try (InputStream input = StreamDecodeBenchmark.class.getClassLoader().getResourceAsStream("tests/tweet_stream_example.json")) {
+      JsonNode tweet = JsonHelper.OBJECT_MAPPER.readTree(input);
+      for (int i = 0; i < TWEET_COUNT; i++) {
+        ((ObjectNode) tweet.get("data")).put("id", String.valueOf(i)).put("author_id", String.valueOf(i % 100));
+        builder.append(JsonHelper.toJson(tweet)).append("\r\n");
+      }
+    }
+    stream = builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public long consumeStream() throws InterruptedException {
+    CountDownLatch      done     = new CountDownLatch(TWEET_COUNT);
+    TweetStreamConsumer consumer = new TweetStreamConsumer();
+    consumer.setDecodeParallelism(decodeParallelism);
+    consumer.setDeliveryOrder(deliveryOrder);
+    consumer.consumeStream(new IAPIEventListener() {
+      @Override
+      public void onStreamError(int httpCode, String error) {
+      }
+
+      @Override
+      public void onTweetStreamed(Tweet tweet) {
+        done.countDown();
+      }
+
+      @Override
+      public void onUnknownDataStreamed(String json) {
+        done.countDown();
+      }
+
+      @Override
+      public void onStreamEnded(Exception e) {
+      }
+    }, new Response(200, "OK", Collections.emptyMap(), new ByteArrayInputStream(stream)), TweetV2.class);
+    done.await();
+    return done.getCount();
+  }
+
+}
@@ -0,0 +1,120 @@
+package io.github.redouane59.twitter.benchmark;
+
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.StreamLineFramer;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Time to split a stream into lines, then to decode its tweets, read from memory: tests/multiple_tweet_stream_example_part1.data (3 tweets and a
+ * keep-alive signal) repeated 3000 times. The lines are read by a BufferedReader as Strings, as the consumer of the stream did before, or by the
+ * StreamLineFramer as slices of bytes.
+ * <p>
+ * Run with {@code java -cp target/test-classes:<test classpath> io.github.redouane59.twitter.benchmark.StreamFramingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamFramingBenchmark {
+
+  private static final int REPEAT_COUNT = 3000;
+
+  private byte[] stream;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(StreamFramingBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (InputStream input = StreamFramingBenchmark.class.getClassLoader().getResourceAsStream("tests/multiple_tweet_stream_example_part1.data")) {
+      byte[] data = new byte[16 * 1024];
+      int    read;
+      while ((read = input.read(data)) > 0) {
+        output.write(data, 0, read);
+      }
+    }
+    byte[] part = output.toByteArray();
+    output.reset();
+    for (int i = 0; i < REPEAT_COUNT; i++) {
+      output.write(part);
+    }
+    stream = output.toByteArray();
+  }
+
+  @Benchmark
+  public long readerFraming() throws IOException {
+    long count = 0;
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.trim().isEmpty()) {
+          count += line.length();
+        }
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public long framerFraming() throws IOException {
+    long             count  = 0;
+    StreamLineFramer framer = new StreamLineFramer(new ByteArrayInputStream(stream));
+    while (framer.next()) {
+      if (!framer.isEmpty()) {
+        count += framer.getLength();
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public long readerDecoding() throws IOException {
+    long count = 0;
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.trim().isEmpty()) {
+          count += JsonHelper.fromJson(line, TweetV2.class).getId().length();
+        }
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public long framerDecoding() throws IOException {
+    long             count  = 0;
+    StreamLineFramer framer = new StreamLineFramer(new ByteArrayInputStream(stream));
+    while (framer.next()) {
+      if (!framer.isEmpty()) {
+        count += JsonHelper.fromJson(framer.getBuffer(), framer.getOffset(), framer.getLength(), TweetV2.class).getId().length();
+      }
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,104 @@
+package io.github.redouane59.twitter.benchmark;
+
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.helpers.StreamLineFramer;
+import io.github.redouane59.twitter.helpers.StreamRecorder;
+import io.github.redouane59.twitter.helpers.StreamReplayer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Time to replay at maximum speed a recording of tests/multiple_tweet_stream_example_part1.data repeated 3000 times (9000 tweets) through a
+ * TweetStreamConsumer, from memory-mapped or compressed segments.
+ * <p>
+ * Run with {@code java -cp target/test-classes:<test classpath> io.github.redouane59.twitter.benchmark.StreamReplayBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamReplayBenchmark {
+
+  private static final int REPEAT_COUNT = 3000;
+
+  @Param({"false", "true"})
+  private boolean compressSegments;
+  private Path    directory;
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(StreamReplayBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("twittered-replay");
+    try (StreamRecorder recorder = new StreamRecorder(directory, 8 * 1024 * 1024, compressSegments)) {
+      for (int i = 0; i < REPEAT_COUNT; i++) {
+        try (InputStream input = StreamReplayBenchmark.class.getClassLoader().getResourceAsStream("tests/multiple_tweet_stream_example_part1.data")) {
+          StreamLineFramer framer = new StreamLineFramer(input);
+          while (framer.next()) {
+            recorder.record(framer.getBuffer(), framer.getOffset(), framer.getLength());
+          }
+        }
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    for (Path segment : Files.list(directory).toArray(Path[]::new)) {
+      Files.delete(segment);
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public long replay() throws Exception {
+    AtomicLong     tweets = new AtomicLong();
+    CountDownLatch done   = new CountDownLatch(1);
+    new StreamReplayer(directory).replay(new IAPIEventListener() {
+      @Override
+      public void onStreamError(int httpCode, String error) {
+      }
+
+      @Override
+      public void onTweetStreamed(Tweet tweet) {
+        tweets.incrementAndGet();
+      }
+
+      @Override
+      public void onUnknownDataStreamed(String json) {
+      }
+
+      @Override
+      public void onStreamEnded(Exception e) {
+        done.countDown();
+      }
+    }, StreamReplayer.MAX_SPEED);
+    done.await();
+    return tweets.get();
+  }
+
+}
@@ -0,0 +1,141 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.apis.TwitterApi;
+import com.github.scribejava.core.builder.ServiceBuilder;
+import com.github.scribejava.core.httpclient.jdk.JDKHttpClientConfig;
+import com.github.scribejava.core.model.Response;
+import com.github.scribejava.core.model.Verb;
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.RequestHelperV2;
+import io.github.redouane59.twitter.httpclient.ApacheHttpClient;
+import io.github.redouane59.twitter.httpclient.ApacheHttpClientConfig;
+import io.github.redouane59.twitter.httpclient.ApacheHttpProvider;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ApacheHttpClientTest {
+
+  private final Set<Integer>     clientPorts = ConcurrentHashMap.newKeySet();
+  private       HttpServer       server;
+  private       String           rootUrl;
+  private       ApacheHttpClient httpClient;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/echo", exchange -> {
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+      byte[] body = (exchange.getRequestMethod() + " " + IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8))
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.createContext("/slow", exchange -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    server.createContext("/2/tweets/1", exchange -> {
+      byte[] body = "{\"data\":{\"id\":\"1\",\"text\":\"hello\"}}".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.start();
+    rootUrl    = "http://localhost:" + server.getAddress().getPort();
+    httpClient = new ApacheHttpClient(ApacheHttpClientConfig.builder().maxConnections(4).maxConnectionsPerRoute(2).build());
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    httpClient.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void testProvider() {
+    ApacheHttpProvider provider = new ApacheHttpProvider();
+    assertTrue(provider.createClient(ApacheHttpClientConfig.defaultConfig()) instanceof ApacheHttpClient);
+    assertNull(provider.createClient(JDKHttpClientConfig.defaultConfig()));
+  }
+
+  @Test
+  public void testExecuteWithBody() throws Exception {
+    try (Response response = httpClient.execute(null, new HashMap<>(), Verb.POST, rootUrl + "/echo", "{\"text\":\"hello\"}")) {
+      assertEquals(200, response.getCode());
+      assertEquals("POST {\"text\":\"hello\"}", response.getBody());
+    }
+  }
+
+  @Test
+  public void testConnectionReused() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      try (Response response = httpClient.execute(null, Collections.emptyMap(), Verb.GET, rootUrl + "/echo", (byte[]) null)) {
+        assertEquals("GET ", response.getBody());
+      }
+    }
+    assertEquals(1, clientPorts.size());
+    assertEquals(1, httpClient.getConnectionManager().getTotalStats().getAvailable());
+  }
+
+  @Test
+  public void testAsyncRequestRunsOnClientExecutor() throws Exception {
+    String callerThread = Thread.currentThread().getName();
+    RequestHelperV2 requestHelper = new RequestHelperV2(TwitterCredentials.builder().bearerToken("token").build(),
+                                                        new ServiceBuilder("key").apiSecret("secret")
+                                                                                 .httpClientConfig(ApacheHttpClientConfig.defaultConfig())
+                                                                                 .build(TwitterApi.instance()));
+    String completionThread = requestHelper.getRequestWithParametersAsync(rootUrl + "/2/tweets/1", null, TweetV2.class)
+                                           .thenApply(tweet -> {
+                                             assertEquals("hello", tweet.getText());
+                                             return Thread.currentThread().getName();
+                                           })
+                                           .get(10, TimeUnit.SECONDS);
+    assertNotEquals(callerThread, completionThread);
+  }
+
+  @Test
+  public void testAsyncRequestsWaitForAConnection() throws Exception {
+    // the server answers one request at a time, so most of the calls wait longer than the connection request timeout
+    try (ApacheHttpClient client = new ApacheHttpClient(ApacheHttpClientConfig.builder().maxConnections(2).maxConnectionsPerRoute(2)
+                                                                              .connectionRequestTimeoutMs(50).build())) {
+      List<Future<Response>> responses = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        responses.add(client.executeAsync(null, Collections.emptyMap(), Verb.GET, rootUrl + "/slow", (byte[]) null, null, null));
+      }
+      for (Future<Response> future : responses) {
+        try (Response response = future.get(10, TimeUnit.SECONDS)) {
+          assertEquals(200, response.getCode());
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,106 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.RateLimitGovernor;
+import io.github.redouane59.twitter.helpers.RequestHelperV2;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AsyncRequestHelperTest {
+
+  private HttpServer      server;
+  private String          rootUrl;
+  private RequestHelperV2 requestHelper;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    File   file  = new File(getClass().getClassLoader().getResource("tests/tweet_example_v2.json").getFile());
+    byte[] tweet = Files.readAllBytes(file.toPath());
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/tweets/1", exchange -> {
+      exchange.sendResponseHeaders(200, tweet.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(tweet);
+      }
+    });
+    server.createContext("/2/tweets/empty", exchange -> {
+      byte[] empty = "null".getBytes();
+      exchange.sendResponseHeaders(200, empty.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(empty);
+      }
+    });
+    server.createContext("/2/tweets/error", exchange -> {
+      byte[] error = "{\"errors\":[{\"detail\":\"Could not find tweet\"}],\"title\":\"Not Found Error\"}".getBytes();
+      exchange.sendResponseHeaders(404, error.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(error);
+      }
+    });
+    server.start();
+    rootUrl       = "http://localhost:" + server.getAddress().getPort();
+    requestHelper = new RequestHelperV2(TwitterCredentials.builder().apiKey("key").apiSecretKey("secret").bearerToken("token").build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  void testGetRequestAsync() throws Exception {
+    CompletableFuture<TweetV2> future = requestHelper.getRequestWithParametersAsync(rootUrl + "/2/tweets/1", new HashMap<>(), TweetV2.class);
+    assertEquals("1224044675406925824", future.get(10, TimeUnit.SECONDS).getId());
+  }
+
+  @Test
+  void testPacedRequestsAsyncDoNotBlock() throws Exception {
+    requestHelper.setRateLimitGovernor(new RateLimitGovernor().setMinInterval("/2/tweets/:id", 300));
+    long                       start  = System.currentTimeMillis();
+    CompletableFuture<TweetV2> first  = requestHelper.getRequestWithParametersAsync(rootUrl + "/2/tweets/1", new HashMap<>(), TweetV2.class);
+    CompletableFuture<TweetV2> second = requestHelper.getRequestWithParametersAsync(rootUrl + "/2/tweets/1", new HashMap<>(), TweetV2.class);
+    // the second call is scheduled after the minimum interval instead of waiting for it
+    assertTrue(System.currentTimeMillis() - start < 250);
+    assertEquals("1224044675406925824", first.get(10, TimeUnit.SECONDS).getId());
+    assertEquals("1224044675406925824", second.get(10, TimeUnit.SECONDS).getId());
+    assertTrue(System.currentTimeMillis() - start >= 300);
+  }
+
+  @Test
+  void testGetRequestFromStream() {
+    TweetV2 tweet = requestHelper.getRequestWithParameters(rootUrl + "/2/tweets/1", new HashMap<>(), TweetV2.class).get();
+    assertEquals("1224044675406925824", tweet.getId());
+    assertEquals(1, tweet.getIncludes().getUsers().size());
+  }
+
+  @Test
+  void testGetRequestErrorResponse() {
+    JsonNode error = requestHelper.getRequestWithParameters(rootUrl + "/2/tweets/error", new HashMap<>(), JsonNode.class).get();
+    assertEquals("Not Found Error", error.get("title").asText());
+  }
+
+  @Test
+  void testGetRequestAsyncEmptyResponse() {
+    CompletableFuture<TweetV2> future = requestHelper.getRequestWithParametersAsync(rootUrl + "/2/tweets/empty", new HashMap<>(), TweetV2.class);
+    ExecutionException        e      = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof NoSuchElementException);
+  }
+
+}
@@ -0,0 +1,173 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.TwitterClient;
+import io.github.redouane59.twitter.dto.tweet.TweetList;
+import io.github.redouane59.twitter.dto.user.User;
+import io.github.redouane59.twitter.helpers.URLHelper;
+import io.github.redouane59.twitter.httpclient.ApacheHttpClient;
+import io.github.redouane59.twitter.httpclient.ApacheHttpClientConfig;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ChunkedLookupTest {
+
+  private final List<Integer>   requestSizes     = new CopyOnWriteArrayList<>();
+  private final AtomicInteger   inFlight         = new AtomicInteger();
+  private final AtomicInteger   maxInFlight      = new AtomicInteger();
+  private final ExecutorService serverExecutor   = Executors.newFixedThreadPool(8);
+  private volatile long         responseDelayMs;
+  private       HttpServer      server;
+  private       TwitterClient   twitterClient;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/tweets", exchange -> {
+      List<String> ids = getIds(exchange);
+      String data = ids.stream().map(id -> "{\"id\":\"" + id + "\",\"text\":\"tweet" + id + "\",\"author_id\":\"a" + id.length() + "\"}")
+                       .collect(Collectors.joining(","));
+      // the authors are shared between the chunks
+      String users = ids.stream().map(id -> id.length()).distinct().map(length -> "{\"id\":\"a" + length + "\",\"username\":\"author\"}")
+                        .collect(Collectors.joining(","));
+      respond(exchange, "{\"data\":[" + data + "],\"includes\":{\"users\":[" + users + "]},\"meta\":{\"result_count\":" + ids.size() + "}}");
+    });
+    server.createContext("/2/users", exchange -> {
+      List<String> ids = getIds(exchange);
+      String data = ids.stream().map(id -> "{\"id\":\"" + id + "\",\"username\":\"user" + id + "\"}").collect(Collectors.joining(","));
+      respond(exchange, "{\"data\":[" + data + "]}");
+    });
+    server.setExecutor(serverExecutor);
+    server.start();
+    String rootUrl = "http://localhost:" + server.getAddress().getPort();
+    twitterClient = new TwitterClient(TwitterCredentials.builder().bearerToken("token").apiKey("key").apiSecretKey("secret").build());
+    twitterClient.setUrlHelper(new URLHelper() {
+      @Override
+      public String getTweetsUrl() {
+        return rootUrl + "/2/tweets";
+      }
+
+      @Override
+      public String getUsersUrl() {
+        return rootUrl + "/2/users";
+      }
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  private List<String> getIds(HttpExchange exchange) throws UnsupportedEncodingException {
+    String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+    for (String parameter : query.split("&")) {
+      if (parameter.startsWith("ids=")) {
+        List<String> ids = new ArrayList<>();
+        for (String id : parameter.substring("ids=".length()).split(",")) {
+          ids.add(id);
+        }
+        requestSizes.add(ids.size());
+        return ids;
+      }
+    }
+    throw new IllegalArgumentException("no ids in " + query);
+  }
+
+  private void respond(HttpExchange exchange, String body) throws IOException {
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(responseDelayMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      inFlight.decrementAndGet();
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(bytes);
+    }
+  }
+
+  private static List<String> ids(int count) {
+    // ids of different lengths so that the chunks share some authors
+    return IntStream.range(0, count).mapToObj(i -> String.valueOf(i * 37)).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testGetTweetsSplitInChunks() {
+    List<String> ids    = ids(250);
+    TweetList    result = twitterClient.getTweets(ids);
+    assertEquals(3, requestSizes.size());
+    assertTrue(requestSizes.stream().allMatch(size -> size <= URLHelper.MAX_LOOKUP));
+    assertEquals(ids, result.getData().stream().map(tweet -> tweet.getId()).collect(Collectors.toList()));
+    assertEquals(250, result.getMeta().getResultCount());
+    List<String> authorIds = result.getIncludes().getUsers().stream().map(user -> user.getId()).collect(Collectors.toList());
+    assertEquals(authorIds.stream().distinct().collect(Collectors.toList()), authorIds);
+    assertEquals(4, authorIds.size());
+  }
+
+  @Test
+  public void testGetTweetsAsyncSplitInChunks() throws Exception {
+    List<String> ids    = ids(201);
+    TweetList    result = twitterClient.getTweetsAsync(ids).get(10, TimeUnit.SECONDS);
+    assertEquals(3, requestSizes.size());
+    assertEquals(ids, result.getData().stream().map(tweet -> tweet.getId()).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testGetTweetsAsyncBoundedInFlight() throws Exception {
+    responseDelayMs = 50;
+    // the pooled client runs the asynchronous calls concurrently, the default one runs them inline
+    try (ApacheHttpClient httpClient = new ApacheHttpClient(ApacheHttpClientConfig.defaultConfig())) {
+      TwitterClient asyncClient = new TwitterClient(twitterClient.getTwitterCredentials(), httpClient);
+      asyncClient.setUrlHelper(twitterClient.getUrlHelper());
+      asyncClient.setLookupParallelism(3);
+      List<String> ids    = ids(1000);
+      TweetList    result = asyncClient.getTweetsAsync(ids).get(10, TimeUnit.SECONDS);
+      assertEquals(10, requestSizes.size());
+      assertEquals(3, maxInFlight.get());
+      assertEquals(ids, result.getData().stream().map(tweet -> tweet.getId()).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testSingleChunkUnchanged() {
+    TweetList result = twitterClient.getTweets(ids(100));
+    assertEquals(1, requestSizes.size());
+    assertEquals(100, result.getData().size());
+  }
+
+  @Test
+  public void testGetUsersFromUserIdsSplitInChunks() {
+    List<String> ids    = ids(230);
+    List<User>   result = twitterClient.getUsersFromUserIds(ids);
+    assertEquals(3, requestSizes.size());
+    assertEquals(ids, result.stream().map(User::getId).collect(Collectors.toList()));
+  }
+
+}
@@ -0,0 +1,134 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.redouane59.twitter.helpers.CrawlSession;
+import io.github.redouane59.twitter.helpers.CrawlSession.Checkpoint;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.PageIterator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CrawlSessionTest {
+
+  private static final String              ENDPOINT         = "https://api.twitter.com/2/tweets/search/all";
+  private static final Map<String, String> PARAMETERS       = Collections.singletonMap("query", "twitter");
+  private final        List<String>        requestedCursors = new ArrayList<>();
+  @TempDir
+  Path directory;
+
+  /**
+   * Pages of 10 ids, from the newest to the oldest, the cursor of a page being its index
+   */
+  private CrawlSession<List<Integer>, Integer> getSession(Path file, int pageCount) {
+    return new PageIterator<List<Integer>, Integer>(c -> {
+      requestedCursors.add(c);
+      int index = c == null ? 0 : Integer.parseInt(c);
+      return Optional.of(IntStream.range(0, 10).map(i -> 1000 - index * 10 - i).boxed().collect(Collectors.toList()));
+    }, page -> (1000 - page.get(0)) / 10 + 1 < pageCount ? String.valueOf((1000 - page.get(0)) / 10 + 1) : null, page -> page)
+        .checkpoint(file, ENDPOINT, PARAMETERS, String::valueOf, 2);
+  }
+
+  @Test
+  public void testResumeAfterRestart() throws Exception {
+    Path                                 file    = directory.resolve("crawl.json");
+    CrawlSession<List<Integer>, Integer> session = getSession(file, 5);
+    session.next();
+    session.next();
+    // the third page is received but not processed when the JVM stops
+    session.next();
+    Checkpoint checkpoint = JsonHelper.OBJECT_MAPPER.readValue(file.toFile(), Checkpoint.class);
+    assertEquals("2", checkpoint.getCursor());
+    assertEquals(2, checkpoint.getPageCount());
+    assertEquals(20, checkpoint.getItemCount());
+    assertEquals("1000", checkpoint.getNewestId());
+    assertEquals("981", checkpoint.getOldestId());
+    assertFalse(checkpoint.isFinished());
+
+    requestedCursors.clear();
+    session = getSession(file, 5);
+    List<Integer> ids = session.stream().collect(Collectors.toList());
+    assertEquals(Arrays.asList("2", "3", "4"), requestedCursors);
+    assertEquals(30, ids.size());
+    assertEquals(980, ids.get(0));
+    checkpoint = session.getCheckpoint();
+    assertTrue(checkpoint.isFinished());
+    assertNull(checkpoint.getCursor());
+    assertEquals(5, checkpoint.getPageCount());
+    assertEquals(50, checkpoint.getItemCount());
+    assertEquals("951", checkpoint.getOldestId());
+    assertFalse(Files.exists(directory.resolve("crawl.json.tmp")));
+  }
+
+  @Test
+  public void testPendingCheckpoint() throws Exception {
+    Path                                 file    = directory.resolve("crawl.json");
+    CrawlSession<List<Integer>, Integer> session = getSession(file, 5);
+    session.next();
+    session.next();
+    session.next();
+    session.commit();
+    // the third page is only in the pending file, the checkpoint being forced every 2 pages
+    assertEquals(2, JsonHelper.OBJECT_MAPPER.readValue(file.toFile(), Checkpoint.class).getPageCount());
+    assertEquals(3, JsonHelper.OBJECT_MAPPER.readValue(directory.resolve("crawl.json.pending").toFile(), Checkpoint.class).getPageCount());
+    requestedCursors.clear();
+    getSession(file, 5).next();
+    assertEquals(Collections.singletonList("3"), requestedCursors);
+
+    // the pending file lost by a crash of the system
+    Files.write(directory.resolve("crawl.json.pending"), new byte[0]);
+    requestedCursors.clear();
+    getSession(file, 5).next();
+    assertEquals(Collections.singletonList("2"), requestedCursors);
+
+    // close forces the last checkpoint
+    session.close();
+    assertEquals(3, JsonHelper.OBJECT_MAPPER.readValue(file.toFile(), Checkpoint.class).getPageCount());
+    assertFalse(Files.exists(directory.resolve("crawl.json.pending")));
+  }
+
+  @Test
+  public void testFinishedCrawl() {
+    Path file = directory.resolve("crawl.json");
+    assertEquals(3, getSession(file, 3).pages().count());
+    requestedCursors.clear();
+    CrawlSession<List<Integer>, Integer> session = getSession(file, 3);
+    assertFalse(session.hasNext());
+    assertTrue(requestedCursors.isEmpty());
+  }
+
+  @Test
+  public void testCommit() throws Exception {
+    Path file = directory.resolve("crawl.json");
+    try (CrawlSession<List<Integer>, Integer> session = getSession(file, 5)) {
+      session.next();
+      session.commit();
+    }
+    requestedCursors.clear();
+    getSession(file, 5).next();
+    assertEquals(Collections.singletonList("1"), requestedCursors);
+  }
+
+  @Test
+  public void testOtherCrawl() {
+    Path file = directory.resolve("crawl.json");
+    getSession(file, 5).pages().limit(2).count();
+    PageIterator<List<Integer>, Integer> iterator = new PageIterator<>(c -> Optional.empty(), page -> null, page -> page);
+    assertThrows(IllegalStateException.class, () -> iterator.checkpoint(file, ENDPOINT, Collections.singletonMap("query", "other"), null));
+  }
+
+}
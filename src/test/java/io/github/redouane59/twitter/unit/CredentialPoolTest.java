@@ -0,0 +1,164 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.CredentialPool;
+import io.github.redouane59.twitter.helpers.PooledRequestHelperV2;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CredentialPoolTest {
+
+  private final Map<String, Integer> callsByToken    = new ConcurrentHashMap<>();
+  /**
+   * Response code returned to each token, 200 by default
+   */
+  private final Map<String, Integer> codesByToken    = new ConcurrentHashMap<>();
+  /**
+   * Body of the error responses returned to each token
+   */
+  private final Map<String, String>  errorsByToken    = new ConcurrentHashMap<>();
+  private final Map<String, Integer> remainingByToken = new ConcurrentHashMap<>();
+  private       HttpServer           server;
+  private       String               baseUrl;
+  private       String               tweetUrl;
+  private       CredentialPool       credentialPool;
+  private       PooledRequestHelperV2 requestHelper;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/tweets", this::respond);
+    server.start();
+    baseUrl  = "http://localhost:" + server.getAddress().getPort();
+    tweetUrl = baseUrl + "/2/tweets/1";
+    List<TwitterCredentials> credentials = Arrays.asList(
+        TwitterCredentials.builder().apiKey("key").apiSecretKey("secret").bearerToken("a").build(),
+        TwitterCredentials.builder().apiKey("key").apiSecretKey("secret").bearerToken("b").build());
+    credentialPool = new CredentialPool(credentials);
+    requestHelper  = new PooledRequestHelperV2(credentialPool);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    String token = exchange.getRequestHeaders().getFirst("Authorization").substring("Bearer ".length());
+    callsByToken.merge(token, 1, Integer::sum);
+    int code = codesByToken.getOrDefault(token, 200);
+    if (remainingByToken.containsKey(token)) {
+      exchange.getResponseHeaders().add("x-rate-limit-limit", "300");
+      exchange.getResponseHeaders().add("x-rate-limit-remaining", String.valueOf(remainingByToken.get(token)));
+      exchange.getResponseHeaders().add("x-rate-limit-reset", String.valueOf(System.currentTimeMillis() / 1000 + 900));
+    }
+    byte[] body = (code == 200 ? "{\"data\":{\"id\":\"1\",\"text\":\"" + token + "\"}}" : errorsByToken.getOrDefault(token, "{\"title\":\"error\"}")).getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(code, body.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  private String getTweetText() {
+    return getTweetText(tweetUrl);
+  }
+
+  private String getTweetText(String url) {
+    return requestHelper.getRequest(url, TweetV2.class).get().getText();
+  }
+
+  @Test
+  public void testCredentialWithMostHeadroomSelected() {
+    remainingByToken.put("a", 3);
+    remainingByToken.put("b", 100);
+    for (int i = 0; i < 10; i++) {
+      getTweetText();
+    }
+    // both are tried once while their budget is unknown, then b has the most calls left
+    assertEquals(1, callsByToken.get("a"));
+    assertEquals(9, callsByToken.get("b"));
+  }
+
+  @Test
+  public void testFailOverOnRateLimit() {
+    codesByToken.put("a", 429);
+    remainingByToken.put("a", 0);
+    for (int i = 0; i < 3; i++) {
+      assertEquals("b", getTweetText());
+    }
+    // the exhausted budget of a is known after its first 429
+    assertEquals(1, callsByToken.get("a"));
+    assertFalse(credentialPool.getMembers().get(0).isDisabled());
+  }
+
+  @Test
+  public void testFailOverOnInvalidToken() throws Exception {
+    codesByToken.put("a", 401);
+    errorsByToken.put("a", "{\"errors\":[{\"code\":89,\"message\":\"Invalid or expired token.\"}]}");
+    assertEquals("b", requestHelper.getRequestWithParametersAsync(tweetUrl, null, TweetV2.class).get(5, TimeUnit.SECONDS).getText());
+    assertEquals("b", getTweetText());
+    assertEquals("b", getTweetText());
+    assertEquals(1, callsByToken.get("a"));
+    assertTrue(credentialPool.getMembers().get(0).isDisabled());
+  }
+
+  @Test
+  public void testProtectedUserDoesNotDisableCredentials() {
+    // what Twitter answers to any credential reading the timeline of a protected user
+    codesByToken.put("a", 401);
+    errorsByToken.put("a", "{\"request\":\"/1.1/statuses/user_timeline.json\",\"error\":\"Not authorized.\"}");
+    for (int i = 0; i < 5; i++) {
+      assertEquals("b", getTweetText());
+    }
+    assertTrue(callsByToken.get("a") > 1);
+    assertFalse(credentialPool.getMembers().get(0).isDisabled());
+    // the other requests are still sent with a
+    codesByToken.remove("a");
+    int calls = callsByToken.get("a");
+    for (int i = 0; i < 3; i++) {
+      getTweetText();
+    }
+    assertTrue(callsByToken.get("a") > calls);
+  }
+
+  @Test
+  public void testUnauthorizedOnSeveralEndpointsDisablesCredentials() {
+    codesByToken.put("a", 401);
+    List<String> urls = Arrays.asList(tweetUrl, baseUrl + "/2/tweets/search/recent", baseUrl + "/2/tweets/counts/recent");
+    for (String url : urls) {
+      int calls = callsByToken.getOrDefault("a", 0);
+      // the members are used in turn, until a is called on the endpoint
+      for (int i = 0; i < 3 && callsByToken.getOrDefault("a", 0) == calls; i++) {
+        assertEquals("b", getTweetText(url));
+      }
+      assertEquals(calls + 1, callsByToken.get("a"));
+    }
+    assertTrue(credentialPool.getMembers().get(0).isDisabled());
+  }
+
+  @Test
+  public void testPostSentWithPrimaryCredentials() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals("a", requestHelper.postRequest(tweetUrl, "{}", TweetV2.class).get().getText());
+    }
+    assertFalse(callsByToken.containsKey("b"));
+  }
+
+}
@@ -0,0 +1,93 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.redouane59.twitter.dto.getrelationship.FollowerDelta;
+import io.github.redouane59.twitter.helpers.FollowerSnapshotStore;
+import io.github.redouane59.twitter.helpers.IdBitmap;
+import io.github.redouane59.twitter.helpers.LongIdSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FollowerSnapshotTest {
+
+  private static final LocalDate DAY = LocalDate.of(2021, 6, 30);
+  @TempDir
+  Path directory;
+
+  /**
+   * A dense range of old account ids, with a sparse set of recent snowflake ids
+   */
+  private LongIdSet getFollowers(long seed, int removedEvery) {
+    Random            random  = new Random(seed);
+    LongIdSet.Builder builder = LongIdSet.builder();
+    LongStream.range(1_000_000, 1_020_000).filter(id -> id % removedEvery != 0).forEach(builder::add);
+    random.longs(500, 1_000_000_000_000_000_000L, 1_600_000_000_000_000_000L).forEach(builder::add);
+    return builder.build();
+  }
+
+  @Test
+  public void testBitmapRoundTrip() throws Exception {
+    LongIdSet ids    = getFollowers(1, 7);
+    IdBitmap  bitmap = IdBitmap.of(ids);
+    assertEquals(ids.size(), bitmap.getSize());
+    assertTrue(bitmap.contains(1_000_001));
+    assertFalse(bitmap.contains(1_000_006));
+    assertFalse(bitmap.contains(5));
+    assertTrue(bitmap.contains(ids.get(ids.size() - 1)));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    bitmap.writeTo(output);
+    IdBitmap read = IdBitmap.readFrom(new ByteArrayInputStream(output.toByteArray()));
+    assertArrayEquals(ids.toArray(), read.toLongIdSet().toArray());
+    assertEquals(bitmap.getContainerCount(), read.getContainerCount());
+    // the dense range takes a bitmap container, far less than 8 bytes per id
+    assertTrue(output.size() < ids.size() * 4, String.valueOf(output.size()));
+  }
+
+  @Test
+  public void testDifference() {
+    LongIdSet before = LongIdSet.of(1, 2, 3, 70_000, 1_500_000_000_000_000_000L);
+    LongIdSet after  = LongIdSet.of(2, 3, 4, 1_500_000_000_000_000_001L);
+    assertArrayEquals(new long[]{4, 1_500_000_000_000_000_001L}, IdBitmap.of(after).difference(IdBitmap.of(before)).toArray());
+    assertArrayEquals(new long[]{1, 70_000, 1_500_000_000_000_000_000L}, IdBitmap.of(before).difference(IdBitmap.of(after)).toArray());
+    // bitmap containers compared word by word, or with an array container
+    LongIdSet dense1 = getFollowers(1, 7);
+    LongIdSet dense2 = getFollowers(2, 5);
+    assertArrayEquals(dense1.difference(dense2).toArray(), IdBitmap.of(dense1).difference(IdBitmap.of(dense2)).toArray());
+    assertArrayEquals(dense2.difference(dense1).toArray(), IdBitmap.of(dense2).difference(IdBitmap.of(dense1)).toArray());
+    assertArrayEquals(dense1.difference(before).toArray(), IdBitmap.of(dense1).difference(IdBitmap.of(before)).toArray());
+  }
+
+  @Test
+  public void testSnapshotStore() throws Exception {
+    FollowerSnapshotStore store = new FollowerSnapshotStore(directory);
+    FollowerDelta         first = store.update("42", DAY, LongIdSet.of(1, 2, 3));
+    assertArrayEquals(new long[]{1, 2, 3}, first.getAdded().toArray());
+    assertTrue(first.getRemoved().isEmpty());
+    store.update("42", DAY.plusDays(1), LongIdSet.of(2, 3, 4, 5));
+    FollowerDelta delta = store.update("42", DAY.plusDays(3), LongIdSet.of(3, 5, 6));
+    assertArrayEquals(new long[]{6}, delta.getAdded().toArray());
+    assertArrayEquals(new long[]{2, 4}, delta.getRemoved().toArray());
+    assertEquals(Arrays.asList(DAY, DAY.plusDays(1), DAY.plusDays(3)), store.getSnapshotDates("42"));
+    FollowerDelta overall = store.diff("42", DAY, DAY.plusDays(3));
+    assertArrayEquals(new long[]{5, 6}, overall.getAdded().toArray());
+    assertArrayEquals(new long[]{1, 2}, overall.getRemoved().toArray());
+    assertTrue(Files.exists(directory.resolve("42").resolve("2021-07-01.bitmap")));
+    assertTrue(store.getSnapshotDates("43").isEmpty());
+    assertThrows(NoSuchElementException.class, () -> store.diff("42", DAY, DAY.plusDays(2)));
+  }
+
+}
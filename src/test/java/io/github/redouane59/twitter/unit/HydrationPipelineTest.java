@@ -0,0 +1,161 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.TwitterClient;
+import io.github.redouane59.twitter.dto.others.ResourceError;
+import io.github.redouane59.twitter.dto.user.UserV2.UserData;
+import io.github.redouane59.twitter.helpers.HydrationPipeline;
+import io.github.redouane59.twitter.helpers.HydrationPipeline.Progress;
+import io.github.redouane59.twitter.helpers.HydrationSink;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.LookupBatcher.BatchResult;
+import io.github.redouane59.twitter.helpers.LookupBatcher.LookupException;
+import io.github.redouane59.twitter.helpers.NdjsonHydrationSink;
+import io.github.redouane59.twitter.helpers.URLHelper;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HydrationPipelineTest {
+
+  private final AtomicInteger inFlight    = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  @TempDir
+  Path directory;
+
+  /**
+   * Each id is hydrated into its value, except the multiples of 100 which are deleted
+   */
+  private BatchResult<Integer> load(List<String> ids) {
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(10);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    assertTrue(ids.size() <= 100);
+    Map<String, Integer>       values = new HashMap<>();
+    Map<String, ResourceError> errors = new HashMap<>();
+    for (String id : ids) {
+      if (Integer.parseInt(id) % 100 == 0) {
+        ResourceError error = new ResourceError();
+        error.setTitle("Not Found Error");
+        errors.put(id, error);
+      } else {
+        values.put(id, Integer.parseInt(id));
+      }
+    }
+    inFlight.decrementAndGet();
+    return new BatchResult<>(values, errors);
+  }
+
+  @Test
+  public void testAllIdsHydratedOrFailed() {
+    HydrationPipeline<Integer> pipeline = new HydrationPipeline<>(this::load, 100, 3);
+    Map<String, Integer>       hydrated = new ConcurrentHashMap<>();
+    Map<String, Exception>     failed   = new ConcurrentHashMap<>();
+    Progress progress = pipeline.run(IntStream.range(1, 2001).mapToObj(String::valueOf).iterator(),
+                                     HydrationSink.of(hydrated::put, failed::put));
+    assertEquals(1980, hydrated.size());
+    assertEquals(20, failed.size());
+    assertEquals("Not Found Error", ((LookupException) failed.get("300")).getError().getTitle());
+    assertEquals(2000, progress.getReadIds());
+    assertEquals(20, progress.getSentBatches());
+    assertEquals(1980, progress.getHydratedIds());
+    assertEquals(20, progress.getFailedIds());
+    assertEquals(0, progress.getInFlightBatches());
+    assertTrue(progress.getIdsPerSecond() > 0);
+    assertTrue(maxInFlight.get() <= 3);
+    assertTrue(maxInFlight.get() > 1);
+  }
+
+  @Test
+  public void testFailedBatchAndSinkError() {
+    HydrationPipeline<Integer> failing = new HydrationPipeline<>(ids -> {
+      throw new IllegalStateException("down");
+    }, 100, 2);
+    Map<String, Exception> failed = new ConcurrentHashMap<>();
+    failing.run(Arrays.asList("1", "2", "2").iterator(), HydrationSink.of((id, value) -> {
+    }, failed::put));
+    assertEquals(2, failed.size());
+    assertEquals("down", failed.get("1").getMessage());
+
+    HydrationPipeline<Integer> pipeline = new HydrationPipeline<>(this::load, 10, 2);
+    assertThrows(IllegalArgumentException.class, () -> pipeline.run(IntStream.range(1, 1000).mapToObj(String::valueOf).iterator(),
+                                                                     HydrationSink.of((id, value) -> {
+                                                                       throw new IllegalArgumentException("sink");
+                                                                     }, (id, e) -> {
+                                                                     })));
+    assertTrue(pipeline.getProgress().getSentBatches() < 100);
+  }
+
+  @Test
+  public void testUsersHydratedFromFileToNdjson() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/users", exchange -> {
+      String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+      List<String> ids = Arrays.asList(query.replaceAll(".*(?:^|&)ids=([^&]*).*", "$1").split(","));
+      String data = ids.stream().filter(id -> !id.equals("13")).map(id -> "{\"id\":\"" + id + "\",\"username\":\"user" + id + "\"}")
+                       .collect(Collectors.joining(","));
+      String body = "{\"data\":[" + data + "],\"errors\":[{\"value\":\"13\",\"detail\":\"User has been suspended: [13].\","
+                    + "\"title\":\"Forbidden\",\"resource_type\":\"user\",\"parameter\":\"ids\",\"resource_id\":\"13\"}]}";
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(bytes);
+      }
+    });
+    server.start();
+    try {
+      String        rootUrl       = "http://localhost:" + server.getAddress().getPort();
+      TwitterClient twitterClient = new TwitterClient(TwitterCredentials.builder().bearerToken("token").apiKey("key").apiSecretKey("secret").build());
+      twitterClient.setUrlHelper(new URLHelper() {
+        @Override
+        public String getUsersUrl() {
+          return rootUrl + "/2/users";
+        }
+      });
+      Path idFile = directory.resolve("ids.txt");
+      Files.write(idFile, IntStream.range(1, 251).mapToObj(String::valueOf).collect(Collectors.toList()));
+      Path output = directory.resolve("users.ndjson");
+      Path errors = directory.resolve("errors.ndjson");
+      try (NdjsonHydrationSink<UserData> sink = new NdjsonHydrationSink<>(output, errors)) {
+        Progress progress = twitterClient.createUserHydrationPipeline().run(idFile, sink);
+        assertEquals(3, progress.getSentBatches());
+      }
+      List<String> lines = Files.readAllLines(output);
+      assertEquals(249, lines.size());
+      Set<String> names = new HashSet<>();
+      for (String line : lines) {
+        names.add(JsonHelper.fromJson(line, UserData.class).getName());
+      }
+      assertTrue(names.contains("user1"));
+      assertFalse(names.contains("user13"));
+      assertEquals(Arrays.asList("{\"id\":\"13\",\"title\":\"Forbidden\",\"detail\":\"User has been suspended: [13].\"}"), Files.readAllLines(errors));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+}
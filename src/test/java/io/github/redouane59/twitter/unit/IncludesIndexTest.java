@@ -0,0 +1,101 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.TwitterClient;
+import io.github.redouane59.twitter.dto.endpoints.AdditionalParameters;
+import io.github.redouane59.twitter.dto.tweet.TweetList;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.MediaEntityV2;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.TweetData;
+import io.github.redouane59.twitter.dto.user.UserV2.UserData;
+import io.github.redouane59.twitter.helpers.IncludesIndex;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.URLHelper;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class IncludesIndexTest {
+
+  /**
+   * A page of two tweets of the same author, including a media and a quoted tweet of another author
+   */
+  private String getPage(int page, String authorId, String nextToken) {
+    return "{\"data\":[{\"id\":\"" + (2 * page) + "\",\"text\":\"a\",\"author_id\":\"" + authorId + "\"},"
+           + "{\"id\":\"" + (2 * page + 1) + "\",\"text\":\"b\",\"author_id\":\"" + authorId + "\"}],"
+           + "\"includes\":{\"users\":[{\"id\":\"" + authorId + "\",\"username\":\"user" + authorId + "\"},{\"id\":\"9\",\"username\":\"user9\"}],"
+           + "\"tweets\":[{\"id\":\"100\",\"text\":\"quoted\",\"author_id\":\"9\"}],"
+           + "\"media\":[{\"media_key\":\"3_" + page + "\",\"type\":\"photo\"}]},"
+           + "\"meta\":{\"result_count\":2" + (nextToken == null ? "" : ",\"next_token\":\"" + nextToken + "\"") + "}}";
+  }
+
+  @Test
+  public void testIncludesAccumulated() throws Exception {
+    TweetList     page1 = JsonHelper.fromJson(getPage(0, "1", "1"), TweetList.class);
+    TweetList     page2 = JsonHelper.fromJson(getPage(1, "1", null), TweetList.class);
+    TweetList     page3 = JsonHelper.fromJson(getPage(2, "2", null), TweetList.class);
+    // each page is deserialized with its own copy of the author
+    assertNotSame(page1.getData().get(0).getUser(), page2.getData().get(0).getUser());
+    IncludesIndex index = new IncludesIndex();
+    assertFalse(index.hasIncludes());
+    index.add(page1);
+    index.add(page2);
+    index.add(page3);
+    assertTrue(index.hasIncludes());
+    assertEquals(Arrays.asList("1", "9", "2"), index.getIncludes().getUsers().stream().map(UserData::getId).collect(Collectors.toList()));
+    assertEquals(1, index.getIncludes().getTweets().size());
+    assertEquals(3, index.getIncludes().getMedia().size());
+    assertTrue(index.getMedia("3_1").isPresent());
+    assertFalse(index.getPlace("1").isPresent());
+    // the author deserialized with the second page is replaced by the one of the first page
+    UserData author = index.getUser("1").get();
+    assertSame(author, page1.getData().get(0).getUser());
+    assertSame(author, page2.getData().get(0).getUser());
+    assertSame(author, page2.getData().get(1).getUser());
+    assertSame(index.getUser("9").get(), index.getTweet("100").get().getUser());
+    assertSame(index.getUser("2").get(), page3.getData().get(0).getUser());
+  }
+
+  @Test
+  public void testRecursiveSearchKeepsTheIncludesOfAllPages() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/tweets/search/recent", exchange -> {
+      int    page  = exchange.getRequestURI().getQuery().contains("next_token=") ? 1 : 0;
+      byte[] bytes = getPage(page, page == 0 ? "1" : "2", page == 0 ? "1" : null).getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(bytes);
+      }
+    });
+    server.start();
+    try {
+      String        rootUrl       = "http://localhost:" + server.getAddress().getPort();
+      TwitterClient twitterClient = new TwitterClient(TwitterCredentials.builder().bearerToken("token").apiKey("key").apiSecretKey("secret").build());
+      twitterClient.setUrlHelper(new URLHelper() {
+        @Override
+        public String getSearchRecentTweetsUrl() {
+          return rootUrl + "/2/tweets/search/recent";
+        }
+      });
+      TweetList result = twitterClient.searchTweets("twitter", AdditionalParameters.builder().build());
+      assertEquals(4, result.getData().size());
+      assertEquals(Arrays.asList("1", "9", "2"), result.getIncludes().getUsers().stream().map(UserData::getId).collect(Collectors.toList()));
+      assertEquals(Arrays.asList("3_0", "3_1"), result.getIncludes().getMedia().stream().map(MediaEntityV2::getKey).collect(Collectors.toList()));
+      TweetData first = result.getData().get(0);
+      assertSame(first.getUser(), result.getData().get(1).getUser());
+      assertEquals("2", result.getData().get(3).getUser().getId());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.TwitterClient;
+import io.github.redouane59.twitter.helpers.LongIdSet;
+import io.github.redouane59.twitter.helpers.URLHelper;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LongIdSetTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testSortedAndDistinct() {
+    LongIdSet set = LongIdSet.of(5, 3, 1_500_000_000_000_000_000L, 3, 42, 5);
+    assertArrayEquals(new long[]{3, 5, 42, 1_500_000_000_000_000_000L}, set.toArray());
+    assertTrue(set.contains(42));
+    assertTrue(set.contains(1_500_000_000_000_000_000L));
+    assertFalse(set.contains(4));
+    assertFalse(set.isMemoryMapped());
+    assertTrue(LongIdSet.of().isEmpty());
+  }
+
+  @Test
+  public void testSetOperations() {
+    LongIdSet before = LongIdSet.of(1, 2, 3, 4, 5);
+    LongIdSet after  = LongIdSet.of(4, 5, 6, 7);
+    assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6, 7}, before.union(after).toArray());
+    assertArrayEquals(new long[]{4, 5}, before.intersection(after).toArray());
+    assertArrayEquals(new long[]{1, 2, 3}, before.difference(after).toArray());
+    assertArrayEquals(new long[]{6, 7}, after.difference(before).toArray());
+    assertTrue(before.intersection(LongIdSet.of(8, 9)).isEmpty());
+  }
+
+  @Test
+  public void testSpilledToMappedFile() throws Exception {
+    Random            random   = new Random(1);
+    TreeSet<Long>     expected = new TreeSet<>();
+    Path              file     = directory.resolve("followers.ids");
+    LongIdSet.Builder builder  = LongIdSet.builder(file, 1000);
+    for (int page = 0; page < 7; page++) {
+      long[] ids = random.longs(500, 0, 3000).toArray();
+      builder.addAll(ids);
+      for (long id : ids) {
+        expected.add(id);
+      }
+    }
+    LongIdSet set = builder.build();
+    assertTrue(set.isMemoryMapped());
+    assertEquals(expected.size(), set.size());
+    assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), set.toArray());
+    assertEquals(expected.size() * (long) Long.BYTES, Files.size(file));
+    assertFalse(Files.exists(directory.resolve("followers.ids.runs")));
+    // a set small enough stays in memory
+    assertFalse(LongIdSet.builder(directory.resolve("small.ids"), 1000).add(1).build().isMemoryMapped());
+    assertTrue(set.contains(expected.first()));
+    assertEquals(expected.size() - 1, set.difference(LongIdSet.of(expected.last())).size());
+  }
+
+  @Test
+  public void testFollowersIdSet() throws Exception {
+    List<String> queries = new CopyOnWriteArrayList<>();
+    HttpServer   server  = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/1.1/followers/ids.json", exchange -> {
+      String query = exchange.getRequestURI().getQuery();
+      queries.add(query);
+      String body = query.contains("cursor=-1")
+                    ? "{\"ids\":[1500000000000000000,12,7],\"next_cursor_str\":\"42\",\"previous_cursor_str\":\"0\"}"
+                    : "{\"ids\":[12,3],\"next_cursor_str\":\"0\",\"previous_cursor_str\":\"-42\"}";
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(bytes);
+      }
+    });
+    server.start();
+    try {
+      String        rootUrl       = "http://localhost:" + server.getAddress().getPort();
+      TwitterClient twitterClient = new TwitterClient(TwitterCredentials.builder().bearerToken("token").apiKey("key").apiSecretKey("secret").build());
+      twitterClient.setUrlHelper(new URLHelper() {
+        @Override
+        public String getFollowersIdsUrl(String userId) {
+          return rootUrl + "/1.1/followers/ids.json?user_id=" + userId + "&count=5000";
+        }
+      });
+      LongIdSet ids = twitterClient.getFollowersIdSet("1");
+      assertArrayEquals(new long[]{3, 7, 12, 1_500_000_000_000_000_000L}, ids.toArray());
+      assertEquals(2, queries.size());
+      assertTrue(queries.get(0).contains("stringify_ids=false"));
+      assertTrue(queries.get(1).contains("cursor=42"));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+}
@@ -0,0 +1,121 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.redouane59.twitter.dto.others.ResourceError;
+import io.github.redouane59.twitter.helpers.LookupBatcher;
+import io.github.redouane59.twitter.helpers.LookupBatcher.BatchResult;
+import io.github.redouane59.twitter.helpers.LookupBatcher.LookupException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class LookupBatcherTest {
+
+  private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+  private BatchResult<String> lookup(List<String> ids) {
+    batches.add(ids);
+    Map<String, String>        values = new HashMap<>();
+    Map<String, ResourceError> errors = new HashMap<>();
+    for (String id : ids) {
+      if (id.startsWith("unknown")) {
+        errors.put(id, ResourceError.builder().resourceId(id).title("Not Found Error").detail("Could not find " + id).build());
+      } else if (!id.startsWith("missing")) {
+        values.put(id, "value" + id);
+      }
+    }
+    return new BatchResult<>(values, errors);
+  }
+
+  @Test
+  public void testLookupsAreBatched() throws Exception {
+    try (LookupBatcher<String> batcher = new LookupBatcher<>(this::lookup, 100, 50)) {
+      List<CompletableFuture<String>> results = new ArrayList<>();
+      for (int i = 0; i < 250; i++) {
+        results.add(batcher.load(String.valueOf(i)));
+      }
+      for (int i = 0; i < 250; i++) {
+        assertEquals("value" + i, results.get(i).get(5, TimeUnit.SECONDS));
+      }
+    }
+    assertEquals(3, batches.size());
+    assertEquals(250, batches.stream().mapToInt(List::size).sum());
+    assertTrue(batches.stream().allMatch(batch -> batch.size() <= 100));
+  }
+
+  @Test
+  public void testSameIdSentOnce() throws Exception {
+    try (LookupBatcher<String> batcher = new LookupBatcher<>(this::lookup, 100, 20)) {
+      CompletableFuture<String> first  = batcher.load("1");
+      CompletableFuture<String> second = batcher.load("1");
+      assertSame(first, second);
+      assertEquals("value1", first.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(Collections.singletonList(Collections.singletonList("1")), batches);
+  }
+
+  @Test
+  public void testErrorsById() throws Exception {
+    try (LookupBatcher<String> batcher = new LookupBatcher<>(this::lookup, 100, 20)) {
+      CompletableFuture<String> found   = batcher.load("1");
+      CompletableFuture<String> unknown = batcher.load("unknown1");
+      CompletableFuture<String> missing = batcher.load("missing1");
+      assertEquals("value1", found.get(5, TimeUnit.SECONDS));
+      ExecutionException unknownError = assertThrows(ExecutionException.class, () -> unknown.get(5, TimeUnit.SECONDS));
+      assertEquals("Not Found Error", ((LookupException) unknownError.getCause()).getError().getTitle());
+      ExecutionException missingError = assertThrows(ExecutionException.class, () -> missing.get(5, TimeUnit.SECONDS));
+      assertEquals("missing1", ((LookupException) missingError.getCause()).getId());
+    }
+    assertEquals(1, batches.size());
+  }
+
+  @Test
+  public void testLoaderThreadsBounded() throws Exception {
+    AtomicInteger inFlight    = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    try (LookupBatcher<String> batcher = new LookupBatcher<>(ids -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inFlight.decrementAndGet();
+      return lookup(ids);
+    }, 1, 20, 2)) {
+      List<CompletableFuture<String>> results = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        results.add(batcher.load(String.valueOf(i)));
+      }
+      for (int i = 0; i < 10; i++) {
+        assertEquals("value" + i, results.get(i).get(5, TimeUnit.SECONDS));
+      }
+    }
+    assertTrue(maxInFlight.get() <= 2);
+  }
+
+  @Test
+  public void testFailedBatch() {
+    IllegalStateException failure = new IllegalStateException("batch failed");
+    try (LookupBatcher<String> batcher = new LookupBatcher<>(ids -> {
+      throw failure;
+    }, 100, 20)) {
+      CompletableFuture<String> result = batcher.load("1");
+      ExecutionException       e      = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+      assertSame(failure, e.getCause());
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.redouane59.twitter.helpers.RequestHelper;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import io.github.redouane59.twitter.utils.GlobalAuthUtils;
+import io.github.redouane59.twitter.utils.OAuth1Signer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class OAuth1SignerTest {
+
+  private static final String       URL          = "https://api.twitter.com/1.1/statuses/update.json";
+  private static final String       API_SECRET   = "kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw";
+  private static final String       TOKEN_SECRET = "LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE";
+  private static final OAuth1Signer SIGNER       = new OAuth1Signer(API_SECRET, TOKEN_SECRET);
+  private static final OAuth1Signer APP_SIGNER   = new OAuth1Signer(API_SECRET, null);
+
+  private Map<String, String> getParams(String status) {
+    Map<String, String> params = new HashMap<>();
+    params.put("status", status);
+    params.put("include_entities", "true");
+    params.put("oauth_consumer_key", "xvz1evFS4wEEPTGEFPHBog");
+    params.put("oauth_nonce", "kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg");
+    params.put("oauth_signature_method", "HMAC-SHA1");
+    params.put("oauth_timestamp", "1318622958");
+    params.put("oauth_token", "370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb");
+    params.put("oauth_version", "1.0");
+    return params;
+  }
+
+  @Test
+  public void testTwitterDocumentationExample() {
+    Map<String, String> params = getParams("Hello Ladies + Gentlemen, a signed OAuth request!");
+    assertEquals("hCtSmYh+iHYCEqBWrE7C7hYmtUk=", SIGNER.sign(params, "POST", URL));
+    assertEquals("hCtSmYh+iHYCEqBWrE7C7hYmtUk=", GlobalAuthUtils.generateTwitterSignature(params, "post", URL, API_SECRET, TOKEN_SECRET));
+  }
+
+  @Test
+  public void testSameSignatureAsGlobalAuthUtils() {
+    String[] statuses = {"", "a*b/c d+e", "éàè ç € 🚀 你好", "100% & more = \"quoted\" <tag> 'q' !?#[]@$,;:"};
+    for (String status : statuses) {
+      Map<String, String> params = getParams(status);
+      assertEquals(GlobalAuthUtils.generateTwitterSignature(params, "POST", URL, API_SECRET, TOKEN_SECRET),
+                   SIGNER.sign(params, "POST", URL), status);
+      assertEquals(GlobalAuthUtils.generateTwitterSignature(params, "GET", URL, API_SECRET, null),
+                   APP_SIGNER.sign(params, "GET", URL), status);
+      assertEquals(GlobalAuthUtils.urlEncode(status), OAuth1Signer.percentEncode(status));
+    }
+    // unlike GlobalAuthUtils.urlEncode, '~' is kept as an unreserved character (RFC 3986)
+    assertEquals("a~b%2Ac", OAuth1Signer.percentEncode("a~b*c"));
+    assertNotEquals(SIGNER.sign(getParams("a"), "POST", URL),
+                    APP_SIGNER.sign(getParams("a"), "POST", URL));
+  }
+
+  @Test
+  public void testConcurrentSigning() throws Exception {
+    String          expected    = SIGNER.sign(getParams("hello"), "POST", URL);
+    OAuth1Signer    otherSigner = new OAuth1Signer("other", "secret");
+    ExecutorService executor    = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(() -> {
+          for (int j = 0; j < 1000; j++) {
+            // the buffers of the thread are also used by the other secrets
+            otherSigner.sign(getParams("other " + j), "POST", URL);
+            if (!expected.equals(SIGNER.sign(getParams("hello"), "POST", URL))) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testSignerOfRequestHelper() {
+    TwitterCredentials credentials   = TwitterCredentials.builder().apiKey("key").apiSecretKey(API_SECRET).accessToken("token")
+                                                         .accessTokenSecret(TOKEN_SECRET).build();
+    RequestHelper      requestHelper = new RequestHelper(credentials);
+    OAuth1Signer       signer        = requestHelper.getOAuth1Signer();
+    assertSame(signer, requestHelper.getOAuth1Signer());
+    assertEquals(SIGNER.sign(getParams("a"), "POST", URL), signer.sign(getParams("a"), "POST", URL));
+    // other credentials have their own signer
+    assertNotSame(signer, new RequestHelper(TwitterCredentials.builder().apiKey("key").apiSecretKey(API_SECRET).accessTokenSecret(TOKEN_SECRET).build()).getOAuth1Signer());
+    credentials.setAccessTokenSecret("other");
+    assertTrue(requestHelper.getOAuth1Signer().isFor(API_SECRET, "other"));
+  }
+
+  @Test
+  public void testNonce() {
+    String nonce = OAuth1Signer.generateNonce(32);
+    assertEquals(32, nonce.length());
+    assertTrue(nonce.chars().allMatch(Character::isLetterOrDigit));
+    assertNotEquals(nonce, OAuth1Signer.generateNonce(32));
+  }
+
+}
@@ -0,0 +1,192 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.TwitterClient;
+import io.github.redouane59.twitter.dto.endpoints.AdditionalParameters;
+import io.github.redouane59.twitter.dto.tweet.TweetList;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.TweetData;
+import io.github.redouane59.twitter.helpers.PageIterator;
+import io.github.redouane59.twitter.helpers.URLHelper;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class PageIteratorTest {
+
+  private final List<String> requestedCursors = new ArrayList<>();
+
+  /**
+   * Pages of 10 numbers, the cursor of a page being the index of its first number
+   */
+  private PageIterator<List<Integer>, Integer> getIterator(int pageCount, String cursor) {
+    return new PageIterator<>(c -> {
+      requestedCursors.add(c);
+      int first = c == null ? 0 : Integer.parseInt(c);
+      return Optional.of(IntStream.range(first, first + 10).boxed().collect(Collectors.toList()));
+    }, page -> page.get(0) + 10 < pageCount * 10 ? String.valueOf(page.get(0) + 10) : null, page -> page, cursor);
+  }
+
+  @Test
+  public void testPagesRequestedWhenConsumed() {
+    PageIterator<List<Integer>, Integer> iterator = getIterator(5, null);
+    assertTrue(requestedCursors.isEmpty());
+    assertEquals(Arrays.asList(0, 1, 2), iterator.stream().limit(3).collect(Collectors.toList()));
+    assertEquals(Collections.singletonList(null), requestedCursors);
+    assertEquals("10", iterator.getCursor());
+    assertEquals(Arrays.asList(10, 11), iterator.stream().limit(2).collect(Collectors.toList()));
+    assertEquals(Arrays.asList(null, "10"), requestedCursors);
+  }
+
+  @Test
+  public void testAllItems() {
+    PageIterator<List<Integer>, Integer> iterator = getIterator(5, null);
+    assertEquals(50, iterator.stream().count());
+    assertEquals(5, iterator.getPageCount());
+    assertTrue(iterator.isFinished());
+    assertNull(iterator.getCursor());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testPageCallbackStopped() {
+    PageIterator<List<Integer>, Integer> iterator = getIterator(5, null);
+    List<Integer>                        sums     = new ArrayList<>();
+    iterator.forEachPage(page -> {
+      sums.add(page.stream().mapToInt(Integer::intValue).sum());
+      return sums.size() < 2;
+    });
+    assertEquals(Arrays.asList(45, 145), sums);
+    assertEquals(2, requestedCursors.size());
+  }
+
+  @Test
+  public void testResumedFromCursor() {
+    assertEquals(Arrays.asList(30, 40), getIterator(5, "30").pages().map(page -> page.get(0)).collect(Collectors.toList()));
+    assertEquals(Arrays.asList("30", "40"), requestedCursors);
+  }
+
+  @Test
+  public void testEmptyPagesSkippedAndSameCursorStopped() {
+    List<List<Integer>> pages = Arrays.asList(Collections.emptyList(), null, Collections.singletonList(1), Collections.singletonList(2));
+    PageIterator<Integer, Integer>       iterator = new PageIterator<>(c -> {
+      requestedCursors.add(c);
+      return Optional.of(Integer.valueOf(c == null ? "0" : c));
+    }, index -> index < 2 ? String.valueOf(index + 1) : "2", index -> pages.get(index));
+    // the third page gives its own cursor again
+    assertEquals(Collections.singletonList(1), iterator.stream().collect(Collectors.toList()));
+    assertEquals(Arrays.asList(null, "1", "2"), requestedCursors);
+  }
+
+  @Test
+  public void testSearchTweetsPages() throws Exception {
+    List<String> queries = new CopyOnWriteArrayList<>();
+    HttpServer   server  = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/tweets/search/recent", exchange -> {
+      String query = exchange.getRequestURI().getQuery();
+      queries.add(query);
+      int    page = query.contains("next_token=") ? Integer.parseInt(query.replaceAll(".*next_token=(\\d+).*", "$1")) : 0;
+      String body = "{\"data\":[{\"id\":\"" + (2 * page) + "\",\"text\":\"a\"},{\"id\":\"" + (2 * page + 1) + "\",\"text\":\"b\"}],"
+                    + "\"meta\":{\"result_count\":2" + (page < 9 ? ",\"next_token\":\"" + (page + 1) + "\"" : "") + "}}";
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(bytes);
+      }
+    });
+    server.start();
+    try {
+      String        rootUrl       = "http://localhost:" + server.getAddress().getPort();
+      TwitterClient twitterClient = new TwitterClient(TwitterCredentials.builder().bearerToken("token").apiKey("key").apiSecretKey("secret").build());
+      twitterClient.setUrlHelper(new URLHelper() {
+        @Override
+        public String getSearchRecentTweetsUrl() {
+          return rootUrl + "/2/tweets/search/recent";
+        }
+      });
+      PageIterator<TweetList, TweetData> pages = twitterClient.searchTweetsPages("twitter", AdditionalParameters.builder().build());
+      assertTrue(queries.isEmpty());
+      List<String> ids = pages.stream().map(TweetData::getId).limit(5).collect(Collectors.toList());
+      assertEquals(Arrays.asList("0", "1", "2", "3", "4"), ids);
+      // the 3 pages holding the first 5 tweets only
+      assertEquals(3, queries.size());
+      assertFalse(queries.get(0).contains("next_token"));
+      assertTrue(queries.get(2).contains("next_token=2"));
+      assertTrue(queries.get(2).contains("max_results=100"));
+      assertEquals(14, pages.stream().count());
+      assertEquals(10, queries.size());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testDefaultPageSizes() throws Exception {
+    Map<String, String> queries = new ConcurrentHashMap<>();
+    HttpServer          server  = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      queries.put(exchange.getRequestURI().getPath(), exchange.getRequestURI().getQuery());
+      byte[] bytes = "{\"data\":[],\"meta\":{\"result_count\":0}}".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(bytes);
+      }
+    });
+    server.start();
+    try {
+      String        rootUrl       = "http://localhost:" + server.getAddress().getPort();
+      TwitterClient twitterClient = new TwitterClient(TwitterCredentials.builder().bearerToken("token").apiKey("key").apiSecretKey("secret").build());
+      twitterClient.setUrlHelper(new URLHelper() {
+        @Override
+        public String getFollowersUrl(String userId) {
+          return rootUrl + "/2/users/" + userId + "/followers";
+        }
+
+        @Override
+        public String getFollowingUrl(String userId) {
+          return rootUrl + "/2/users/" + userId + "/following";
+        }
+
+        @Override
+        public String getSearchAllTweetsUrl() {
+          return rootUrl + "/2/tweets/search/all";
+        }
+
+        @Override
+        public String getSearchRecentTweetsUrl() {
+          return rootUrl + "/2/tweets/search/recent";
+        }
+      });
+      AdditionalParameters noMaxResults = AdditionalParameters.builder().build();
+      twitterClient.getFollowersPages("1", noMaxResults).pages().count();
+      twitterClient.getFollowingPages("2", AdditionalParameters.builder().maxResults(200).build()).pages().count();
+      twitterClient.searchAllTweetsPages("twitter", noMaxResults).pages().count();
+      twitterClient.searchTweetsPages("twitter", noMaxResults).pages().count();
+      assertTrue(queries.get("/2/users/1/followers").contains("max_results=1000"));
+      // a given max_results is kept
+      assertTrue(queries.get("/2/users/2/following").contains("max_results=200"));
+      assertTrue(queries.get("/2/tweets/search/all").contains("max_results=500"));
+      assertFalse(queries.get("/2/tweets/search/all").contains("context_annotations"));
+      assertTrue(queries.get("/2/tweets/search/recent").contains("max_results=100"));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.ParallelStreamDecoder;
+import io.github.redouane59.twitter.helpers.ParallelStreamDecoder.Decoded;
+import io.github.redouane59.twitter.helpers.ParallelStreamDecoder.DeliveryOrder;
+import io.github.redouane59.twitter.helpers.StreamQueue;
+import io.github.redouane59.twitter.helpers.StreamQueue.OverflowPolicy;
+import io.github.redouane59.twitter.helpers.TweetStreamConsumer;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ParallelStreamDecoderTest {
+
+  private static final int             LINE_COUNT  = 500;
+  private final        ExecutorService workers     = Executors.newFixedThreadPool(4);
+  private final        AtomicInteger   decoding    = new AtomicInteger();
+  private final        AtomicInteger   maxDecoding = new AtomicInteger();
+
+  @AfterEach
+  public void shutdown() {
+    workers.shutdown();
+  }
+
+  private StreamQueue getQueue() throws InterruptedException {
+    StreamQueue queue = new StreamQueue(LINE_COUNT, OverflowPolicy.BLOCK, null);
+    for (int i = 0; i < LINE_COUNT; i++) {
+      queue.offer(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+    }
+    queue.close(null);
+    return queue;
+  }
+
+  /**
+   * Decodes the lines in a random time, the key of a line being its value modulo 7
+   */
+  private Decoded decode(byte[] line, List<Integer> delivered) {
+    maxDecoding.accumulateAndGet(decoding.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(new Random().nextInt(2));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    decoding.decrementAndGet();
+    int value = Integer.parseInt(new String(line, StandardCharsets.UTF_8));
+    return new Decoded(String.valueOf(value % 7), () -> delivered.add(value));
+  }
+
+  @Test
+  public void testOrdered() throws Exception {
+    List<Integer> delivered = new ArrayList<>();
+    new ParallelStreamDecoder(workers, 4, 32, DeliveryOrder.ORDERED, line -> decode(line, delivered)).run(getQueue());
+    assertEquals(IntStream.range(0, LINE_COUNT).boxed().collect(Collectors.toList()), delivered);
+    assertTrue(maxDecoding.get() > 1);
+  }
+
+  @Test
+  public void testPerKey() throws Exception {
+    Map<String, List<Integer>> deliveredByKey = new ConcurrentHashMap<>();
+    List<Integer>              delivered      = new CopyOnWriteArrayList<>();
+    new ParallelStreamDecoder(workers, 4, 32, DeliveryOrder.PER_KEY, line -> {
+      Decoded decoded = decode(line, delivered);
+      return new Decoded(decoded.getKey(), () -> {
+        decoded.getDelivery().run();
+        deliveredByKey.computeIfAbsent(decoded.getKey(), key -> new CopyOnWriteArrayList<>()).add(Integer.parseInt(new String(line, StandardCharsets.UTF_8)));
+      });
+    }).run(getQueue());
+    assertEquals(LINE_COUNT, delivered.size());
+    assertEquals(7, deliveredByKey.size());
+    for (List<Integer> values : deliveredByKey.values()) {
+      List<Integer> sorted = new ArrayList<>(values);
+      Collections.sort(sorted);
+      assertEquals(sorted, values);
+    }
+  }
+
+  @Test
+  public void testUnordered() throws Exception {
+    List<Integer> delivered = new CopyOnWriteArrayList<>();
+    new ParallelStreamDecoder(workers, 4, 32, DeliveryOrder.UNORDERED, line -> {
+      if (new String(line, StandardCharsets.UTF_8).equals("13")) {
+        throw new IllegalArgumentException("invalid line");
+      }
+      return decode(line, delivered);
+    }).run(getQueue());
+    // run only returns once all the lines are delivered
+    assertEquals(LINE_COUNT - 1, delivered.size());
+    assertEquals(LINE_COUNT - 1, delivered.stream().distinct().count());
+  }
+
+  @Test
+  public void testConsumeStreamDecodedInParallel() throws Exception {
+    String body = IntStream.range(0, LINE_COUNT)
+                           .mapToObj(i -> "{\"data\":{\"id\":\"" + i + "\",\"author_id\":\"" + (i % 3) + "\",\"text\":\"tweet " + i + "\"}}\r\n")
+                           .collect(Collectors.joining("\r\n"));
+    Response            response = new Response(200, "OK", Collections.emptyMap(), new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    List<String>        streamed = new CopyOnWriteArrayList<>();
+    CountDownLatch      done     = new CountDownLatch(LINE_COUNT);
+    TweetStreamConsumer consumer = new TweetStreamConsumer();
+    consumer.setDecodeParallelism(4);
+    consumer.setDeliveryOrder(DeliveryOrder.ORDERED);
+    consumer.consumeStream(new IAPIEventListener() {
+      @Override
+      public void onStreamError(int httpCode, String error) {
+      }
+
+      @Override
+      public void onTweetStreamed(Tweet tweet) {
+        streamed.add(tweet.getId());
+        done.countDown();
+      }
+
+      @Override
+      public void onUnknownDataStreamed(String json) {
+      }
+
+      @Override
+      public void onStreamEnded(Exception e) {
+      }
+    }, response, TweetV2.class);
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(IntStream.range(0, LINE_COUNT).mapToObj(String::valueOf).collect(Collectors.toList()), streamed);
+  }
+
+}
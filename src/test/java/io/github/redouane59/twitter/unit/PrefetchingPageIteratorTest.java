@@ -0,0 +1,158 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.redouane59.twitter.helpers.PageIterator;
+import io.github.redouane59.twitter.helpers.PrefetchingPageIterator;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class PrefetchingPageIteratorTest {
+
+  private final AtomicInteger  requestCount = new AtomicInteger();
+  private final CountDownLatch secondPage   = new CountDownLatch(1);
+
+  /**
+   * Pages made of their index, the page failing being answered with an exception
+   */
+  private PageIterator<Integer, Integer> getIterator(int pageCount, int failingPage) {
+    return new PageIterator<>(cursor -> {
+      int page = cursor == null ? 0 : Integer.parseInt(cursor);
+      requestCount.incrementAndGet();
+      if (page == 1) {
+        secondPage.countDown();
+      }
+      if (page == failingPage) {
+        throw new IllegalStateException("page " + page);
+      }
+      return Optional.of(page);
+    }, page -> page + 1 < pageCount ? String.valueOf(page + 1) : null, Collections::singletonList);
+  }
+
+  private void waitFor(int count) throws InterruptedException {
+    for (int i = 0; i < 200 && requestCount.get() < count; i++) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testNextPageRequestedWhileProcessing() throws Exception {
+    try (PrefetchingPageIterator<Integer, Integer> iterator = getIterator(5, -1).prefetch(2)) {
+      assertEquals(0, iterator.next().intValue());
+      // the second page is requested without being asked for
+      assertTrue(secondPage.await(2, TimeUnit.SECONDS));
+      assertEquals(Arrays.asList(1, 2, 3, 4), iterator.stream().collect(Collectors.toList()));
+      assertEquals(5, requestCount.get());
+      assertEquals(5, iterator.getPageCount());
+    }
+  }
+
+  @Test
+  public void testQueueBounded() throws Exception {
+    try (PrefetchingPageIterator<Integer, Integer> iterator = getIterator(100, -1).prefetch(3)) {
+      waitFor(3);
+      Thread.sleep(100);
+      // 3 pages queued, the 4th is only requested once there is room for it
+      assertEquals(3, iterator.getPrefetchedPageCount());
+      assertEquals(3, requestCount.get());
+      assertEquals(0, iterator.next().intValue());
+      waitFor(4);
+      Thread.sleep(100);
+      assertEquals(4, requestCount.get());
+      assertEquals("1", iterator.getCursor());
+    }
+  }
+
+  @Test
+  public void testClosedStream() throws Exception {
+    PrefetchingPageIterator<Integer, Integer> iterator = getIterator(100, -1).prefetch(1);
+    try (Stream<Integer> pages = iterator.pages()) {
+      assertEquals(Arrays.asList(0, 1), pages.limit(2).collect(Collectors.toList()));
+    }
+    // a request sent before the closing can still be running
+    Thread.sleep(50);
+    int count = requestCount.get();
+    Thread.sleep(100);
+    assertEquals(count, requestCount.get());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testCloseDuringRequest() throws Exception {
+    CountDownLatch requestStarted = new CountDownLatch(1);
+    CountDownLatch closedLatch    = new CountDownLatch(1);
+    PageIterator<Integer, Integer> source = new PageIterator<>(cursor -> {
+      int page = cursor == null ? 0 : Integer.parseInt(cursor);
+      requestCount.incrementAndGet();
+      if (page == 1) {
+        requestStarted.countDown();
+        // a request clearing the interruption, like a blocking HTTP call would
+        while (true) {
+          try {
+            closedLatch.await();
+            break;
+          } catch (InterruptedException e) {
+            // ignored
+          }
+        }
+      }
+      return Optional.of(page);
+    }, page -> String.valueOf(page + 1), Collections::singletonList);
+    PrefetchingPageIterator<Integer, Integer> iterator = source.prefetch(2);
+    assertEquals(0, iterator.next().intValue());
+    assertTrue(requestStarted.await(2, TimeUnit.SECONDS));
+    iterator.close();
+    // the page answered after the closing is neither returned nor followed by another request
+    closedLatch.countDown();
+    Thread.sleep(100);
+    assertFalse(iterator.hasNext());
+    assertEquals(2, requestCount.get());
+  }
+
+  @Test
+  public void testAbandonedIteratorStopped() throws Exception {
+    PageIterator<Integer, Integer>                source    = getIterator(100, -1);
+    WeakReference<PageIterator<Integer, Integer>> sourceRef = new WeakReference<>(source);
+    PrefetchingPageIterator<Integer, Integer>     iterator  = source.prefetch(2);
+    assertEquals(0, iterator.next().intValue());
+    waitFor(3);
+    // neither closed nor read to the end
+    source   = null;
+    iterator = null;
+    for (int i = 0; i < 50 && sourceRef.get() != null; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    // the source is only referenced by the producer until it stops
+    assertNull(sourceRef.get());
+    assertEquals(3, requestCount.get());
+  }
+
+  @Test
+  public void testErrorThrownToConsumer() {
+    PrefetchingPageIterator<Integer, Integer> iterator = getIterator(5, 2).prefetch(2);
+    List<Integer>                             pages    = Arrays.asList(iterator.next(), iterator.next());
+    assertEquals(Arrays.asList(0, 1), pages);
+    IllegalStateException e = assertThrows(IllegalStateException.class, iterator::next);
+    assertEquals("page 2", e.getMessage());
+  }
+
+  @Test
+  public void testInvalidDepth() {
+    assertThrows(IllegalArgumentException.class, () -> getIterator(5, -1).prefetch(0));
+  }
+
+}
@@ -0,0 +1,226 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.PageIterator;
+import io.github.redouane59.twitter.helpers.ParallelStreamDecoder.DeliveryOrder;
+import io.github.redouane59.twitter.helpers.RequestHelperV2;
+import io.github.redouane59.twitter.helpers.StreamPublisher;
+import io.github.redouane59.twitter.helpers.StreamPublisher.StreamErrorException;
+import io.github.redouane59.twitter.helpers.TweetStreamConsumer;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class PublisherTest {
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    while (!condition.getAsBoolean() && System.currentTimeMillis() - start < 5000) {
+      Thread.sleep(5);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  /**
+   * Pages of 3 items, the cursor being the index of the page
+   */
+  private static PageIterator<List<String>, String> pages(int pageCount, AtomicInteger loadedPages) {
+    return new PageIterator<>(cursor -> {
+      int page = cursor == null ? 0 : Integer.parseInt(cursor);
+      loadedPages.incrementAndGet();
+      return Optional.of(Arrays.asList(page + "a", page + "b", page + "c"));
+    }, items -> {
+      int page = Integer.parseInt(items.get(0).substring(0, 1)) + 1;
+      return page < pageCount ? String.valueOf(page) : null;
+    }, items -> items);
+  }
+
+  @Test
+  public void testDemandDrivesThePages() throws Exception {
+    AtomicInteger               loadedPages = new AtomicInteger();
+    RecordingSubscriber<String> subscriber  = new RecordingSubscriber<>();
+    pages(3, loadedPages).publisher().subscribe(subscriber);
+    Thread.sleep(50);
+    assertEquals(0, loadedPages.get());
+    subscriber.subscription.request(2);
+    waitFor(() -> subscriber.items.size() == 2);
+    subscriber.subscription.request(2);
+    waitFor(() -> subscriber.items.size() == 4);
+    Thread.sleep(50);
+    assertEquals(2, loadedPages.get());
+    subscriber.subscription.request(Long.MAX_VALUE);
+    waitFor(() -> subscriber.completed);
+    assertEquals(Stream.of("0a", "0b", "0c", "1a", "1b", "1c", "2a", "2b", "2c").collect(Collectors.toList()), subscriber.items);
+    assertEquals(3, loadedPages.get());
+  }
+
+  @Test
+  public void testCancelStopsThePages() throws Exception {
+    AtomicInteger               loadedPages = new AtomicInteger();
+    Publisher<String>           publisher   = pages(100, loadedPages).publisher();
+    RecordingSubscriber<String> subscriber  = new RecordingSubscriber<String>() {
+      @Override
+      public void onNext(String item) {
+        super.onNext(item);
+        if (items.size() == 4) {
+          subscription.cancel();
+        }
+      }
+    };
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    waitFor(() -> subscriber.items.size() == 4);
+    Thread.sleep(50);
+    assertEquals(4, subscriber.items.size());
+    assertEquals(2, loadedPages.get());
+    assertFalse(subscriber.completed);
+    // the iterator can only be consumed once
+    RecordingSubscriber<String> second = new RecordingSubscriber<>();
+    publisher.subscribe(second);
+    assertTrue(second.error instanceof IllegalStateException);
+  }
+
+  @Test
+  public void testStreamReadOnDemand() throws Exception {
+    String body = IntStream.range(0, 100).mapToObj(i -> "{\"data\":{\"id\":\"" + i + "\",\"text\":\"tweet " + i + "\"}}\r\n")
+                           .collect(Collectors.joining());
+    AtomicBoolean       closed   = new AtomicBoolean();
+    TweetStreamConsumer consumer = new TweetStreamConsumer();
+    consumer.setQueueCapacity(10);
+    StreamPublisher publisher = new StreamPublisher(listener -> {
+      ByteArrayInputStream stream   = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+      Response             response = new Response(200, "OK", Collections.emptyMap(), stream, () -> closed.set(true));
+      consumer.consumeStream(listener, response, TweetV2.class);
+      return CompletableFuture.completedFuture(response);
+    });
+    RecordingSubscriber<Tweet> subscriber = new RecordingSubscriber<>();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(5);
+    waitFor(() -> subscriber.items.size() == 5);
+    // the reader is blocked by the full queue until more tweets are requested
+    waitFor(() -> consumer.getQueueDepth() == 10);
+    Thread.sleep(50);
+    assertEquals(5, subscriber.items.size());
+    assertEquals(10, consumer.getQueueDepth());
+    subscriber.subscription.request(10);
+    waitFor(() -> subscriber.items.size() == 15);
+    assertEquals(IntStream.range(0, 15).mapToObj(String::valueOf).collect(Collectors.toList()),
+                 subscriber.items.stream().map(Tweet::getId).collect(Collectors.toList()));
+    subscriber.subscription.cancel();
+    waitFor(closed::get);
+    assertEquals(null, subscriber.error);
+  }
+
+  @Test
+  public void testStreamError() throws Exception {
+    StreamPublisher publisher = new StreamPublisher(listener -> {
+      ByteArrayInputStream stream   = new ByteArrayInputStream("{\"title\":\"ConnectionException\"}\r\n".getBytes(StandardCharsets.UTF_8));
+      Response             response = new Response(429, "", Collections.emptyMap(), stream);
+      new TweetStreamConsumer().consumeStream(listener, response, TweetV2.class);
+      return CompletableFuture.completedFuture(response);
+    });
+    RecordingSubscriber<Tweet> subscriber = new RecordingSubscriber<>();
+    publisher.subscribe(subscriber);
+    waitFor(() -> subscriber.error != null);
+    assertEquals(429, ((StreamErrorException) subscriber.error).getHttpCode());
+  }
+
+  @Test
+  public void testStreamConnectionFailure() throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    // nothing listens on the port anymore, the connection is refused
+    String          url           = "http://localhost:" + port + "/2/tweets/search/stream";
+    RequestHelperV2 requestHelper = new RequestHelperV2(TwitterCredentials.builder().bearerToken("token").build());
+    StreamPublisher publisher     = new StreamPublisher(listener -> requestHelper.getAsyncRequest(url, null, listener));
+    RecordingSubscriber<Tweet> subscriber = new RecordingSubscriber<>();
+    publisher.subscribe(subscriber);
+    waitFor(() -> subscriber.error != null);
+    assertTrue(subscriber.error instanceof IOException, subscriber.error.toString());
+  }
+
+  @Test
+  public void testParallelDecodingSignaledSerially() throws Exception {
+    String body = IntStream.range(0, 200).mapToObj(i -> "{\"data\":{\"id\":\"" + i + "\",\"text\":\"tweet " + i + "\"}}\r\n")
+                           .collect(Collectors.joining());
+    TweetStreamConsumer consumer = new TweetStreamConsumer();
+    consumer.setDecodeParallelism(4);
+    consumer.setDeliveryOrder(DeliveryOrder.UNORDERED);
+    StreamPublisher publisher = new StreamPublisher(listener -> {
+      Response response = new Response(200, "OK", Collections.emptyMap(), new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+      consumer.consumeStream(listener, response, TweetV2.class);
+      return CompletableFuture.completedFuture(response);
+    });
+    AtomicInteger concurrentCalls    = new AtomicInteger();
+    AtomicInteger maxConcurrentCalls = new AtomicInteger();
+    RecordingSubscriber<Tweet> subscriber = new RecordingSubscriber<Tweet>() {
+      @Override
+      public void onNext(Tweet tweet) {
+        maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+        Thread.yield();
+        super.onNext(tweet);
+        concurrentCalls.decrementAndGet();
+      }
+    };
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    waitFor(() -> subscriber.items.size() == 200);
+    assertEquals(1, maxConcurrentCalls.get());
+    assertEquals(200, subscriber.items.stream().map(Tweet::getId).distinct().count());
+  }
+
+  private static class RecordingSubscriber<T> implements Subscriber<T> {
+
+    final    List<T>      items = new CopyOnWriteArrayList<>();
+    volatile Subscription subscription;
+    volatile boolean      completed;
+    volatile Throwable    error;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+}
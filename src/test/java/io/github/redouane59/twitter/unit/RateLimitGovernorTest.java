@@ -0,0 +1,110 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.redouane59.twitter.dto.others.RateLimitStatus;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.RateLimitGovernor;
+import java.io.File;
+import javax.naming.LimitExceededException;
+import org.junit.jupiter.api.Test;
+
+public class RateLimitGovernorTest {
+
+  @Test
+  public void testEndpointTemplates() {
+    assertEquals("/2/users/:id/tweets", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/users/12345/tweets?max_results=100"));
+    assertEquals("/2/tweets/search/recent", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/tweets/search/recent"));
+    assertEquals("/2/users/by/username/:username", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/users/by/username/RedouaneBali"));
+    assertEquals("/2/users/:id/following/:id", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/users/1/following/2"));
+    assertEquals("/1.1/statuses/show", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/1.1/statuses/show.json?id=1"));
+    assertEquals("/2/spaces/:id", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/spaces/1DXxyRYNejbKM"));
+    assertEquals("/2/spaces/:id/buyers", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/spaces/1YpKkgVgmVMxj/buyers"));
+    assertEquals("/2/spaces/search", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/spaces/search?query=a"));
+    assertEquals("/2/spaces/by/creator_ids", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/spaces/by/creator_ids?user_ids=1"));
+    assertEquals("/2/dm_conversations/:id/dm_events", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/dm_conversations/123-456/dm_events"));
+    assertEquals("/2/dm_conversations/with/:id/messages", RateLimitGovernor.getEndpointTemplate("https://api.twitter.com/2/dm_conversations/with/456/messages"));
+  }
+
+  @Test
+  public void testExhaustedBudgetWithoutWait() throws Exception {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    long              reset    = System.currentTimeMillis() / 1000 + 60;
+    governor.update("/2/tweets/search/recent", 450, 2, reset);
+    governor.acquire("https://api.twitter.com/2/tweets/search/recent?query=a", false);
+    governor.acquire("https://api.twitter.com/2/tweets/search/recent?query=b", false);
+    assertEquals(0, governor.getRemaining("/2/tweets/search/recent"));
+    LimitExceededException e = assertThrows(LimitExceededException.class,
+                                            () -> governor.acquire("https://api.twitter.com/2/tweets/search/recent?query=c", false));
+    assertEquals(String.valueOf(reset), e.getMessage());
+    // other endpoints are not affected
+    governor.acquire("https://api.twitter.com/2/users/1/tweets", false);
+  }
+
+  @Test
+  public void testResponseDoesNotIncreaseReservedBudget() throws Exception {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    long              reset    = System.currentTimeMillis() / 1000 + 60;
+    governor.update("/2/tweets/:id", 300, 10, reset);
+    governor.acquire("https://api.twitter.com/2/tweets/1", false);
+    governor.acquire("https://api.twitter.com/2/tweets/2", false);
+    // response of the first call, sent before the second one was counted
+    governor.update("/2/tweets/:id", 300, 9, reset);
+    assertEquals(8, governor.getRemaining("/2/tweets/:id"));
+  }
+
+  @Test
+  public void testLastLimitKeptAfterReset() throws Exception {
+    RateLimitGovernor governor = new RateLimitGovernor();
+    // exhausted budget of a window ending within a second
+    governor.update("/2/tweets/:id", 3, 0, System.currentTimeMillis() / 1000);
+    governor.acquire("https://api.twitter.com/2/tweets/1", true);
+    // the new window has the budget of the previous one, until a response tells the actual one
+    assertEquals(2, governor.getRemaining("/2/tweets/:id"));
+    governor.acquire("https://api.twitter.com/2/tweets/2", false);
+    governor.acquire("https://api.twitter.com/2/tweets/3", false);
+    assertThrows(LimitExceededException.class, () -> governor.acquire("https://api.twitter.com/2/tweets/4", false));
+    // first response of the new window
+    long reset = System.currentTimeMillis() / 1000 + 900;
+    governor.update("/2/tweets/:id", 3, 1, reset);
+    assertEquals(0, governor.getRemaining("/2/tweets/:id"));
+    governor.update("/2/tweets/:id", 5, 4, reset + 60);
+    assertEquals(4, governor.getRemaining("/2/tweets/:id"));
+  }
+
+  @Test
+  public void testMinInterval() throws Exception {
+    RateLimitGovernor governor = new RateLimitGovernor().setMinInterval("/2/tweets/search/all", 200);
+    long              start    = System.currentTimeMillis();
+    for (int i = 0; i < 3; i++) {
+      governor.acquire("https://api.twitter.com/2/tweets/search/all?query=" + i, true);
+    }
+    assertTrue(System.currentTimeMillis() - start >= 400);
+  }
+
+  @Test
+  public void testReserveWithoutWaiting() throws Exception {
+    RateLimitGovernor governor = new RateLimitGovernor().setMinInterval("/2/tweets/search/all", 200);
+    long              start    = System.currentTimeMillis();
+    assertEquals(0, governor.reserve("https://api.twitter.com/2/tweets/search/all?query=0", true));
+    long second = governor.reserve("https://api.twitter.com/2/tweets/search/all?query=1", true);
+    long third  = governor.reserve("https://api.twitter.com/2/tweets/search/all?query=2", true);
+    assertTrue(System.currentTimeMillis() - start < 100);
+    assertTrue(second > 100 && second <= 200, "second call in " + second + "ms");
+    assertTrue(third > 300 && third <= 400, "third call in " + third + "ms");
+  }
+
+  @Test
+  public void testWarmUp() throws Exception {
+    File              file     = new File(getClass().getClassLoader().getResource("tests/rate_limit_status_example.json").getFile());
+    RateLimitStatus   status   = JsonHelper.OBJECT_MAPPER.readValue(file, RateLimitStatus.class);
+    RateLimitGovernor governor = new RateLimitGovernor();
+    governor.warmUp(status);
+    // the reset of the example is in the past, so the full limit is available again
+    assertEquals(900, governor.getRemaining("/1.1/lists/members"));
+    assertEquals(RateLimitGovernor.UNKNOWN, governor.getRemaining("/2/tweets/search/recent"));
+  }
+
+}
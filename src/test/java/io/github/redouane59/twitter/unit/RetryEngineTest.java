@@ -0,0 +1,243 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.core.model.OAuthRequest;
+import com.github.scribejava.core.model.Verb;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.dto.tweet.MediaCategory;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.dto.tweet.UploadMediaResponse;
+import io.github.redouane59.twitter.helpers.RequestHelper;
+import io.github.redouane59.twitter.helpers.RequestHelperV2;
+import io.github.redouane59.twitter.helpers.RetryEngine;
+import io.github.redouane59.twitter.helpers.RetryEngine.CircuitOpenException;
+import io.github.redouane59.twitter.helpers.RetryEngine.FailureType;
+import io.github.redouane59.twitter.helpers.RetryPolicy;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.naming.LimitExceededException;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RetryEngineTest {
+
+  private static final RetryPolicy     FAST_POLICY = RetryPolicy.builder().maxAttempts(3).baseDelayMs(1).maxDelayMs(5).build();
+  /**
+   * Codes of the next responses, 200 once empty. -1 closes the connection without response.
+   */
+  private final        Queue<Integer>  codes       = new ConcurrentLinkedQueue<>();
+  private final        AtomicInteger   calls       = new AtomicInteger();
+  private final        List<String>    commands    = new CopyOnWriteArrayList<>();
+  private              HttpServer      server;
+  private              String          tweetUrl;
+  private              RequestHelperV2 requestHelper;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/tweets", this::respond);
+    server.createContext("/1.1/media/upload.json", this::respondUpload);
+    server.start();
+    tweetUrl      = "http://localhost:" + server.getAddress().getPort() + "/2/tweets/1";
+    requestHelper = new RequestHelperV2(TwitterCredentials.builder().apiKey("key").apiSecretKey("secret").bearerToken("token").build());
+    requestHelper.setRetryEngine(new RetryEngine().setPolicy(FailureType.SERVER_ERROR, FAST_POLICY)
+                                                  .setPolicy(FailureType.IO_ERROR, FAST_POLICY)
+                                                  .setPolicy(FailureType.RATE_LIMIT, FAST_POLICY)
+                                                  .setCircuitBreaker(3, 60_000));
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    calls.incrementAndGet();
+    Integer code = codes.poll();
+    if (code == null) {
+      code = 200;
+    }
+    if (code < 0) {
+      exchange.close();
+      return;
+    }
+    if (code == 429) {
+      exchange.getResponseHeaders().add("Retry-After", "0");
+    }
+    byte[] body = (code == 200 ? "{\"data\":{\"id\":\"1\",\"text\":\"hello\"}}" : "{\"title\":\"error " + code + "\"}").getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(code, body.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  private void respondUpload(HttpExchange exchange) throws IOException {
+    calls.incrementAndGet();
+    String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+    String command = Stream.of("INIT", "APPEND", "FINALIZE").filter(body::contains).findFirst().orElse("STATUS");
+    commands.add(command);
+    Integer code = codes.poll();
+    if (code != null && code != 200) {
+      exchange.sendResponseHeaders(code, -1);
+      exchange.close();
+      return;
+    }
+    byte[] response = ("INIT".equals(command) ? "{\"media_id_string\":\"1\"}"
+                                               : "APPEND".equals(command) ? "" : "{\"media_id\":1,\"processing_info\":{\"state\":\"succeeded\"}}")
+        .getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, response.length == 0 ? -1 : response.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(response);
+    }
+  }
+
+  @Test
+  public void testServerErrorsRetried() {
+    codes.add(500);
+    codes.add(502);
+    assertEquals("hello", requestHelper.getRequest(tweetUrl, TweetV2.class).get().getText());
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testAttemptsLimited() {
+    for (int i = 0; i < 5; i++) {
+      codes.add(500);
+    }
+    // the last error response is handled as without retries
+    assertEquals(null, requestHelper.getRequest(tweetUrl, TweetV2.class).get().getData());
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testClientErrorNotRetried() {
+    codes.add(404);
+    requestHelper.getRequest(tweetUrl, TweetV2.class);
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testConnectionErrorRetried() {
+    codes.add(-1);
+    assertEquals("hello", requestHelper.getRequest(tweetUrl, TweetV2.class).get().getText());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testRateLimitRetried() throws Exception {
+    codes.add(429);
+    assertEquals("{\"data\":{\"id\":\"1\",\"text\":\"hello\"}}", requestHelper.makeRequest(new OAuthRequest(Verb.GET, tweetUrl), true));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testPostNotRetriedOnServerError() throws Exception {
+    codes.add(500);
+    requestHelper.makeRequest(new OAuthRequest(Verb.POST, tweetUrl), true);
+    assertEquals(1, calls.get());
+    // the 429 responses are retried whatever the verb
+    codes.add(429);
+    assertEquals("{\"data\":{\"id\":\"1\",\"text\":\"hello\"}}", requestHelper.makeRequest(new OAuthRequest(Verb.POST, tweetUrl), true));
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testPostRetriedWhenAllowed() throws Exception {
+    requestHelper.getRetryEngine().setPolicy(FailureType.SERVER_ERROR, FAST_POLICY.toBuilder().retryNonIdempotent(true).build());
+    codes.add(500);
+    assertEquals("{\"data\":{\"id\":\"1\",\"text\":\"hello\"}}", requestHelper.makeRequest(new OAuthRequest(Verb.POST, tweetUrl), true));
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testChunkedAppendRetried() throws Exception {
+    RequestHelper uploadHelper = new RequestHelper(TwitterCredentials.builder().apiKey("key").apiSecretKey("secret").accessToken("token")
+                                                                     .accessTokenSecret("secret").build());
+    uploadHelper.setRetryEngine(requestHelper.getRetryEngine());
+    // INIT, then a 503 on the first APPEND and on the FINALIZE
+    codes.add(200);
+    codes.add(503);
+    codes.add(200);
+    codes.add(503);
+    String url = "http://localhost:" + server.getAddress().getPort() + "/1.1/media/upload.json";
+    Optional<UploadMediaResponse> response = uploadHelper.uploadMediaChunked(url, "video.mp4", new ByteArrayInputStream(new byte[1024]),
+                                                                             UploadMediaResponse.class, MediaCategory.AMPLIFY_VIDEO.label);
+    assertEquals("1", response.get().getMediaId());
+    assertEquals(Arrays.asList("INIT", "APPEND", "APPEND", "FINALIZE", "FINALIZE"), commands);
+  }
+
+  @Test
+  public void testRateLimitNotRetriedWithoutAutomaticRetry() {
+    requestHelper.setAutomaticRetry(false);
+    codes.add(429);
+    assertThrows(LimitExceededException.class, () -> requestHelper.makeRequest(new OAuthRequest(Verb.GET, tweetUrl), true));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testRateLimitRetriesExhausted() {
+    for (int i = 0; i < 6; i++) {
+      codes.add(429);
+    }
+    // the body of the last 429 response is not converted as a result
+    assertThrows(LimitExceededException.class, () -> requestHelper.getRequest(tweetUrl, TweetV2.class));
+    assertEquals(3, calls.get());
+    ExecutionException e = assertThrows(ExecutionException.class,
+                                        () -> requestHelper.getRequestWithParametersAsync(tweetUrl, null, TweetV2.class).get(5, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof LimitExceededException);
+    assertEquals(6, calls.get());
+  }
+
+  @Test
+  public void testAsyncRetried() throws Exception {
+    codes.add(503);
+    codes.add(-1);
+    assertEquals("hello", requestHelper.getRequestWithParametersAsync(tweetUrl, null, TweetV2.class).get(5, TimeUnit.SECONDS).getText());
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testCircuitBreaker() {
+    for (int i = 0; i < 10; i++) {
+      codes.add(503);
+    }
+    // the 3 attempts answered with 503 open the circuit, the last response is returned
+    requestHelper.getRequest(tweetUrl, TweetV2.class);
+    assertEquals(3, calls.get());
+    CircuitOpenException e = assertThrows(CircuitOpenException.class, () -> requestHelper.getRequest(tweetUrl + "?expansions=author_id", TweetV2.class));
+    assertEquals("/2/tweets/:id", e.getEndpointTemplate());
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testBackoffWithFullJitter() {
+    RetryPolicy policy = RetryPolicy.builder().baseDelayMs(100).maxDelayMs(1000).build();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(policy.getDelayMs(1) <= 100);
+      assertTrue(policy.getDelayMs(3) <= 400);
+      long delay = policy.getDelayMs(10);
+      assertTrue(delay >= 0 && delay <= 1000);
+    }
+  }
+
+}
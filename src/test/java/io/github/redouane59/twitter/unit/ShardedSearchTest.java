@@ -0,0 +1,169 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.TwitterClient;
+import io.github.redouane59.twitter.dto.endpoints.AdditionalParameters;
+import io.github.redouane59.twitter.dto.tweet.TweetCountsList.TweetCountData;
+import io.github.redouane59.twitter.dto.tweet.TweetList;
+import io.github.redouane59.twitter.dto.tweet.TweetV2.TweetData;
+import io.github.redouane59.twitter.helpers.ConverterHelper;
+import io.github.redouane59.twitter.helpers.RateLimitGovernor;
+import io.github.redouane59.twitter.helpers.SearchShards;
+import io.github.redouane59.twitter.helpers.SearchShards.Shard;
+import io.github.redouane59.twitter.helpers.URLHelper;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ShardedSearchTest {
+
+  private static final LocalDateTime   START          = LocalDateTime.of(2020, 1, 1, 0, 0);
+  /**
+   * Number of tweets of each day from START
+   */
+  private static final int[]           DAILY_COUNTS   = {10, 0, 0, 40, 5, 5, 0, 20, 10, 10};
+  private final        List<String>    searchRanges   = new CopyOnWriteArrayList<>();
+  private final        ExecutorService serverExecutor = Executors.newFixedThreadPool(4);
+  private              HttpServer      server;
+  private              TwitterClient   twitterClient;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    // the histogram is given in two pages
+    server.createContext("/2/tweets/counts/all", exchange -> {
+      boolean secondPage = getParameters(exchange).containsKey("next_token");
+      String data = IntStream.range(secondPage ? 5 : 0, secondPage ? 10 : 5)
+                             .mapToObj(day -> "{\"start\":\"" + ConverterHelper.getStringFromDateV2(START.plusDays(day)) + "\",\"end\":\""
+                                              + ConverterHelper.getStringFromDateV2(START.plusDays(day + 1)) + "\",\"tweet_count\":"
+                                              + DAILY_COUNTS[day] + "}")
+                             .collect(Collectors.joining(","));
+      respond(exchange, "{\"data\":[" + data + "],\"meta\":{\"total_tweet_count\":0" + (secondPage ? "" : ",\"next_token\":\"2\"") + "}}");
+    });
+    // each tweet id is made of its day and its index in the day
+    server.createContext("/2/tweets/search/all", exchange -> {
+      Map<String, String> parameters = getParameters(exchange);
+      LocalDateTime       start      = ConverterHelper.getDateFromTwitterStringV2(parameters.get("start_time"));
+      LocalDateTime       end        = ConverterHelper.getDateFromTwitterStringV2(parameters.get("end_time"));
+      searchRanges.add(start.getDayOfMonth() + "-" + end.getDayOfMonth());
+      List<String> tweets = new ArrayList<>();
+      for (int day = 0; day < DAILY_COUNTS.length; day++) {
+        if (!START.plusDays(day).isBefore(start) && START.plusDays(day).isBefore(end)) {
+          for (int i = 0; i < DAILY_COUNTS[day]; i++) {
+            tweets.add("{\"id\":\"" + ((day + 1) * 100 + i) + "\",\"text\":\"t\"}");
+          }
+        }
+      }
+      respond(exchange, "{\"data\":[" + String.join(",", tweets) + "],\"meta\":{\"result_count\":" + tweets.size() + "}}");
+    });
+    server.setExecutor(serverExecutor);
+    server.start();
+    String rootUrl = "http://localhost:" + server.getAddress().getPort();
+    twitterClient = new TwitterClient(TwitterCredentials.builder().bearerToken("token").apiKey("key").apiSecretKey("secret").build());
+    // no pacing of /2/tweets/search/all in the test
+    twitterClient.getRequestHelperV2().setRateLimitGovernor(new RateLimitGovernor());
+    twitterClient.setUrlHelper(new URLHelper() {
+      @Override
+      public String getSearchAllTweetsUrl() {
+        return rootUrl + "/2/tweets/search/all";
+      }
+
+      @Override
+      public String getTweetsCountAllUrl() {
+        return rootUrl + "/2/tweets/counts/all";
+      }
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  private Map<String, String> getParameters(HttpExchange exchange) throws UnsupportedEncodingException {
+    Map<String, String> parameters = new HashMap<>();
+    for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+      String[] keyValue = parameter.split("=", 2);
+      parameters.put(keyValue[0], URLDecoder.decode(keyValue[1], "UTF-8"));
+    }
+    return parameters;
+  }
+
+  private void respond(HttpExchange exchange, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(bytes);
+    }
+  }
+
+  @Test
+  public void testSplitByVolume() {
+    List<TweetCountData> histogram = IntStream.range(0, DAILY_COUNTS.length)
+                                              .mapToObj(day -> new TweetCountData(DAILY_COUNTS[day], START.plusDays(day), START.plusDays(day + 1)))
+                                              .collect(Collectors.toList());
+    List<Shard> shards = SearchShards.split(histogram, START, START.plusDays(10), 4);
+    // 100 tweets: the 4th day holding 40 tweets ends the first shard, then 50 tweets are left for 3 shards
+    assertEquals(4, shards.size());
+    assertEquals(START, shards.get(0).getStart());
+    assertEquals(START.plusDays(4), shards.get(0).getEnd());
+    assertEquals(START.plusDays(4), shards.get(1).getStart());
+    assertEquals(START.plusDays(8), shards.get(1).getEnd());
+    assertEquals(START.plusDays(9), shards.get(2).getEnd());
+    assertEquals(START.plusDays(10), shards.get(3).getEnd());
+    assertEquals(Arrays.asList(50L, 30L, 10L, 10L), shards.stream().map(Shard::getExpectedTweetCount).collect(Collectors.toList()));
+    assertEquals(1, SearchShards.split(histogram, START, START.plusDays(10), 1).size());
+    assertEquals(1, SearchShards.split(new ArrayList<>(), START, START.plusDays(10), 4).size());
+  }
+
+  @Test
+  public void testGranularity() {
+    assertEquals("day", SearchShards.getGranularity(START, START.plusYears(2)));
+    assertEquals("hour", SearchShards.getGranularity(START, START.plusDays(10)));
+    assertEquals("minute", SearchShards.getGranularity(START, START.plusHours(3)));
+  }
+
+  @Test
+  public void testShardedSearch() {
+    TweetList result = twitterClient.searchAllTweetsSharded("twitter", AdditionalParameters.builder()
+                                                                                         .startTime(START)
+                                                                                         .endTime(START.plusDays(10))
+                                                                                         .build(), 4);
+    assertEquals(4, searchRanges.size());
+    assertTrue(searchRanges.containsAll(Arrays.asList("1-5", "5-9", "9-10", "10-11")), searchRanges.toString());
+    List<String> ids = result.getData().stream().map(TweetData::getId).collect(Collectors.toList());
+    assertEquals(100, ids.size());
+    assertEquals(100, ids.stream().distinct().count());
+    assertEquals(100, result.getMeta().getResultCount());
+    // newest first, whatever the order of the shards
+    for (int i = 1; i < ids.size(); i++) {
+      assertTrue(Long.parseLong(ids.get(i - 1)) > Long.parseLong(ids.get(i)));
+    }
+    assertEquals(ids.get(0), result.getMeta().getNewestId());
+    assertEquals("100", result.getMeta().getOldestId());
+  }
+
+}
@@ -0,0 +1,119 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.StreamLineFramer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class StreamLineFramerTest {
+
+  private static List<String> readAll(StreamLineFramer framer) throws IOException {
+    List<String> lines = new ArrayList<>();
+    while (framer.next()) {
+      lines.add(new String(framer.getBuffer(), framer.getOffset(), framer.getLength(), StandardCharsets.UTF_8));
+    }
+    return lines;
+  }
+
+  private static StreamLineFramer framer(String data, int bufferSize) {
+    return new StreamLineFramer(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), bufferSize);
+  }
+
+  @Test
+  public void testLinesAndKeepAlive() throws IOException {
+    assertEquals(Stream.of("{\"a\":1}", "", "é", "", "last").collect(Collectors.toList()),
+                 readAll(framer("{\"a\":1}\r\n\r\n é \r\n\nlast", 4)));
+    assertEquals(Collections.emptyList(), readAll(framer("", 4)));
+  }
+
+  @Test
+  public void testKeepAliveWithoutAllocation() throws IOException {
+    StreamLineFramer framer = framer("\r\n\r\n\r\n", 16);
+    byte[]           buffer = framer.getBuffer();
+    for (int i = 0; i < 3; i++) {
+      assertTrue(framer.next());
+      assertTrue(framer.isEmpty());
+    }
+    assertFalse(framer.next());
+    assertSame(buffer, framer.getBuffer());
+  }
+
+  @Test
+  public void testLineLongerThanTheBuffer() throws IOException {
+    String line = String.join("", Collections.nCopies(10_000, "x"));
+    assertEquals(Stream.of(line, "y").collect(Collectors.toList()), readAll(framer(line + "\r\ny\r\n", 16)));
+  }
+
+  @Test
+  public void testReadTimeoutKeepsThePartialLine() throws IOException {
+    List<Object> chunks = Stream.of("{\"da", new SocketTimeoutException(), "ta\":1}\r", new SocketTimeoutException(), "\n").collect(Collectors.toList());
+    InputStream input = new InputStream() {
+      @Override
+      public int read() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (chunks.isEmpty()) {
+          return -1;
+        }
+        Object chunk = chunks.remove(0);
+        if (chunk instanceof IOException) {
+          throw (IOException) chunk;
+        }
+        byte[] bytes = ((String) chunk).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+        return bytes.length;
+      }
+    };
+    StreamLineFramer framer   = new StreamLineFramer(input, 64);
+    int              timeouts = 0;
+    while (true) {
+      try {
+        assertTrue(framer.next());
+        break;
+      } catch (SocketTimeoutException e) {
+        timeouts++;
+      }
+    }
+    assertEquals(2, timeouts);
+    assertEquals("{\"data\":1}", new String(framer.copyLine(), StandardCharsets.UTF_8));
+    assertFalse(framer.next());
+  }
+
+  @Test
+  public void testParseSlices() throws IOException {
+    byte[]           data   = Files.readAllBytes(Paths.get("src/test/resources/tests/multiple_tweet_stream_example_part1.data"));
+    StreamLineFramer framer = new StreamLineFramer(new ByteArrayInputStream(data), 1024);
+    List<String>     ids    = new ArrayList<>();
+    int              empty  = 0;
+    while (framer.next()) {
+      if (framer.isEmpty()) {
+        empty++;
+      } else {
+        ids.add(JsonHelper.fromJson(framer.getBuffer(), framer.getOffset(), framer.getLength(), TweetV2.class).getId());
+      }
+    }
+    assertEquals(3, ids.size());
+    assertEquals(1, empty);
+  }
+
+}
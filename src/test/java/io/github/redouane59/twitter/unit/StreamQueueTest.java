@@ -0,0 +1,170 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.StreamQueue;
+import io.github.redouane59.twitter.helpers.StreamQueue.OverflowPolicy;
+import io.github.redouane59.twitter.helpers.TweetStreamConsumer;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StreamQueueTest {
+
+  @TempDir
+  Path directory;
+
+  private List<String> takeAll(StreamQueue queue) throws InterruptedException {
+    queue.close(null);
+    List<String> result = new ArrayList<>();
+    byte[]       line;
+    while ((line = queue.take()) != null) {
+      result.add(new String(line, StandardCharsets.UTF_8));
+    }
+    return result;
+  }
+
+  private static byte[] bytes(String line) {
+    return line.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private StreamQueue fill(OverflowPolicy policy, int count) throws InterruptedException {
+    StreamQueue queue = new StreamQueue(3, policy, directory);
+    for (int i = 0; i < count; i++) {
+      queue.offer(bytes("line" + i));
+    }
+    return queue;
+  }
+
+  @Test
+  public void testDropPolicies() throws Exception {
+    StreamQueue dropNewest = fill(OverflowPolicy.DROP_NEWEST, 5);
+    assertEquals(3, dropNewest.getDepth());
+    assertEquals(2, dropNewest.getDroppedLines());
+    assertEquals(Stream.of("line0", "line1", "line2").collect(Collectors.toList()), takeAll(dropNewest));
+
+    StreamQueue dropOldest = fill(OverflowPolicy.DROP_OLDEST, 5);
+    assertEquals(2, dropOldest.getDroppedLines());
+    assertEquals(Stream.of("line2", "line3", "line4").collect(Collectors.toList()), takeAll(dropOldest));
+  }
+
+  @Test
+  public void testSpillKeepsOrder() throws Exception {
+    StreamQueue queue = fill(OverflowPolicy.SPILL_TO_DISK, 6);
+    assertEquals(6, queue.getDepth());
+    assertEquals(3, queue.getSpilledLines());
+    assertEquals("line0", new String(queue.take(), StandardCharsets.UTF_8));
+    // the queue has room again, but the spilled lines come first
+    queue.offer(bytes("é" + String.join("", Collections.nCopies(100_000, "x"))));
+    queue.offer(bytes("line7"));
+    List<String> lines = takeAll(queue);
+    assertEquals(7, lines.size());
+    assertEquals("line3", lines.get(2));
+    assertEquals(100_001, lines.get(5).length());
+    assertEquals("line7", lines.get(6));
+    assertEquals(0, queue.getDroppedLines());
+    assertEquals(0, Files.list(directory).count());
+  }
+
+  @Test
+  public void testSpillWhileTaking() throws Exception {
+    StreamQueue queue  = new StreamQueue(3, OverflowPolicy.SPILL_TO_DISK, directory);
+    Thread      reader = new Thread(() -> {
+      try {
+        for (int i = 0; i < 20_000; i++) {
+          queue.offer(bytes("line" + i));
+        }
+        queue.close(null);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    reader.start();
+    List<String> lines = new ArrayList<>();
+    byte[]       line;
+    while ((line = queue.take()) != null) {
+      lines.add(new String(line, StandardCharsets.UTF_8));
+    }
+    reader.join(1000);
+    assertEquals(IntStream.range(0, 20_000).mapToObj(i -> "line" + i).collect(Collectors.toList()), lines);
+    assertEquals(0, queue.getDroppedLines());
+    assertEquals(0, Files.list(directory).count());
+  }
+
+  @Test
+  public void testBlockWaitsForTheListener() throws Exception {
+    StreamQueue queue  = fill(OverflowPolicy.BLOCK, 3);
+    Thread      reader = new Thread(() -> {
+      try {
+        queue.offer(bytes("line3"));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    reader.start();
+    reader.join(100);
+    assertTrue(reader.isAlive());
+    assertEquals("line0", new String(queue.take(), StandardCharsets.UTF_8));
+    reader.join(1000);
+    assertEquals(Stream.of("line1", "line2", "line3").collect(Collectors.toList()), takeAll(queue));
+    assertNull(queue.take());
+  }
+
+  @Test
+  public void testReaderNotStalledBySlowListener() throws Exception {
+    String body = IntStream.range(0, 10).mapToObj(i -> "{\"data\":{\"id\":\"" + i + "\",\"text\":\"tweet " + i + "\"}}\r\n\r\n")
+                           .collect(Collectors.joining());
+    Response                  response = new Response(200, "OK", Collections.emptyMap(), new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    List<String>              streamed = new ArrayList<>();
+    AtomicReference<Runnable> delivery = new AtomicReference<>();
+    TweetStreamConsumer       consumer = new TweetStreamConsumer();
+    consumer.setQueueCapacity(4);
+    consumer.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+    // the delivery only starts once the whole stream is read
+    consumer.setDeliveryExecutor(delivery::set);
+    consumer.consumeStream(new IAPIEventListener() {
+      @Override
+      public void onStreamError(int httpCode, String error) {
+      }
+
+      @Override
+      public void onTweetStreamed(Tweet tweet) {
+        streamed.add(tweet.getId());
+      }
+
+      @Override
+      public void onUnknownDataStreamed(String json) {
+      }
+
+      @Override
+      public void onStreamEnded(Exception e) {
+      }
+    }, response, TweetV2.class);
+    long start = System.currentTimeMillis();
+    while (consumer.getDroppedLines() < 6 && System.currentTimeMillis() - start < 5000) {
+      Thread.sleep(10);
+    }
+    assertEquals(4, consumer.getQueueDepth());
+    assertEquals(6, consumer.getDroppedLines());
+    delivery.get().run();
+    assertEquals(Stream.of("0", "1", "2", "3").collect(Collectors.toList()), streamed);
+    assertTrue(consumer.getStreamQueues().isEmpty());
+  }
+
+}
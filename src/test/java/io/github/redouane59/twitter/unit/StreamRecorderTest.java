@@ -0,0 +1,126 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.StreamRecorder;
+import io.github.redouane59.twitter.helpers.StreamReplayer;
+import io.github.redouane59.twitter.helpers.TweetStreamConsumer;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class StreamRecorderTest {
+
+  @TempDir
+  Path directory;
+
+  private final List<String>      streamed = new CopyOnWriteArrayList<>();
+  private final List<Exception>   ends     = new CopyOnWriteArrayList<>();
+  private final IAPIEventListener listener = new IAPIEventListener() {
+    @Override
+    public void onStreamError(int httpCode, String error) {
+    }
+
+    @Override
+    public void onTweetStreamed(Tweet tweet) {
+      streamed.add(tweet.getId());
+    }
+
+    @Override
+    public void onUnknownDataStreamed(String json) {
+    }
+
+    @Override
+    public void onStreamEnded(Exception e) {
+      ends.add(e);
+    }
+  };
+
+  private static byte[] tweet(int id) {
+    return ("{\"data\":{\"id\":\"" + id + "\",\"text\":\"tweet " + id + "\"}}").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> ids(int from, int to) {
+    return IntStream.range(from, to).mapToObj(String::valueOf).collect(Collectors.toList());
+  }
+
+  private void waitForEnd(int count) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    while (ends.size() < count && System.currentTimeMillis() - start < 5000) {
+      Thread.sleep(5);
+    }
+    assertEquals(count, ends.size());
+    assertTrue(ends.get(count - 1) instanceof EOFException);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void testRecordAndReplay(boolean compressSegments) throws Exception {
+    String body = IntStream.range(0, 50).mapToObj(i -> new String(tweet(i), StandardCharsets.UTF_8) + "\r\n\r\n").collect(Collectors.joining());
+    Response            response = new Response(200, "OK", Collections.emptyMap(), new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    TweetStreamConsumer consumer = new TweetStreamConsumer();
+    try (StreamRecorder recorder = new StreamRecorder(directory, 512, compressSegments)) {
+      consumer.setRecorder(recorder);
+      consumer.consumeStream(listener, response, TweetV2.class);
+      waitForEnd(1);
+      assertEquals(50, recorder.getRecordCount());
+      assertNull(recorder.getFailure());
+    }
+    List<Path> segments = Files.list(directory).sorted().collect(Collectors.toList());
+    assertEquals(5, segments.size());
+    assertTrue(segments.stream().allMatch(segment -> segment.toString().endsWith(compressSegments ? ".log.gz" : ".log")));
+    streamed.clear();
+    new StreamReplayer(directory).replay(listener, StreamReplayer.MAX_SPEED);
+    waitForEnd(2);
+    assertEquals(ids(0, 50), streamed);
+  }
+
+  @Test
+  public void testReplaySpeed() throws Exception {
+    try (StreamRecorder recorder = new StreamRecorder(directory)) {
+      for (int i = 0; i < 5; i++) {
+        recorder.record(1_000_000 + i * 100, tweet(i), 0, tweet(i).length);
+      }
+    }
+    long start = System.currentTimeMillis();
+    new StreamReplayer(directory).replay(listener, 2);
+    waitForEnd(1);
+    long elapsed = System.currentTimeMillis() - start;
+    // 400 ms recorded, replayed twice faster
+    assertTrue(elapsed >= 190, "replayed in " + elapsed + " ms");
+    assertTrue(elapsed < 2000, "replayed in " + elapsed + " ms");
+    assertEquals(ids(0, 5), streamed);
+  }
+
+  @Test
+  public void testRecordingResumed() throws Exception {
+    for (int run = 0; run < 2; run++) {
+      try (StreamRecorder recorder = new StreamRecorder(directory, 1024, run == 1)) {
+        for (int i = run * 10; i < run * 10 + 10; i++) {
+          recorder.record(tweet(i), 0, tweet(i).length);
+        }
+      }
+    }
+    new StreamReplayer(directory).replay(listener, StreamReplayer.MAX_SPEED);
+    waitForEnd(1);
+    assertEquals(ids(0, 20), streamed);
+  }
+
+}
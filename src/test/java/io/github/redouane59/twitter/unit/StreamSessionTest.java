@@ -0,0 +1,230 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.JsonHelper;
+import io.github.redouane59.twitter.helpers.RecentIdSet;
+import io.github.redouane59.twitter.helpers.StreamSession;
+import io.github.redouane59.twitter.helpers.TweetStreamConsumer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class StreamSessionTest {
+
+  private final TweetStreamConsumer    consumer    = new TweetStreamConsumer();
+  private final List<Integer>          backfills   = new CopyOnWriteArrayList<>();
+  private final List<ControlledStream> connections = new CopyOnWriteArrayList<>();
+  private final List<String>           streamed    = new CopyOnWriteArrayList<>();
+  private final List<Integer>          errors      = new CopyOnWriteArrayList<>();
+  private final IAPIEventListener      listener    = new IAPIEventListener() {
+    @Override
+    public void onStreamError(int httpCode, String error) {
+      errors.add(httpCode);
+    }
+
+    @Override
+    public void onTweetStreamed(Tweet tweet) {
+      streamed.add(tweet.getId());
+    }
+
+    @Override
+    public void onUnknownDataStreamed(String json) {
+    }
+
+    @Override
+    public void onStreamEnded(Exception e) {
+    }
+  };
+
+  @BeforeAll
+  public static void loadDecoder() throws Exception {
+    // the first decoding loads Jackson, which can take longer than the stall timeout
+    JsonHelper.fromJson(tweet(0), TweetV2.class);
+  }
+
+  private static String tweet(int id) {
+    return "{\"data\":{\"id\":\"" + id + "\",\"text\":\"tweet " + id + "\"}}\r\n";
+  }
+
+  private StreamSession createSession(int... codes) {
+    Deque<Integer> responseCodes = new ArrayDeque<>();
+    for (int code : codes) {
+      responseCodes.add(code);
+    }
+    StreamSession session = new StreamSession((connectionListener, backfillMinutes) -> {
+      ControlledStream stream   = new ControlledStream();
+      Integer          code     = responseCodes.poll();
+      Response         response = new Response(code == null ? 200 : code, "", Collections.emptyMap(), stream, stream);
+      backfills.add(backfillMinutes);
+      connections.add(stream);
+      consumer.consumeStream(connectionListener, response, TweetV2.class);
+      return CompletableFuture.completedFuture(response);
+    }, listener, consumer);
+    session.setNetworkBackoffStepMs(10);
+    session.setStallTimeoutMs(1000);
+    return session;
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    while (!condition.getAsBoolean() && System.currentTimeMillis() - start < 5000) {
+      Thread.sleep(5);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  @Test
+  public void testRecentIdSet() {
+    RecentIdSet ids = new RecentIdSet(3);
+    assertTrue(ids.add(1));
+    assertTrue(ids.add(2));
+    assertFalse(ids.add(1));
+    assertTrue(ids.add(3));
+    assertTrue(ids.add(4));
+    assertEquals(3, ids.getSize());
+    assertFalse(ids.contains(1));
+    assertTrue(ids.add(1));
+    // colliding ids removed from the middle of the probe sequences
+    RecentIdSet recent    = new RecentIdSet(1000);
+    Deque<Long> reference = new ArrayDeque<>();
+    Random      random    = new Random(7);
+    for (int i = 0; i < 100_000; i++) {
+      long id = random.nextInt(3000);
+      assertEquals(!reference.contains(id), recent.add(id));
+      if (!reference.contains(id)) {
+        reference.addLast(id);
+        if (reference.size() > 1000) {
+          reference.removeFirst();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReconnectWithBackfillWithoutDuplicates() throws Exception {
+    try (StreamSession session = createSession().start()) {
+      waitFor(() -> connections.size() == 1);
+      connections.get(0).write(tweet(1) + "\r\n" + tweet(2));
+      waitFor(() -> streamed.size() == 2);
+      // ended by Twitter
+      connections.get(0).end();
+      waitFor(() -> connections.size() == 2);
+      connections.get(1).write(tweet(2) + tweet(3));
+      waitFor(() -> streamed.size() == 3);
+      // keep-alive signals keep the connection, then it stalls
+      for (int i = 0; i < 4; i++) {
+        Thread.sleep(400);
+        connections.get(1).write("\r\n");
+      }
+      assertEquals(2, connections.size());
+      waitFor(() -> connections.size() == 3);
+      connections.get(2).write(tweet(4));
+      waitFor(() -> streamed.size() == 4);
+      assertEquals(Stream.of("1", "2", "3", "4").collect(Collectors.toList()), streamed);
+      assertEquals(1, session.getDuplicateCount());
+      assertEquals(2, session.getReconnectCount());
+      assertEquals(Stream.of(0, 1, 1).collect(Collectors.toList()), backfills);
+    }
+    waitFor(() -> connections.get(2).closed);
+  }
+
+  @Test
+  public void testRateLimitBackoff() throws Exception {
+    StreamSession session = createSession(429);
+    session.setRateLimitBackoffMinMs(300);
+    session.setBackfillEnabled(false);
+    try {
+      session.start();
+      waitFor(() -> connections.size() == 1);
+      long start = System.currentTimeMillis();
+      connections.get(0).write("{\"title\":\"ConnectionException\",\"detail\":\"Too many connections\"}\r\n");
+      waitFor(() -> connections.size() == 2);
+      assertTrue(System.currentTimeMillis() - start >= 300);
+      assertEquals(Collections.singletonList(429), errors);
+      assertEquals(Stream.of(0, 0).collect(Collectors.toList()), backfills);
+    } finally {
+      session.close();
+    }
+  }
+
+  /**
+   * Body of a stream written by the test, a read blocking until something is written
+   */
+  private static class ControlledStream extends InputStream {
+
+    private static final int                          END    = -1;
+    private static final int                          CLOSED = -2;
+    private final        LinkedBlockingQueue<Integer> bytes  = new LinkedBlockingQueue<>();
+    private volatile     boolean                      closed;
+
+    void write(String data) {
+      for (byte b : data.getBytes(StandardCharsets.UTF_8)) {
+        bytes.add(b & 0xFF);
+      }
+    }
+
+    void end() {
+      bytes.add(END);
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        int b = bytes.take();
+        if (b == CLOSED) {
+          bytes.add(CLOSED);
+          throw new IOException("Stream closed");
+        }
+        if (b == END) {
+          bytes.add(END);
+        }
+        return b;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int b = read();
+      if (b == END) {
+        return -1;
+      }
+      buffer[offset] = (byte) b;
+      int count = 1;
+      Integer next;
+      while (count < length && (next = bytes.peek()) != null && next >= 0) {
+        buffer[offset + count++] = (byte) (int) bytes.poll();
+      }
+      return count;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      bytes.add(CLOSED);
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.scribejava.core.model.Response;
+import io.github.redouane59.twitter.IAPIBatchEventListener;
+import io.github.redouane59.twitter.dto.tweet.Tweet;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.TweetBatcher;
+import io.github.redouane59.twitter.helpers.TweetStreamConsumer;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class TweetBatcherTest {
+
+  private final List<List<String>>     batches  = new CopyOnWriteArrayList<>();
+  private final List<List<Tweet>>      lists    = new CopyOnWriteArrayList<>();
+  private final List<String>           events   = new CopyOnWriteArrayList<>();
+  private final IAPIBatchEventListener listener = new IAPIBatchEventListener() {
+    @Override
+    public void onStreamError(int httpCode, String error) {
+      events.add("error " + httpCode);
+    }
+
+    @Override
+    public void onTweetsStreamed(List<Tweet> tweets) {
+      lists.add(tweets);
+      batches.add(tweets.stream().map(Tweet::getId).collect(Collectors.toList()));
+      events.add("batch " + tweets.size());
+    }
+
+    @Override
+    public void onUnknownDataStreamed(String json) {
+      events.add("unknown");
+    }
+
+    @Override
+    public void onStreamEnded(Exception e) {
+      events.add("ended");
+    }
+  };
+
+  private static Tweet tweet(int id) {
+    TweetV2 tweet = new TweetV2();
+    tweet.setData(TweetV2.TweetData.builder().id(String.valueOf(id)).build());
+    return tweet;
+  }
+
+  @Test
+  public void testBatchesBySize() {
+    try (TweetBatcher batcher = new TweetBatcher(listener, 3, 60_000)) {
+      for (int i = 0; i < 7; i++) {
+        batcher.onTweetStreamed(tweet(i));
+      }
+      assertEquals(Stream.of(Stream.of("0", "1", "2").collect(Collectors.toList()),
+                             Stream.of("3", "4", "5").collect(Collectors.toList())).collect(Collectors.toList()), batches);
+      // the list of the batches is reused
+      assertSame(lists.get(0), lists.get(1));
+      batcher.onUnknownDataStreamed("{}");
+      batcher.onStreamEnded(new Exception());
+    }
+    assertEquals(Collections.singletonList("6"), batches.get(2));
+    assertEquals(Stream.of("batch 3", "batch 3", "batch 1", "unknown", "ended").collect(Collectors.toList()), events);
+  }
+
+  @Test
+  public void testBatchesByLingerTime() throws Exception {
+    try (TweetBatcher batcher = new TweetBatcher(listener, 500, 50)) {
+      batcher.onTweetStreamed(tweet(0));
+      batcher.onTweetStreamed(tweet(1));
+      long start = System.currentTimeMillis();
+      while (batches.isEmpty() && System.currentTimeMillis() - start < 5000) {
+        Thread.sleep(5);
+      }
+      assertTrue(System.currentTimeMillis() - start >= 40);
+      assertEquals(Collections.singletonList(Stream.of("0", "1").collect(Collectors.toList())), batches);
+      batcher.onTweetStreamed(tweet(2));
+    }
+    assertEquals(Collections.singletonList("2"), batches.get(1));
+  }
+
+  @Test
+  public void testBatchesOfAStream() throws Exception {
+    String body = IntStream.range(0, 1000).mapToObj(i -> "{\"data\":{\"id\":\"" + i + "\",\"text\":\"tweet " + i + "\"}}\r\n")
+                           .collect(Collectors.joining());
+    Response     response = new Response(200, "OK", Collections.emptyMap(), new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    TweetBatcher batcher  = new TweetBatcher(listener, 100, 60_000);
+    new TweetStreamConsumer().consumeStream(batcher, response, TweetV2.class);
+    long start = System.currentTimeMillis();
+    while (!events.contains("ended") && System.currentTimeMillis() - start < 5000) {
+      Thread.sleep(5);
+    }
+    batcher.close();
+    List<String> ids = new ArrayList<>();
+    batches.forEach(ids::addAll);
+    assertEquals(IntStream.range(0, 1000).mapToObj(String::valueOf).collect(Collectors.toList()), ids);
+    assertEquals(10, batches.size());
+    assertEquals("ended", events.get(events.size() - 1));
+  }
+
+}
@@ -95,4 +95,16 @@ public class TweetListDeserializerTest {
     assertEquals("1120050519182016513", user.getId());
   }
 
+  @Test
+  public void testErrors() throws IOException {
+    String json = "{\"data\":[{\"id\":\"1\",\"text\":\"hello\"}],\"errors\":[{\"value\":\"2\",\"detail\":\"Could not find tweet with ids: [2].\","
+                  + "\"title\":\"Not Found Error\",\"resource_type\":\"tweet\",\"parameter\":\"ids\",\"resource_id\":\"2\","
+                  + "\"type\":\"https://api.twitter.com/2/problems/resource-not-found\"}]}";
+    TweetList result = JsonHelper.fromJson(json, TweetList.class);
+    assertEquals(1, result.getData().size());
+    assertEquals(1, result.getErrors().size());
+    assertEquals("2", result.getErrors().get(0).getResourceId());
+    assertEquals("Not Found Error", result.getErrors().get(0).getTitle());
+  }
+
 }
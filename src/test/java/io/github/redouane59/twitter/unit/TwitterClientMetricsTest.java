@@ -0,0 +1,123 @@
+package io.github.redouane59.twitter.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.redouane59.twitter.dto.tweet.TweetV2;
+import io.github.redouane59.twitter.helpers.RequestHelperV2;
+import io.github.redouane59.twitter.helpers.RetryEngine;
+import io.github.redouane59.twitter.metrics.InMemoryTwitterClientMetrics;
+import io.github.redouane59.twitter.metrics.InMemoryTwitterClientMetrics.EndpointMetrics;
+import io.github.redouane59.twitter.metrics.LatencyHistogram;
+import io.github.redouane59.twitter.signature.TwitterCredentials;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TwitterClientMetricsTest {
+
+  private static final String                       TWEET = "{\"data\":{\"id\":\"1\",\"text\":\"hello\"}}";
+  private              HttpServer                   server;
+  private              String                       rootUrl;
+  private              RequestHelperV2              requestHelper;
+  private              InMemoryTwitterClientMetrics metrics;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/2/tweets", exchange -> {
+      if (exchange.getRequestURI().getPath().endsWith("/closed")) {
+        exchange.close();
+        return;
+      }
+      boolean found = !exchange.getRequestURI().getPath().endsWith("/404");
+      byte[]  body  = (found ? TWEET : "{\"title\":\"Not Found Error\"}").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("x-rate-limit-limit", "300");
+      exchange.getResponseHeaders().add("x-rate-limit-remaining", "120");
+      exchange.getResponseHeaders().add("x-rate-limit-reset", String.valueOf(System.currentTimeMillis() / 1000 + 900));
+      exchange.sendResponseHeaders(found ? 200 : 404, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.start();
+    rootUrl       = "http://localhost:" + server.getAddress().getPort();
+    requestHelper = new RequestHelperV2(TwitterCredentials.builder().apiKey("key").apiSecretKey("secret").bearerToken("token").build());
+    requestHelper.setRetryEngine(RetryEngine.noRetry());
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testEndpointMetrics() {
+    metrics = new InMemoryTwitterClientMetrics();
+    requestHelper.setMetrics(metrics);
+    for (int i = 1; i <= 3; i++) {
+      assertEquals("hello", requestHelper.getRequest(rootUrl + "/2/tweets/" + i, TweetV2.class).get().getText());
+    }
+    requestHelper.getRequest(rootUrl + "/2/tweets/404", TweetV2.class);
+    EndpointMetrics endpointMetrics = metrics.getEndpointMetrics("/2/tweets/:id");
+    assertEquals(4, endpointMetrics.getRequestCount().sum());
+    Map<Integer, Long> expectedStatus = new HashMap<>();
+    expectedStatus.put(200, 3L);
+    expectedStatus.put(404, 1L);
+    assertEquals(expectedStatus, endpointMetrics.getStatusDistribution());
+    assertEquals(0, endpointMetrics.getRateLimitedCount().sum());
+    // the server always answers 120, the governor also counts the calls sent since the first response
+    assertEquals(117, endpointMetrics.getRateLimitRemaining());
+    assertEquals(3L * TWEET.length() + "{\"title\":\"Not Found Error\"}".length(), endpointMetrics.getResponseBytes().sum());
+    assertEquals(4, endpointMetrics.getNetworkLatency().getCount());
+    assertEquals(4, endpointMetrics.getParseLatency().getCount());
+    // nothing captured by default
+    assertTrue(endpointMetrics.getLastPayloads().isEmpty());
+  }
+
+  @Test
+  public void testPayloadCapture() {
+    metrics = new InMemoryTwitterClientMetrics(1, 10, 2);
+    requestHelper.setMetrics(metrics);
+    for (int i = 1; i <= 3; i++) {
+      assertEquals("hello", requestHelper.getRequest(rootUrl + "/2/tweets/" + i, TweetV2.class).get().getText());
+    }
+    String expected = "200 " + TWEET.substring(0, 10) + "...";
+    assertEquals(Arrays.asList(expected, expected), metrics.getEndpointMetrics("/2/tweets/:id").getLastPayloads());
+  }
+
+  @Test
+  public void testConnectionError() {
+    metrics = new InMemoryTwitterClientMetrics();
+    requestHelper.setMetrics(metrics);
+    assertFalse(requestHelper.getRequest(rootUrl + "/2/tweets/closed", TweetV2.class).isPresent());
+    assertEquals(1, metrics.getEndpointMetrics("/2/tweets/closed").getErrorCount().sum());
+    assertNull(metrics.getEndpointMetrics("/2/tweets/:id"));
+  }
+
+  @Test
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1_000_000, histogram.getMaxNanos());
+    assertEquals(500_500, histogram.getMeanNanos(), 0.1);
+    long p50 = histogram.getValueAtPercentile(50);
+    assertTrue(p50 >= 500_000 && p50 <= 500_000 * 17 / 16, String.valueOf(p50));
+    long p99 = histogram.getValueAtPercentile(99);
+    assertTrue(p99 >= 990_000 && p99 <= 1_000_000, String.valueOf(p99));
+    assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+  }
+
+}